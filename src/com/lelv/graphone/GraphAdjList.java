@@ -1,5 +1,9 @@
 package com.lelv.graphone;
 
+import com.lelv.memory.CapacityTrackingList;
+import com.lelv.memory.MemoryFootprint;
+import com.lelv.memory.MemoryLayout;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -24,7 +28,7 @@ public abstract class GraphAdjList<V, E> {
 		public Node(V info) {
 			this.info = info;
 			this.visited = false;
-			this.adj = new ArrayList<Arc>();
+			this.adj = new CapacityTrackingList<Arc>();
 		}
 
 		@Override
@@ -222,6 +226,41 @@ public abstract class GraphAdjList<V, E> {
 		return nodes.size();
 	}
 
+	/**
+	 * Estima la memoria que ocupa la estructura del grafo, sin contar los
+	 * vertices ni la informacion de los ejes, solo las referencias a ellos
+	 */
+	public MemoryFootprint memoryFootprint() {
+		long vertexIndex = MemoryLayout.hashMap(nodes.size()) + nodes.size()
+				* MemoryLayout.object(3, 1);
+		long adjacency = 0;
+		long slack = 0;
+		long arcs = 0;
+		for (Node n : nodes.values()) {
+			adjacency += MemoryLayout.list(n.adj);
+			slack += MemoryLayout.listSlack(n.adj);
+			arcs += n.adj.size();
+		}
+		// Cada eje tiene la informacion, el vecino y la referencia al grafo
+		adjacency += arcs * (MemoryLayout.object(3, 0) - MemoryLayout.REFERENCE);
+		return new MemoryFootprint(vertexIndex, adjacency, arcs
+				* MemoryLayout.REFERENCE, slack);
+	}
+
+	/**
+	 * Libera la capacidad reservada y no usada de las listas de adyacencia y
+	 * de la tabla de nodos (por ejemplo despues de borrar muchos nodos)
+	 */
+	public void trimToSize() {
+		HashMap<V, Node> trimmed = new HashMap<V, Node>();
+		for (Node n : nodes.values()) {
+			if (n.adj instanceof ArrayList)
+				((ArrayList<Arc>) n.adj).trimToSize();
+			trimmed.put(n.info, n);
+		}
+		nodes = trimmed;
+	}
+
 	private List<Node> getNodes() {
 		List<Node> l = new ArrayList<Node>(vertexCount());
 		Iterator<V> it = nodes.keySet().iterator();
@@ -1,5 +1,8 @@
 package com.lelv.graphone;
 
+import com.lelv.memory.MemoryFootprint;
+import com.lelv.memory.MemoryLayout;
+
 /**
  * Primera aproximaci�n, muy rudimentaria y simple, para manejo de grafos
  * 
@@ -138,4 +141,35 @@ public class GraphAdjMatrix implements IGraph {
 	public int vertexCount() {
 		return order;
 	}
+
+	/**
+	 * Estima la memoria que ocupa la matriz. La parte de la matriz que
+	 * corresponde a los nodos existentes es la adyacencia, y el resto (que
+	 * queda al borrar nodos) es espacio sobrante
+	 */
+	public MemoryFootprint memoryFootprint() {
+		if (adjacency == null)
+			return new MemoryFootprint(0, 0, 0, 0);
+		long used = matrixSize(order);
+		long allocated = matrixSize(space);
+		return new MemoryFootprint(0, used, 0, allocated - used);
+	}
+
+	/**
+	 * Achica la matriz a la cantidad de nodos actual
+	 */
+	public void trimToSize() {
+		if (space == order)
+			return;
+		boolean m[][] = new boolean[order][order];
+		for (int i = 0; i < order; i++)
+			System.arraycopy(adjacency[i], 0, m[i], 0, order);
+		adjacency = m;
+		space = order;
+	}
+
+	private static long matrixSize(int n) {
+		return MemoryLayout.referenceArray(n) + n
+				* MemoryLayout.primitiveArray(n, 1);
+	}
 }
@@ -1,6 +1,13 @@
 package com.lelv.graphthree;
 
+import com.lelv.memory.CapacityTrackingList;
+import com.lelv.memory.MemoryFootprint;
+import com.lelv.memory.MemoryLayout;
+
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public abstract class AbstractGraph<V, E> {
@@ -8,8 +15,10 @@ public abstract class AbstractGraph<V, E> {
     public static final int NON_EXISTENT_DEGREE = -1;
 
     private int numberEdges = 0;
+    private int modifications = 0;
     private Map<V, Vertex> vertexMap = new HashMap<>();
-    private List<Vertex> vertexList = new ArrayList<>();
+    private CapacityTrackingList<Vertex> vertexList = new CapacityTrackingList<>();
+    private List<GraphListener<V, E>> listeners = new ArrayList<>();
 
     /*
      * PUBLIC METHODS
@@ -101,6 +110,91 @@ public abstract class AbstractGraph<V, E> {
                        .orElse(null);
     }
 
+    /**
+     * Gets a read-only view of the nodes of the graph, which follows later changes of the graph instead of
+     * copying the nodes like {@link #getNodes()}
+     *
+     * @return unmodifiable list of the nodes that are in the graph
+     */
+    public List<V> getNodesView() {
+        return new MappedListView<>(vertexList, vertex -> vertex.node);
+    }
+
+    /**
+     * Gets a read-only view of the neighbors of a node, which follows later changes of the graph instead of
+     * copying the neighbors like {@link #getNeighbors(Object)}
+     *
+     * @param sourceNode the node to query for its neighbors
+     * @return unmodifiable list of the neighbors of the sourceNode, or null if the sourceNode doesn't exist
+     */
+    public List<V> getNeighborsView(V sourceNode) {
+        Vertex vertex = vertexMap.get(sourceNode);
+        return vertex == null ? null : vertex.neighbors();
+    }
+
+    /**
+     * Calls an action for every neighbor of a node, without creating any list or iterator
+     *
+     * @param sourceNode the node whose neighbors to visit
+     * @param action     action to call with every neighbor, in the order of the connections of the node
+     * @return true if the node exists, false otherwise
+     */
+    public boolean forEachNeighbor(V sourceNode, Consumer<? super V> action) {
+        Vertex vertex = vertexMap.get(sourceNode);
+        if (vertex == null) {
+            return false;
+        }
+        List<Edge> edges = vertex.edges;
+        for (int i = 0; i < edges.size(); i++) {
+            action.accept(edges.get(i).destination.node);
+        }
+        return true;
+    }
+
+    /**
+     * Calls an action for every connection from a node, without creating any list or iterator
+     *
+     * @param originNode the node whose connections to visit
+     * @param action     action to call with the destination and the information of every connection
+     * @return true if the node exists, false otherwise
+     */
+    public boolean forEachEdge(V originNode, BiConsumer<? super V, ? super E> action) {
+        Vertex vertex = vertexMap.get(originNode);
+        if (vertex == null) {
+            return false;
+        }
+        List<Edge> edges = vertex.edges;
+        for (int i = 0; i < edges.size(); i++) {
+            Edge edge = edges.get(i);
+            action.accept(edge.destination.node, edge.connection);
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the memory used by the structure of the graph. The nodes and connections themselves are not
+     * counted, only the references to them
+     *
+     * @return the bytes used by the map and list of vertices, by the lists of edges and the edges, by the
+     * references to the connections, and by the free capacity of the lists
+     */
+    public MemoryFootprint memoryFootprint() {
+        int n = vertexList.size();
+        long vertexIndex = MemoryLayout.hashMap(n)
+                + MemoryLayout.list(vertexList)
+                + n * MemoryLayout.object(3, 1);
+        long slack = MemoryLayout.listSlack(vertexList);
+        long adjacency = 0;
+        long edges = 0;
+        for (Vertex vertex : vertexList) {
+            adjacency += MemoryLayout.list(vertex.edges);
+            slack += MemoryLayout.listSlack(vertex.edges);
+            edges += vertex.edges.size();
+        }
+        adjacency += edges * (MemoryLayout.object(4, 0) - MemoryLayout.REFERENCE);
+        return new MemoryFootprint(vertexIndex, adjacency, edges * MemoryLayout.REFERENCE, slack);
+    }
+
     // Modify Graph
 
     /**
@@ -131,12 +225,15 @@ public abstract class AbstractGraph<V, E> {
         Vertex newVertex = new Vertex(node);
         vertexList.add(newVertex);
         vertexMap.put(node, newVertex);
+        modifications++;
+        listeners.forEach(listener -> listener.nodeAdded(node));
         return true;
     }
 
-    /** Removes a node from the graph
+    /** Removes a node from the graph, together with every connection from and to it. Listeners are notified of
+     *  each removed connection before the node itself is removed
      * @param node node to remove
-     * @return true if it was removed successfully, or false i
+     * @return true if it was removed successfully, or false if the node doesn't exist
      */
     public boolean removeNode(V node) {
         Vertex vertex = vertexMap.get(node);
@@ -146,10 +243,16 @@ public abstract class AbstractGraph<V, E> {
 
         vertexList.stream()
                   .filter(v -> !v.equals(vertex))
-                  .forEach(v -> v.removeNeighbor(node));
+                  .forEach(v -> v.removeNeighbor(node).ifPresent(this::removedEdge));
+        new ArrayList<>(vertex.edges).forEach(edge -> {
+            vertex.edges.remove(edge);
+            removedEdge(edge);
+        });
 
         vertexMap.remove(node);
         vertexList.remove(vertex);
+        modifications++;
+        listeners.forEach(listener -> listener.nodeRemoved(node));
         return true;
     }
 
@@ -177,6 +280,8 @@ public abstract class AbstractGraph<V, E> {
         if (edgeIsNotDuplicate) {
             originVertex.addNeighbor(connection, destinationVertex);
             numberEdges++;
+            modifications++;
+            listeners.forEach(listener -> listener.nodesConnected(originNode, destinationNode, connection));
         }
 
         return edgeIsNotDuplicate;
@@ -201,11 +306,77 @@ public abstract class AbstractGraph<V, E> {
                                  .findFirst()
                                  .map(edge -> {
                                      originVertex.edges.remove(edge);
-                                     numberEdges--;
+                                     removedEdge(edge);
                                      return true;
                                  }).orElse(false);
     }
 
+    /** Replaces the information stored in an existing connection, keeping its place among the neighbors of the
+     *  origin node. Listeners see it as a single change instead of a disconnection followed by a connection
+     * @param originNode node that serves as origin of the connection
+     * @param destinationNode node that serves as destination of the connection
+     * @param connection new information to store in the connection
+     * @return true if the connection is replaced successfully, false if the connection does not exist
+     */
+    public boolean setConnection(V originNode, V destinationNode, E connection) {
+        Vertex originVertex = vertexMap.get(originNode);
+        if (originVertex == null) {
+            return false;
+        }
+
+        ListIterator<Edge> iterator = originVertex.edges.listIterator();
+        while (iterator.hasNext()) {
+            Edge edge = iterator.next();
+            if (edge.destination.node.equals(destinationNode)) {
+                iterator.set(new Edge(connection, originVertex, edge.destination));
+                modifications++;
+                listeners.forEach(listener ->
+                        listener.connectionChanged(originNode, destinationNode, edge.connection, connection));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Frees the capacity the graph has allocated but does not use, such as the free space of the lists of
+     * vertices and edges, and the space left in the map of vertices by removed nodes. Useful after loading or
+     * removing many nodes and connections
+     */
+    public void trimToSize() {
+        vertexList.trimToSize();
+        vertexList.forEach(vertex -> {
+            if (vertex.edges instanceof ArrayList) {
+                ((ArrayList<?>) vertex.edges).trimToSize();
+            }
+        });
+        HashMap<V, Vertex> trimmed = new HashMap<>();
+        vertexList.forEach(vertex -> trimmed.put(vertex.node, vertex));
+        vertexMap = trimmed;
+    }
+
+    // Listen to the Graph
+
+    /**
+     * Subscribes a listener to the changes of the graph. Listeners are notified synchronously, in the order they
+     * were added, after each successful change
+     *
+     * @param listener the listener to notify
+     */
+    public void addListener(GraphListener<V, E> listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Unsubscribes a listener from the changes of the graph
+     *
+     * @param listener the listener to stop notifying
+     * @return true if the listener was subscribed, false otherwise
+     */
+    public boolean removeListener(GraphListener<V, E> listener) {
+        return listeners.remove(listener);
+    }
+
     /*
      * PROTECTED METHODS & CLASSES
      *
@@ -248,6 +419,16 @@ public abstract class AbstractGraph<V, E> {
                                  .findFirst();
     }
 
+    /**
+     * Every successful change to the graph (adding or removing nodes and connections, or replacing a connection)
+     * increments this counter. Structures derived from the graph can store it to find out whether they are out of date.
+     *
+     * @return the number of modifications applied to the graph since its creation
+     */
+    protected int getModificationCount() {
+        return modifications;
+    }
+
     // Modify Graph
 
     /**
@@ -258,6 +439,13 @@ public abstract class AbstractGraph<V, E> {
         vertexList.forEach(vertex -> vertex.visited = false);
     }
 
+    private void removedEdge(Edge edge) {
+        numberEdges--;
+        modifications++;
+        listeners.forEach(listener ->
+                listener.nodesDisconnected(edge.origin.node, edge.destination.node, edge.connection));
+    }
+
     // Classes
 
     protected class Vertex {
@@ -268,7 +456,7 @@ public abstract class AbstractGraph<V, E> {
         Vertex(V node) {
             this.node = node;
             this.visited = false;
-            this.edges = new ArrayList<>();
+            this.edges = new CapacityTrackingList<>();
         }
 
         public List<Vertex> getNeighbors() {
@@ -277,15 +465,23 @@ public abstract class AbstractGraph<V, E> {
                         .collect(Collectors.toList());
         }
 
+        /**
+         * @return read-only view of the nodes of the neighbors, which follows later changes of the edges
+         */
+        public List<V> neighbors() {
+            return new MappedListView<>(edges, edge -> edge.destination.node);
+        }
+
         private void addNeighbor(E connection, Vertex neighbor) {
             edges.add(new Edge(connection, this, neighbor));
         }
 
-        private void removeNeighbor(V neighbor) {
-            edges.stream()
-                 .filter(e -> e.destination.node.equals(neighbor))
-                 .findFirst()
-                 .ifPresent(e -> edges.remove(e));
+        private Optional<Edge> removeNeighbor(V neighbor) {
+            Optional<Edge> removed = edges.stream()
+                                          .filter(e -> e.destination.node.equals(neighbor))
+                                          .findFirst();
+            removed.ifPresent(e -> edges.remove(e));
+            return removed;
         }
 
         @Override
@@ -304,6 +500,29 @@ public abstract class AbstractGraph<V, E> {
         }
     }
 
+    /*
+     * Unmodifiable list that maps every element of another list when it is read
+     */
+    private static final class MappedListView<T, R> extends AbstractList<R> implements RandomAccess {
+        private final List<T> list;
+        private final Function<T, R> mapping;
+
+        MappedListView(List<T> list, Function<T, R> mapping) {
+            this.list = list;
+            this.mapping = mapping;
+        }
+
+        @Override
+        public R get(int index) {
+            return mapping.apply(list.get(index));
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+    }
+
     protected class Edge {
         public final E connection;
         public final Vertex origin;
@@ -0,0 +1,332 @@
+package com.lelv.graphthree;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+
+/**
+ * Incremental checkpoints of a graph: instead of writing the whole graph every time, every checkpoint only writes
+ * the nodes whose connections changed since the previous one, and the nodes removed.
+ * <p>
+ * The checkpointer listens to the graph to know which nodes are dirty. A checkpoint copies the connections of
+ * those nodes, which is the only moment the graph must not change, and writes them to a delta file in the
+ * background. Once there are enough deltas, they are folded with the current base into a new base, also in the
+ * background and without touching the graph, and the files folded are deleted.
+ * <p>
+ * Opening the checkpointer restores the graph from the base and the deltas after it, which are read in parallel.
+ * Changes made after the last checkpoint are not restored: checkpoints are meant to be combined with a
+ * {@link MutationLog}, or to be taken often enough that losing the changes since the last one is acceptable.
+ *
+ * @param <V> type of the nodes
+ * @param <E> type of the connections
+ */
+public class Checkpointer<V, E> implements GraphListener<V, E>, Closeable {
+
+    public static final int DEFAULT_DELTAS_PER_BASE = 16;
+
+    private static final String BASE_PREFIX = "base-";
+    private static final String DELTA_PREFIX = "delta-";
+    private static final String SUFFIX = ".bin";
+
+    private final Path directory;
+    private final AbstractGraph<V, E> graph;
+    private final Codec<V> nodeCodec;
+    private final Codec<E> connectionCodec;
+    private final int deltasPerBase;
+    private final ScheduledExecutorService writer;
+
+    // Changes since the last capture, guarded by the monitor of the checkpointer
+    private Set<V> dirty = new LinkedHashSet<>();
+    private Set<V> removed = new LinkedHashSet<>();
+    private ScheduledFuture<?> schedule;
+
+    // Only written by the writer thread
+    private volatile long last;
+    private volatile long base;
+
+    private Checkpointer(Path directory, AbstractGraph<V, E> graph, Codec<V> nodeCodec, Codec<E> connectionCodec,
+                         int deltasPerBase, long base, long last) {
+        this.directory = directory;
+        this.graph = graph;
+        this.nodeCodec = nodeCodec;
+        this.connectionCodec = connectionCodec;
+        this.deltasPerBase = deltasPerBase;
+        this.base = base;
+        this.last = last;
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens the checkpoints in a directory, folding deltas into a new base every
+     * {@link #DEFAULT_DELTAS_PER_BASE} checkpoints
+     *
+     * @see #open(Path, AbstractGraph, Codec, Codec, int)
+     */
+    public static <V, E> Checkpointer<V, E> open(Path directory, AbstractGraph<V, E> graph, Codec<V> nodeCodec,
+                                                 Codec<E> connectionCodec) throws IOException {
+        return open(directory, graph, nodeCodec, connectionCodec, DEFAULT_DELTAS_PER_BASE);
+    }
+
+    /**
+     * Opens the checkpoints in a directory, creating it if needed. The graph is restored from the last checkpoint,
+     * and from then on its changes are tracked for the next one
+     *
+     * @param directory       directory of the checkpoints
+     * @param graph           empty graph to restore
+     * @param nodeCodec       codec of the nodes
+     * @param connectionCodec codec of the connections, which are never null when given to it
+     * @param deltasPerBase   number of deltas written before they are folded into a new base
+     * @return the checkpointer, attached to the graph
+     * @throws IOException              if the checkpoints can not be read, or one is corrupt or missing
+     * @throws IllegalArgumentException if the graph is not empty, or the number of deltas is not positive
+     */
+    public static <V, E> Checkpointer<V, E> open(Path directory, AbstractGraph<V, E> graph, Codec<V> nodeCodec,
+                                                 Codec<E> connectionCodec, int deltasPerBase) throws IOException {
+        if (!graph.isEmpty()) {
+            throw new IllegalArgumentException("The graph to restore must be empty");
+        }
+        if (deltasPerBase < 1) {
+            throw new IllegalArgumentException("The number of deltas per base must be positive");
+        }
+        Files.createDirectories(directory);
+        for (Path leftover : list(directory, "", ".tmp")) {
+            Files.delete(leftover);
+        }
+
+        List<Path> bases = list(directory, BASE_PREFIX, SUFFIX);
+        long base = bases.isEmpty() ? 0 : numberOf(bases.get(bases.size() - 1), BASE_PREFIX);
+        List<Path> files = new ArrayList<>();
+        if (base > 0) {
+            files.add(bases.get(bases.size() - 1));
+        }
+        long last = base;
+        for (Path delta : list(directory, DELTA_PREFIX, SUFFIX)) {
+            long number = numberOf(delta, DELTA_PREFIX);
+            if (number > base) {
+                if (number != last + 1) {
+                    throw new IOException("Checkpoints missing before " + delta);
+                }
+                files.add(delta);
+                last = number;
+            }
+        }
+        read(files, nodeCodec, connectionCodec).applyTo(graph);
+
+        Checkpointer<V, E> checkpointer = new Checkpointer<>(directory, graph, nodeCodec, connectionCodec,
+                                                             deltasPerBase, base, last);
+        graph.addListener(checkpointer);
+        return checkpointer;
+    }
+
+    /**
+     * @return the number of the last checkpoint written. Checkpoints are numbered from 1
+     */
+    public long getLastCheckpoint() {
+        return last;
+    }
+
+    /**
+     * @return the number of nodes that changed or were removed since the last checkpoint
+     */
+    public synchronized int getNumberOfDirtyNodes() {
+        return dirty.size() + removed.size();
+    }
+
+    /**
+     * Copies the changes since the last checkpoint and writes them in the background. The graph must not change
+     * during the call: call it from the thread that changes the graph, or while holding the lock that guards it
+     *
+     * @return a future with the number of the checkpoint, completed once it is on disk, or completed
+     * exceptionally if it could not be written, in which case its changes go to the next checkpoint
+     */
+    public CompletableFuture<Long> checkpoint() {
+        GraphDelta<V, E> delta = capture();
+        return CompletableFuture.supplyAsync(() -> write(delta), writer);
+    }
+
+    /**
+     * Takes a checkpoint periodically from the background, replacing any previous schedule
+     *
+     * @param period time between checkpoints
+     * @param unit   unit of the period
+     * @param lock   lock held while the changes are copied, which must keep the graph from changing
+     */
+    public synchronized void schedule(long period, TimeUnit unit, Lock lock) {
+        if (schedule != null) {
+            schedule.cancel(false);
+        }
+        schedule = writer.scheduleWithFixedDelay(() -> {
+            GraphDelta<V, E> delta;
+            lock.lock();
+            try {
+                delta = capture();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                write(delta);
+            } catch (UncheckedIOException ignored) {
+                // The changes are kept for the next checkpoint
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Stops tracking the changes of the graph and waits for the checkpoints being written. Changes since the last
+     * checkpoint are not written
+     */
+    @Override
+    public void close() {
+        graph.removeListener(this);
+        synchronized (this) {
+            if (schedule != null) {
+                schedule.cancel(false);
+            }
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized void nodeAdded(V node) {
+        dirty.add(node);
+    }
+
+    @Override
+    public synchronized void nodeRemoved(V node) {
+        dirty.remove(node);
+        removed.add(node);
+    }
+
+    @Override
+    public synchronized void nodesConnected(V originNode, V destinationNode, E connection) {
+        dirty.add(originNode);
+    }
+
+    @Override
+    public synchronized void nodesDisconnected(V originNode, V destinationNode, E connection) {
+        dirty.add(originNode);
+    }
+
+    @Override
+    public synchronized void connectionChanged(V originNode, V destinationNode, E oldConnection,
+                                               E newConnection) {
+        dirty.add(originNode);
+    }
+
+    private synchronized GraphDelta<V, E> capture() {
+        GraphDelta<V, E> delta = GraphDelta.capture(graph, dirty, removed);
+        dirty = new LinkedHashSet<>();
+        removed = new LinkedHashSet<>();
+        return delta;
+    }
+
+    /*
+     * Runs on the writer thread, so checkpoints are written and folded one at a time and in order
+     */
+    private long write(GraphDelta<V, E> delta) {
+        if (delta.isEmpty()) {
+            return last;
+        }
+        try {
+            delta.write(file(DELTA_PREFIX, last + 1), nodeCodec, connectionCodec);
+        } catch (IOException e) {
+            synchronized (this) {
+                dirty.addAll(delta.adjacency.keySet());
+                removed.addAll(delta.removed);
+            }
+            throw new UncheckedIOException(e);
+        }
+        last++;
+
+        if (last - base >= deltasPerBase) {
+            try {
+                fold();
+            } catch (IOException e) {
+                // The deltas are still valid, the fold is attempted again after the next checkpoint
+                throw new UncheckedIOException(e);
+            }
+        }
+        return last;
+    }
+
+    private void fold() throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (base > 0) {
+            files.add(file(BASE_PREFIX, base));
+        }
+        for (long number = base + 1; number <= last; number++) {
+            files.add(file(DELTA_PREFIX, number));
+        }
+        GraphDelta<V, E> folded = read(files, nodeCodec, connectionCodec);
+        folded.removed.clear();
+        folded.write(file(BASE_PREFIX, last), nodeCodec, connectionCodec);
+
+        long previous = base;
+        base = last;
+        if (previous > 0) {
+            Files.delete(file(BASE_PREFIX, previous));
+        }
+        for (long number = previous + 1; number <= base; number++) {
+            Files.delete(file(DELTA_PREFIX, number));
+        }
+        GraphSnapshot.syncDirectory(directory);
+    }
+
+    /*
+     * Reads the files in parallel and folds them in order
+     */
+    private static <V, E> GraphDelta<V, E> read(List<Path> files, Codec<V> nodeCodec, Codec<E> connectionCodec)
+            throws IOException {
+        List<GraphDelta<V, E>> deltas;
+        try {
+            deltas = files.parallelStream()
+                          .map(file -> {
+                              try {
+                                  return GraphDelta.read(file, nodeCodec, connectionCodec);
+                              } catch (IOException e) {
+                                  throw new UncheckedIOException(e);
+                              }
+                          })
+                          .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        GraphDelta<V, E> folded = new GraphDelta<>();
+        deltas.forEach(folded::fold);
+        return folded;
+    }
+
+    private Path file(String prefix, long number) {
+        return directory.resolve(String.format("%s%020d%s", prefix, number, SUFFIX));
+    }
+
+    private static List<Path> list(Path directory, String prefix, String suffix) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            stream.forEach(files::add);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static long numberOf(Path file, String prefix) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.length() - SUFFIX.length()));
+    }
+}
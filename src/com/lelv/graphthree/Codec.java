@@ -0,0 +1,85 @@
+package com.lelv.graphthree;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns values into bytes and back, so that nodes and connections can be stored in files. A value read must be
+ * equal to the value written.
+ *
+ * @param <T> type of the values
+ */
+public interface Codec<T> {
+
+    Codec<Integer> INTEGER = new Codec<>() {
+        @Override
+        public void write(Integer value, DataOutput out) throws IOException {
+            out.writeInt(value);
+        }
+
+        @Override
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+
+    Codec<Long> LONG = new Codec<>() {
+        @Override
+        public void write(Long value, DataOutput out) throws IOException {
+            out.writeLong(value);
+        }
+
+        @Override
+        public Long read(DataInput in) throws IOException {
+            return in.readLong();
+        }
+    };
+
+    Codec<Double> DOUBLE = new Codec<>() {
+        @Override
+        public void write(Double value, DataOutput out) throws IOException {
+            out.writeDouble(value);
+        }
+
+        @Override
+        public Double read(DataInput in) throws IOException {
+            return in.readDouble();
+        }
+    };
+
+    /**
+     * Strings as their UTF-8 bytes preceded by their length, without the size limit of
+     * {@link DataOutput#writeUTF(String)}
+     */
+    Codec<String> STRING = new Codec<>() {
+        @Override
+        public void write(String value, DataOutput out) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    /**
+     * @param value the value to write, never null
+     * @param out   where to write it
+     * @throws IOException if the value can not be written
+     */
+    void write(T value, DataOutput out) throws IOException;
+
+    /**
+     * @param in where to read the value from
+     * @return the value read
+     * @throws IOException if the value can not be read
+     */
+    T read(DataInput in) throws IOException;
+}
@@ -0,0 +1,504 @@
+package com.lelv.graphthree;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Read-only snapshot of a graph in compressed sparse row (CSR) form.
+ * <p>
+ * Every node is mapped to a dense int id that follows the order of {@link AbstractGraph#getNodes()}. The
+ * neighbors of the node with id {@code i} are stored in {@code targets[offsets[i]]} up to
+ * {@code targets[offsets[i + 1] - 1]}, so algorithms can walk the whole structure over primitive arrays without
+ * touching the Vertex and Edge objects of the original graph. Snapshots of graphs whose connections are
+ * {@link WeightedEdge}s can also keep the weight of every connection in a parallel array.
+ * <p>
+ * The snapshot does not follow later changes made to the graph it was built from.
+ *
+ * @param <V> type of the nodes
+ */
+public class CompactGraph<V> {
+
+    public static final int NON_EXISTENT_ID = -1;
+
+    final List<V> nodes;
+    final Map<V, Integer> ids;
+    final int[] offsets;
+    final int[] targets;
+    final double[] weights;
+
+    private CompactGraph<V> transpose;
+
+    CompactGraph(List<V> nodes, Map<V, Integer> ids, int[] offsets, int[] targets) {
+        this(nodes, ids, offsets, targets, null);
+    }
+
+    CompactGraph(List<V> nodes, Map<V, Integer> ids, int[] offsets, int[] targets, double[] weights) {
+        this.nodes = nodes;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * Builds the compact representation of a graph
+     *
+     * @param graph the graph to take the snapshot from
+     * @return a compact graph with the same nodes and connections as the graph
+     */
+    public static <V, E> CompactGraph<V> of(AbstractGraph<V, E> graph) {
+        return of(graph, null);
+    }
+
+    /**
+     * Builds the compact representation of a weighted graph, keeping the weight of every connection
+     *
+     * @param graph the graph to take the snapshot from
+     * @return a compact graph with the same nodes, connections and weights as the graph
+     */
+    public static <V, E extends WeightedEdge> CompactGraph<V> weighted(AbstractGraph<V, E> graph) {
+        return of(graph, connection -> connection.getWeight().doubleValue());
+    }
+
+    /**
+     * Builds the compact representation of a graph, keeping a weight for every connection taken from the
+     * information stored in it
+     *
+     * @param graph  the graph to take the snapshot from
+     * @param weight function that gives the weight of every connection
+     * @return a compact graph with the same nodes and connections as the graph, and the weights given
+     */
+    public static <V, E> CompactGraph<V> weighted(AbstractGraph<V, E> graph, ToDoubleFunction<? super E> weight) {
+        return of(graph, Objects.requireNonNull(weight));
+    }
+
+    private static <V, E> CompactGraph<V> of(AbstractGraph<V, E> graph, ToDoubleFunction<? super E> weight) {
+        List<AbstractGraph<V, E>.Vertex> vertices = graph.getVertices();
+        int n = vertices.size();
+
+        List<V> nodes = new ArrayList<>(n);
+        Map<V, Integer> ids = new HashMap<>(n * 2);
+        for (AbstractGraph<V, E>.Vertex vertex : vertices) {
+            ids.put(vertex.node, nodes.size());
+            nodes.add(vertex.node);
+        }
+
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] = offsets[i] + vertices.get(i).edges.size();
+        }
+
+        int[] targets = new int[offsets[n]];
+        double[] weights = weight == null ? null : new double[offsets[n]];
+        int position = 0;
+        for (AbstractGraph<V, E>.Vertex vertex : vertices) {
+            for (AbstractGraph<V, E>.Edge edge : vertex.edges) {
+                if (weights != null) {
+                    weights[position] = weight.applyAsDouble(edge.connection);
+                }
+                targets[position++] = ids.get(edge.destination.node);
+            }
+        }
+        return new CompactGraph<>(Collections.unmodifiableList(nodes), ids, offsets, targets, weights);
+    }
+
+    /*
+     * Graph whose nodes are their own ids, used for structures derived from other graphs such as condensations
+     */
+    static CompactGraph<Integer> ofIds(int[] offsets, int[] targets) {
+        return ofIds(offsets, targets, null);
+    }
+
+    static CompactGraph<Integer> ofIds(int[] offsets, int[] targets, double[] weights) {
+        int n = offsets.length - 1;
+        List<Integer> nodes = new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                Objects.checkIndex(index, n);
+                return index;
+            }
+
+            @Override
+            public int size() {
+                return n;
+            }
+        };
+        // Every node maps to itself
+        return new CompactGraph<>(nodes, idsOf(nodes, key -> key instanceof Integer ? (Integer) key : -1),
+                                  offsets, targets, weights);
+    }
+
+    /**
+     * Builds a graph straight from a list of connections between keys interned in a dictionary, without creating
+     * any {@link AbstractGraph}. The nodes are the keys of the dictionary when the graph is built, and the ids of
+     * the graph are the ids of the dictionary, so {@link #idOf} and {@link #nodeOf} go through the dictionary
+     * instead of a map of their own. Keys interned later are not part of the graph. The connections of every node
+     * keep the order of the list
+     *
+     * @param dictionary   the dictionary that holds the keys of the nodes
+     * @param sources      id of the origin node of every connection
+     * @param destinations id of the destination node of every connection
+     * @return a compact graph with the keys of the dictionary as nodes, and the connections given
+     * @throws IllegalArgumentException if the arrays do not have the same length, or an id is not in the dictionary
+     */
+    public static CompactGraph<String> fromEdges(StringDictionary dictionary, int[] sources, int[] destinations) {
+        return fromEdges(dictionary, sources, destinations, null);
+    }
+
+    /**
+     * Builds a weighted graph straight from a list of connections between keys interned in a dictionary, as
+     * {@link #fromEdges(StringDictionary, int[], int[])} does
+     *
+     * @param dictionary   the dictionary that holds the keys of the nodes
+     * @param sources      id of the origin node of every connection
+     * @param destinations id of the destination node of every connection
+     * @param weights      weight of every connection, or null for an unweighted graph
+     * @return a compact graph with the keys of the dictionary as nodes, and the connections and weights given
+     * @throws IllegalArgumentException if the arrays do not have the same length, or an id is not in the dictionary
+     */
+    public static CompactGraph<String> fromEdges(StringDictionary dictionary, int[] sources, int[] destinations,
+                                                 double[] weights) {
+        int n = dictionary.size();
+        int m = sources.length;
+        if (destinations.length != m || (weights != null && weights.length != m)) {
+            throw new IllegalArgumentException("There must be a destination and weight for every origin");
+        }
+        int[] offsets = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            if (sources[e] < 0 || sources[e] >= n || destinations[e] < 0 || destinations[e] >= n) {
+                throw new IllegalArgumentException("Connection " + e + " joins ids that are not in the dictionary");
+            }
+            offsets[sources[e] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] position = Arrays.copyOf(offsets, n);
+        int[] targets = new int[m];
+        double[] sortedWeights = weights == null ? null : new double[m];
+        for (int e = 0; e < m; e++) {
+            int slot = position[sources[e]]++;
+            targets[slot] = destinations[e];
+            if (weights != null) {
+                sortedWeights[slot] = weights[e];
+            }
+        }
+
+        List<String> nodes = new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return dictionary.keyOf(Objects.checkIndex(index, n));
+            }
+
+            @Override
+            public int size() {
+                return n;
+            }
+        };
+        Map<String, Integer> ids = idsOf(nodes, key -> key instanceof String ? dictionary.idOf((String) key) : -1);
+        return new CompactGraph<>(nodes, ids, offsets, targets, sortedWeights);
+    }
+
+    /*
+     * Read-only map from the nodes to their ids that looks the ids up with a function instead of storing them. The
+     * function gives the id of any key, or a negative or too large id for keys that are not nodes
+     */
+    private static <V> Map<V, Integer> idsOf(List<V> nodes, ToIntFunction<Object> idOf) {
+        int n = nodes.size();
+        return new AbstractMap<V, Integer>() {
+            @Override
+            public Integer get(Object key) {
+                int id = key == null ? -1 : idOf.applyAsInt(key);
+                return id >= 0 && id < n ? id : null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return get(key) != null;
+            }
+
+            @Override
+            public int size() {
+                return n;
+            }
+
+            @Override
+            public Set<Entry<V, Integer>> entrySet() {
+                return new AbstractSet<Entry<V, Integer>>() {
+                    @Override
+                    public Iterator<Entry<V, Integer>> iterator() {
+                        return new Iterator<Entry<V, Integer>>() {
+                            private int id;
+
+                            @Override
+                            public boolean hasNext() {
+                                return id < n;
+                            }
+
+                            @Override
+                            public Entry<V, Integer> next() {
+                                if (id == n) {
+                                    throw new NoSuchElementException();
+                                }
+                                V key = nodes.get(id);
+                                return new SimpleImmutableEntry<>(key, id++);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public boolean contains(Object o) {
+                        return o instanceof Entry && ((Entry<?, ?>) o).getValue() != null
+                                && ((Entry<?, ?>) o).getValue().equals(get(((Entry<?, ?>) o).getKey()));
+                    }
+
+                    @Override
+                    public int size() {
+                        return n;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * @return the number of nodes in the graph
+     */
+    public int getNumberOfNodes() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @return the number of connections in the graph
+     */
+    public int getNumberOfConnections() {
+        return targets.length;
+    }
+
+    /**
+     * @return true if the weight of every connection is kept in the snapshot
+     */
+    public boolean isWeighted() {
+        return weights != null;
+    }
+
+    /**
+     * @param node the node to look for
+     * @return the id assigned to the node, or NON_EXISTENT_ID if the node is not part of the graph
+     */
+    public int idOf(V node) {
+        Integer id = ids.get(node);
+        return id == null ? NON_EXISTENT_ID : id;
+    }
+
+    /**
+     * @param id id of the node
+     * @return the node that has been assigned the id
+     */
+    public V nodeOf(int id) {
+        return nodes.get(id);
+    }
+
+    /**
+     * @return list of all the nodes in the graph, indexed by their ids
+     */
+    public List<V> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @param id id of the node
+     * @return the number of neighbors of the node
+     */
+    public int outDegree(int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    /**
+     * Gets a neighbor of a node without copying the neighbors, so that loops over {@link #outDegree(int)} do not
+     * allocate anything
+     *
+     * @param id    id of the node
+     * @param index position of the neighbor, from 0 to the out degree of the node - 1
+     * @return the id of the neighbor
+     */
+    public int neighbor(int id, int index) {
+        return targets[offsets[id] + Objects.checkIndex(index, offsets[id + 1] - offsets[id])];
+    }
+
+    /**
+     * @param id    id of the node
+     * @param index position of the neighbor, from 0 to the out degree of the node - 1
+     * @return the weight of the connection to the neighbor
+     * @throws IllegalStateException if the graph is not weighted
+     */
+    public double weight(int id, int index) {
+        if (weights == null) {
+            throw new IllegalStateException("The graph is not weighted");
+        }
+        return weights[offsets[id] + Objects.checkIndex(index, offsets[id + 1] - offsets[id])];
+    }
+
+    /**
+     * Calls an action with the id of every neighbor of a node, without copying the neighbors
+     *
+     * @param id     id of the node
+     * @param action action to call with every neighbor
+     */
+    public void forEachNeighbor(int id, IntConsumer action) {
+        for (int e = offsets[id]; e < offsets[id + 1]; e++) {
+            action.accept(targets[e]);
+        }
+    }
+
+    /**
+     * Calls an action with the id of every neighbor of a node and the weight of the connection to it, without
+     * copying the neighbors
+     *
+     * @param id     id of the node
+     * @param action action to call with every neighbor and weight
+     * @throws IllegalStateException if the graph is not weighted
+     */
+    public void forEachEdge(int id, EdgeConsumer action) {
+        if (weights == null) {
+            throw new IllegalStateException("The graph is not weighted");
+        }
+        for (int e = offsets[id]; e < offsets[id + 1]; e++) {
+            action.accept(targets[e], weights[e]);
+        }
+    }
+
+    /**
+     * @param id id of the node
+     * @return a new array with the ids of the neighbors of the node
+     */
+    public int[] neighbors(int id) {
+        return Arrays.copyOfRange(targets, offsets[id], offsets[id + 1]);
+    }
+
+    /**
+     * @param id id of the node
+     * @return a new array with the weights of the connections of the node, in the same order as its neighbors
+     * @throws IllegalStateException if the graph is not weighted
+     */
+    public double[] weights(int id) {
+        if (weights == null) {
+            throw new IllegalStateException("The graph is not weighted");
+        }
+        return Arrays.copyOfRange(weights, offsets[id], offsets[id + 1]);
+    }
+
+    /**
+     * Builds a copy of this graph with the nodes renumbered, for instance to place nodes that are connected close
+     * to each other. Every node keeps its connections and weights, and the connections of every node are sorted by
+     * the id of their destination
+     *
+     * @param newIds the new id of every node, indexed by its current id
+     * @return the graph with the new ids
+     * @throws IllegalArgumentException if the new ids are not a permutation of the current ones
+     * @see VertexOrdering
+     */
+    public CompactGraph<V> reorder(int[] newIds) {
+        int n = getNumberOfNodes();
+        if (newIds.length != n) {
+            throw new IllegalArgumentException("There must be a new id for every node");
+        }
+        int[] oldIds = new int[n];
+        Arrays.fill(oldIds, NON_EXISTENT_ID);
+        for (int v = 0; v < n; v++) {
+            if (newIds[v] < 0 || newIds[v] >= n || oldIds[newIds[v]] != NON_EXISTENT_ID) {
+                throw new IllegalArgumentException("The new ids must be a permutation of the current ones");
+            }
+            oldIds[newIds[v]] = v;
+        }
+
+        List<V> reorderedNodes = new ArrayList<>(n);
+        Map<V, Integer> reorderedIds = new HashMap<>(n * 2);
+        int[] reorderedOffsets = new int[n + 1];
+        for (int id = 0; id < n; id++) {
+            V node = nodes.get(oldIds[id]);
+            reorderedNodes.add(node);
+            reorderedIds.put(node, id);
+            reorderedOffsets[id + 1] = reorderedOffsets[id] + outDegree(oldIds[id]);
+        }
+        int[] reorderedTargets = new int[targets.length];
+        double[] reorderedWeights = weights == null ? null : new double[weights.length];
+        for (int id = 0; id < n; id++) {
+            int from = offsets[oldIds[id]];
+            int length = offsets[oldIds[id] + 1] - from;
+            for (int i = 0; i < length; i++) {
+                reorderedTargets[reorderedOffsets[id] + i] = newIds[targets[from + i]];
+            }
+            if (weights != null) {
+                System.arraycopy(weights, from, reorderedWeights, reorderedOffsets[id], length);
+            }
+            sortConnections(reorderedTargets, reorderedWeights, reorderedOffsets[id], reorderedOffsets[id + 1]);
+        }
+        return new CompactGraph<>(Collections.unmodifiableList(reorderedNodes), reorderedIds, reorderedOffsets,
+                                  reorderedTargets, reorderedWeights);
+    }
+
+    /*
+     * Sorts the connections between two positions by destination, moving their weights along if there are any
+     */
+    static void sortConnections(int[] targets, double[] weights, int from, int to) {
+        if (weights == null) {
+            Arrays.sort(targets, from, to);
+            return;
+        }
+        long[] keys = new long[to - from];
+        for (int e = from; e < to; e++) {
+            keys[e - from] = (long) targets[e] << 32 | (e - from);
+        }
+        Arrays.sort(keys);
+        double[] original = Arrays.copyOfRange(weights, from, to);
+        for (int i = 0; i < keys.length; i++) {
+            targets[from + i] = (int) (keys[i] >>> 32);
+            weights[from + i] = original[(int) keys[i]];
+        }
+    }
+
+    /**
+     * Calculates the transpose of this graph, this is, the same graph with every connection reversed. Ids and
+     * weights are preserved, and the result is cached so repeated calls do not rebuild it.
+     *
+     * @return the transpose of the graph
+     */
+    public CompactGraph<V> transpose() {
+        if (transpose == null) {
+            int n = getNumberOfNodes();
+            int[] reverseOffsets = new int[n + 1];
+            for (int target : targets) {
+                reverseOffsets[target + 1]++;
+            }
+            for (int i = 0; i < n; i++) {
+                reverseOffsets[i + 1] += reverseOffsets[i];
+            }
+            int[] position = Arrays.copyOf(reverseOffsets, n);
+            int[] reverseTargets = new int[targets.length];
+            double[] reverseWeights = weights == null ? null : new double[weights.length];
+            for (int v = 0; v < n; v++) {
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    int slot = position[targets[e]]++;
+                    reverseTargets[slot] = v;
+                    if (reverseWeights != null) {
+                        reverseWeights[slot] = weights[e];
+                    }
+                }
+            }
+            transpose = new CompactGraph<>(nodes, ids, reverseOffsets, reverseTargets, reverseWeights);
+            transpose.transpose = this;
+        }
+        return transpose;
+    }
+
+    /**
+     * Receives the connections of a node of a weighted compact graph
+     */
+    @FunctionalInterface
+    public interface EdgeConsumer {
+        void accept(int neighbor, double weight);
+    }
+}
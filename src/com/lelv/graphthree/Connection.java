@@ -0,0 +1,46 @@
+package com.lelv.graphthree;
+
+import java.util.Objects;
+
+/**
+ * A connection of a graph together with the nodes it binds, for results that are sets of connections
+ *
+ * @param <V> type of the nodes
+ * @param <E> type of the connections
+ */
+public final class Connection<V, E> {
+    public final V originNode;
+    public final V destinationNode;
+    public final E connection;
+
+    public Connection(V originNode, V destinationNode, E connection) {
+        this.originNode = originNode;
+        this.destinationNode = destinationNode;
+        this.connection = connection;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Connection<?, ?> that = (Connection<?, ?>) o;
+
+        if (!Objects.equals(originNode, that.originNode)) return false;
+        if (!Objects.equals(destinationNode, that.destinationNode)) return false;
+        return Objects.equals(connection, that.connection);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = originNode != null ? originNode.hashCode() : 0;
+        result = 31 * result + (destinationNode != null ? destinationNode.hashCode() : 0);
+        result = 31 * result + (connection != null ? connection.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return originNode + "-" + destinationNode;
+    }
+}
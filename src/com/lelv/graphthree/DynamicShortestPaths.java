@@ -0,0 +1,276 @@
+package com.lelv.graphthree;
+
+import java.util.*;
+
+/**
+ * Shortest paths from one origin node that are kept up to date while the graph changes, instead of being
+ * recomputed from scratch. The distances form a shortest path tree rooted at the origin, and the tree subscribes
+ * to the graph to repair itself after every change, in the style of Ramalingam and Reps:
+ * <ul>
+ * <li>A new connection, or a connection whose weight decreases, can only shorten paths. The nodes that improve are
+ * found with Dijkstra's algorithm starting from the destination of the connection, and nothing else is visited.</li>
+ * <li>A removed connection, or a connection whose weight increases, only matters if it belongs to the tree. Then
+ * the subtree below it loses its distances, each of its nodes takes the best distance offered by the nodes outside
+ * of the subtree, and Dijkstra's algorithm settles the subtree again.</li>
+ * </ul>
+ * The cost of an update depends on the number of nodes whose distance changes and on their connections, not on
+ * the size of the graph. To reach the connections that arrive to a node, the tree keeps its own index of them,
+ * which uses memory proportional to the number of connections.
+ * <p>
+ * Weights must not be negative. The tree follows the graph until {@link #unsubscribe()} is called, and stops
+ * having a meaning when the origin node is removed from the graph.
+ *
+ * @param <V> type of the nodes
+ * @param <E> type of the connections
+ * @see GraphFunctions#dijkstra(AbstractGraph, Object)
+ */
+public class DynamicShortestPaths<V, E extends WeightedEdge> implements GraphListener<V, E> {
+
+    private final AbstractGraph<V, E> graph;
+    private final V origin;
+
+    private final Map<V, Double> distances = new HashMap<>();
+    private final Map<V, V> parents = new HashMap<>();
+    private final Map<V, Set<V>> children = new HashMap<>();
+    private final Map<V, Map<V, Double>> incoming = new HashMap<>();
+
+    /**
+     * Calculates the shortest paths from the origin node and subscribes to the changes of the graph
+     *
+     * @param graph      the graph on which to apply the algorithm
+     * @param originNode the node from which the paths start
+     * @throws IllegalArgumentException if the origin node is not in the graph
+     */
+    public DynamicShortestPaths(AbstractGraph<V, E> graph, V originNode) {
+        if (!graph.nodeExists(originNode)) {
+            throw new IllegalArgumentException("The origin node is not in the graph");
+        }
+        this.graph = graph;
+        this.origin = originNode;
+
+        for (AbstractGraph<V, E>.Vertex vertex : graph.getVertices()) {
+            incoming.putIfAbsent(vertex.node, new HashMap<>());
+            for (AbstractGraph<V, E>.Edge edge : vertex.edges) {
+                incoming.computeIfAbsent(edge.destination.node, node -> new HashMap<>())
+                        .put(vertex.node, weightOf(edge.connection));
+            }
+        }
+
+        distances.put(origin, 0.0);
+        PriorityQueue<Entry<V>> queue = new PriorityQueue<>();
+        queue.add(new Entry<>(origin, 0.0));
+        settle(queue);
+        graph.addListener(this);
+    }
+
+    /**
+     * @return the node from which the paths start
+     */
+    public V getOrigin() {
+        return origin;
+    }
+
+    /**
+     * @param node the node to query
+     * @return the length of the shortest path from the origin to the node, or positive infinity if there is none
+     */
+    public double getDistance(V node) {
+        return distances.getOrDefault(node, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * @return map with the length of the shortest path to every node reachable from the origin, as returned by
+     * {@link GraphFunctions#dijkstra(AbstractGraph, Object)}
+     */
+    public Map<V, Double> getDistances() {
+        return new HashMap<>(distances);
+    }
+
+    /**
+     * @param node the node to query
+     * @return list of the nodes of the shortest path from the origin to the node, both included, or null if the
+     * node is not reachable from the origin
+     */
+    public List<V> getPath(V node) {
+        if (!distances.containsKey(node)) {
+            return null;
+        }
+        LinkedList<V> path = new LinkedList<>();
+        for (V current = node; current != null; current = parents.get(current)) {
+            path.addFirst(current);
+        }
+        return path;
+    }
+
+    /**
+     * @param node the node to query
+     * @return the node that precedes the given one in its shortest path from the origin, or null if the node is
+     * the origin or it is not reachable
+     */
+    public V getParent(V node) {
+        return parents.get(node);
+    }
+
+    /**
+     * Stops following the changes of the graph. Afterwards the distances are those of the last update
+     */
+    public void unsubscribe() {
+        graph.removeListener(this);
+    }
+
+    // Graph Changes
+
+    @Override
+    public void nodeAdded(V node) {
+        incoming.put(node, new HashMap<>());
+    }
+
+    @Override
+    public void nodeRemoved(V node) {
+        // Its connections have already been removed, so it is isolated and out of the tree unless it is the origin
+        incoming.remove(node);
+        if (node.equals(origin)) {
+            distances.clear();
+            parents.clear();
+            children.clear();
+        }
+    }
+
+    @Override
+    public void nodesConnected(V originNode, V destinationNode, E connection) {
+        double weight = weightOf(connection);
+        incoming.get(destinationNode).put(originNode, weight);
+        improve(originNode, destinationNode, weight);
+    }
+
+    @Override
+    public void nodesDisconnected(V originNode, V destinationNode, E connection) {
+        incoming.get(destinationNode).remove(originNode);
+        if (originNode.equals(parents.get(destinationNode))) {
+            repair(destinationNode);
+        }
+    }
+
+    @Override
+    public void connectionChanged(V originNode, V destinationNode, E oldConnection, E newConnection) {
+        double oldWeight = weightOf(oldConnection);
+        double newWeight = weightOf(newConnection);
+        incoming.get(destinationNode).put(originNode, newWeight);
+        if (newWeight < oldWeight) {
+            improve(originNode, destinationNode, newWeight);
+        } else if (newWeight > oldWeight && originNode.equals(parents.get(destinationNode))) {
+            repair(destinationNode);
+        }
+    }
+
+    // Repairs
+
+    /*
+     * A connection from u to v of the given weight is now available or cheaper
+     */
+    private void improve(V u, V v, double weight) {
+        Double distance = distances.get(u);
+        if (distance == null || distance + weight >= getDistance(v)) {
+            return;
+        }
+        setParent(v, u, distance + weight);
+        PriorityQueue<Entry<V>> queue = new PriorityQueue<>();
+        queue.add(new Entry<>(v, distance + weight));
+        settle(queue);
+    }
+
+    /*
+     * The connection from the parent of v to v is gone or more expensive, so every node of the subtree of v may
+     * have a longer path now
+     */
+    private void repair(V v) {
+        Set<V> affected = new HashSet<>();
+        Deque<V> stack = new ArrayDeque<>();
+        stack.push(v);
+        while (!stack.isEmpty()) {
+            V node = stack.pop();
+            affected.add(node);
+            Set<V> below = children.remove(node);
+            if (below != null) {
+                below.forEach(stack::push);
+            }
+        }
+        for (V node : affected) {
+            distances.remove(node);
+            V parent = parents.remove(node);
+            if (parent != null && !affected.contains(parent)) {
+                children.get(parent).remove(node);
+            }
+        }
+
+        PriorityQueue<Entry<V>> queue = new PriorityQueue<>();
+        for (V node : affected) {
+            V bestParent = null;
+            double best = Double.POSITIVE_INFINITY;
+            for (Map.Entry<V, Double> edge : incoming.get(node).entrySet()) {
+                double candidate = getDistance(edge.getKey()) + edge.getValue();
+                if (candidate < best && !affected.contains(edge.getKey())) {
+                    best = candidate;
+                    bestParent = edge.getKey();
+                }
+            }
+            if (bestParent != null) {
+                setParent(node, bestParent, best);
+                queue.add(new Entry<>(node, best));
+            }
+        }
+        settle(queue);
+    }
+
+    /*
+     * Dijkstra's algorithm from the nodes in the queue, whose distances are already set
+     */
+    private void settle(PriorityQueue<Entry<V>> queue) {
+        while (!queue.isEmpty()) {
+            Entry<V> entry = queue.poll();
+            if (entry.distance != getDistance(entry.node)) {
+                continue;
+            }
+            AbstractGraph<V, E>.Vertex vertex = graph.getVertex(entry.node).orElse(null);
+            if (vertex == null) {
+                continue;
+            }
+            for (AbstractGraph<V, E>.Edge edge : vertex.edges) {
+                V neighbor = edge.destination.node;
+                double distance = entry.distance + weightOf(edge.connection);
+                if (distance < getDistance(neighbor)) {
+                    setParent(neighbor, entry.node, distance);
+                    queue.add(new Entry<>(neighbor, distance));
+                }
+            }
+        }
+    }
+
+    private void setParent(V node, V parent, double distance) {
+        V previous = parents.put(node, parent);
+        if (previous != null) {
+            children.get(previous).remove(node);
+        }
+        children.computeIfAbsent(parent, p -> new HashSet<>()).add(node);
+        distances.put(node, distance);
+    }
+
+    private static double weightOf(WeightedEdge connection) {
+        return connection.getWeight().doubleValue();
+    }
+
+    private static class Entry<V> implements Comparable<Entry<V>> {
+        final V node;
+        final double distance;
+
+        Entry(V node, double distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(Entry<V> other) {
+            return Double.compare(distance, other.distance);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.lelv.graphthree;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/*
+ * Changes of a graph as the nodes removed and the whole list of connections of every node that changed. Applying
+ * a delta removes its removed nodes, and then makes the connections of its nodes exactly the ones it holds, so a
+ * delta holding every node of a graph is a full snapshot, and later deltas can be folded into earlier ones
+ */
+final class GraphDelta<V, E> {
+
+    private static final int MAGIC = 0x47444C54;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    final Set<V> removed = new LinkedHashSet<>();
+    final LinkedHashMap<V, Neighbors<V, E>> adjacency = new LinkedHashMap<>();
+
+    /*
+     * Copies the connections of the dirty nodes. Dirty nodes no longer in the graph are taken as removed
+     */
+    static <V, E> GraphDelta<V, E> capture(AbstractGraph<V, E> graph, Collection<V> dirty, Collection<V> removed) {
+        GraphDelta<V, E> delta = new GraphDelta<>();
+        delta.removed.addAll(removed);
+        for (V node : dirty) {
+            Optional<AbstractGraph<V, E>.Vertex> vertex = graph.getVertex(node);
+            if (vertex.isEmpty()) {
+                delta.removed.add(node);
+                continue;
+            }
+            List<AbstractGraph<V, E>.Edge> edges = vertex.get().edges;
+            Neighbors<V, E> neighbors = new Neighbors<>(edges.size());
+            for (AbstractGraph<V, E>.Edge edge : edges) {
+                neighbors.nodes.add(edge.destination.node);
+                neighbors.connections.add(edge.connection);
+            }
+            delta.adjacency.put(node, neighbors);
+        }
+        return delta;
+    }
+
+    boolean isEmpty() {
+        return removed.isEmpty() && adjacency.isEmpty();
+    }
+
+    /*
+     * Adds the changes of a later delta to this one, which then has the same effect as applying both in order
+     */
+    void fold(GraphDelta<V, E> later) {
+        removed.addAll(later.removed);
+        adjacency.keySet().removeAll(later.removed);
+        adjacency.putAll(later.adjacency);
+    }
+
+    void applyTo(AbstractGraph<V, E> graph) {
+        removed.forEach(graph::removeNode);
+        adjacency.keySet().forEach(graph::addNode);
+        adjacency.forEach((origin, neighbors) -> {
+            Set<V> kept = new HashSet<>(neighbors.nodes);
+            for (V destination : graph.getNeighbors(origin)) {
+                if (!kept.contains(destination)) {
+                    graph.disconnectNodes(origin, destination);
+                }
+            }
+            for (int i = 0; i < neighbors.nodes.size(); i++) {
+                V destination = neighbors.nodes.get(i);
+                E connection = neighbors.connections.get(i);
+                Optional<AbstractGraph<V, E>.Edge> edge = graph.getEdge(origin, destination);
+                if (edge.isEmpty()) {
+                    graph.connectNodes(origin, destination, connection);
+                } else if (!Objects.equals(edge.get().connection, connection)) {
+                    graph.setConnection(origin, destination, connection);
+                }
+            }
+        });
+    }
+
+    /*
+     * Written to a temporary file that replaces the target once it is on disk, followed by a checksum
+     */
+    void write(Path file, Codec<V> nodeCodec, Codec<E> connectionCodec) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temporary.toFile());
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE),
+                                                                   new CRC32());
+             DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(MAGIC);
+            out.writeInt(removed.size());
+            for (V node : removed) {
+                nodeCodec.write(node, out);
+            }
+            out.writeInt(adjacency.size());
+            for (Map.Entry<V, Neighbors<V, E>> entry : adjacency.entrySet()) {
+                nodeCodec.write(entry.getKey(), out);
+                Neighbors<V, E> neighbors = entry.getValue();
+                out.writeInt(neighbors.nodes.size());
+                for (int i = 0; i < neighbors.nodes.size(); i++) {
+                    nodeCodec.write(neighbors.nodes.get(i), out);
+                    GraphSnapshot.writeConnection(connectionCodec, neighbors.connections.get(i), out);
+                }
+            }
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        GraphSnapshot.syncDirectory(file.getParent());
+    }
+
+    static <V, E> GraphDelta<V, E> read(Path file, Codec<V> nodeCodec, Codec<E> connectionCodec)
+            throws IOException {
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE), new CRC32());
+             DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a graph checkpoint: " + file);
+            }
+            GraphDelta<V, E> delta = new GraphDelta<>();
+            int removed = in.readInt();
+            for (int i = 0; i < removed; i++) {
+                delta.removed.add(nodeCodec.read(in));
+            }
+            int nodes = in.readInt();
+            for (int i = 0; i < nodes; i++) {
+                V node = nodeCodec.read(in);
+                int degree = in.readInt();
+                Neighbors<V, E> neighbors = new Neighbors<>(degree);
+                for (int e = 0; e < degree; e++) {
+                    neighbors.nodes.add(nodeCodec.read(in));
+                    neighbors.connections.add(GraphSnapshot.readConnection(connectionCodec, in));
+                }
+                delta.adjacency.put(node, neighbors);
+            }
+            long checksum = checked.getChecksum().getValue();
+            if (in.readLong() != checksum) {
+                throw new IOException("Corrupt graph checkpoint: " + file);
+            }
+            return delta;
+        }
+    }
+
+    static final class Neighbors<V, E> {
+        final List<V> nodes;
+        final List<E> connections;
+
+        Neighbors(int degree) {
+            nodes = new ArrayList<>(degree);
+            connections = new ArrayList<>(degree);
+        }
+    }
+}
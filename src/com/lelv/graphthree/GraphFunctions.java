@@ -1,5 +1,6 @@
 package com.lelv.graphthree;
 
+import com.lelv.graphthree.impl.DirectedGraph;
 import com.lelv.graphthree.impl.Graph;
 
 import java.util.*;
@@ -29,8 +30,9 @@ public abstract class GraphFunctions {
             return;
         result.add(originNode.node);
         originNode.visited = true;
-        for (AbstractGraph<V, E>.Vertex neighbor : originNode.getNeighbors())
-            dfs(neighbor, result);
+        List<AbstractGraph<V, E>.Edge> edges = originNode.edges;
+        for (int i = 0; i < edges.size(); i++)
+            dfs(edges.get(i).destination, result);
     }
 
     /**
@@ -49,13 +51,15 @@ public abstract class GraphFunctions {
         graph.clearVisit();
         List<V> result = new ArrayList<>();
 
-        Queue<AbstractGraph<V, E>.Vertex> q = new LinkedList<>();
+        Queue<AbstractGraph<V, E>.Vertex> q = new ArrayDeque<>();
         q.add(vertex);
         while (!q.isEmpty()) {
             vertex = q.poll();
             vertex.visited = true;
             result.add(vertex.node);
-            for (AbstractGraph<V, E>.Edge e : vertex.edges) {
+            List<AbstractGraph<V, E>.Edge> edges = vertex.edges;
+            for (int i = 0; i < edges.size(); i++) {
+                AbstractGraph<V, E>.Edge e = edges.get(i);
                 if (!e.destination.visited) {
                     q.add(e.destination);
                 }
@@ -65,7 +69,8 @@ public abstract class GraphFunctions {
     }
 
     /**
-     * Applies Dijkstra's Shortest Path First algorithm on the graph
+     * Applies Dijkstra's Shortest Path First algorithm on the graph. Weights must not be negative, use
+     * {@link #bellmanFord(AbstractGraph, Object)} otherwise
      *
      * @param graph      the graph on which to apply the algorithm
      * @param originNode the node to take as root of the search
@@ -115,7 +120,70 @@ public abstract class GraphFunctions {
     }
 
     /**
-     * Verifies if a path exists between the origin node and the destination one
+     * Calculates the shortest distance from the origin node to every node it reaches with parallel delta-stepping.
+     * The width of the distance buckets is chosen from the weights and the average degree of the graph. If any
+     * weight is negative it falls back to Bellman-Ford
+     *
+     * @param graph      the graph on which to apply the algorithm
+     * @param originNode the node to take as root of the search
+     * @return a map whose keys are the reachable nodes, and whose values are the weight of the shortest distance
+     * to the node from the root, or null if the origin node does not exist or a negative cycle can be reached from it
+     */
+    public static <V, E extends WeightedEdge> Map<V, Double> deltaStepping(AbstractGraph<V, E> graph, V originNode) {
+        if (!graph.nodeExists(originNode))
+            return null;
+        CompactGraph<V> compact = CompactGraph.weighted(graph);
+        return distanceMap(compact, ShortestPaths.deltaStepping(compact, compact.idOf(originNode)));
+    }
+
+    /**
+     * Calculates the shortest distance from the origin node to every node it reaches with parallel delta-stepping.
+     * If any weight is negative it falls back to Bellman-Ford
+     *
+     * @param graph      the graph on which to apply the algorithm
+     * @param originNode the node to take as root of the search
+     * @param delta      width of the distance buckets, must be positive
+     * @return a map whose keys are the reachable nodes, and whose values are the weight of the shortest distance
+     * to the node from the root, or null if the origin node does not exist or a negative cycle can be reached from it
+     */
+    public static <V, E extends WeightedEdge> Map<V, Double> deltaStepping(AbstractGraph<V, E> graph, V originNode,
+                                                                           double delta) {
+        if (!graph.nodeExists(originNode))
+            return null;
+        CompactGraph<V> compact = CompactGraph.weighted(graph);
+        return distanceMap(compact, ShortestPaths.deltaStepping(compact, compact.idOf(originNode), delta));
+    }
+
+    /**
+     * Applies the Bellman-Ford algorithm on the graph. Unlike Dijkstra's algorithm it accepts negative weights
+     *
+     * @param graph      the graph on which to apply the algorithm
+     * @param originNode the node to take as root of the search
+     * @return a map whose keys are the reachable nodes, and whose values are the weight of the shortest distance
+     * to the node from the root, or null if the origin node does not exist or a negative cycle can be reached from it
+     */
+    public static <V, E extends WeightedEdge> Map<V, Double> bellmanFord(AbstractGraph<V, E> graph, V originNode) {
+        if (!graph.nodeExists(originNode))
+            return null;
+        CompactGraph<V> compact = CompactGraph.weighted(graph);
+        return distanceMap(compact, ShortestPaths.bellmanFord(compact, compact.idOf(originNode)));
+    }
+
+    private static <V> Map<V, Double> distanceMap(CompactGraph<V> graph, double[] distance) {
+        if (distance == null)
+            return null;
+        HashMap<V, Double> result = new HashMap<>(graph.getNumberOfNodes());
+        for (int v = 0; v < distance.length; v++) {
+            if (distance[v] != Double.POSITIVE_INFINITY) {
+                result.put(graph.nodeOf(v), distance[v]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Verifies if a path exists between the origin node and the destination one. The search stops as soon as the
+     * destination is found. To answer many queries on a graph that rarely changes, use a {@link ReachabilityIndex}
      *
      * @param graph           the graph on which to apply the algorithm
      * @param originNode      node that sets the beginning point of the path
@@ -123,10 +191,97 @@ public abstract class GraphFunctions {
      * @return true if the path exists, or false if it does not
      */
     public static <V, E> boolean hasPath(AbstractGraph<V, E> graph, V originNode, V destinationNode) {
-        List<V> result = dfs(graph, originNode);
-        if (result == null)
+        Optional<AbstractGraph<V, E>.Vertex> optional = graph.getVertex(originNode);
+        if (!optional.isPresent() || !graph.nodeExists(destinationNode))
             return false;
-        return result.contains(destinationNode);
+
+        graph.clearVisit();
+        Deque<AbstractGraph<V, E>.Vertex> stack = new ArrayDeque<>();
+        stack.push(optional.get());
+        optional.get().visited = true;
+        while (!stack.isEmpty()) {
+            AbstractGraph<V, E>.Vertex vertex = stack.pop();
+            if (vertex.node.equals(destinationNode))
+                return true;
+            for (AbstractGraph<V, E>.Edge e : vertex.edges) {
+                if (!e.destination.visited) {
+                    e.destination.visited = true;
+                    stack.push(e.destination);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Verifies, for many pairs of nodes at once, if a path exists between them. The searches are run together
+     * with {@link MultiSourceBfs}, so it is much faster than calling {@link #hasPath} for every pair
+     *
+     * @param graph            the graph on which to apply the algorithm
+     * @param originNodes      nodes that set the beginning points of the paths
+     * @param destinationNodes nodes that set the end points of the paths, the i-th one for the i-th origin
+     * @return for every pair, true if the path exists, or false if it does not or any of the nodes does not exist
+     * @throws IllegalArgumentException if there are not as many origins as destinations
+     */
+    public static <V, E> boolean[] hasPaths(AbstractGraph<V, E> graph, List<V> originNodes,
+                                            List<V> destinationNodes) {
+        if (originNodes.size() != destinationNodes.size())
+            throw new IllegalArgumentException("There must be a destination for every origin");
+        CompactGraph<V> compact = CompactGraph.of(graph);
+        IntList origins = new IntList();
+        IntList destinations = new IntList();
+        IntList pairs = new IntList();
+        for (int i = 0; i < originNodes.size(); i++) {
+            int origin = compact.idOf(originNodes.get(i));
+            int destination = compact.idOf(destinationNodes.get(i));
+            if (origin != CompactGraph.NON_EXISTENT_ID && destination != CompactGraph.NON_EXISTENT_ID) {
+                origins.add(origin);
+                destinations.add(destination);
+                pairs.add(i);
+            }
+        }
+        boolean[] found = MultiSourceBfs.hasPaths(compact, origins.toArray(), destinations.toArray());
+        boolean[] result = new boolean[originNodes.size()];
+        for (int i = 0; i < found.length; i++) {
+            result[pairs.get(i)] = found[i];
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the number of connections from each of many origin nodes to every node it reaches. The searches
+     * are run together with {@link MultiSourceBfs}
+     *
+     * @param graph       the graph on which to apply the algorithm
+     * @param originNodes the nodes to take as roots of the searches
+     * @return for every origin, in the same order, a map whose keys are the reachable nodes, and whose values are
+     * the number of connections of the shortest path to the node, or null if the origin node does not exist
+     */
+    public static <V, E> List<Map<V, Integer>> hopDistances(AbstractGraph<V, E> graph, List<V> originNodes) {
+        CompactGraph<V> compact = CompactGraph.of(graph);
+        IntList origins = new IntList();
+        for (V node : originNodes) {
+            int origin = compact.idOf(node);
+            if (origin != CompactGraph.NON_EXISTENT_ID)
+                origins.add(origin);
+        }
+        int[][] distances = MultiSourceBfs.distances(compact, origins.toArray());
+        List<Map<V, Integer>> result = new ArrayList<>(originNodes.size());
+        int next = 0;
+        for (V node : originNodes) {
+            if (compact.idOf(node) == CompactGraph.NON_EXISTENT_ID) {
+                result.add(null);
+                continue;
+            }
+            int[] distance = distances[next++];
+            HashMap<V, Integer> map = new HashMap<>();
+            for (int v = 0; v < distance.length; v++) {
+                if (distance[v] != -1)
+                    map.put(compact.nodeOf(v), distance[v]);
+            }
+            result.add(map);
+        }
+        return result;
     }
 
     /**
@@ -219,4 +374,313 @@ public abstract class GraphFunctions {
         graph.connectNodes(nodeA, nodeB, edge.get().connection);
         return components != newComponents;
     }
+
+    /**
+     * Calculates the strongly connected components of a directed graph. A strongly connected component is a maximal
+     * set of nodes in which every node can be reached from every other node. Runs in O(V + E)
+     *
+     * @param graph the graph on which to apply the algorithm
+     * @return a map whose keys are the nodes, and whose values are the ids of their components. Ids go from 0 to the
+     * number of components minus one, in reverse topological order of the components
+     */
+    public static <V, E> Map<V, Integer> stronglyConnectedComponents(DirectedGraph<V, E> graph) {
+        return StronglyConnectedComponents.of(graph).getComponentMap();
+    }
+
+    /**
+     * Sorts the nodes of a directed acyclic graph so that every node comes before all of its neighbors, using
+     * Kahn's algorithm. Runs in O(V + E)
+     *
+     * @param graph the graph on which to apply the algorithm
+     * @return list of nodes in topological order, or null if the graph has a cycle
+     */
+    public static <V, E> List<V> topologicalSort(DirectedGraph<V, E> graph) {
+        CompactGraph<V> compact = CompactGraph.of(graph);
+        int[] order = topologicalOrder(compact);
+        if (order == null)
+            return null;
+
+        List<V> result = new ArrayList<>(order.length);
+        for (int id : order) {
+            result.add(compact.nodeOf(id));
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the shortest distance from the origin node to every node it reaches in a directed acyclic graph,
+     * relaxing the connections in topological order. Runs in O(V + E) and accepts negative weights
+     *
+     * @param graph      the graph on which to apply the algorithm
+     * @param originNode the node to take as root of the search
+     * @return a map whose keys are the reachable nodes, and whose values are the weight of the shortest distance
+     * to the node from the root, or null if the origin node does not exist or the graph has a cycle
+     */
+    public static <V, E extends WeightedEdge> Map<V, Double> dagShortestPaths(DirectedGraph<V, E> graph,
+                                                                              V originNode) {
+        return dagPaths(graph, originNode, false);
+    }
+
+    /**
+     * Calculates the longest distance from the origin node to every node it reaches in a directed acyclic graph,
+     * relaxing the connections in topological order. Runs in O(V + E)
+     *
+     * @param graph      the graph on which to apply the algorithm
+     * @param originNode the node to take as root of the search
+     * @return a map whose keys are the reachable nodes, and whose values are the weight of the longest distance
+     * to the node from the root, or null if the origin node does not exist or the graph has a cycle
+     */
+    public static <V, E extends WeightedEdge> Map<V, Double> dagLongestPaths(DirectedGraph<V, E> graph,
+                                                                             V originNode) {
+        return dagPaths(graph, originNode, true);
+    }
+
+    private static <V, E extends WeightedEdge> Map<V, Double> dagPaths(DirectedGraph<V, E> graph, V originNode,
+                                                                       boolean longest) {
+        if (!graph.nodeExists(originNode))
+            return null;
+        CompactGraph<V> compact = CompactGraph.weighted(graph);
+        int[] order = topologicalOrder(compact);
+        if (order == null)
+            return null;
+
+        double unreached = longest ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        double[] distance = new double[compact.getNumberOfNodes()];
+        Arrays.fill(distance, unreached);
+        distance[compact.idOf(originNode)] = 0.0;
+        relax(compact, order, distance, null, longest);
+
+        HashMap<V, Double> result = new HashMap<>(graph.getNumberOfNodes());
+        for (int v = 0; v < distance.length; v++) {
+            if (distance[v] != unreached) {
+                result.put(compact.nodeOf(v), distance[v]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the critical path of a directed acyclic graph: the path with the largest total weight, starting at any
+     * node. When the nodes are tasks and the weights are the durations between them, its weight is the minimum time
+     * needed to complete every task. Runs in O(V + E)
+     *
+     * @param graph the graph on which to apply the algorithm
+     * @return list of nodes of the critical path in order, or null if the graph has a cycle
+     */
+    public static <V, E extends WeightedEdge> List<V> criticalPath(DirectedGraph<V, E> graph) {
+        CompactGraph<V> compact = CompactGraph.weighted(graph);
+        int[] order = topologicalOrder(compact);
+        if (order == null)
+            return null;
+        if (order.length == 0)
+            return new ArrayList<>();
+
+        double[] distance = new double[compact.getNumberOfNodes()];
+        int[] predecessor = new int[distance.length];
+        Arrays.fill(predecessor, CompactGraph.NON_EXISTENT_ID);
+        relax(compact, order, distance, predecessor, true);
+
+        int last = 0;
+        for (int v = 1; v < distance.length; v++) {
+            if (distance[v] > distance[last]) {
+                last = v;
+            }
+        }
+        LinkedList<V> result = new LinkedList<>();
+        for (int v = last; v != CompactGraph.NON_EXISTENT_ID; v = predecessor[v]) {
+            result.addFirst(compact.nodeOf(v));
+        }
+        return new ArrayList<>(result);
+    }
+
+    private static void relax(CompactGraph<?> graph, int[] order, double[] distance, int[] predecessor,
+                              boolean longest) {
+        for (int v : order) {
+            if (Double.isInfinite(distance[v]))
+                continue;
+            for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                int w = graph.targets[e];
+                double candidate = distance[v] + graph.weights[e];
+                if (longest ? candidate > distance[w] : candidate < distance[w]) {
+                    distance[w] = candidate;
+                    if (predecessor != null) {
+                        predecessor[w] = v;
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Kahn's algorithm over a compact graph. Returns the ids in topological order, or null if there is a cycle
+     */
+    static int[] topologicalOrder(CompactGraph<?> graph) {
+        int n = graph.getNumberOfNodes();
+        int[] inDegree = new int[n];
+        for (int target : graph.targets) {
+            inDegree[target]++;
+        }
+
+        int[] order = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (inDegree[v] == 0) {
+                order[tail++] = v;
+            }
+        }
+        while (head < tail) {
+            int v = order[head++];
+            for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                if (--inDegree[graph.targets[e]] == 0) {
+                    order[tail++] = graph.targets[e];
+                }
+            }
+        }
+        return tail == n ? order : null;
+    }
+
+    /**
+     * Calculates the PageRank of every node of a directed graph: the probability of being at the node after a long
+     * random walk that follows a connection with probability 0.85, and jumps to a random node otherwise
+     *
+     * @param graph the graph on which to apply the algorithm
+     * @return a map whose keys are the nodes, and whose values are their scores, adding up to 1
+     */
+    public static <V, E> Map<V, Double> pageRank(DirectedGraph<V, E> graph) {
+        CompactGraph<V> compact = CompactGraph.of(graph);
+        double[] scores = PageRank.of(compact);
+
+        HashMap<V, Double> result = new HashMap<>(graph.getNumberOfNodes());
+        for (int v = 0; v < scores.length; v++) {
+            result.put(compact.nodeOf(v), scores[v]);
+        }
+        return result;
+    }
+
+    /**
+     * Approximates the PageRank of a directed graph personalized on the origin node, where every random jump goes
+     * back to the origin. Builds a compact snapshot of the graph first, so use
+     * {@link #personalizedPageRank(CompactGraph, Object, double)} to run many queries over the same graph
+     *
+     * @param graph      the graph on which to apply the algorithm
+     * @param originNode the node to personalize on
+     * @param epsilon    precision of the approximation, smaller values visit more nodes
+     * @return a map whose keys are the nodes with a score above zero, and whose values are their scores, or null
+     * if the origin node does not exist
+     */
+    public static <V, E> Map<V, Double> personalizedPageRank(DirectedGraph<V, E> graph, V originNode,
+                                                             double epsilon) {
+        if (!graph.nodeExists(originNode))
+            return null;
+        return personalizedPageRank(CompactGraph.of(graph), originNode, epsilon);
+    }
+
+    /**
+     * Approximates the PageRank of a compact graph personalized on the origin node, where every random jump goes
+     * back to the origin. Only the nodes near the origin are visited, and only they are put in the result
+     *
+     * @param graph      the graph on which to apply the algorithm
+     * @param originNode the node to personalize on
+     * @param epsilon    precision of the approximation, smaller values visit more nodes
+     * @return a map whose keys are the nodes with a score above zero, and whose values are their scores, or null
+     * if the origin node does not exist
+     */
+    public static <V> Map<V, Double> personalizedPageRank(CompactGraph<V> graph, V originNode, double epsilon) {
+        int origin = graph.idOf(originNode);
+        if (origin == CompactGraph.NON_EXISTENT_ID)
+            return null;
+        HashMap<V, Double> result = new HashMap<>();
+        PageRank.personalized(graph, origin, PageRank.DEFAULT_DAMPING, epsilon,
+                              (id, score) -> result.put(graph.nodeOf(id), score));
+        return result;
+    }
+
+    /**
+     * Counts the triangles of an undirected graph. A triangle is a set of three nodes connected to each other
+     *
+     * @param graph the graph on which to apply the algorithm
+     * @return the number of triangles in the graph
+     */
+    public static <V, E> long numberOfTriangles(Graph<V, E> graph) {
+        return TriangleCounting.count(CompactGraph.of(graph));
+    }
+
+    /**
+     * Calculates the local clustering coefficient of every node: the fraction of pairs of neighbors of the node
+     * that are connected to each other. Nodes with less than two neighbors have a coefficient of 0
+     *
+     * @param graph the graph on which to apply the algorithm
+     * @return a map whose keys are the nodes, and whose values are their clustering coefficients
+     */
+    public static <V, E> Map<V, Double> clusteringCoefficients(Graph<V, E> graph) {
+        CompactGraph<V> compact = CompactGraph.of(graph);
+        double[] coefficients = TriangleCounting.clusteringCoefficients(compact);
+
+        HashMap<V, Double> result = new HashMap<>(graph.getNumberOfNodes());
+        for (int v = 0; v < coefficients.length; v++) {
+            result.put(compact.nodeOf(v), coefficients[v]);
+        }
+        return result;
+    }
+
+    /**
+     * Finds a minimum spanning forest of the graph with Kruskal's algorithm. On a connected graph this is a minimum
+     * spanning tree, and on a disconnected graph it has one tree per component
+     *
+     * @param graph the graph on which to apply the algorithm
+     * @return the connections of the forest and their total weight
+     */
+    public static <V, E extends WeightedEdge> SpanningForest<V, E> kruskal(Graph<V, E> graph) {
+        return SpanningForest.kruskal(graph);
+    }
+
+    /**
+     * Finds a minimum spanning forest of the graph with Prim's algorithm, which suits dense graphs
+     *
+     * @param graph the graph on which to apply the algorithm
+     * @return the connections of the forest and their total weight
+     */
+    public static <V, E extends WeightedEdge> SpanningForest<V, E> prim(Graph<V, E> graph) {
+        return SpanningForest.prim(graph);
+    }
+
+    /**
+     * Finds a minimum spanning forest of the graph with a parallel version of Borůvka's algorithm, which suits
+     * very large graphs
+     *
+     * @param graph the graph on which to apply the algorithm
+     * @return the connections of the forest and their total weight
+     */
+    public static <V, E extends WeightedEdge> SpanningForest<V, E> boruvka(Graph<V, E> graph) {
+        return SpanningForest.boruvka(graph);
+    }
+
+    /**
+     * Calculates the maximum flow that can go from the source node to the sink node, taking the weight of every
+     * connection as its capacity. Uses Dinic's algorithm
+     *
+     * @param graph      the graph on which to apply the algorithm
+     * @param sourceNode the node the flow leaves from
+     * @param sinkNode   the node the flow arrives to
+     * @return the value of the flow, the flow of every connection and the minimum cut, or null if either node
+     * does not exist
+     */
+    public static <V, E extends WeightedEdge> MaxFlow<V> maxFlow(DirectedGraph<V, E> graph, V sourceNode,
+                                                                 V sinkNode) {
+        return MaxFlow.dinic(graph, sourceNode, sinkNode);
+    }
+
+    /**
+     * Splits the nodes of a graph into parts of similar size, keeping as few connections as possible between
+     * different parts. Parts may be up to 3% bigger than the average
+     *
+     * @param graph the graph on which to apply the algorithm
+     * @param parts number of parts
+     * @return a map whose keys are the nodes, and whose values are their parts, from 0 to parts - 1
+     * @see Partitioning
+     */
+    public static <V, E> Map<V, Integer> partition(AbstractGraph<V, E> graph, int parts) {
+        return Partitioning.of(CompactGraph.of(graph), parts).getPartMap();
+    }
 }
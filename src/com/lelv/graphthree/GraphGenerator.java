@@ -0,0 +1,511 @@
+package com.lelv.graphthree;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Generates synthetic graphs of any size for benchmarks and load tests. Nodes are the integers from 0 to n - 1.
+ * <p>
+ * Connections are generated in chunks of fixed size, each one with its own random generator derived from the seed
+ * of the generator and the position of the chunk, so chunks are generated in parallel and the graph generated only
+ * depends on the parameters and the seed. Connections can be generated straight into a {@link CompactGraph}, which
+ * is the fastest way to get graphs of hundreds of millions of connections, into any {@link AbstractGraph}, or
+ * handed to a callback to load them into other representations.
+ * <p>
+ * Generators may produce the same connection more than once. Compact graphs keep only the first one, and graphs
+ * reject the rest when connecting the nodes, so the graph may have fewer connections than asked for.
+ */
+public abstract class GraphGenerator {
+
+    static final int CHUNK_SIZE = 1 << 16;
+
+    private final int numberOfNodes;
+    private long seed;
+    private double minWeight = Double.NaN;
+    private double maxWeight = Double.NaN;
+
+    private GraphGenerator(int numberOfNodes) {
+        if (numberOfNodes < 0) {
+            throw new IllegalArgumentException("The number of nodes can not be negative");
+        }
+        this.numberOfNodes = numberOfNodes;
+    }
+
+    /**
+     * Erdos-Renyi graphs G(n, m), whose connections join nodes picked uniformly at random
+     *
+     * @param nodes       number of nodes
+     * @param connections number of connections to generate
+     * @return the generator
+     * @throws IllegalArgumentException if any parameter is negative
+     */
+    public static GraphGenerator erdosRenyi(int nodes, long connections) {
+        return new ChunkedGenerator(nodes, connections) {
+            @Override
+            void generate(SplittableRandom random, long count, Buffer out) {
+                for (long i = 0; i < count; i++) {
+                    int origin = random.nextInt(nodes);
+                    int destination = random.nextInt(nodes - 1);
+                    out.add(origin, destination < origin ? destination : destination + 1, random);
+                }
+            }
+        };
+    }
+
+    /**
+     * R-MAT graphs, a recursive Kronecker model with the skewed degrees of social and web graphs. Every connection
+     * is placed by descending 2^scale levels of quadrants of the adjacency matrix, picking the top left, top right
+     * and bottom left ones with probabilities a, b and c, and the bottom right one otherwise. Graph500 uses
+     * a = 0.57, b = 0.19, c = 0.19
+     *
+     * @param scale       logarithm in base 2 of the number of nodes, up to 30
+     * @param connections number of connections to generate
+     * @param a           probability of the top left quadrant
+     * @param b           probability of the top right quadrant
+     * @param c           probability of the bottom left quadrant
+     * @return the generator
+     * @throws IllegalArgumentException if the scale or the number of connections is out of range, or the
+     *                                  probabilities do not add up to at most 1
+     */
+    public static GraphGenerator rmat(int scale, long connections, double a, double b, double c) {
+        if (scale < 0 || scale > 30) {
+            throw new IllegalArgumentException("The scale must be between 0 and 30");
+        }
+        if (a < 0 || b < 0 || c < 0 || a + b + c > 1) {
+            throw new IllegalArgumentException("The probabilities must be positive and add up to at most 1");
+        }
+        // Quadrants are picked with 16 random bits each, four of them out of every random long
+        int topLeft = (int) Math.round(a * 0x10000);
+        int top = (int) Math.round((a + b) * 0x10000);
+        int left = (int) Math.round((a + b + c) * 0x10000);
+        return new ChunkedGenerator(1 << scale, connections) {
+            @Override
+            void generate(SplittableRandom random, long count, Buffer out) {
+                for (long i = 0; i < count; i++) {
+                    int origin = 0;
+                    int destination = 0;
+                    long bits = 0;
+                    for (int bit = scale - 1; bit >= 0; bit--) {
+                        if ((bit & 3) == 3 || bit == scale - 1) {
+                            bits = random.nextLong();
+                        }
+                        int r = (int) (bits & 0xFFFF);
+                        bits >>>= 16;
+                        if (r >= left) {
+                            origin |= 1 << bit;
+                            destination |= 1 << bit;
+                        } else if (r >= top) {
+                            origin |= 1 << bit;
+                        } else if (r >= topLeft) {
+                            destination |= 1 << bit;
+                        }
+                    }
+                    if (origin != destination) {
+                        out.add(origin, destination, random);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Random directed acyclic graphs, whose connections always go from a node to a greater one, so the natural
+     * order of the nodes is a topological order
+     *
+     * @param nodes       number of nodes
+     * @param connections number of connections to generate
+     * @return the generator
+     * @throws IllegalArgumentException if any parameter is negative
+     */
+    public static GraphGenerator randomDag(int nodes, long connections) {
+        return new ChunkedGenerator(nodes, connections) {
+            @Override
+            void generate(SplittableRandom random, long count, Buffer out) {
+                for (long i = 0; i < count; i++) {
+                    int first = random.nextInt(nodes);
+                    int second = random.nextInt(nodes - 1);
+                    if (second >= first) {
+                        out.add(first, second + 1, random);
+                    } else {
+                        out.add(second, first, random);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Barabasi-Albert graphs, grown by preferential attachment: every node after the first one connects to
+     * {@code connectionsPerNode} nodes added before it, picked with probability proportional to their degree. The
+     * connections go from the new node to the old ones, so they are meant to be loaded into undirected graphs.
+     * Growth is sequential, with the linear time method of Batagelj and Brandes, which may pick the same node
+     * twice, so some nodes get fewer connections
+     *
+     * @param nodes              number of nodes
+     * @param connectionsPerNode number of connections of every new node
+     * @return the generator
+     * @throws IllegalArgumentException if any parameter is negative
+     */
+    public static GraphGenerator barabasiAlbert(int nodes, int connectionsPerNode) {
+        if (connectionsPerNode < 0) {
+            throw new IllegalArgumentException("The number of connections can not be negative");
+        }
+        if (2L * nodes * connectionsPerNode > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many connections for a Barabasi-Albert graph");
+        }
+        return new GraphGenerator(nodes) {
+            @Override
+            int chunks() {
+                return 1;
+            }
+
+            @Override
+            void generate(int chunk, SplittableRandom random, Buffer out) {
+                // Both ends of every connection are added to the list, so a position picked uniformly from it picks
+                // a node with probability proportional to its degree. Picking the new node itself is dropped
+                int[] ends = new int[2 * nodes * connectionsPerNode];
+                int size = 0;
+                for (int v = 0; v < nodes; v++) {
+                    for (int i = 0; i < connectionsPerNode; i++) {
+                        ends[size] = v;
+                        ends[size + 1] = ends[random.nextInt(size + 1)];
+                        if (ends[size + 1] != v) {
+                            out.add(v, ends[size + 1], random);
+                        }
+                        size += 2;
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Two-dimensional grids, like the street maps of road networks: every node is connected in both directions to
+     * the nodes above, below, to its left and to its right
+     *
+     * @param rows    number of rows
+     * @param columns number of columns
+     * @return the generator
+     * @throws IllegalArgumentException if any parameter is negative or there are too many nodes
+     */
+    public static GraphGenerator grid(int rows, int columns) {
+        return grid(rows, columns, 1);
+    }
+
+    /**
+     * Two-dimensional grids with some streets closed, like road networks: every node is connected in both
+     * directions to the nodes above, below, to its left and to its right, keeping every pair of connections with a
+     * probability
+     *
+     * @param rows        number of rows
+     * @param columns     number of columns
+     * @param probability probability of keeping the connections between two neighbors of the grid
+     * @return the generator
+     * @throws IllegalArgumentException if any parameter is out of range or there are too many nodes
+     */
+    public static GraphGenerator grid(int rows, int columns, double probability) {
+        if (rows < 0 || columns < 0 || (long) rows * columns > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid size of the grid");
+        }
+        if (probability < 0 || probability > 1) {
+            throw new IllegalArgumentException("The probability must be between 0 and 1");
+        }
+        int rowsPerChunk = Math.max(1, CHUNK_SIZE / 4 / Math.max(1, columns));
+        return new GraphGenerator(rows * columns) {
+            @Override
+            int chunks() {
+                return (rows + rowsPerChunk - 1) / rowsPerChunk;
+            }
+
+            @Override
+            void generate(int chunk, SplittableRandom random, Buffer out) {
+                int last = Math.min(rows, (chunk + 1) * rowsPerChunk);
+                for (int row = chunk * rowsPerChunk; row < last; row++) {
+                    for (int column = 0; column < columns; column++) {
+                        int node = row * columns + column;
+                        if (column + 1 < columns && random.nextDouble() < probability) {
+                            out.addBoth(node, node + 1, random);
+                        }
+                        if (row + 1 < rows && random.nextDouble() < probability) {
+                            out.addBoth(node, node + columns, random);
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * @param seed seed from which the random generator of every chunk is derived
+     * @return this generator
+     */
+    public GraphGenerator withSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Gives every connection a weight picked uniformly between two values
+     *
+     * @param min minimum weight, included
+     * @param max maximum weight, excluded
+     * @return this generator
+     * @throws IllegalArgumentException if the maximum is smaller than the minimum
+     */
+    public GraphGenerator withWeights(double min, double max) {
+        if (!(min <= max)) {
+            throw new IllegalArgumentException("The maximum weight can not be smaller than the minimum");
+        }
+        this.minWeight = min;
+        this.maxWeight = max;
+        return this;
+    }
+
+    public int getNumberOfNodes() {
+        return numberOfNodes;
+    }
+
+    /**
+     * @return true if the connections generated have weights
+     */
+    public boolean isWeighted() {
+        return !Double.isNaN(minWeight);
+    }
+
+    /**
+     * Generates the graph as a compact graph. Weights are kept if the generator has them
+     *
+     * @param symmetric true to add every connection in both directions, as in undirected graphs
+     * @return the graph generated, whose nodes are their own ids
+     */
+    public CompactGraph<Integer> toCompactGraph(boolean symmetric) {
+        Buffer[] chunks = generate(0, chunks());
+        int n = numberOfNodes;
+        int[] offsets = new int[n + 1];
+        for (Buffer chunk : chunks) {
+            for (int i = 0; i < chunk.size; i++) {
+                offsets[chunk.origins[i] + 1]++;
+                if (symmetric) {
+                    offsets[chunk.destinations[i] + 1]++;
+                }
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        if (offsets[n] < 0) {
+            throw new IllegalStateException("Too many connections for a compact graph");
+        }
+
+        int[] targets = new int[offsets[n]];
+        double[] weights = isWeighted() ? new double[offsets[n]] : null;
+        int[] position = Arrays.copyOf(offsets, n);
+        for (int c = 0; c < chunks.length; c++) {
+            Buffer chunk = chunks[c];
+            for (int i = 0; i < chunk.size; i++) {
+                int e = position[chunk.origins[i]]++;
+                targets[e] = chunk.destinations[i];
+                if (weights != null) {
+                    weights[e] = chunk.weights[i];
+                }
+                if (symmetric) {
+                    e = position[chunk.destinations[i]]++;
+                    targets[e] = chunk.origins[i];
+                    if (weights != null) {
+                        weights[e] = chunk.weights[i];
+                    }
+                }
+            }
+            chunks[c] = null;
+        }
+        return removeDuplicates(offsets, targets, weights);
+    }
+
+    /**
+     * Generates the graph into another graph, adding the nodes 0 to n - 1 and connecting them. Undirected graphs
+     * get every connection in both directions
+     *
+     * @param graph      the graph to add the nodes and connections to
+     * @param connection function that gives the information to store in every connection from its weight, which is
+     *                   1 if the generator has no weights
+     * @return the graph
+     */
+    public <E, G extends AbstractGraph<Integer, E>> G into(G graph, DoubleFunction<? extends E> connection) {
+        for (int v = 0; v < numberOfNodes; v++) {
+            graph.addNode(v);
+        }
+        forEachConnection((origin, destination, weight) -> graph.connectNodes(origin, destination,
+                                                                               connection.apply(weight)));
+        return graph;
+    }
+
+    /**
+     * Generates the connections of the graph in parallel, and hands them to an action in the same order every
+     * time, from the calling thread
+     *
+     * @param action action to perform with every connection generated
+     */
+    public void forEachConnection(ConnectionConsumer action) {
+        int chunks = chunks();
+        // Chunks are generated in waves, so only a few of them are held at a time
+        int wave = ForkJoinPool.getCommonPoolParallelism() * 4;
+        for (int first = 0; first < chunks; first += wave) {
+            for (Buffer chunk : generate(first, Math.min(chunks, first + wave))) {
+                for (int i = 0; i < chunk.size; i++) {
+                    action.accept(chunk.origins[i], chunk.destinations[i], chunk.weights == null ? 1 :
+                                                                           chunk.weights[i]);
+                }
+            }
+        }
+    }
+
+    abstract int chunks();
+
+    abstract void generate(int chunk, SplittableRandom random, Buffer out);
+
+    private Buffer[] generate(int from, int to) {
+        return IntStream.range(from, to)
+                        .parallel()
+                        .mapToObj(chunk -> {
+                            Buffer buffer = new Buffer(minWeight, maxWeight);
+                            generate(chunk, new SplittableRandom(NeighborhoodSampler.mix(seed, chunk)), buffer);
+                            return buffer;
+                        })
+                        .toArray(Buffer[]::new);
+    }
+
+    /*
+     * Sorts the connections of every node by target, keeping only the first of the repeated ones
+     */
+    private static CompactGraph<Integer> removeDuplicates(int[] offsets, int[] targets, double[] weights) {
+        int n = offsets.length - 1;
+        int[] unique = new int[n];
+        IntStream.range(0, n).parallel().forEach(v -> {
+            int from = offsets[v];
+            int to = offsets[v + 1];
+            CompactGraph.sortConnections(targets, weights, from, to);
+            int size = 0;
+            for (int e = from; e < to; e++) {
+                if (size == 0 || targets[e] != targets[from + size - 1]) {
+                    targets[from + size] = targets[e];
+                    if (weights != null) {
+                        weights[from + size] = weights[e];
+                    }
+                    size++;
+                }
+            }
+            unique[v] = size;
+        });
+
+        int[] compactOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            compactOffsets[v + 1] = compactOffsets[v] + unique[v];
+        }
+        if (compactOffsets[n] == targets.length) {
+            return CompactGraph.ofIds(offsets, targets, weights);
+        }
+        int[] compactTargets = new int[compactOffsets[n]];
+        double[] compactWeights = weights == null ? null : new double[compactOffsets[n]];
+        IntStream.range(0, n).parallel().forEach(v -> {
+            System.arraycopy(targets, offsets[v], compactTargets, compactOffsets[v], unique[v]);
+            if (weights != null) {
+                System.arraycopy(weights, offsets[v], compactWeights, compactOffsets[v], unique[v]);
+            }
+        });
+        return CompactGraph.ofIds(compactOffsets, compactTargets, compactWeights);
+    }
+
+    @FunctionalInterface
+    public interface ConnectionConsumer {
+        /**
+         * @param originNode      node the connection goes from
+         * @param destinationNode node the connection goes to
+         * @param weight          weight of the connection, or 1 if the generator has no weights
+         */
+        void accept(int originNode, int destinationNode, double weight);
+    }
+
+    /*
+     * Generators whose connections are independent of each other, split in chunks of CHUNK_SIZE connections
+     */
+    private abstract static class ChunkedGenerator extends GraphGenerator {
+
+        private final long connections;
+
+        ChunkedGenerator(int nodes, long connections) {
+            super(nodes);
+            if (connections < 0) {
+                throw new IllegalArgumentException("The number of connections can not be negative");
+            }
+            if (connections > 0 && nodes < 2) {
+                throw new IllegalArgumentException("Connections need at least two nodes");
+            }
+            this.connections = connections;
+        }
+
+        @Override
+        int chunks() {
+            return Math.toIntExact((connections + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        }
+
+        @Override
+        void generate(int chunk, SplittableRandom random, Buffer out) {
+            generate(random, Math.min(CHUNK_SIZE, connections - (long) chunk * CHUNK_SIZE), out);
+        }
+
+        abstract void generate(SplittableRandom random, long count, Buffer out);
+    }
+
+    /*
+     * Connections generated by a chunk
+     */
+    static final class Buffer {
+        private final double minWeight;
+        private final double maxWeight;
+        int[] origins = new int[16];
+        int[] destinations = new int[16];
+        double[] weights;
+        int size;
+
+        Buffer(double minWeight, double maxWeight) {
+            this.minWeight = minWeight;
+            this.maxWeight = maxWeight;
+            this.weights = Double.isNaN(minWeight) ? null : new double[16];
+        }
+
+        void add(int origin, int destination, SplittableRandom random) {
+            add(origin, destination, weights == null ? 1 : nextWeight(random));
+        }
+
+        /*
+         * Adds the connection in both directions, with the same weight
+         */
+        void addBoth(int nodeA, int nodeB, SplittableRandom random) {
+            double weight = weights == null ? 1 : nextWeight(random);
+            add(nodeA, nodeB, weight);
+            add(nodeB, nodeA, weight);
+        }
+
+        private double nextWeight(SplittableRandom random) {
+            return minWeight == maxWeight ? minWeight : random.nextDouble(minWeight, maxWeight);
+        }
+
+        private void add(int origin, int destination, double weight) {
+            if (size == origins.length) {
+                origins = Arrays.copyOf(origins, size * 2);
+                destinations = Arrays.copyOf(destinations, size * 2);
+                if (weights != null) {
+                    weights = Arrays.copyOf(weights, size * 2);
+                }
+            }
+            origins[size] = origin;
+            destinations[size] = destination;
+            if (weights != null) {
+                weights[size] = weight;
+            }
+            size++;
+        }
+    }
+}
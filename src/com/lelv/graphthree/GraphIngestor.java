@@ -0,0 +1,354 @@
+package com.lelv.graphthree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Subscriber that applies a stream of {@link GraphMutation}s to a graph in batches.
+ * <p>
+ * Mutations are gathered until a batch is full, or until the oldest one has waited the maximum delay, and every
+ * batch is applied while holding the write lock of the graph once, instead of once per mutation. Readers that
+ * share the lock, see {@link #getLock()}, never see half of a batch.
+ * <p>
+ * The ingestor never holds more than two batches of mutations: it requests that many from its publisher, and
+ * only requests more as batches are applied, so a slow graph slows the publishers down instead of filling a
+ * queue. Many producer threads can feed one ingestor through a {@link SubmissionPublisher}, whose bounded buffers
+ * block or reject their submissions when the ingestor falls behind.
+ * <p>
+ * Full batches are handed over to be applied in the order they were gathered, and the write lock is only waited
+ * for once the batch has been handed over, so {@link #getMetrics()} never blocks, even from a reader that holds
+ * the read lock.
+ *
+ * @param <V> type of the nodes
+ * @param <E> type of the connections
+ */
+public class GraphIngestor<V, E> implements Flow.Subscriber<GraphMutation<V, E>> {
+
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 10;
+
+    private final AbstractGraph<V, E> graph;
+    private final ReadWriteLock lock;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final ScheduledExecutorService timer;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    // Batches handed over and not applied yet, in order, applied by one thread at a time
+    private final Queue<Batch<V, E>> ready = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock applying = new ReentrantLock();
+
+    // Written while holding the monitor of the ingestor
+    private volatile Flow.Subscription subscription;
+    private List<GraphMutation<V, E>> batch;
+    private long oldestArrival;
+
+    // Metrics, each written by one thread at a time, either holding the monitor or applying batches, and read
+    // without locks
+    private volatile long received;
+    private volatile int pending;
+    private volatile long firstArrival;
+    private volatile long applied;
+    private volatile long rejected;
+    private volatile long batches;
+    private volatile long lastApplied;
+    private volatile long lastLag;
+    private volatile long maxLag;
+    private volatile long totalLag;
+
+    /**
+     * Creates an ingestor with the default batch size and delay, and its own lock
+     *
+     * @param graph the graph to apply the mutations to
+     */
+    public GraphIngestor(AbstractGraph<V, E> graph) {
+        this(graph, new ReentrantReadWriteLock(), DEFAULT_BATCH_SIZE, DEFAULT_MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param graph     the graph to apply the mutations to
+     * @param lock      lock shared with the readers of the graph, whose write lock is held while applying a batch
+     * @param batchSize maximum number of mutations applied at once
+     * @param maxDelay  maximum time a mutation waits for its batch to fill before the batch is applied anyway
+     * @param unit      unit of the delay
+     * @throws IllegalArgumentException if the batch size or the delay are not positive
+     */
+    public GraphIngestor(AbstractGraph<V, E> graph, ReadWriteLock lock, int batchSize, long maxDelay,
+                         TimeUnit unit) {
+        if (batchSize < 1 || maxDelay <= 0) {
+            throw new IllegalArgumentException("The batch size and the delay must be positive");
+        }
+        this.graph = Objects.requireNonNull(graph);
+        this.lock = Objects.requireNonNull(lock);
+        this.batchSize = batchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.batch = new ArrayList<>(batchSize);
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "graph-ingestor-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the lock held while batches are applied. Readers of the graph should hold its read lock
+     */
+    public ReadWriteLock getLock() {
+        return lock;
+    }
+
+    /**
+     * @return a future completed once the publisher has completed and every mutation received has been applied, or
+     * completed exceptionally if the publisher fails or a batch can not be applied
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        synchronized (this) {
+            if (this.subscription != null) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+        }
+        long period = Math.max(TimeUnit.MILLISECONDS.toNanos(1), maxDelayNanos / 4);
+        timer.scheduleAtFixedRate(this::flushIfLate, period, period, TimeUnit.NANOSECONDS);
+        subscription.request(2L * batchSize);
+    }
+
+    @Override
+    public void onNext(GraphMutation<V, E> mutation) {
+        boolean full;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (received == 0) {
+                firstArrival = now;
+            }
+            received++;
+            if (batch.isEmpty()) {
+                oldestArrival = now;
+            }
+            batch.add(mutation);
+            pending = batch.size();
+            full = batch.size() >= batchSize;
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        finish(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        finish(null);
+    }
+
+    /**
+     * Applies the mutations received so far without waiting for their batch to fill. Returns once they, and every
+     * batch handed over before them, have been applied
+     */
+    public void flush() {
+        synchronized (this) {
+            if (!batch.isEmpty() && subscription != null && !completion.isCompletedExceptionally()) {
+                ready.add(new Batch<>(batch, oldestArrival));
+                batch = new ArrayList<>(batchSize);
+                pending = 0;
+            }
+        }
+        applying.lock();
+        try {
+            Batch<V, E> next;
+            while (!completion.isCompletedExceptionally() && (next = ready.poll()) != null) {
+                apply(next);
+            }
+        } finally {
+            applying.unlock();
+        }
+    }
+
+    /**
+     * @return the counters of the ingestor at this moment. They are read one by one without blocking, so a batch
+     * being applied may be counted in some of them and not in others yet
+     */
+    public Metrics getMetrics() {
+        long applied = this.applied;
+        long batches = this.batches;
+        long lastApplied = this.lastApplied;
+        long firstArrival = this.firstArrival;
+        return new Metrics(received, applied, rejected, batches, pending, lastLag, maxLag,
+                           batches == 0 ? 0 : totalLag / batches,
+                           applied == 0 || lastApplied == firstArrival
+                                   ? 0 : applied * 1e9 / (lastApplied - firstArrival));
+    }
+
+    private void apply(Batch<V, E> next) {
+        int failed = 0;
+        lock.writeLock().lock();
+        try {
+            for (GraphMutation<V, E> mutation : next.mutations) {
+                if (!mutation.applyTo(graph)) {
+                    failed++;
+                }
+            }
+        } catch (RuntimeException e) {
+            subscription.cancel();
+            timer.shutdownNow();
+            completion.completeExceptionally(e);
+            return;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long now = System.nanoTime();
+        applied += next.mutations.size();
+        rejected += failed;
+        batches++;
+        lastApplied = now;
+        lastLag = now - next.oldestArrival;
+        maxLag = Math.max(maxLag, lastLag);
+        totalLag += lastLag;
+        subscription.request(next.mutations.size());
+    }
+
+    private void flushIfLate() {
+        boolean late;
+        synchronized (this) {
+            late = !batch.isEmpty() && System.nanoTime() - oldestArrival >= maxDelayNanos;
+        }
+        if (late) {
+            flush();
+        }
+    }
+
+    private void finish(Throwable throwable) {
+        flush();
+        timer.shutdownNow();
+        if (throwable == null) {
+            completion.complete(null);
+        } else {
+            completion.completeExceptionally(throwable);
+        }
+    }
+
+    private static final class Batch<V, E> {
+        final List<GraphMutation<V, E>> mutations;
+        final long oldestArrival;
+
+        Batch(List<GraphMutation<V, E>> mutations, long oldestArrival) {
+            this.mutations = mutations;
+            this.oldestArrival = oldestArrival;
+        }
+    }
+
+    /**
+     * Counters of an ingestor. Lags are measured from the arrival of the oldest mutation of a batch to the moment
+     * the batch is applied
+     */
+    public static final class Metrics {
+        private final long received;
+        private final long applied;
+        private final long rejected;
+        private final long batches;
+        private final int pending;
+        private final long lastLagNanos;
+        private final long maxLagNanos;
+        private final long averageLagNanos;
+        private final double throughput;
+
+        Metrics(long received, long applied, long rejected, long batches, int pending, long lastLagNanos,
+                long maxLagNanos, long averageLagNanos, double throughput) {
+            this.received = received;
+            this.applied = applied;
+            this.rejected = rejected;
+            this.batches = batches;
+            this.pending = pending;
+            this.lastLagNanos = lastLagNanos;
+            this.maxLagNanos = maxLagNanos;
+            this.averageLagNanos = averageLagNanos;
+            this.throughput = throughput;
+        }
+
+        /**
+         * @return the number of mutations received from the publisher
+         */
+        public long getReceived() {
+            return received;
+        }
+
+        /**
+         * @return the number of mutations applied to the graph, including the rejected ones
+         */
+        public long getApplied() {
+            return applied;
+        }
+
+        /**
+         * @return the number of mutations the graph did not accept, such as connections that already existed
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * @return the number of batches applied
+         */
+        public long getBatches() {
+            return batches;
+        }
+
+        /**
+         * @return the number of mutations waiting for their batch
+         */
+        public int getPending() {
+            return pending;
+        }
+
+        /**
+         * @return the lag of the last batch applied, in nanoseconds
+         */
+        public long getLastLagNanos() {
+            return lastLagNanos;
+        }
+
+        /**
+         * @return the largest lag of a batch, in nanoseconds
+         */
+        public long getMaxLagNanos() {
+            return maxLagNanos;
+        }
+
+        /**
+         * @return the average lag of the batches, in nanoseconds
+         */
+        public long getAverageLagNanos() {
+            return averageLagNanos;
+        }
+
+        /**
+         * @return the mutations applied per second, from the first arrival to the last batch applied
+         */
+        public double getThroughput() {
+            return throughput;
+        }
+
+        @Override
+        public String toString() {
+            return "received: " + received + ", applied: " + applied + ", rejected: " + rejected + ", batches: "
+                    + batches + ", pending: " + pending + ", max lag: " + maxLagNanos / 1_000_000 + " ms"
+                    + ", throughput: " + (long) throughput + "/s";
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.lelv.graphthree;
+
+/**
+ * Receives the changes of a graph it is subscribed to with {@link AbstractGraph#addListener(GraphListener)}.
+ * Every method is called after the change has been applied, and does nothing by default.
+ * <p>
+ * Changes are reported per direction: connecting two nodes of an undirected graph reports two connections, one
+ * from each node. Removing a node first reports the removal of every connection from and to it.
+ *
+ * @param <V> type of the nodes
+ * @param <E> type of the connections
+ */
+public interface GraphListener<V, E> {
+
+    default void nodeAdded(V node) {
+    }
+
+    default void nodeRemoved(V node) {
+    }
+
+    default void nodesConnected(V originNode, V destinationNode, E connection) {
+    }
+
+    default void nodesDisconnected(V originNode, V destinationNode, E connection) {
+    }
+
+    default void connectionChanged(V originNode, V destinationNode, E oldConnection, E newConnection) {
+    }
+}
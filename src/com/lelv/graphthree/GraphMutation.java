@@ -0,0 +1,109 @@
+package com.lelv.graphthree;
+
+import java.util.Objects;
+
+/**
+ * A change to a graph, as an object that can be queued, sent or stored and applied later: adding or removing a
+ * node, connecting or disconnecting two nodes, or replacing the information of a connection. For changes to nodes,
+ * the node is the origin node and the other fields are null.
+ *
+ * @param <V> type of the nodes
+ * @param <E> type of the connections
+ */
+public final class GraphMutation<V, E> {
+
+    public enum Type {
+        ADD_NODE, REMOVE_NODE, CONNECT, DISCONNECT, SET_CONNECTION
+    }
+
+    public final Type type;
+    public final V originNode;
+    public final V destinationNode;
+    public final E connection;
+
+    private GraphMutation(Type type, V originNode, V destinationNode, E connection) {
+        this.type = Objects.requireNonNull(type);
+        this.originNode = originNode;
+        this.destinationNode = destinationNode;
+        this.connection = connection;
+    }
+
+    public static <V, E> GraphMutation<V, E> addNode(V node) {
+        return new GraphMutation<>(Type.ADD_NODE, node, null, null);
+    }
+
+    public static <V, E> GraphMutation<V, E> removeNode(V node) {
+        return new GraphMutation<>(Type.REMOVE_NODE, node, null, null);
+    }
+
+    public static <V, E> GraphMutation<V, E> connect(V originNode, V destinationNode, E connection) {
+        return new GraphMutation<>(Type.CONNECT, originNode, destinationNode, connection);
+    }
+
+    public static <V, E> GraphMutation<V, E> disconnect(V originNode, V destinationNode) {
+        return new GraphMutation<>(Type.DISCONNECT, originNode, destinationNode, null);
+    }
+
+    public static <V, E> GraphMutation<V, E> setConnection(V originNode, V destinationNode, E connection) {
+        return new GraphMutation<>(Type.SET_CONNECTION, originNode, destinationNode, connection);
+    }
+
+    /**
+     * Applies the change with the method of the graph that corresponds to it
+     *
+     * @param graph the graph to change
+     * @return the result of the method of the graph, false if the change could not be applied
+     */
+    public boolean applyTo(AbstractGraph<V, E> graph) {
+        switch (type) {
+            case ADD_NODE:
+                return graph.addNode(originNode);
+            case REMOVE_NODE:
+                return graph.removeNode(originNode);
+            case CONNECT:
+                return graph.connectNodes(originNode, destinationNode, connection);
+            case DISCONNECT:
+                return graph.disconnectNodes(originNode, destinationNode);
+            default:
+                return graph.setConnection(originNode, destinationNode, connection);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        GraphMutation<?, ?> that = (GraphMutation<?, ?>) o;
+
+        if (type != that.type) return false;
+        if (!Objects.equals(originNode, that.originNode)) return false;
+        if (!Objects.equals(destinationNode, that.destinationNode)) return false;
+        return Objects.equals(connection, that.connection);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = type.hashCode();
+        result = 31 * result + (originNode != null ? originNode.hashCode() : 0);
+        result = 31 * result + (destinationNode != null ? destinationNode.hashCode() : 0);
+        result = 31 * result + (connection != null ? connection.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case ADD_NODE:
+                return "+" + originNode;
+            case REMOVE_NODE:
+                return "-" + originNode;
+            case CONNECT:
+                return "+" + originNode + "-" + destinationNode;
+            case DISCONNECT:
+                return "-" + originNode + "-" + destinationNode;
+            default:
+                return originNode + "-" + destinationNode + "=" + connection;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.lelv.graphthree;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The nodes of one part of a {@link Partitioning}, with every connection that leaves them, as a compact graph of
+ * its own.
+ * <p>
+ * Local nodes take the first ids of the subgraph, in the order of the original graph. Nodes of other parts reached
+ * by a connection are added after them as ghosts, which have no connections of their own: the ghost table tells
+ * their part, their id among the nodes of their part and their id in the original graph. Local nodes with at
+ * least one connection to a ghost form the boundary of the part.
+ * <p>
+ * Parts can be written to files and read back, so each one can be loaded by a {@link ShardWorker} in its own
+ * process without the rest of the graph.
+ *
+ * @param <V> type of the nodes
+ */
+public class GraphPart<V> {
+
+    private static final int MAGIC = 0x47505254;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final int part;
+    private final CompactGraph<V> graph;
+    private final int localNodes;
+    private final int[] globalIds;
+    private final int[] owners;
+    private final int[] remoteIds;
+    private final int[] boundary;
+
+    GraphPart(CompactGraph<V> original, int part, int[] parts, int size, int[] localIds) {
+        this.part = part;
+        this.localNodes = size;
+
+        int[] locals = new int[size];
+        for (int v = 0, next = 0; next < size; v++) {
+            if (parts[v] == part) {
+                locals[next++] = v;
+            }
+        }
+
+        Map<Integer, Integer> ghosts = new HashMap<>();
+        IntList ghostIds = new IntList();
+        int[] offsets = new int[size + 1];
+        IntList targets = new IntList();
+        double[] weights = original.weights == null ? null : new double[countConnections(original, locals)];
+        for (int i = 0; i < size; i++) {
+            int v = locals[i];
+            for (int e = original.offsets[v]; e < original.offsets[v + 1]; e++) {
+                int w = original.targets[e];
+                if (weights != null) {
+                    weights[targets.size()] = original.weights[e];
+                }
+                if (parts[w] == part) {
+                    targets.add(localIds[w]);
+                } else {
+                    Integer ghost = ghosts.get(w);
+                    if (ghost == null) {
+                        ghost = size + ghostIds.size();
+                        ghosts.put(w, ghost);
+                        ghostIds.add(w);
+                    }
+                    targets.add(ghost);
+                }
+            }
+            offsets[i + 1] = targets.size();
+        }
+
+        int total = size + ghostIds.size();
+        globalIds = Arrays.copyOf(locals, total);
+        owners = new int[ghostIds.size()];
+        remoteIds = new int[ghostIds.size()];
+        for (int g = 0; g < ghostIds.size(); g++) {
+            globalIds[size + g] = ghostIds.get(g);
+            owners[g] = parts[ghostIds.get(g)];
+            remoteIds[g] = localIds[ghostIds.get(g)];
+        }
+        List<V> nodes = new ArrayList<>(total);
+        for (int id = 0; id < total; id++) {
+            nodes.add(original.nodeOf(globalIds[id]));
+        }
+        int[] edges = targets.toArray();
+        graph = compact(nodes, offsets, edges, weights);
+        boundary = boundary(size, offsets, edges);
+    }
+
+    private GraphPart(int part, List<V> nodes, int localNodes, int[] globalIds, int[] owners, int[] remoteIds,
+                      int[] offsets, int[] targets, double[] weights) {
+        this.part = part;
+        this.localNodes = localNodes;
+        this.globalIds = globalIds;
+        this.owners = owners;
+        this.remoteIds = remoteIds;
+        this.graph = compact(nodes, offsets, targets, weights);
+        this.boundary = boundary(localNodes, offsets, targets);
+    }
+
+    /**
+     * Reads a part written with {@link #write(Path, Codec)}
+     *
+     * @param file      the file to read
+     * @param nodeCodec reads the nodes
+     * @return the part
+     * @throws IOException if the file can not be read, or is not a complete part
+     */
+    public static <V> GraphPart<V> read(Path file, Codec<V> nodeCodec) throws IOException {
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE), new CRC32());
+             DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a graph part: " + file);
+            }
+            int part = in.readInt();
+            int localNodes = in.readInt();
+            int total = in.readInt();
+            List<V> nodes = new ArrayList<>(total);
+            for (int id = 0; id < total; id++) {
+                nodes.add(nodeCodec.read(in));
+            }
+            int[] globalIds = readInts(in, total);
+            int[] owners = readInts(in, total - localNodes);
+            int[] remoteIds = readInts(in, total - localNodes);
+            int[] offsets = readInts(in, localNodes + 1);
+            int[] targets = readInts(in, offsets[localNodes]);
+            double[] weights = null;
+            if (in.readBoolean()) {
+                weights = new double[targets.length];
+                for (int e = 0; e < weights.length; e++) {
+                    weights[e] = in.readDouble();
+                }
+            }
+            long checksum = checked.getChecksum().getValue();
+            if (in.readLong() != checksum) {
+                throw new IOException("Corrupt graph part: " + file);
+            }
+            return new GraphPart<>(part, nodes, localNodes, globalIds, owners, remoteIds, offsets, targets,
+                                   weights);
+        }
+    }
+
+    /**
+     * Writes the part, so it can be read back without the rest of the graph
+     *
+     * @param file      the file to write
+     * @param nodeCodec writes the nodes
+     * @throws IOException if the file can not be written
+     */
+    public void write(Path file, Codec<V> nodeCodec) throws IOException {
+        try (CheckedOutputStream checked = new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE), new CRC32());
+             DataOutputStream out = new DataOutputStream(checked)) {
+            int total = globalIds.length;
+            out.writeInt(MAGIC);
+            out.writeInt(part);
+            out.writeInt(localNodes);
+            out.writeInt(total);
+            for (int id = 0; id < total; id++) {
+                nodeCodec.write(graph.nodeOf(id), out);
+            }
+            writeInts(out, globalIds, total);
+            writeInts(out, owners, owners.length);
+            writeInts(out, remoteIds, remoteIds.length);
+            writeInts(out, graph.offsets, localNodes + 1);
+            writeInts(out, graph.targets, graph.targets.length);
+            out.writeBoolean(graph.weights != null);
+            if (graph.weights != null) {
+                for (double weight : graph.weights) {
+                    out.writeDouble(weight);
+                }
+            }
+            out.writeLong(checked.getChecksum().getValue());
+        }
+    }
+
+    /*
+     * Id of every node among the nodes of its own part
+     */
+    static int[] localIds(int[] part, int parts) {
+        int[] ids = new int[part.length];
+        int[] next = new int[parts];
+        for (int v = 0; v < part.length; v++) {
+            ids[v] = next[part[v]]++;
+        }
+        return ids;
+    }
+
+    /*
+     * The subgraph over the nodes of the part, whose offsets are given for the local nodes only, as ghosts have no
+     * connections
+     */
+    private static <V> CompactGraph<V> compact(List<V> nodes, int[] offsets, int[] targets, double[] weights) {
+        int localNodes = offsets.length - 1;
+        int[] allOffsets = Arrays.copyOf(offsets, nodes.size() + 1);
+        Arrays.fill(allOffsets, localNodes + 1, allOffsets.length, offsets[localNodes]);
+        Map<V, Integer> ids = new HashMap<>(nodes.size() * 2);
+        for (int id = 0; id < nodes.size(); id++) {
+            ids.put(nodes.get(id), id);
+        }
+        return new CompactGraph<>(Collections.unmodifiableList(nodes), ids, allOffsets, targets, weights);
+    }
+
+    private static int[] boundary(int localNodes, int[] offsets, int[] targets) {
+        IntList boundary = new IntList();
+        for (int v = 0; v < localNodes; v++) {
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                if (targets[e] >= localNodes) {
+                    boundary.add(v);
+                    break;
+                }
+            }
+        }
+        return boundary.toArray();
+    }
+
+    private static int[] readInts(DataInput in, int length) throws IOException {
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static void writeInts(DataOutput out, int[] values, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    private static int countConnections(CompactGraph<?> original, int[] locals) {
+        int count = 0;
+        for (int v : locals) {
+            count += original.offsets[v + 1] - original.offsets[v];
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of the part
+     */
+    public int getPart() {
+        return part;
+    }
+
+    /**
+     * @return the subgraph, with the local nodes first and the ghosts after them
+     */
+    public CompactGraph<V> getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the number of nodes that belong to the part
+     */
+    public int getNumberOfLocalNodes() {
+        return localNodes;
+    }
+
+    /**
+     * @return the number of nodes of other parts reached from this one
+     */
+    public int getNumberOfGhosts() {
+        return owners.length;
+    }
+
+    /**
+     * @param id id of a node in the subgraph
+     * @return true if the node belongs to another part
+     */
+    public boolean isGhost(int id) {
+        return id >= localNodes;
+    }
+
+    /**
+     * @param id id of a node in the subgraph
+     * @return the part the node belongs to
+     */
+    public int ownerOf(int id) {
+        return isGhost(id) ? owners[id - localNodes] : part;
+    }
+
+    /**
+     * @param id id of a node in the subgraph
+     * @return the id of the node among the local nodes of the part it belongs to
+     */
+    public int remoteIdOf(int id) {
+        return isGhost(id) ? remoteIds[id - localNodes] : id;
+    }
+
+    /**
+     * @param id id of a node in the subgraph
+     * @return the id of the node in the original graph
+     */
+    public int globalIdOf(int id) {
+        return globalIds[id];
+    }
+
+    /**
+     * @return the ids in the subgraph of the local nodes with connections to other parts
+     */
+    public int[] getBoundary() {
+        return boundary.clone();
+    }
+}
@@ -0,0 +1,121 @@
+package com.lelv.graphthree;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/*
+ * Files with every node and connection of a graph, written whole to a temporary file that replaces the target
+ * only once it is on disk, so a snapshot is either complete or absent. Nodes are written in the order of the
+ * graph, and connections as the index of their destination, followed by a checksum of the whole file
+ */
+final class GraphSnapshot {
+
+    private static final int MAGIC = 0x47534E50;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private GraphSnapshot() {
+    }
+
+    /*
+     * Writes the graph, tagged with the sequence number of the last change it contains
+     */
+    static <V, E> void write(AbstractGraph<V, E> graph, long sequence, Path file, Codec<V> nodeCodec,
+                             Codec<E> connectionCodec) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temporary.toFile());
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE),
+                                                                   new CRC32());
+             DataOutputStream out = new DataOutputStream(checked)) {
+            List<AbstractGraph<V, E>.Vertex> vertices = graph.getVertices();
+            IdentityHashMap<AbstractGraph<V, E>.Vertex, Integer> index = new IdentityHashMap<>(vertices.size());
+            out.writeInt(MAGIC);
+            out.writeLong(sequence);
+            out.writeInt(vertices.size());
+            for (AbstractGraph<V, E>.Vertex vertex : vertices) {
+                index.put(vertex, index.size());
+                nodeCodec.write(vertex.node, out);
+            }
+            for (AbstractGraph<V, E>.Vertex vertex : vertices) {
+                out.writeInt(vertex.edges.size());
+                for (AbstractGraph<V, E>.Edge edge : vertex.edges) {
+                    out.writeInt(index.get(edge.destination));
+                    writeConnection(connectionCodec, edge.connection, out);
+                }
+            }
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(file.getParent());
+    }
+
+    /*
+     * Adds the nodes and connections of the snapshot to the graph, and returns its sequence number
+     */
+    static <V, E> long read(Path file, AbstractGraph<V, E> graph, Codec<V> nodeCodec, Codec<E> connectionCodec)
+            throws IOException {
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE), new CRC32());
+             DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a graph snapshot: " + file);
+            }
+            long sequence = in.readLong();
+            int size = in.readInt();
+            List<V> nodes = new ArrayList<>(size);
+            for (int v = 0; v < size; v++) {
+                V node = nodeCodec.read(in);
+                nodes.add(node);
+                graph.addNode(node);
+            }
+            for (V node : nodes) {
+                int degree = in.readInt();
+                for (int e = 0; e < degree; e++) {
+                    V destination = nodes.get(in.readInt());
+                    graph.connectNodes(node, destination, readConnection(connectionCodec, in));
+                }
+            }
+            long checksum = checked.getChecksum().getValue();
+            if (in.readLong() != checksum) {
+                throw new IOException("Corrupt graph snapshot: " + file);
+            }
+            return sequence;
+        }
+    }
+
+    /*
+     * Connections may be null, so they are preceded by whether they are present
+     */
+    static <E> void writeConnection(Codec<E> codec, E connection, DataOutput out) throws IOException {
+        out.writeBoolean(connection != null);
+        if (connection != null) {
+            codec.write(connection, out);
+        }
+    }
+
+    static <E> E readConnection(Codec<E> codec, DataInput in) throws IOException {
+        return in.readBoolean() ? codec.read(in) : null;
+    }
+
+    /*
+     * Makes the creation, renaming and deletion of files in the directory durable, where the platform allows it
+     */
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // Some platforms can not open directories, and do not need it either
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.lelv.graphthree;
+
+/*
+ * Map from ints that are not negative to ints, in an open addressing table with linear probing, used by the
+ * algorithms that work over compact graphs to avoid boxing. The slots in use are remembered, so clearing the map
+ * only costs the keys in it and one map can be reused for many small sets of keys
+ */
+class IntIntMap {
+
+    // Key + 1 in every slot, 0 for empty slots
+    private int[] keys;
+    private int[] values;
+    private int[] used;
+    private int size;
+
+    IntIntMap() {
+        this(16);
+    }
+
+    IntIntMap(int capacity) {
+        int length = Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1);
+        keys = new int[length];
+        values = new int[length];
+        used = new int[length];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean containsKey(int key) {
+        return keys[slot(key)] != 0;
+    }
+
+    /*
+     * Value of the key, or the value given if the key is not in the map
+     */
+    int get(int key, int missing) {
+        int slot = slot(key);
+        return keys[slot] == 0 ? missing : values[slot];
+    }
+
+    void put(int key, int value) {
+        int slot = slot(key);
+        if (keys[slot] == 0) {
+            keys[slot] = key + 1;
+            used[size++] = slot;
+            if (size * 4 > keys.length * 3) {
+                values[slot] = value;
+                grow();
+                return;
+            }
+        }
+        values[slot] = value;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            keys[used[i]] = 0;
+        }
+        size = 0;
+    }
+
+    /*
+     * Slot of the key, or the empty slot where it would go
+     */
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        int[] oldUsed = used;
+        int oldSize = size;
+        keys = new int[oldKeys.length * 2];
+        values = new int[keys.length];
+        used = new int[keys.length];
+        size = 0;
+        for (int i = 0; i < oldSize; i++) {
+            int slot = slot(oldKeys[oldUsed[i]] - 1);
+            keys[slot] = oldKeys[oldUsed[i]];
+            values[slot] = oldValues[oldUsed[i]];
+            used[size++] = slot;
+        }
+    }
+
+    private static int hash(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
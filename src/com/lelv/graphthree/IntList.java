@@ -0,0 +1,63 @@
+package com.lelv.graphthree;
+
+import java.util.Arrays;
+
+/*
+ * Growable array of ints, used by the algorithms that work over compact graphs to avoid boxing
+ */
+class IntList {
+
+    private int[] data;
+    private int size;
+
+    IntList() {
+        this(8);
+    }
+
+    IntList(int capacity) {
+        data = new int[Math.max(capacity, 1)];
+    }
+
+    void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, size * 2);
+        }
+        data[size++] = value;
+    }
+
+    void addAll(int[] values) {
+        if (size + values.length > data.length) {
+            data = Arrays.copyOf(data, Math.max(size * 2, size + values.length));
+        }
+        System.arraycopy(values, 0, data, size, values.length);
+        size += values.length;
+    }
+
+    int get(int index) {
+        return data[index];
+    }
+
+    void set(int index, int value) {
+        data[index] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int removeLast() {
+        return data[--size];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
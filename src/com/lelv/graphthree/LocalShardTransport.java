@@ -0,0 +1,81 @@
+package com.lelv.graphthree;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Transport between shards running in the same JVM, which pass their batches through in-memory queues
+ */
+public class LocalShardTransport implements ShardTransport {
+
+    private final int shard;
+    private final List<List<BlockingQueue<int[]>>> queues;
+
+    private LocalShardTransport(int shard, List<List<BlockingQueue<int[]>>> queues) {
+        this.shard = shard;
+        this.queues = queues;
+    }
+
+    /**
+     * Creates the endpoints of every shard
+     *
+     * @param shards number of shards
+     * @return the endpoint of every shard, indexed by shard
+     */
+    public static List<ShardTransport> create(int shards) {
+        // Queue from shard j to shard i at queues.get(i).get(j)
+        List<List<BlockingQueue<int[]>>> queues = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            List<BlockingQueue<int[]>> inbox = new ArrayList<>(shards);
+            for (int j = 0; j < shards; j++) {
+                inbox.add(new LinkedBlockingQueue<>());
+            }
+            queues.add(inbox);
+        }
+        List<ShardTransport> result = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            result.add(new LocalShardTransport(i, queues));
+        }
+        return result;
+    }
+
+    @Override
+    public int getShard() {
+        return shard;
+    }
+
+    @Override
+    public int getNumberOfShards() {
+        return queues.size();
+    }
+
+    @Override
+    public int[][] exchange(int[][] outgoing) throws InterruptedIOException {
+        int shards = queues.size();
+        int[][] incoming = new int[shards][];
+        try {
+            for (int j = 0; j < shards; j++) {
+                if (j != shard) {
+                    queues.get(j).get(shard).put(outgoing[j]);
+                }
+            }
+            incoming[shard] = outgoing[shard];
+            for (int j = 0; j < shards; j++) {
+                if (j != shard) {
+                    incoming[j] = queues.get(shard).get(j).take();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while exchanging messages");
+        }
+        return incoming;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,447 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.DirectedGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maximum flow between two nodes of a directed graph whose connection weights are capacities, together with the
+ * minimum cut that proves it.
+ * <p>
+ * Both algorithms work on a residual graph kept in primitive arrays: every connection becomes a forward arc with
+ * its capacity and a backward arc with no capacity, stored next to each other so the reverse of arc {@code a} is
+ * arc {@code a ^ 1}. Once the flow is maximum, the nodes still reachable from the source through arcs with
+ * residual capacity form the source side of a minimum cut.
+ *
+ * @param <V> type of the nodes
+ */
+public class MaxFlow<V> {
+
+    private static final double EPSILON = 1e-12;
+
+    private final CompactGraph<V> graph;
+    private final double value;
+    private final double[] flows;
+    private final boolean[] sourceSide;
+
+    private MaxFlow(CompactGraph<V> graph, double value, double[] flows, boolean[] sourceSide) {
+        this.graph = graph;
+        this.value = value;
+        this.flows = flows;
+        this.sourceSide = sourceSide;
+    }
+
+    /**
+     * Calculates the maximum flow with Dinic's algorithm: a breadth first search layers the residual graph by
+     * distance to the source, and a blocking flow is pushed along the layers before layering again.
+     *
+     * @param graph      the graph on which to apply the algorithm, with capacities as weights
+     * @param sourceNode the node the flow leaves from
+     * @param sinkNode   the node the flow arrives to
+     * @return the maximum flow, or null if either node does not exist
+     */
+    public static <V, E extends WeightedEdge> MaxFlow<V> dinic(DirectedGraph<V, E> graph, V sourceNode,
+                                                               V sinkNode) {
+        if (!graph.nodeExists(sourceNode) || !graph.nodeExists(sinkNode))
+            return null;
+        CompactGraph<V> compact = CompactGraph.weighted(graph);
+        return dinic(compact, compact.idOf(sourceNode), compact.idOf(sinkNode));
+    }
+
+    /**
+     * Calculates the maximum flow with Dinic's algorithm
+     *
+     * @param graph  the weighted graph on which to apply the algorithm, with capacities as weights
+     * @param source id of the node the flow leaves from
+     * @param sink   id of the node the flow arrives to
+     * @return the maximum flow
+     */
+    public static <V> MaxFlow<V> dinic(CompactGraph<V> graph, int source, int sink) {
+        Residual residual = new Residual(graph, source, sink);
+        double value = residual.dinic();
+        return new MaxFlow<>(graph, value, residual.flows(), residual.sourceSide());
+    }
+
+    /**
+     * Calculates the maximum flow with the highest-label push-relabel algorithm. Nodes hold excess flow and push it
+     * to neighbors one level below, always discharging the highest active node first. Levels are recomputed from
+     * scratch with a breadth first search from the sink (and from the source, for the excess that must return)
+     * at the start and every time the nodes have been relabelled as many times as there are nodes.
+     *
+     * @param graph      the graph on which to apply the algorithm, with capacities as weights
+     * @param sourceNode the node the flow leaves from
+     * @param sinkNode   the node the flow arrives to
+     * @return the maximum flow, or null if either node does not exist
+     */
+    public static <V, E extends WeightedEdge> MaxFlow<V> pushRelabel(DirectedGraph<V, E> graph, V sourceNode,
+                                                                     V sinkNode) {
+        if (!graph.nodeExists(sourceNode) || !graph.nodeExists(sinkNode))
+            return null;
+        CompactGraph<V> compact = CompactGraph.weighted(graph);
+        return pushRelabel(compact, compact.idOf(sourceNode), compact.idOf(sinkNode));
+    }
+
+    /**
+     * Calculates the maximum flow with the highest-label push-relabel algorithm
+     *
+     * @param graph  the weighted graph on which to apply the algorithm, with capacities as weights
+     * @param source id of the node the flow leaves from
+     * @param sink   id of the node the flow arrives to
+     * @return the maximum flow
+     */
+    public static <V> MaxFlow<V> pushRelabel(CompactGraph<V> graph, int source, int sink) {
+        Residual residual = new Residual(graph, source, sink);
+        double value = residual.pushRelabel();
+        return new MaxFlow<>(graph, value, residual.flows(), residual.sourceSide());
+    }
+
+    /**
+     * @return the value of the maximum flow, which equals the capacity of the minimum cut
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * @param originNode      the origin of the connection
+     * @param destinationNode the destination of the connection
+     * @return the flow that goes through the connection, or 0 if the connection does not exist
+     */
+    public double getFlow(V originNode, V destinationNode) {
+        int origin = graph.idOf(originNode);
+        int destination = graph.idOf(destinationNode);
+        if (origin == CompactGraph.NON_EXISTENT_ID || destination == CompactGraph.NON_EXISTENT_ID) {
+            return 0;
+        }
+        for (int e = graph.offsets[origin]; e < graph.offsets[origin + 1]; e++) {
+            if (graph.targets[e] == destination) {
+                return flows[e];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the flow of every connection, in the order of the connections of the compact graph
+     */
+    public double[] getFlows() {
+        return flows.clone();
+    }
+
+    /**
+     * @param node the node to look for
+     * @return true if the node is on the source side of the minimum cut
+     */
+    public boolean isOnSourceSide(V node) {
+        int id = graph.idOf(node);
+        return id != CompactGraph.NON_EXISTENT_ID && sourceSide[id];
+    }
+
+    /**
+     * @return the nodes on the source side of the minimum cut. The rest of the nodes are on the sink side
+     */
+    public List<V> getSourceSide() {
+        List<V> result = new ArrayList<>();
+        for (int v = 0; v < sourceSide.length; v++) {
+            if (sourceSide[v]) {
+                result.add(graph.nodeOf(v));
+            }
+        }
+        return result;
+    }
+
+    private static class Residual {
+        private final int n;
+        private final int m;
+        private final int source;
+        private final int sink;
+
+        private final int[] arcOffsets;
+        private final int[] arcs;
+        private final int[] head;
+        private final double[] capacity;
+        private final double[] original;
+
+        Residual(CompactGraph<?> graph, int source, int sink) {
+            if (!graph.isWeighted()) {
+                throw new IllegalArgumentException("the graph has no capacities, build it with CompactGraph.weighted");
+            }
+            if (source == sink) {
+                throw new IllegalArgumentException("the source and the sink must be different nodes");
+            }
+            this.n = graph.getNumberOfNodes();
+            this.m = graph.getNumberOfConnections();
+            this.source = source;
+            this.sink = sink;
+
+            head = new int[2 * m];
+            capacity = new double[2 * m];
+            original = new double[m];
+            arcOffsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                    if (graph.weights[e] < 0) {
+                        throw new IllegalArgumentException("capacities must not be negative");
+                    }
+                    head[2 * e] = graph.targets[e];
+                    head[2 * e + 1] = v;
+                    capacity[2 * e] = original[e] = graph.weights[e];
+                    arcOffsets[v + 1]++;
+                    arcOffsets[graph.targets[e] + 1]++;
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                arcOffsets[v + 1] += arcOffsets[v];
+            }
+            arcs = new int[2 * m];
+            int[] position = Arrays.copyOf(arcOffsets, n);
+            for (int a = 0; a < 2 * m; a++) {
+                arcs[position[head[a ^ 1]]++] = a;
+            }
+        }
+
+        double dinic() {
+            int[] level = new int[n];
+            int[] current = new int[n];
+            int[] queue = new int[n];
+            int[] path = new int[n];
+            double total = 0;
+
+            while (layer(level, queue)) {
+                System.arraycopy(arcOffsets, 0, current, 0, n);
+                int depth = 0;
+                int v = source;
+                while (true) {
+                    if (v == sink) {
+                        double bottleneck = Double.POSITIVE_INFINITY;
+                        for (int i = 0; i < depth; i++) {
+                            bottleneck = Math.min(bottleneck, capacity[path[i]]);
+                        }
+                        int saturated = -1;
+                        for (int i = 0; i < depth; i++) {
+                            capacity[path[i]] -= bottleneck;
+                            capacity[path[i] ^ 1] += bottleneck;
+                            if (saturated == -1 && capacity[path[i]] <= EPSILON) {
+                                saturated = i;
+                            }
+                        }
+                        total += bottleneck;
+                        // Continue from the tail of the first arc that was saturated
+                        depth = saturated;
+                        v = head[path[saturated] ^ 1];
+                        continue;
+                    }
+                    int a = -1;
+                    while (current[v] < arcOffsets[v + 1]) {
+                        int candidate = arcs[current[v]];
+                        if (capacity[candidate] > EPSILON && level[head[candidate]] == level[v] + 1) {
+                            a = candidate;
+                            break;
+                        }
+                        current[v]++;
+                    }
+                    if (a != -1) {
+                        path[depth++] = a;
+                        v = head[a];
+                    } else {
+                        // Dead end, no blocking flow goes through v anymore
+                        level[v] = -1;
+                        if (depth == 0) {
+                            break;
+                        }
+                        v = head[path[--depth] ^ 1];
+                        current[v]++;
+                    }
+                }
+            }
+            return total;
+        }
+
+        private boolean layer(int[] level, int[] queue) {
+            Arrays.fill(level, -1);
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = source;
+            level[source] = 0;
+            while (head < tail) {
+                int v = queue[head++];
+                for (int i = arcOffsets[v]; i < arcOffsets[v + 1]; i++) {
+                    int a = arcs[i];
+                    int w = this.head[a];
+                    if (capacity[a] > EPSILON && level[w] == -1) {
+                        level[w] = level[v] + 1;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+            return level[sink] != -1;
+        }
+
+        double pushRelabel() {
+            int maxHeight = 2 * n;
+            int[] height = new int[n];
+            double[] excess = new double[n];
+            int[] current = Arrays.copyOf(arcOffsets, n);
+            int[] bucket = new int[maxHeight + 1];
+            int[] next = new int[n];
+            boolean[] active = new boolean[n];
+            Arrays.fill(bucket, -1);
+
+            for (int i = arcOffsets[source]; i < arcOffsets[source + 1]; i++) {
+                int a = arcs[i];
+                double amount = capacity[a];
+                if (amount > EPSILON) {
+                    capacity[a] = 0;
+                    capacity[a ^ 1] += amount;
+                    excess[head[a]] += amount;
+                    excess[source] -= amount;
+                }
+            }
+            globalRelabel(height);
+
+            int highest = 0;
+            for (int v = 0; v < n; v++) {
+                if (v != source && v != sink && excess[v] > EPSILON && height[v] < maxHeight) {
+                    active[v] = true;
+                    next[v] = bucket[height[v]];
+                    bucket[height[v]] = v;
+                    highest = Math.max(highest, height[v]);
+                }
+            }
+
+            int relabels = 0;
+            while (highest >= 0) {
+                int u = bucket[highest];
+                if (u == -1) {
+                    highest--;
+                    continue;
+                }
+                bucket[highest] = next[u];
+                active[u] = false;
+
+                // Discharge u
+                while (excess[u] > EPSILON) {
+                    if (current[u] == arcOffsets[u + 1]) {
+                        int lowest = maxHeight;
+                        for (int i = arcOffsets[u]; i < arcOffsets[u + 1]; i++) {
+                            int a = arcs[i];
+                            if (capacity[a] > EPSILON) {
+                                lowest = Math.min(lowest, height[head[a]]);
+                            }
+                        }
+                        height[u] = Math.min(maxHeight, lowest + 1);
+                        current[u] = arcOffsets[u];
+                        relabels++;
+                        if (height[u] >= maxHeight) {
+                            break;
+                        }
+                        continue;
+                    }
+                    int a = arcs[current[u]];
+                    int w = head[a];
+                    if (capacity[a] > EPSILON && height[u] == height[w] + 1) {
+                        double amount = Math.min(excess[u], capacity[a]);
+                        capacity[a] -= amount;
+                        capacity[a ^ 1] += amount;
+                        excess[u] -= amount;
+                        excess[w] += amount;
+                        if (w != source && w != sink && !active[w] && excess[w] > EPSILON) {
+                            // u may have been relabelled above the highest bucket during this discharge
+                            active[w] = true;
+                            next[w] = bucket[height[w]];
+                            bucket[height[w]] = w;
+                            highest = Math.max(highest, height[w]);
+                        }
+                    } else {
+                        current[u]++;
+                    }
+                }
+
+                if (relabels >= n) {
+                    // Exact heights make the following pushes go straight to the sink or back to the source
+                    relabels = 0;
+                    globalRelabel(height);
+                    Arrays.fill(bucket, -1);
+                    System.arraycopy(arcOffsets, 0, current, 0, n);
+                    highest = 0;
+                    for (int v = 0; v < n; v++) {
+                        active[v] = v != source && v != sink && excess[v] > EPSILON && height[v] < maxHeight;
+                        if (active[v]) {
+                            next[v] = bucket[height[v]];
+                            bucket[height[v]] = v;
+                            highest = Math.max(highest, height[v]);
+                        }
+                    }
+                } else if (excess[u] > EPSILON && height[u] < maxHeight) {
+                    active[u] = true;
+                    next[u] = bucket[height[u]];
+                    bucket[height[u]] = u;
+                    highest = Math.max(highest, height[u]);
+                }
+            }
+            return excess[sink];
+        }
+
+        /*
+         * Height of each node: its distance to the sink in the residual graph, or n plus its distance to the source
+         * if the sink cannot be reached. Nodes that reach neither get the maximum height
+         */
+        private void globalRelabel(int[] height) {
+            Arrays.fill(height, 2 * n);
+            height[source] = n;
+            height[sink] = 0;
+            int[] queue = new int[n];
+            int tail = backwardSearch(sink, height, queue, 0);
+            backwardSearch(source, height, queue, tail);
+        }
+
+        private int backwardSearch(int root, int[] height, int[] queue, int start) {
+            int head = start;
+            int tail = start;
+            queue[tail++] = root;
+            while (head < tail) {
+                int v = queue[head++];
+                for (int i = arcOffsets[v]; i < arcOffsets[v + 1]; i++) {
+                    int a = arcs[i];
+                    int w = this.head[a];
+                    // w can push to v through the reverse of a
+                    if (height[w] == 2 * n && capacity[a ^ 1] > EPSILON) {
+                        height[w] = height[v] + 1;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+            return tail;
+        }
+
+        double[] flows() {
+            double[] result = new double[m];
+            for (int e = 0; e < m; e++) {
+                result[e] = Math.max(0, original[e] - capacity[2 * e]);
+            }
+            return result;
+        }
+
+        boolean[] sourceSide() {
+            boolean[] reached = new boolean[n];
+            int[] queue = new int[n];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = source;
+            reached[source] = true;
+            while (head < tail) {
+                int v = queue[head++];
+                for (int i = arcOffsets[v]; i < arcOffsets[v + 1]; i++) {
+                    int a = arcs[i];
+                    if (capacity[a] > EPSILON && !reached[this.head[a]]) {
+                        reached[this.head[a]] = true;
+                        queue[tail++] = this.head[a];
+                    }
+                }
+            }
+            return reached;
+        }
+    }
+}
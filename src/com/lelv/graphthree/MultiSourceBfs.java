@@ -0,0 +1,217 @@
+package com.lelv.graphthree;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Breadth-first searches from many origins at once over compact graphs (MS-BFS).
+ * <p>
+ * Origins are processed in batches of up to {@link #BATCH_SIZE}, one bit per origin. Every node keeps which
+ * searches of the batch have already seen it, and which ones reached it in the current level, as a few longs, so
+ * scanning the connections of a node advances every search of the batch that is at the node with a handful of
+ * bitwise operations. Searches that go through the same parts of the graph, which is most of them in graphs with
+ * hubs, share almost all their work. Batches are independent and run in parallel.
+ * <p>
+ * Distances are measured in connections, and are -1 for nodes that can not be reached.
+ *
+ * @see GraphFunctions#hasPaths(AbstractGraph, java.util.List, java.util.List)
+ * @see GraphFunctions#hopDistances(AbstractGraph, java.util.List)
+ */
+public class MultiSourceBfs {
+
+    /**
+     * Maximum number of searches run together, as four words of 64 bits per node
+     */
+    public static final int BATCH_SIZE = 4 * Long.SIZE;
+
+    private MultiSourceBfs() {
+    }
+
+    /**
+     * Calculates the distance from every origin to every node
+     *
+     * @param graph   the graph on which to apply the algorithm
+     * @param origins ids of the nodes to take as roots of the searches
+     * @return for every origin, in the same order, the distance to every node indexed by id
+     */
+    public static int[][] distances(CompactGraph<?> graph, int[] origins) {
+        int n = graph.getNumberOfNodes();
+        for (int origin : origins) {
+            Objects.checkIndex(origin, n);
+        }
+        int[][] distance = new int[origins.length][n];
+        for (int[] row : distance) {
+            Arrays.fill(row, -1);
+        }
+        forEachBatch(origins.length, (from, to) -> search(graph, origins, from, to, (node, word, lanes, depth) -> {
+            for (long rest = lanes; rest != 0; rest &= rest - 1) {
+                distance[from + word * Long.SIZE + Long.numberOfTrailingZeros(rest)][node] = depth;
+            }
+            return false;
+        }));
+        return distance;
+    }
+
+    /**
+     * Calculates the distance from each origin to its destination. Every search stops as soon as all the searches
+     * of its batch have reached their destinations
+     *
+     * @param graph        the graph on which to apply the algorithm
+     * @param origins      ids of the origins
+     * @param destinations ids of the destinations, the i-th one for the i-th origin
+     * @return the distance from every origin to its destination, or -1 if it can not be reached
+     * @throws IllegalArgumentException if there are not as many origins as destinations
+     */
+    public static int[] distances(CompactGraph<?> graph, int[] origins, int[] destinations) {
+        if (origins.length != destinations.length) {
+            throw new IllegalArgumentException("There must be a destination for every origin");
+        }
+        int n = graph.getNumberOfNodes();
+        for (int i = 0; i < origins.length; i++) {
+            Objects.checkIndex(origins[i], n);
+            Objects.checkIndex(destinations[i], n);
+        }
+        int[] distance = new int[origins.length];
+        Arrays.fill(distance, -1);
+
+        forEachBatch(origins.length, (from, to) -> {
+            int words = words(to - from);
+            // Searches of the batch that are looking for every node
+            long[] wanted = new long[n * words];
+            for (int lane = 0; lane < to - from; lane++) {
+                wanted[destinations[from + lane] * words + (lane >>> 6)] |= 1L << lane;
+            }
+            int[] remaining = {to - from};
+            search(graph, origins, from, to, (node, word, lanes, depth) -> {
+                for (long found = lanes & wanted[node * words + word]; found != 0; found &= found - 1) {
+                    distance[from + word * Long.SIZE + Long.numberOfTrailingZeros(found)] = depth;
+                    remaining[0]--;
+                }
+                return remaining[0] == 0;
+            });
+        });
+        return distance;
+    }
+
+    /**
+     * Verifies whether each origin reaches its destination
+     *
+     * @param graph        the graph on which to apply the algorithm
+     * @param origins      ids of the origins
+     * @param destinations ids of the destinations, the i-th one for the i-th origin
+     * @return whether there is a path from every origin to its destination
+     * @throws IllegalArgumentException if there are not as many origins as destinations
+     */
+    public static boolean[] hasPaths(CompactGraph<?> graph, int[] origins, int[] destinations) {
+        int[] distance = distances(graph, origins, destinations);
+        boolean[] result = new boolean[distance.length];
+        for (int i = 0; i < distance.length; i++) {
+            result[i] = distance[i] != -1;
+        }
+        return result;
+    }
+
+    private static void forEachBatch(int searches, BatchTask task) {
+        int batches = (searches + BATCH_SIZE - 1) / BATCH_SIZE;
+        IntStream.range(0, batches)
+                 .parallel()
+                 .forEach(b -> task.run(b * BATCH_SIZE, Math.min(searches, (b + 1) * BATCH_SIZE)));
+    }
+
+    private static int words(int lanes) {
+        return (lanes + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /*
+     * Runs the searches from origins[from] up to origins[to - 1], one bit each. Nodes reached in a level are
+     * reported once per word with the bits of the searches that reached them, after the whole level is expanded
+     */
+    private static void search(CompactGraph<?> graph, int[] origins, int from, int to, Discovery discovery) {
+        int n = graph.getNumberOfNodes();
+        int words = words(to - from);
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        long[] seen = new long[n * words];
+        long[] visit = new long[n * words];
+        long[] next = new long[n * words];
+        boolean[] queued = new boolean[n];
+        IntList frontier = new IntList();
+        IntList upcoming = new IntList();
+
+        for (int lane = 0; lane < to - from; lane++) {
+            int origin = origins[from + lane];
+            seen[origin * words + (lane >>> 6)] |= 1L << lane;
+            visit[origin * words + (lane >>> 6)] |= 1L << lane;
+            if (!queued[origin]) {
+                queued[origin] = true;
+                frontier.add(origin);
+            }
+        }
+        if (report(frontier, visit, words, queued, 0, discovery)) {
+            return;
+        }
+
+        for (int depth = 1; !frontier.isEmpty(); depth++) {
+            for (int i = 0; i < frontier.size(); i++) {
+                int v = frontier.get(i);
+                int base = v * words;
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    int w = targets[e];
+                    int target = w * words;
+                    for (int j = 0; j < words; j++) {
+                        long lanes = visit[base + j] & ~seen[target + j];
+                        if (lanes != 0) {
+                            seen[target + j] |= lanes;
+                            next[target + j] |= lanes;
+                            if (!queued[w]) {
+                                queued[w] = true;
+                                upcoming.add(w);
+                            }
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < frontier.size(); i++) {
+                Arrays.fill(visit, frontier.get(i) * words, (frontier.get(i) + 1) * words, 0L);
+            }
+            if (report(upcoming, next, words, queued, depth, discovery)) {
+                return;
+            }
+
+            long[] swap = visit;
+            visit = next;
+            next = swap;
+            IntList swapList = frontier;
+            frontier = upcoming;
+            upcoming = swapList;
+            upcoming.clear();
+        }
+    }
+
+    private static boolean report(IntList level, long[] lanes, int words, boolean[] queued, int depth,
+                                  Discovery discovery) {
+        boolean stop = false;
+        for (int i = 0; i < level.size(); i++) {
+            int v = level.get(i);
+            queued[v] = false;
+            for (int j = 0; j < words && !stop; j++) {
+                if (lanes[v * words + j] != 0) {
+                    stop = discovery.discovered(v, j, lanes[v * words + j], depth);
+                }
+            }
+        }
+        return stop;
+    }
+
+    private interface BatchTask {
+        void run(int from, int to);
+    }
+
+    private interface Discovery {
+        /*
+         * Returns true to stop the searches of the batch
+         */
+        boolean discovered(int node, int word, long lanes, int depth);
+    }
+}
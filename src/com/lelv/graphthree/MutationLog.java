@@ -0,0 +1,543 @@
+package com.lelv.graphthree;
+
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of the changes of a graph, so that the graph survives the process that holds it.
+ * <p>
+ * The log listens to the graph and appends every change to a file of its directory as a record with a sequence
+ * number and a checksum. Records are buffered in memory and made durable in groups: {@link #sync()} writes and
+ * forces to disk every record appended so far with a single fsync, and callers that sync while another fsync is
+ * in progress wait for it instead of issuing their own. A background thread also syncs at a fixed interval, so
+ * at most that much time of changes can be lost if nobody syncs explicitly.
+ * <p>
+ * Files are rolled into a new segment when they grow over the segment size. {@link #checkpoint()} writes a
+ * snapshot of the whole graph and deletes the segments and snapshots it makes unnecessary. Opening the log
+ * restores the graph from the latest snapshot followed by every later record, and discards a record left half
+ * written by a crash.
+ * <p>
+ * Nodes and connections are stored with the codecs given. Like the graph, the log expects changes from one
+ * thread at a time, but it can be synced from any thread.
+ *
+ * @param <V> type of the nodes
+ * @param <E> type of the connections
+ */
+public class MutationLog<V, E> implements GraphListener<V, E>, Closeable {
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+    public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 10;
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final int FLUSH_SIZE = 1 << 20;
+    private static final int MAX_RECORD_SIZE = 1 << 30;
+
+    private final Path directory;
+    private final AbstractGraph<V, E> graph;
+    private final Codec<V> nodeCodec;
+    private final Codec<E> connectionCodec;
+    private final long segmentSize;
+    private final ScheduledExecutorService syncer;
+
+    // Records appended but not written yet, guarded by the monitor of the log
+    private RecordBuffer buffer = new RecordBuffer();
+    private RecordBuffer spare = new RecordBuffer();
+    private final RecordBuffer record = new RecordBuffer();
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final CRC32 crc = new CRC32();
+    private long appended;
+
+    // Segment being written, guarded by the io lock
+    private final ReentrantLock io = new ReentrantLock();
+    private RandomAccessFile segment;
+    private long written;
+
+    // Group commit, guarded by the commit monitor
+    private final Object commit = new Object();
+    private boolean syncing;
+    private long durable;
+    private volatile IOException failure;
+
+    private MutationLog(Path directory, AbstractGraph<V, E> graph, Codec<V> nodeCodec, Codec<E> connectionCodec,
+                        long segmentSize, long sequence, long syncIntervalNanos) throws IOException {
+        this.directory = directory;
+        this.graph = graph;
+        this.nodeCodec = nodeCodec;
+        this.connectionCodec = connectionCodec;
+        this.segmentSize = segmentSize;
+        this.appended = sequence;
+        this.written = sequence;
+        this.durable = sequence;
+        openSegment(sequence + 1);
+
+        if (syncIntervalNanos > 0) {
+            syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "mutation-log-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(() -> {
+                try {
+                    sync();
+                } catch (IOException ignored) {
+                    // Kept as the failure of the log, and thrown to the next change
+                }
+            }, syncIntervalNanos, syncIntervalNanos, TimeUnit.NANOSECONDS);
+        } else {
+            syncer = null;
+        }
+    }
+
+    /**
+     * Opens the log in a directory with the default segment size and sync interval
+     *
+     * @see #open(Path, AbstractGraph, Codec, Codec, long, long, TimeUnit)
+     */
+    public static <V, E> MutationLog<V, E> open(Path directory, AbstractGraph<V, E> graph, Codec<V> nodeCodec,
+                                                Codec<E> connectionCodec) throws IOException {
+        return open(directory, graph, nodeCodec, connectionCodec, DEFAULT_SEGMENT_SIZE,
+                    DEFAULT_SYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens the log in a directory, creating it if needed. The graph is restored from the latest snapshot and the
+     * records after it, and from then on every change of the graph is logged
+     *
+     * @param directory       directory of the segments and snapshots
+     * @param graph           empty graph to restore
+     * @param nodeCodec       codec of the nodes
+     * @param connectionCodec codec of the connections, which are never null when given to it
+     * @param segmentSize     size in bytes after which a new segment is started
+     * @param syncInterval    time between background syncs, or 0 to sync only when asked
+     * @param unit            unit of the interval
+     * @return the log, attached to the graph
+     * @throws IOException              if the directory can not be read, or a snapshot or a segment other than the
+     *                                  last one is corrupt
+     * @throws IllegalArgumentException if the graph is not empty, or the segment size is not positive
+     */
+    public static <V, E> MutationLog<V, E> open(Path directory, AbstractGraph<V, E> graph, Codec<V> nodeCodec,
+                                                Codec<E> connectionCodec, long segmentSize, long syncInterval,
+                                                TimeUnit unit) throws IOException {
+        if (!graph.isEmpty()) {
+            throw new IllegalArgumentException("The graph to restore must be empty");
+        }
+        if (segmentSize < 1 || syncInterval < 0) {
+            throw new IllegalArgumentException("The segment size must be positive and the interval not negative");
+        }
+        Files.createDirectories(directory);
+        for (Path leftover : list(directory, "", ".tmp")) {
+            Files.delete(leftover);
+        }
+
+        long sequence = 0;
+        List<Path> snapshots = list(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        if (!snapshots.isEmpty()) {
+            sequence = GraphSnapshot.read(snapshots.get(snapshots.size() - 1), graph, nodeCodec, connectionCodec);
+        }
+        List<Path> segments = list(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        for (int s = 0; s < segments.size(); s++) {
+            Path segment = segments.get(s);
+            if (sequenceOf(segment, SEGMENT_PREFIX, SEGMENT_SUFFIX) > sequence + 1) {
+                throw new IOException("Records missing before " + segment);
+            }
+            sequence = replay(segment, graph, sequence, nodeCodec, connectionCodec, s == segments.size() - 1);
+        }
+
+        MutationLog<V, E> log = new MutationLog<>(directory, graph, nodeCodec, connectionCodec, segmentSize,
+                                                  sequence, unit.toNanos(syncInterval));
+        graph.addListener(log);
+        return log;
+    }
+
+    /**
+     * @return the sequence number of the last change logged. Changes are numbered from 1
+     */
+    public synchronized long getLastSequence() {
+        return appended;
+    }
+
+    /**
+     * @return the sequence number of the last change that is on disk
+     */
+    public long getDurableSequence() {
+        synchronized (commit) {
+            return durable;
+        }
+    }
+
+    /**
+     * Writes every change logged so far and forces it to disk. If another thread is already forcing the log to
+     * disk, waits for it, and only forces the log again if that did not include every change logged before
+     *
+     * @throws IOException if the log can not be written, in which case no further changes can be logged
+     */
+    public void sync() throws IOException {
+        long target = getLastSequence();
+        synchronized (commit) {
+            while (syncing && durable < target) {
+                try {
+                    commit.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the log");
+                }
+            }
+            if (durable >= target) {
+                checkFailure();
+                return;
+            }
+            syncing = true;
+        }
+
+        long synced = 0;
+        io.lock();
+        try {
+            checkFailure();
+            synced = write();
+            segment.getFD().sync();
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        } finally {
+            io.unlock();
+            synchronized (commit) {
+                syncing = false;
+                durable = Math.max(durable, synced);
+                commit.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot of the graph, and deletes the segments and snapshots that are no longer needed to restore
+     * it. The graph must not change until the snapshot is written
+     *
+     * @return the sequence number of the last change in the snapshot
+     * @throws IOException if the snapshot can not be written
+     */
+    public long checkpoint() throws IOException {
+        long sequence;
+        io.lock();
+        try {
+            checkFailure();
+            sequence = write();
+            if (segment.length() > 0) {
+                roll();
+            }
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        } finally {
+            io.unlock();
+        }
+        synchronized (commit) {
+            durable = Math.max(durable, sequence);
+        }
+
+        GraphSnapshot.write(graph, sequence, directory.resolve(fileName(SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX)),
+                            nodeCodec, connectionCodec);
+        for (Path snapshot : list(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (sequenceOf(snapshot, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX) < sequence) {
+                Files.delete(snapshot);
+            }
+        }
+        for (Path segment : list(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (sequenceOf(segment, SEGMENT_PREFIX, SEGMENT_SUFFIX) <= sequence) {
+                Files.delete(segment);
+            }
+        }
+        GraphSnapshot.syncDirectory(directory);
+        return sequence;
+    }
+
+    /**
+     * Stops logging the changes of the graph, syncs the log and closes its files
+     *
+     * @throws IOException if the log can not be written
+     */
+    @Override
+    public void close() throws IOException {
+        graph.removeListener(this);
+        if (syncer != null) {
+            syncer.shutdown();
+            try {
+                syncer.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            sync();
+        } finally {
+            io.lock();
+            try {
+                segment.close();
+            } finally {
+                io.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void nodeAdded(V node) {
+        append(GraphMutation.Type.ADD_NODE, node, null, null);
+    }
+
+    @Override
+    public void nodeRemoved(V node) {
+        append(GraphMutation.Type.REMOVE_NODE, node, null, null);
+    }
+
+    @Override
+    public void nodesConnected(V originNode, V destinationNode, E connection) {
+        append(GraphMutation.Type.CONNECT, originNode, destinationNode, connection);
+    }
+
+    @Override
+    public void nodesDisconnected(V originNode, V destinationNode, E connection) {
+        append(GraphMutation.Type.DISCONNECT, originNode, destinationNode, null);
+    }
+
+    @Override
+    public void connectionChanged(V originNode, V destinationNode, E oldConnection, E newConnection) {
+        append(GraphMutation.Type.SET_CONNECTION, originNode, destinationNode, newConnection);
+    }
+
+    /*
+     * Every record is its length, the checksum of its payload, and the payload: the type of the change, its
+     * sequence number and its nodes and connection
+     */
+    private void append(GraphMutation.Type type, V originNode, V destinationNode, E connection) {
+        boolean full;
+        synchronized (this) {
+            if (failure != null) {
+                throw new UncheckedIOException("The log has failed, the change was not logged", failure);
+            }
+            record.reset();
+            try {
+                recordOut.writeByte(type.ordinal());
+                recordOut.writeLong(appended + 1);
+                nodeCodec.write(originNode, recordOut);
+                if (type != GraphMutation.Type.ADD_NODE && type != GraphMutation.Type.REMOVE_NODE) {
+                    nodeCodec.write(destinationNode, recordOut);
+                }
+                if (type == GraphMutation.Type.CONNECT || type == GraphMutation.Type.SET_CONNECTION) {
+                    GraphSnapshot.writeConnection(connectionCodec, connection, recordOut);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("The change could not be encoded", e);
+            }
+            crc.reset();
+            crc.update(record.array(), 0, record.size());
+            buffer.writeInt(record.size());
+            buffer.writeInt((int) crc.getValue());
+            buffer.write(record.array(), 0, record.size());
+            appended++;
+            full = buffer.size() >= FLUSH_SIZE;
+        }
+
+        // Large buffers are written without waiting for a sync, so that memory stays bounded
+        if (full) {
+            io.lock();
+            try {
+                write();
+            } catch (IOException e) {
+                failure = e;
+                throw new UncheckedIOException(e);
+            } finally {
+                io.unlock();
+            }
+        }
+    }
+
+    /*
+     * Writes the buffered records to the segment, rolling it if it has grown too much, and returns the sequence
+     * number of the last record written. Requires the io lock
+     */
+    private long write() throws IOException {
+        RecordBuffer pending;
+        long sequence;
+        synchronized (this) {
+            pending = buffer;
+            buffer = spare;
+            spare = pending;
+            sequence = appended;
+        }
+        segment.write(pending.array(), 0, pending.size());
+        pending.reset();
+        written = sequence;
+        if (segment.getFilePointer() >= segmentSize) {
+            roll();
+        }
+        return written;
+    }
+
+    /*
+     * Forces the segment to disk and continues in a new one. Requires the io lock
+     */
+    private void roll() throws IOException {
+        segment.getFD().sync();
+        segment.close();
+        synchronized (commit) {
+            durable = Math.max(durable, written);
+        }
+        openSegment(written + 1);
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        segment = new RandomAccessFile(directory.resolve(fileName(SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX))
+                                                .toFile(), "rw");
+        segment.setLength(0);
+        GraphSnapshot.syncDirectory(directory);
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("The log has failed", failure);
+        }
+    }
+
+    /*
+     * Applies the records of a segment after the given sequence number and returns the last sequence number read.
+     * A record cut short or with a wrong checksum ends the last segment, which is truncated there; in any other
+     * segment it means the segment is corrupt
+     */
+    private static <V, E> long replay(Path segment, AbstractGraph<V, E> graph, long after, Codec<V> nodeCodec,
+                                      Codec<E> connectionCodec, boolean last) throws IOException {
+        long sequence = after;
+        long valid = 0;
+        boolean torn = false;
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment),
+                                                                              1 << 16))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] payload;
+                int checksum;
+                try {
+                    checksum = in.readInt();
+                    if (length < 0 || length > MAX_RECORD_SIZE) {
+                        torn = true;
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    torn = true;
+                    break;
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    torn = true;
+                    break;
+                }
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                GraphMutation.Type type = GraphMutation.Type.values()[record.readByte()];
+                long number = record.readLong();
+                V origin = nodeCodec.read(record);
+                V destination = null;
+                E connection = null;
+                if (type != GraphMutation.Type.ADD_NODE && type != GraphMutation.Type.REMOVE_NODE) {
+                    destination = nodeCodec.read(record);
+                }
+                if (type == GraphMutation.Type.CONNECT || type == GraphMutation.Type.SET_CONNECTION) {
+                    connection = GraphSnapshot.readConnection(connectionCodec, record);
+                }
+                if (number > sequence) {
+                    toMutation(type, origin, destination, connection).applyTo(graph);
+                    sequence = number;
+                }
+                valid += 8 + length;
+            }
+        }
+
+        if (torn) {
+            if (!last) {
+                throw new IOException("Corrupt log segment: " + segment);
+            }
+            try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+                file.setLength(valid);
+                file.getFD().sync();
+            }
+        }
+        return sequence;
+    }
+
+    private static <V, E> GraphMutation<V, E> toMutation(GraphMutation.Type type, V origin, V destination,
+                                                         E connection) {
+        switch (type) {
+            case ADD_NODE:
+                return GraphMutation.addNode(origin);
+            case REMOVE_NODE:
+                return GraphMutation.removeNode(origin);
+            case CONNECT:
+                return GraphMutation.connect(origin, destination, connection);
+            case DISCONNECT:
+                return GraphMutation.disconnect(origin, destination);
+            default:
+                return GraphMutation.setConnection(origin, destination, connection);
+        }
+    }
+
+    /*
+     * Files of the given kind, sorted by name, which sorts them by sequence number
+     */
+    private static List<Path> list(Path directory, String prefix, String suffix) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            stream.forEach(files::add);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static String fileName(String prefix, long sequence, String suffix) {
+        return String.format("%s%020d%s", prefix, sequence, suffix);
+    }
+
+    private static long sequenceOf(Path file, String prefix, String suffix) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    /*
+     * Byte array output stream whose array can be written without copying it
+     */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+
+        RecordBuffer() {
+            super(1 << 12);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        void writeInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+    }
+}
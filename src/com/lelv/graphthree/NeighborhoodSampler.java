@@ -0,0 +1,342 @@
+package com.lelv.graphthree;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Extracts sampled k-hop neighborhoods of seed nodes, as used to build the inputs of recommendation and graph
+ * neural network models.
+ * <p>
+ * At hop i every node reached at the previous hop keeps at most {@code fanouts[i]} of its connections, so the size
+ * of a neighborhood is bounded by the product of the fan-outs however many connections the hubs of the graph have.
+ * Uniform samplers pick the connections without replacement with Floyd's algorithm, in time proportional to the
+ * fan-out and not to the degree. Weighted samplers draw the fan-out with probability proportional to the weights,
+ * from prefix sums computed once for the whole graph, and drop repeated draws, so they may keep fewer connections
+ * than the fan-out. Nodes with no more connections than the fan-out keep all of them, except those with a weight
+ * that is not positive.
+ * <p>
+ * Every node is added to a neighborhood once, at the first hop that reaches it, and only the nodes new at a hop are
+ * expanded in the next one. Every connection kept is added to the neighborhood, even if it goes to a node already
+ * in it.
+ * <p>
+ * Samples are reproducible: the seeds of a batch are sampled in parallel, each one with its own random generator
+ * derived from the seed of the batch and its position in it.
+ *
+ * @param <V> type of the nodes
+ */
+public class NeighborhoodSampler<V> {
+
+    /**
+     * Fan-out that keeps every connection of the nodes
+     */
+    public static final int ALL = Integer.MAX_VALUE;
+
+    private final CompactGraph<V> graph;
+    private final int[] fanouts;
+    // Prefix sums of the weights of the connections of every node, starting again from 0 at every node, or null
+    // for uniform sampling
+    private final double[] cumulative;
+
+    private NeighborhoodSampler(CompactGraph<V> graph, int[] fanouts, boolean weighted) {
+        for (int fanout : fanouts) {
+            if (fanout < 0) {
+                throw new IllegalArgumentException("Fan-outs can not be negative");
+            }
+        }
+        this.graph = graph;
+        this.fanouts = fanouts.clone();
+        this.cumulative = weighted ? prefixSums(graph) : null;
+    }
+
+    /**
+     * @param graph   the graph to sample from
+     * @param fanouts maximum number of connections kept from every node at every hop
+     * @return a sampler that picks the connections uniformly from a snapshot of the graph
+     * @throws IllegalArgumentException if any fan-out is negative
+     */
+    public static <V> NeighborhoodSampler<V> uniform(AbstractGraph<V, ?> graph, int... fanouts) {
+        return new NeighborhoodSampler<>(CompactGraph.of(graph), fanouts, false);
+    }
+
+    /**
+     * @param graph   the graph to sample from
+     * @param fanouts maximum number of connections kept from every node at every hop
+     * @return a sampler that picks the connections from a snapshot of the graph with probability proportional to
+     * their weights
+     * @throws IllegalArgumentException if any fan-out or any weight is negative
+     */
+    public static <V, E extends WeightedEdge> NeighborhoodSampler<V> weighted(AbstractGraph<V, E> graph,
+                                                                             int... fanouts) {
+        return new NeighborhoodSampler<>(CompactGraph.weighted(graph), fanouts, true);
+    }
+
+    /**
+     * @param graph   the graph to sample from
+     * @param fanouts maximum number of connections kept from every node at every hop
+     * @return a sampler that picks the connections uniformly
+     * @throws IllegalArgumentException if any fan-out is negative
+     */
+    public static <V> NeighborhoodSampler<V> uniform(CompactGraph<V> graph, int... fanouts) {
+        return new NeighborhoodSampler<>(graph, fanouts, false);
+    }
+
+    /**
+     * @param graph   the graph to sample from, with weights
+     * @param fanouts maximum number of connections kept from every node at every hop
+     * @return a sampler that picks the connections with probability proportional to their weights
+     * @throws IllegalArgumentException if the graph has no weights, or any fan-out or any weight is negative
+     */
+    public static <V> NeighborhoodSampler<V> weighted(CompactGraph<V> graph, int... fanouts) {
+        if (!graph.isWeighted()) {
+            throw new IllegalArgumentException("The graph must keep the weights of its connections");
+        }
+        return new NeighborhoodSampler<>(graph, fanouts, true);
+    }
+
+    /**
+     * @return the snapshot of the graph the samples are taken from, whose ids the samples refer to
+     */
+    public CompactGraph<V> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Samples the neighborhood of a node
+     *
+     * @param seedNode   the node at the center of the neighborhood
+     * @param randomSeed seed of the random generator
+     * @return the neighborhood, or null if the node does not exist
+     */
+    public Neighborhood<V> sample(V seedNode, long randomSeed) {
+        int seed = graph.idOf(seedNode);
+        return seed == CompactGraph.NON_EXISTENT_ID ? null : sample(seed, new SplittableRandom(randomSeed));
+    }
+
+    /**
+     * Samples the neighborhoods of many nodes in parallel
+     *
+     * @param seedNodes  the nodes at the centers of the neighborhoods
+     * @param randomSeed seed of the random generators
+     * @return the neighborhood of every node, in the same order, or null for the nodes that do not exist
+     */
+    public List<Neighborhood<V>> sample(List<V> seedNodes, long randomSeed) {
+        return IntStream.range(0, seedNodes.size()).parallel().mapToObj(i -> {
+            int seed = graph.idOf(seedNodes.get(i));
+            return seed == CompactGraph.NON_EXISTENT_ID ? null : sample(seed, new SplittableRandom(mix(randomSeed, i)));
+        }).collect(Collectors.toList());
+    }
+
+    private Neighborhood<V> sample(int seed, SplittableRandom random) {
+        IntList nodes = new IntList();
+        IntList hops = new IntList();
+        IntList sources = new IntList();
+        IntList targets = new IntList();
+        // Local number of every node in the neighborhood, by id, and positions already picked from a node
+        IntIntMap local = new IntIntMap();
+        IntIntMap chosen = new IntIntMap();
+        IntList picked = new IntList();
+
+        local.put(seed, 0);
+        nodes.add(seed);
+        hops.add(0);
+        int from = 0;
+        for (int hop = 0; hop < fanouts.length; hop++) {
+            int to = nodes.size();
+            for (int i = from; i < to; i++) {
+                picked.clear();
+                pick(nodes.get(i), fanouts[hop], random, picked, chosen);
+                for (int k = 0; k < picked.size(); k++) {
+                    int neighbor = graph.targets[picked.get(k)];
+                    int index = local.get(neighbor, -1);
+                    if (index == -1) {
+                        index = nodes.size();
+                        local.put(neighbor, index);
+                        nodes.add(neighbor);
+                        hops.add(hop + 1);
+                    }
+                    sources.add(i);
+                    targets.add(index);
+                }
+            }
+            from = to;
+        }
+        return new Neighborhood<>(graph, nodes.toArray(), hops.toArray(), sources.toArray(), targets.toArray());
+    }
+
+    /*
+     * Adds to picked the positions, in the arrays of the graph, of the connections kept from the node. Chosen is
+     * left with the positions picked, to find repeated ones in constant time
+     */
+    private void pick(int node, int fanout, SplittableRandom random, IntList picked, IntIntMap chosen) {
+        int start = graph.offsets[node];
+        int degree = graph.offsets[node + 1] - start;
+        if (degree <= fanout) {
+            for (int e = start; e < start + degree; e++) {
+                if (cumulative == null || graph.weights[e] > 0) {
+                    picked.add(e);
+                }
+            }
+        } else if (cumulative == null) {
+            // Floyd's algorithm: a uniform subset of fanout positions out of degree
+            chosen.clear();
+            for (int j = degree - fanout; j < degree; j++) {
+                int t = start + random.nextInt(j + 1);
+                if (chosen.containsKey(t)) {
+                    t = start + j;
+                }
+                chosen.put(t, 0);
+                picked.add(t);
+            }
+        } else {
+            double total = cumulative[start + degree - 1];
+            if (total <= 0) {
+                return;
+            }
+            chosen.clear();
+            for (int draw = 0; draw < fanout; draw++) {
+                double r = random.nextDouble() * total;
+                int e = firstAbove(r, start, start + degree - 1);
+                if (!chosen.containsKey(e)) {
+                    chosen.put(e, 0);
+                    picked.add(e);
+                }
+            }
+        }
+    }
+
+    /*
+     * First position between low and high whose prefix sum is greater than the value, or high if there is none
+     */
+    private int firstAbove(double value, int low, int high) {
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulative[middle] > value) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /*
+     * Sums are kept per node, so the weights of a node are not lost against the large sums of the nodes before it
+     */
+    private static double[] prefixSums(CompactGraph<?> graph) {
+        double[] cumulative = new double[graph.targets.length];
+        for (int v = 0; v < graph.getNumberOfNodes(); v++) {
+            double sum = 0;
+            for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                if (graph.weights[e] < 0) {
+                    throw new IllegalArgumentException("Weights can not be negative");
+                }
+                sum += graph.weights[e];
+                cumulative[e] = sum;
+            }
+        }
+        return cumulative;
+    }
+
+    /*
+     * Seed of the generator of the i-th element of a batch, spread so close batch seeds give unrelated streams
+     */
+    static long mix(long seed, int index) {
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * A sampled neighborhood. Nodes are numbered locally from 0, the seed, in the order they were reached, and
+     * connections are given as pairs of local numbers
+     *
+     * @param <V> type of the nodes
+     */
+    public static final class Neighborhood<V> {
+
+        private final CompactGraph<V> graph;
+        private final int[] nodes;
+        private final int[] hops;
+        private final int[] sources;
+        private final int[] targets;
+
+        private Neighborhood(CompactGraph<V> graph, int[] nodes, int[] hops, int[] sources, int[] targets) {
+            this.graph = graph;
+            this.nodes = nodes;
+            this.hops = hops;
+            this.sources = sources;
+            this.targets = targets;
+        }
+
+        public int getNumberOfNodes() {
+            return nodes.length;
+        }
+
+        public int getNumberOfConnections() {
+            return sources.length;
+        }
+
+        /**
+         * @param index local number of the node
+         * @return the id of the node in the graph of the sampler
+         */
+        public int id(int index) {
+            return nodes[index];
+        }
+
+        /**
+         * @param index local number of the node
+         * @return the node
+         */
+        public V node(int index) {
+            return graph.nodeOf(nodes[index]);
+        }
+
+        /**
+         * @param index local number of the node
+         * @return the hop at which the node was reached, 0 for the seed
+         */
+        public int hop(int index) {
+            return hops[index];
+        }
+
+        /**
+         * @param index number of the connection
+         * @return local number of the node the connection goes from
+         */
+        public int source(int index) {
+            return sources[index];
+        }
+
+        /**
+         * @param index number of the connection
+         * @return local number of the node the connection goes to
+         */
+        public int target(int index) {
+            return targets[index];
+        }
+
+        /**
+         * @return a copy of the ids of the nodes in the graph of the sampler, by local number
+         */
+        public int[] getIds() {
+            return nodes.clone();
+        }
+
+        /**
+         * @return a copy of the local numbers of the nodes every connection goes from
+         */
+        public int[] getSources() {
+            return sources.clone();
+        }
+
+        /**
+         * @return a copy of the local numbers of the nodes every connection goes to
+         */
+        public int[] getTargets() {
+            return targets.clone();
+        }
+    }
+}
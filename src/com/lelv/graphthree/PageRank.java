@@ -0,0 +1,286 @@
+package com.lelv.graphthree;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * PageRank over compact graphs. Scores are written in double arrays indexed by the ids of the nodes.
+ * <p>
+ * The global ranking is computed with the power method in pull form: on every iteration each node sums the
+ * contributions of the nodes connected to it, so the nodes can be updated in parallel without synchronization.
+ * The rank of nodes without connections is spread evenly over the whole graph.
+ * <p>
+ * Personalized PageRank is approximated locally by pushing residual probability from the source. Its state is kept
+ * only for the nodes reached, so when the scores are taken through a {@link ScoreConsumer} its cost depends on the
+ * tolerance and not on the size of the graph. The variants that return or fill an array also pay for its size.
+ *
+ * @see GraphFunctions#pageRank(com.lelv.graphthree.impl.DirectedGraph)
+ */
+public class PageRank {
+
+    public static final double DEFAULT_DAMPING = 0.85;
+    public static final double DEFAULT_TOLERANCE = 1e-9;
+    public static final int DEFAULT_MAX_ITERATIONS = 100;
+
+    private PageRank() {
+    }
+
+    /**
+     * Calculates the PageRank of every node with the default damping, tolerance and iteration limit
+     *
+     * @param graph the graph on which to apply the algorithm
+     * @return the score of every node, adding up to 1
+     */
+    public static double[] of(CompactGraph<?> graph) {
+        double[] scores = new double[graph.getNumberOfNodes()];
+        compute(graph, DEFAULT_DAMPING, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS, scores);
+        return scores;
+    }
+
+    /**
+     * Calculates the PageRank of every node. Iterates until the sum of the absolute changes of the scores is below
+     * the tolerance, or until the maximum number of iterations is reached.
+     *
+     * @param graph         the graph on which to apply the algorithm
+     * @param damping       probability of following a connection instead of jumping to a random node
+     * @param tolerance     the iteration stops when the scores change less than this, in total
+     * @param maxIterations maximum number of iterations
+     * @param scores        array of at least getNumberOfNodes() elements where the scores are written
+     * @return the number of iterations run
+     */
+    public static int compute(CompactGraph<?> graph, double damping, double tolerance, int maxIterations,
+                              double[] scores) {
+        int n = graph.getNumberOfNodes();
+        if (n == 0) {
+            return 0;
+        }
+        CompactGraph<?> reverse = graph.transpose();
+        int[] offsets = graph.offsets;
+        int[] reverseOffsets = reverse.offsets;
+        int[] sources = reverse.targets;
+
+        double[] current = scores;
+        double[] next = new double[n];
+        double[] contribution = new double[n];
+        Arrays.fill(current, 0, n, 1.0 / n);
+
+        int iteration = 0;
+        double change = Double.POSITIVE_INFINITY;
+        while (iteration < maxIterations && change > tolerance) {
+            double[] rank = current;
+            double dangling = IntStream.range(0, n)
+                                       .parallel()
+                                       .mapToDouble(u -> {
+                                           int degree = offsets[u + 1] - offsets[u];
+                                           contribution[u] = degree == 0 ? 0 : rank[u] / degree;
+                                           return degree == 0 ? rank[u] : 0;
+                                       })
+                                       .sum();
+            double base = (1 - damping) / n + damping * dangling / n;
+            double[] updated = next;
+            change = IntStream.range(0, n)
+                              .parallel()
+                              .mapToDouble(v -> {
+                                  double sum = 0;
+                                  for (int e = reverseOffsets[v]; e < reverseOffsets[v + 1]; e++) {
+                                      sum += contribution[sources[e]];
+                                  }
+                                  updated[v] = base + damping * sum;
+                                  return Math.abs(updated[v] - rank[v]);
+                              })
+                              .sum();
+            next = current;
+            current = updated;
+            iteration++;
+        }
+        if (current != scores) {
+            System.arraycopy(current, 0, scores, 0, n);
+        }
+        return iteration;
+    }
+
+    /**
+     * Approximates the PageRank personalized on a source node, this is, the probability of being at each node when
+     * every jump goes back to the source instead of to a random node. Uses the default damping.
+     *
+     * @param graph    the graph on which to apply the algorithm
+     * @param source   id of the node to personalize on
+     * @param epsilon  maximum residual per connection left unpushed, smaller values give more precise scores
+     * @return the score of every node, zero for the nodes the approximation did not reach
+     */
+    public static double[] personalized(CompactGraph<?> graph, int source, double epsilon) {
+        double[] scores = new double[graph.getNumberOfNodes()];
+        personalized(graph, source, DEFAULT_DAMPING, epsilon, scores);
+        return scores;
+    }
+
+    /**
+     * Approximates the PageRank personalized on a source node into an array. The array is cleared first, so this
+     * costs the size of the graph on top of the push; use {@link #personalized(CompactGraph, int, double, double,
+     * ScoreConsumer)} to only pay for the nodes reached
+     *
+     * @param graph   the graph on which to apply the algorithm
+     * @param source  id of the node to personalize on
+     * @param damping probability of following a connection instead of jumping back to the source
+     * @param epsilon maximum residual per connection left unpushed, smaller values give more precise scores
+     * @param scores  array of at least getNumberOfNodes() elements where the scores are written
+     */
+    public static void personalized(CompactGraph<?> graph, int source, double damping, double epsilon,
+                                    double[] scores) {
+        Arrays.fill(scores, 0, graph.getNumberOfNodes(), 0.0);
+        personalized(graph, source, damping, epsilon, (id, score) -> scores[id] = score);
+    }
+
+    /**
+     * Approximates the PageRank personalized on a source node by pushing residual probability. A node keeps a
+     * fraction 1 - damping of its residual as score and passes the rest evenly to its neighbors, until no node has
+     * a residual above epsilon times its degree. Nodes without connections pass their residual back to the source.
+     * <p>
+     * Residuals and scores are kept in a hash table of the nodes reached, so nothing of the size of the graph is
+     * allocated or cleared
+     *
+     * @param graph   the graph on which to apply the algorithm
+     * @param source  id of the node to personalize on
+     * @param damping probability of following a connection instead of jumping back to the source
+     * @param epsilon maximum residual per connection left unpushed, smaller values give more precise scores
+     * @param action  action called once with every node whose score is above zero, and its score
+     * @return the number of nodes called with their scores
+     * @throws IndexOutOfBoundsException if the source is not the id of a node
+     */
+    public static int personalized(CompactGraph<?> graph, int source, double damping, double epsilon,
+                                   ScoreConsumer action) {
+        Objects.checkIndex(source, graph.getNumberOfNodes());
+        Push push = new Push();
+        push.add(graph, source, 1.0, 0);
+
+        while (push.pending > 0) {
+            int u = push.poll();
+            int slot = push.slot(u);
+            push.queued[slot] = false;
+
+            double mass = push.residual[slot];
+            push.residual[slot] = 0;
+            push.score[slot] += (1 - damping) * mass;
+
+            int degree = graph.outDegree(u);
+            if (degree == 0) {
+                push.add(graph, source, damping * mass, epsilon);
+                continue;
+            }
+            double share = damping * mass / degree;
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                push.add(graph, graph.targets[e], share, epsilon);
+            }
+        }
+
+        int reached = 0;
+        for (int slot = 0; slot < push.keys.length; slot++) {
+            if (push.keys[slot] != 0 && push.score[slot] > 0) {
+                action.accept(push.keys[slot] - 1, push.score[slot]);
+                reached++;
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * Receives the personalized score of a node
+     */
+    @FunctionalInterface
+    public interface ScoreConsumer {
+        void accept(int id, double score);
+    }
+
+    /*
+     * State of a push: the residual, score and queued flag of the nodes reached, in an open addressing table with
+     * linear probing keyed by id + 1, where 0 marks the empty slots, and the ring of queued nodes. Every node is
+     * queued at most once at a time, so both only grow with the nodes reached
+     */
+    private static final class Push {
+
+        int[] keys = new int[16];
+        double[] residual = new double[16];
+        double[] score = new double[16];
+        boolean[] queued = new boolean[16];
+        int size;
+
+        int[] queue = new int[16];
+        int head;
+        int pending;
+
+        int slot(int id) {
+            int mask = keys.length - 1;
+            int slot = hash(id) & mask;
+            while (keys[slot] != 0 && keys[slot] != id + 1) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0) {
+                keys[slot] = id + 1;
+                if (++size * 4 > keys.length * 3) {
+                    grow();
+                    return slot(id);
+                }
+            }
+            return slot;
+        }
+
+        /*
+         * Adds mass to the residual of a node, and queues the node if its residual is now above its threshold
+         */
+        void add(CompactGraph<?> graph, int v, double mass, double epsilon) {
+            int slot = slot(v);
+            residual[slot] += mass;
+            if (queued[slot] || residual[slot] <= epsilon * Math.max(1, graph.outDegree(v))) {
+                return;
+            }
+            queued[slot] = true;
+            if (pending == queue.length) {
+                int[] grown = new int[queue.length * 2];
+                for (int i = 0; i < pending; i++) {
+                    grown[i] = queue[(head + i) & (queue.length - 1)];
+                }
+                queue = grown;
+                head = 0;
+            }
+            queue[(head + pending++) & (queue.length - 1)] = v;
+        }
+
+        int poll() {
+            int v = queue[head];
+            head = (head + 1) & (queue.length - 1);
+            pending--;
+            return v;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            double[] oldResidual = residual;
+            double[] oldScore = score;
+            boolean[] oldQueued = queued;
+            int length = oldKeys.length * 2;
+            keys = new int[length];
+            residual = new double[length];
+            score = new double[length];
+            queued = new boolean[length];
+            int mask = length - 1;
+            for (int old = 0; old < oldKeys.length; old++) {
+                if (oldKeys[old] != 0) {
+                    int slot = hash(oldKeys[old] - 1) & mask;
+                    while (keys[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[old];
+                    residual[slot] = oldResidual[old];
+                    score[slot] = oldScore[old];
+                    queued[slot] = oldQueued[old];
+                }
+            }
+        }
+
+        private static int hash(int id) {
+            int hash = id * 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
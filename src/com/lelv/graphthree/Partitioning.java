@@ -0,0 +1,553 @@
+package com.lelv.graphthree;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Balanced partition of the nodes of a compact graph into a number of parts, trying to keep as few connections as
+ * possible between nodes of different parts. The direction of the connections is ignored.
+ * <p>
+ * The partition is multilevel: the graph is coarsened repeatedly by merging each node with the neighbor it shares
+ * the heaviest connection with, until it has a few dozen nodes per part. The coarsest graph is split into
+ * consecutive chunks of a breadth-first order, and that partition is projected back level by level. On every
+ * level it is refined with label propagation, where every node moves, in parallel, to the adjacent part it has the
+ * most connections to, as long as the part stays under the balance limit. To avoid pairs of nodes swapping parts
+ * forever, even rounds only move nodes to parts with a higher number and odd rounds to parts with a lower one.
+ * <p>
+ * No part has more than {@code (1 + imbalance) * n / parts} nodes, rounded up, unless the graph has too few nodes
+ * for that.
+ *
+ * @param <V> type of the nodes
+ * @see GraphPart
+ */
+public class Partitioning<V> {
+
+    public static final double DEFAULT_IMBALANCE = 0.03;
+
+    /*
+     * Coarsening stops when the graph has at most this many nodes per part, or when it stops shrinking
+     */
+    private static final int COARSEST_NODES_PER_PART = 32;
+    private static final double MIN_COARSENING = 0.95;
+    private static final int REFINEMENT_ROUNDS = 8;
+    private static final long SEED = 0x5DEECE66DL;
+
+    final CompactGraph<V> graph;
+    final int parts;
+    final int[] part;
+    private final int[] partSizes;
+    private int[] localIds;
+
+    private Partitioning(CompactGraph<V> graph, int parts, int[] part) {
+        this.graph = graph;
+        this.parts = parts;
+        this.part = part;
+        this.partSizes = new int[parts];
+        for (int p : part) {
+            partSizes[p]++;
+        }
+    }
+
+    /**
+     * Partitions a graph with the default imbalance
+     *
+     * @param graph the graph to partition
+     * @param parts number of parts
+     * @return the partition of the graph
+     */
+    public static <V> Partitioning<V> of(CompactGraph<V> graph, int parts) {
+        return of(graph, parts, DEFAULT_IMBALANCE);
+    }
+
+    /**
+     * Partitions a graph
+     *
+     * @param graph     the graph to partition
+     * @param parts     number of parts
+     * @param imbalance how much bigger than the average a part may be, as a fraction of the average
+     * @return the partition of the graph
+     * @throws IllegalArgumentException if the number of parts is less than one or the imbalance is negative
+     */
+    public static <V> Partitioning<V> of(CompactGraph<V> graph, int parts, double imbalance) {
+        if (parts < 1) {
+            throw new IllegalArgumentException("The number of parts must be at least one");
+        }
+        if (imbalance < 0) {
+            throw new IllegalArgumentException("The imbalance must not be negative");
+        }
+        int n = graph.getNumberOfNodes();
+        long maxPartWeight = Math.max(1, (long) Math.ceil((1 + imbalance) * n / parts));
+
+        // Coarsen
+        Deque<Level> levels = new ArrayDeque<>();
+        Deque<int[]> projections = new ArrayDeque<>();
+        Random random = new Random(SEED);
+        Level level = Level.of(graph);
+        long maxNodeWeight = Math.max(1, 2L * n / ((long) COARSEST_NODES_PER_PART * parts));
+        while (level.size() > COARSEST_NODES_PER_PART * parts) {
+            int[] matching = level.match(maxNodeWeight, random);
+            int coarseSize = 0;
+            for (int v : matching) {
+                coarseSize = Math.max(coarseSize, v + 1);
+            }
+            if (coarseSize > MIN_COARSENING * level.size()) {
+                break;
+            }
+            levels.push(level);
+            projections.push(matching);
+            level = level.contract(matching, coarseSize);
+        }
+
+        // Split the coarsest level and refine it back up to the original graph
+        int[] part = level.initialPartition(parts);
+        level.refine(part, parts, maxPartWeight);
+        while (!levels.isEmpty()) {
+            int[] projection = projections.pop();
+            Level finer = levels.pop();
+            int[] finerPart = new int[finer.size()];
+            for (int v = 0; v < finerPart.length; v++) {
+                finerPart[v] = part[projection[v]];
+            }
+            part = finerPart;
+            finer.refine(part, parts, maxPartWeight);
+        }
+        return new Partitioning<>(graph, parts, part);
+    }
+
+    /**
+     * @return the number of parts
+     */
+    public int getNumberOfParts() {
+        return parts;
+    }
+
+    /**
+     * @param node the node to query
+     * @return the part of the node, or {@link CompactGraph#NON_EXISTENT_ID} if the node is not in the graph
+     */
+    public int partOf(V node) {
+        int id = graph.idOf(node);
+        return id == CompactGraph.NON_EXISTENT_ID ? CompactGraph.NON_EXISTENT_ID : part[id];
+    }
+
+    /**
+     * @param id id of the node in the compact graph
+     * @return the part of the node
+     */
+    public int partOfId(int id) {
+        return part[id];
+    }
+
+    /**
+     * @return map whose keys are the nodes and whose values are their parts
+     */
+    public Map<V, Integer> getPartMap() {
+        Map<V, Integer> result = new HashMap<>();
+        for (int v = 0; v < part.length; v++) {
+            result.put(graph.nodeOf(v), part[v]);
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of nodes of every part
+     */
+    public int[] getPartSizes() {
+        return partSizes.clone();
+    }
+
+    /**
+     * @return the number of connections between nodes of different parts, counted as the graph stores them, so
+     * a connection of an undirected graph counts twice
+     */
+    public long getEdgeCut() {
+        return IntStream.range(0, part.length)
+                        .parallel()
+                        .mapToLong(v -> {
+                            long cut = 0;
+                            for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                                if (part[graph.targets[e]] != part[v]) {
+                                    cut++;
+                                }
+                            }
+                            return cut;
+                        })
+                        .sum();
+    }
+
+    /**
+     * @return the size of the biggest part divided by the average size of a part, 1 being a perfect balance
+     */
+    public double getBalance() {
+        if (part.length == 0) {
+            return 1.0;
+        }
+        int biggest = Arrays.stream(partSizes).max().orElse(0);
+        return biggest * (double) parts / part.length;
+    }
+
+    /**
+     * Extracts the nodes of a part together with their connections. Nodes of other parts reached by those
+     * connections are kept as ghosts
+     *
+     * @param p the part to extract
+     * @return the subgraph of the part
+     */
+    public GraphPart<V> subgraph(int p) {
+        if (localIds == null) {
+            localIds = GraphPart.localIds(part, parts);
+        }
+        return new GraphPart<>(graph, p, part, partSizes[p], localIds);
+    }
+
+    /**
+     * @return the subgraphs of every part, indexed by part
+     */
+    public List<GraphPart<V>> subgraphs() {
+        List<GraphPart<V>> result = new ArrayList<>(parts);
+        for (int p = 0; p < parts; p++) {
+            result.add(subgraph(p));
+        }
+        return result;
+    }
+
+    /*
+     * Undirected graph without loops, with weights on nodes and connections, used on every level of the
+     * coarsening. On the finest level all weights are one, except for pairs of nodes connected in both directions
+     */
+    private static class Level {
+        final int[] offsets;
+        final int[] targets;
+        final int[] edgeWeights;
+        final long[] nodeWeights;
+
+        Level(int[] offsets, int[] targets, int[] edgeWeights, long[] nodeWeights) {
+            this.offsets = offsets;
+            this.targets = targets;
+            this.edgeWeights = edgeWeights;
+            this.nodeWeights = nodeWeights;
+        }
+
+        static Level of(CompactGraph<?> graph) {
+            int n = graph.getNumberOfNodes();
+            int[] degree = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                    if (graph.targets[e] != v) {
+                        degree[v + 1]++;
+                        degree[graph.targets[e] + 1]++;
+                    }
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                degree[v + 1] += degree[v];
+            }
+            int[] position = Arrays.copyOf(degree, n);
+            int[] both = new int[degree[n]];
+            for (int v = 0; v < n; v++) {
+                for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                    int w = graph.targets[e];
+                    if (w != v) {
+                        both[position[v]++] = w;
+                        both[position[w]++] = v;
+                    }
+                }
+            }
+
+            // Sort every list and merge the repeated neighbors into one weighted connection
+            int[] length = new int[n];
+            IntStream.range(0, n).parallel().forEach(v -> {
+                Arrays.sort(both, degree[v], degree[v + 1]);
+                int unique = 0;
+                for (int e = degree[v]; e < degree[v + 1]; e++) {
+                    if (e == degree[v] || both[e] != both[e - 1]) {
+                        unique++;
+                    }
+                }
+                length[v] = unique;
+            });
+            int[] offsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] = offsets[v] + length[v];
+            }
+            int[] targets = new int[offsets[n]];
+            int[] weights = new int[offsets[n]];
+            IntStream.range(0, n).parallel().forEach(v -> {
+                int slot = offsets[v] - 1;
+                for (int e = degree[v]; e < degree[v + 1]; e++) {
+                    if (e == degree[v] || both[e] != both[e - 1]) {
+                        targets[++slot] = both[e];
+                    }
+                    weights[slot]++;
+                }
+            });
+            long[] nodeWeights = new long[n];
+            Arrays.fill(nodeWeights, 1);
+            return new Level(offsets, targets, weights, nodeWeights);
+        }
+
+        int size() {
+            return nodeWeights.length;
+        }
+
+        long totalWeight() {
+            long total = 0;
+            for (long weight : nodeWeights) {
+                total += weight;
+            }
+            return total;
+        }
+
+        /*
+         * Heavy edge matching: visits the nodes in random order and merges each one with the unmatched neighbor
+         * it has the heaviest connection to. Returns the coarse node of every node
+         */
+        int[] match(long maxNodeWeight, Random random) {
+            int n = size();
+            int[] order = new int[n];
+            for (int v = 0; v < n; v++) {
+                order[v] = v;
+            }
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+
+            int[] coarse = new int[n];
+            Arrays.fill(coarse, -1);
+            int next = 0;
+            for (int v : order) {
+                if (coarse[v] != -1) {
+                    continue;
+                }
+                int best = -1;
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    int w = targets[e];
+                    if (coarse[w] == -1 && nodeWeights[v] + nodeWeights[w] <= maxNodeWeight
+                            && (best == -1 || edgeWeights[e] > edgeWeights[best])) {
+                        best = e;
+                    }
+                }
+                coarse[v] = next;
+                if (best != -1) {
+                    coarse[targets[best]] = next;
+                }
+                next++;
+            }
+            return coarse;
+        }
+
+        Level contract(int[] coarse, int coarseSize) {
+            int n = size();
+            long[] nodeWeights = new long[coarseSize];
+            int[][] members = new int[coarseSize][];
+            int[] count = new int[coarseSize];
+            for (int v = 0; v < n; v++) {
+                nodeWeights[coarse[v]] += this.nodeWeights[v];
+                count[coarse[v]]++;
+            }
+            for (int c = 0; c < coarseSize; c++) {
+                members[c] = new int[count[c]];
+                count[c] = 0;
+            }
+            for (int v = 0; v < n; v++) {
+                members[coarse[v]][count[coarse[v]]++] = v;
+            }
+
+            // Connections of every coarse node are accumulated in a dense array indexed by neighbor
+            int[] slot = new int[coarseSize];
+            Arrays.fill(slot, -1);
+            IntList targets = new IntList();
+            IntList weights = new IntList();
+            int[] offsets = new int[coarseSize + 1];
+            for (int c = 0; c < coarseSize; c++) {
+                int start = targets.size();
+                for (int v : members[c]) {
+                    for (int e = this.offsets[v]; e < this.offsets[v + 1]; e++) {
+                        int d = coarse[this.targets[e]];
+                        if (d == c) {
+                            continue;
+                        }
+                        if (slot[d] < start) {
+                            slot[d] = targets.size();
+                            targets.add(d);
+                            weights.add(edgeWeights[e]);
+                        } else {
+                            weights.set(slot[d], weights.get(slot[d]) + edgeWeights[e]);
+                        }
+                    }
+                }
+                offsets[c + 1] = targets.size();
+            }
+            return new Level(offsets, targets.toArray(), weights.toArray(), nodeWeights);
+        }
+
+        /*
+         * Cuts a breadth-first order of the nodes into chunks of equal weight
+         */
+        int[] initialPartition(int parts) {
+            int n = size();
+            long total = Math.max(1, totalWeight());
+            int[] part = new int[n];
+            boolean[] seen = new boolean[n];
+            int[] queue = new int[n];
+            int head = 0;
+            int tail = 0;
+            long accumulated = 0;
+            for (int root = 0; root < n; root++) {
+                if (seen[root]) {
+                    continue;
+                }
+                seen[root] = true;
+                queue[tail++] = root;
+                while (head < tail) {
+                    int v = queue[head++];
+                    part[v] = (int) Math.min(parts - 1, (accumulated + nodeWeights[v] / 2) * parts / total);
+                    accumulated += nodeWeights[v];
+                    for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                        if (!seen[targets[e]]) {
+                            seen[targets[e]] = true;
+                            queue[tail++] = targets[e];
+                        }
+                    }
+                }
+            }
+            return part;
+        }
+
+        void refine(int[] part, int parts, long maxPartWeight) {
+            int n = size();
+            AtomicLongArray partWeights = new AtomicLongArray(parts);
+            for (int v = 0; v < n; v++) {
+                partWeights.addAndGet(part[v], nodeWeights[v]);
+            }
+            ThreadLocal<Connectivity> scratch = ThreadLocal.withInitial(() -> new Connectivity(parts));
+
+            int idle = 0;
+            for (int round = 0; round < REFINEMENT_ROUNDS && idle < 2; round++) {
+                boolean upwards = round % 2 == 0;
+                int[] current = part.clone();
+                int moved = IntStream.range(0, n).parallel().map(v -> {
+                    Connectivity connectivity = scratch.get().of(this, v, current);
+                    int from = current[v];
+                    int best = from;
+                    int bestGain = 0;
+                    for (int i = 0; i < connectivity.touched.size(); i++) {
+                        int p = connectivity.touched.get(i);
+                        int gain = connectivity.weight[p] - connectivity.weight[from];
+                        if (p != from && (p > from) == upwards && gain > bestGain) {
+                            best = p;
+                            bestGain = gain;
+                        }
+                    }
+                    if (best == from || !reserve(partWeights, best, nodeWeights[v], maxPartWeight)) {
+                        return 0;
+                    }
+                    partWeights.addAndGet(from, -nodeWeights[v]);
+                    part[v] = best;
+                    return 1;
+                }).sum();
+                idle = moved == 0 ? idle + 1 : 0;
+            }
+            rebalance(part, parts, partWeights, maxPartWeight, scratch.get());
+        }
+
+        /*
+         * Moves nodes out of the parts above the limit, preferring the ones that cut the fewest connections
+         */
+        private void rebalance(int[] part, int parts, AtomicLongArray partWeights, long maxPartWeight,
+                               Connectivity connectivity) {
+            for (int p = 0; p < parts; p++) {
+                if (partWeights.get(p) <= maxPartWeight) {
+                    continue;
+                }
+                List<long[]> candidates = new ArrayList<>();
+                for (int v = 0; v < size(); v++) {
+                    if (part[v] != p) {
+                        continue;
+                    }
+                    connectivity.of(this, v, part);
+                    int best = -1;
+                    for (int i = 0; i < connectivity.touched.size(); i++) {
+                        int q = connectivity.touched.get(i);
+                        if (q != p && (best == -1 || connectivity.weight[q] > connectivity.weight[best])) {
+                            best = q;
+                        }
+                    }
+                    long gain = (best == -1 ? 0 : connectivity.weight[best]) - connectivity.weight[p];
+                    candidates.add(new long[]{-gain, v, best});
+                }
+                candidates.sort((a, b) -> Long.compare(a[0], b[0]));
+                for (long[] candidate : candidates) {
+                    if (partWeights.get(p) <= maxPartWeight) {
+                        break;
+                    }
+                    int v = (int) candidate[1];
+                    int target = (int) candidate[2];
+                    if (target == -1 || partWeights.get(target) + nodeWeights[v] > maxPartWeight) {
+                        target = lightest(partWeights, p);
+                    }
+                    if (partWeights.get(target) + nodeWeights[v] <= maxPartWeight) {
+                        partWeights.addAndGet(p, -nodeWeights[v]);
+                        partWeights.addAndGet(target, nodeWeights[v]);
+                        part[v] = target;
+                    }
+                }
+            }
+        }
+
+        private static int lightest(AtomicLongArray partWeights, int except) {
+            int lightest = except == 0 ? 1 % partWeights.length() : 0;
+            for (int p = 0; p < partWeights.length(); p++) {
+                if (p != except && partWeights.get(p) < partWeights.get(lightest)) {
+                    lightest = p;
+                }
+            }
+            return lightest;
+        }
+
+        private static boolean reserve(AtomicLongArray partWeights, int p, long weight, long maxPartWeight) {
+            while (true) {
+                long current = partWeights.get(p);
+                if (current + weight > maxPartWeight) {
+                    return false;
+                }
+                if (partWeights.compareAndSet(p, current, current + weight)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /*
+     * Weight of the connections of one node to every part, reused between nodes by the same thread
+     */
+    private static class Connectivity {
+        final int[] weight;
+        final IntList touched = new IntList();
+
+        Connectivity(int parts) {
+            weight = new int[parts];
+        }
+
+        Connectivity of(Level level, int v, int[] part) {
+            for (int i = 0; i < touched.size(); i++) {
+                weight[touched.get(i)] = 0;
+            }
+            touched.clear();
+            weight[part[v]] = 0;
+            touched.add(part[v]);
+            for (int e = level.offsets[v]; e < level.offsets[v + 1]; e++) {
+                int p = part[level.targets[e]];
+                if (weight[p] == 0 && p != part[v]) {
+                    touched.add(p);
+                }
+                weight[p] += level.edgeWeights[e];
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.lelv.graphthree;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Generates random walks over a snapshot of a graph, as used to train node embeddings with DeepWalk or node2vec.
+ * <p>
+ * Every step follows a connection of the current node, uniformly or with probability proportional to its weight.
+ * Weighted steps use alias tables built once for every node, so a step takes constant time whatever the degree.
+ * With node2vec parameters p and q, the step from v after coming from t is further biased by 1 / p to go back to
+ * t, 1 to go to a neighbor of t and 1 / q to go anywhere else. Those steps are drawn by rejection: a connection is
+ * drawn as before and kept with probability its bias over the largest bias, which only needs to look the proposed
+ * node up in the sorted connections of t.
+ * <p>
+ * A walk ends when it has the length asked for or reaches a node with no connections to follow. Walks are stored
+ * as ids of the compact graph of the generator.
+ *
+ * @param <V> type of the nodes
+ */
+public class RandomWalks<V> {
+
+    /*
+     * Number of start nodes walked by every task when generating in bulk. Fixed, so the walks generated do not
+     * depend on the number of threads
+     */
+    static final int CHUNK_SIZE = 1024;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final CompactGraph<V> graph;
+    // Alias tables over the connections of every node, or null for uniform steps
+    private final double[] probability;
+    private final int[] alias;
+    // Nodes with no connection that can be followed
+    private final boolean[] stuck;
+
+    private double returnParameter = 1;
+    private double inOutParameter = 1;
+    // Connections of every node sorted by target, built the first time a biased walk needs them
+    private volatile int[] sorted;
+
+    private RandomWalks(CompactGraph<V> graph, boolean weighted) {
+        this.graph = graph;
+        int n = graph.getNumberOfNodes();
+        stuck = new boolean[n];
+        if (weighted) {
+            probability = new double[graph.targets.length];
+            alias = new int[graph.targets.length];
+            for (int v = 0; v < n; v++) {
+                stuck[v] = !buildAliasTable(graph.offsets[v], graph.offsets[v + 1]);
+            }
+        } else {
+            probability = null;
+            alias = null;
+            for (int v = 0; v < n; v++) {
+                stuck[v] = graph.outDegree(v) == 0;
+            }
+        }
+    }
+
+    /**
+     * @param graph the graph to walk
+     * @return a generator whose steps pick connections uniformly, over a snapshot of the graph
+     */
+    public static <V> RandomWalks<V> uniform(AbstractGraph<V, ?> graph) {
+        return new RandomWalks<>(CompactGraph.of(graph), false);
+    }
+
+    /**
+     * @param graph the graph to walk
+     * @return a generator whose steps pick connections with probability proportional to their weights, over a
+     * snapshot of the graph
+     * @throws IllegalArgumentException if any weight is negative
+     */
+    public static <V, E extends WeightedEdge> RandomWalks<V> weighted(AbstractGraph<V, E> graph) {
+        return new RandomWalks<>(CompactGraph.weighted(graph), true);
+    }
+
+    /**
+     * @param graph the graph to walk
+     * @return a generator whose steps pick connections with probability proportional to their weights if the graph
+     * has weights, or uniformly if it does not
+     * @throws IllegalArgumentException if any weight is negative
+     */
+    public static <V> RandomWalks<V> of(CompactGraph<V> graph) {
+        return new RandomWalks<>(graph, graph.isWeighted());
+    }
+
+    /**
+     * Biases the walks as node2vec does. Both parameters equal to 1 give first-order walks
+     *
+     * @param p return parameter, low values make walks go back to the previous node more often
+     * @param q in-out parameter, low values make walks move away from the previous node more often
+     * @return this generator
+     * @throws IllegalArgumentException if any parameter is not positive
+     */
+    public RandomWalks<V> withNode2Vec(double p, double q) {
+        if (!(p > 0) || !(q > 0)) {
+            throw new IllegalArgumentException("The parameters must be positive");
+        }
+        this.returnParameter = p;
+        this.inOutParameter = q;
+        return this;
+    }
+
+    /**
+     * @return the snapshot of the graph the walks go over, whose ids they are made of
+     */
+    public CompactGraph<V> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Generates a walk
+     *
+     * @param startNode  the node to start from
+     * @param length     maximum number of nodes of the walk, including the start node
+     * @param randomSeed seed of the random generator
+     * @return the nodes of the walk, or null if the start node does not exist
+     * @throws IllegalArgumentException if the length is not positive
+     */
+    public List<V> walk(V startNode, int length, long randomSeed) {
+        checkLength(length);
+        int start = graph.idOf(startNode);
+        if (start == CompactGraph.NON_EXISTENT_ID) {
+            return null;
+        }
+        IntList walk = new IntList(length);
+        walk(start, length, new SplittableRandom(randomSeed), walk);
+        List<V> result = new ArrayList<>(walk.size());
+        for (int i = 0; i < walk.size(); i++) {
+            result.add(graph.nodeOf(walk.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Generates walks from every node in parallel and writes them to a file, as the number of nodes of each walk
+     * followed by their ids, all of them ints. Walks are generated in rounds, each one starting a walk from every
+     * node in order, and the walks generated in parallel are written in that same order,
+     * so the file only depends on the graph, the parameters and the seed
+     *
+     * @param file         the file to write the walks to
+     * @param walksPerNode number of walks that start from every node
+     * @param length       maximum number of nodes of every walk, including the start node
+     * @param randomSeed   seed from which the generator of every task is derived
+     * @return number of walks written
+     * @throws IllegalArgumentException if the number of walks is negative or the length is not positive
+     * @throws IOException              if the file can not be written
+     * @see #readWalks(Path, Consumer)
+     */
+    public long writeWalks(Path file, int walksPerNode, int length, long randomSeed) throws IOException {
+        checkLength(length);
+        if (walksPerNode < 0) {
+            throw new IllegalArgumentException("The number of walks can not be negative");
+        }
+        int n = graph.getNumberOfNodes();
+        int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int tasks = chunks * walksPerNode;
+        // Tasks run in waves, so only a few buffers are held at a time
+        int wave = ForkJoinPool.getCommonPoolParallelism() * 4;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile()),
+                                                                                  BUFFER_SIZE))) {
+            for (int first = 0; first < tasks; first += wave) {
+                int[][] buffers = IntStream.range(first, Math.min(tasks, first + wave))
+                                           .parallel()
+                                           .mapToObj(task -> walkChunk(task % chunks, length,
+                                                                       NeighborhoodSampler.mix(randomSeed, task)))
+                                           .toArray(int[][]::new);
+                for (int[] buffer : buffers) {
+                    for (int value : buffer) {
+                        out.writeInt(value);
+                    }
+                }
+            }
+        }
+        return (long) n * walksPerNode;
+    }
+
+    /**
+     * Reads the walks written by {@link #writeWalks}
+     *
+     * @param file   the file to read
+     * @param action action to perform with the ids of every walk
+     * @throws IOException if the file can not be read or is truncated
+     */
+    public static void readWalks(Path file, Consumer<int[]> action) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file.toFile()),
+                                                                              BUFFER_SIZE))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                int[] walk = new int[length];
+                for (int i = 0; i < length; i++) {
+                    walk[i] = in.readInt();
+                }
+                action.accept(walk);
+            }
+        }
+    }
+
+    /*
+     * Walks from every node of a chunk, into a buffer of lengths followed by ids
+     */
+    private int[] walkChunk(int chunk, int length, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int from = chunk * CHUNK_SIZE;
+        int to = Math.min(graph.getNumberOfNodes(), from + CHUNK_SIZE);
+        IntList buffer = new IntList((to - from) * (length + 1));
+        for (int v = from; v < to; v++) {
+            int position = buffer.size();
+            buffer.add(0);
+            walk(v, length, random, buffer);
+            buffer.set(position, buffer.size() - position - 1);
+        }
+        return buffer.toArray();
+    }
+
+    private void walk(int start, int length, SplittableRandom random, IntList walk) {
+        boolean biased = returnParameter != 1 || inOutParameter != 1;
+        int[] sortedTargets = biased ? sortedTargets() : null;
+        double maxBias = Math.max(1, Math.max(1 / returnParameter, 1 / inOutParameter));
+
+        int previous = CompactGraph.NON_EXISTENT_ID;
+        int current = start;
+        walk.add(current);
+        for (int step = 1; step < length && !stuck[current]; step++) {
+            int next;
+            if (previous == CompactGraph.NON_EXISTENT_ID || !biased) {
+                next = graph.targets[draw(current, random)];
+            } else {
+                do {
+                    next = graph.targets[draw(current, random)];
+                } while (random.nextDouble() * maxBias >= bias(previous, next, sortedTargets));
+            }
+            walk.add(next);
+            previous = current;
+            current = next;
+        }
+    }
+
+    /*
+     * Position of the connection of the node followed by a first-order step
+     */
+    private int draw(int node, SplittableRandom random) {
+        int start = graph.offsets[node];
+        int e = start + random.nextInt(graph.offsets[node + 1] - start);
+        if (probability == null || random.nextDouble() < probability[e]) {
+            return e;
+        }
+        return alias[e];
+    }
+
+    private double bias(int previous, int next, int[] sortedTargets) {
+        if (next == previous) {
+            return 1 / returnParameter;
+        }
+        int from = graph.offsets[previous];
+        int to = graph.offsets[previous + 1];
+        return Arrays.binarySearch(sortedTargets, from, to, next) >= 0 ? 1 : 1 / inOutParameter;
+    }
+
+    private int[] sortedTargets() {
+        int[] result = sorted;
+        if (result == null) {
+            result = graph.targets.clone();
+            for (int v = 0; v < graph.getNumberOfNodes(); v++) {
+                Arrays.sort(result, graph.offsets[v], graph.offsets[v + 1]);
+            }
+            sorted = result;
+        }
+        return result;
+    }
+
+    /*
+     * Builds the alias table of the connections between from and to with Vose's method. Returns false if none of
+     * them can be followed
+     */
+    private boolean buildAliasTable(int from, int to) {
+        int degree = to - from;
+        double total = 0;
+        for (int e = from; e < to; e++) {
+            if (graph.weights[e] < 0) {
+                throw new IllegalArgumentException("Weights can not be negative");
+            }
+            total += graph.weights[e];
+        }
+        if (degree == 0 || total <= 0) {
+            return false;
+        }
+
+        IntList small = new IntList();
+        IntList large = new IntList();
+        for (int e = from; e < to; e++) {
+            probability[e] = graph.weights[e] * degree / total;
+            (probability[e] < 1 ? small : large).add(e);
+        }
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.removeLast();
+            int more = large.get(large.size() - 1);
+            alias[less] = more;
+            probability[more] += probability[less] - 1;
+            if (probability[more] < 1) {
+                large.removeLast();
+                small.add(more);
+            }
+        }
+        // Whatever is left is 1 but for rounding errors
+        for (int i = 0; i < large.size(); i++) {
+            probability[large.get(i)] = 1;
+        }
+        for (int i = 0; i < small.size(); i++) {
+            probability[small.get(i)] = 1;
+        }
+        return true;
+    }
+
+    private static void checkLength(int length) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("The length of the walks must be positive");
+        }
+    }
+}
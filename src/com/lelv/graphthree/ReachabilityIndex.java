@@ -0,0 +1,241 @@
+package com.lelv.graphthree;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Index that answers whether a path exists between two nodes without traversing the graph.
+ * <p>
+ * The graph is first condensed into its strongly connected components, which form a directed acyclic graph. On
+ * that DAG a pruned 2-hop labeling is built: components are processed as landmarks from the most to the least
+ * connected one, and every landmark is added to the "in" label of the components it reaches and to the "out"
+ * label of the components that reach it, skipping those already covered by a previous landmark. A path from u to
+ * v exists if both are in the same component, or if the out label of u and the in label of v share a landmark.
+ * Labels are kept as sorted int arrays, so a query is a merge of two short arrays.
+ * <p>
+ * Every build is an immutable snapshot published at once, so any number of threads can query the index while it
+ * is rebuilt: they get the answer of the last snapshot published, never a mix of two. Only one thread rebuilds at
+ * a time. By default a query rebuilds the index first if the graph has changed since the last build, unless
+ * another thread is already rebuilding it, in which case it answers from the last snapshot. The graph is not
+ * thread-safe, so if it is modified while other threads query the index, create the index without rebuilds on
+ * query and call {@link #rebuild()} from the thread that modifies the graph, or while holding its write lock.
+ *
+ * @param <V> type of the nodes
+ */
+public class ReachabilityIndex<V> {
+
+    private final AbstractGraph<V, ?> graph;
+    private final boolean rebuildOnQuery;
+    private final ReentrantLock rebuilding = new ReentrantLock();
+
+    private volatile Snapshot<V> snapshot;
+
+    /**
+     * Creates the index and builds it for the current state of the graph. Queries rebuild it when the graph changes
+     *
+     * @param graph the graph to index
+     */
+    public ReachabilityIndex(AbstractGraph<V, ?> graph) {
+        this(graph, true);
+    }
+
+    /**
+     * Creates the index and builds it for the current state of the graph
+     *
+     * @param graph          the graph to index
+     * @param rebuildOnQuery true to let queries rebuild the index when the graph changes, false to only rebuild it
+     *                       through {@link #rebuild()}
+     */
+    public ReachabilityIndex(AbstractGraph<V, ?> graph, boolean rebuildOnQuery) {
+        this.graph = graph;
+        this.rebuildOnQuery = rebuildOnQuery;
+        rebuild();
+    }
+
+    /**
+     * Verifies if a path exists between the origin node and the destination one. Rebuilds the index first if the
+     * graph has changed since the last build and queries are allowed to rebuild it.
+     *
+     * @param originNode      node that sets the beginning point of the path
+     * @param destinationNode node that sets the end point of the path
+     * @return true if the path exists, or false if it does not or if either node is not in the graph
+     */
+    public boolean reachable(V originNode, V destinationNode) {
+        if (rebuildOnQuery && isStale() && rebuilding.tryLock()) {
+            try {
+                if (isStale()) {
+                    snapshot = new Snapshot<>(graph);
+                }
+            } finally {
+                rebuilding.unlock();
+            }
+        }
+        return snapshot.reachable(originNode, destinationNode);
+    }
+
+    /**
+     * @return true if the graph has been modified since the index was last built
+     */
+    public boolean isStale() {
+        return snapshot.builtAt != graph.getModificationCount();
+    }
+
+    /**
+     * Builds the index again from the current state of the graph, waiting for any other rebuild to finish first
+     */
+    public void rebuild() {
+        rebuilding.lock();
+        try {
+            snapshot = new Snapshot<>(graph);
+        } finally {
+            rebuilding.unlock();
+        }
+    }
+
+    /*
+     * The index for a state of the graph. Never modified once built
+     */
+    private static final class Snapshot<V> {
+
+        final int builtAt;
+        final CompactGraph<V> compact;
+        final int[] component;
+        int[][] labelsIn;
+        int[][] labelsOut;
+
+        Snapshot(AbstractGraph<V, ?> graph) {
+            builtAt = graph.getModificationCount();
+            compact = CompactGraph.of(graph);
+            StronglyConnectedComponents<V> components = StronglyConnectedComponents.of(compact);
+            component = components.component;
+            label(components.condensation(), components.getNumberOfComponents());
+        }
+
+        boolean reachable(V originNode, V destinationNode) {
+            int origin = compact.idOf(originNode);
+            int destination = compact.idOf(destinationNode);
+            if (origin == CompactGraph.NON_EXISTENT_ID || destination == CompactGraph.NON_EXISTENT_ID) {
+                return false;
+            }
+            return reachable(component[origin], component[destination]);
+        }
+
+        private boolean reachable(int from, int to) {
+            if (from == to) {
+                return true;
+            }
+            // Components are numbered in reverse topological order, so connections always go to lower ids
+            if (from < to) {
+                return false;
+            }
+            return intersects(labelsOut[from], labelsIn[to]);
+        }
+
+        private static boolean intersects(int[] a, int[] b) {
+            int i = 0;
+            int j = 0;
+            while (i < a.length && j < b.length) {
+                if (a[i] == b[j]) {
+                    return true;
+                }
+                if (a[i] < b[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return false;
+        }
+
+        private void label(CompactGraph<Integer> dag, int components) {
+            CompactGraph<Integer> reverse = dag.transpose();
+
+            // Landmarks that reach or are reached by many components go first, so they prune most of the later searches
+            Integer[] order = new Integer[components];
+            long[] weight = new long[components];
+            for (int c = 0; c < components; c++) {
+                order[c] = c;
+                weight[c] = (long) (dag.outDegree(c) + 1) * (reverse.outDegree(c) + 1);
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(weight[b], weight[a]));
+
+            labelsIn = new int[components][];
+            labelsOut = new int[components][];
+            int[] sizesIn = new int[components];
+            int[] sizesOut = new int[components];
+            for (int c = 0; c < components; c++) {
+                labelsIn[c] = new int[2];
+                labelsOut[c] = new int[2];
+            }
+
+            int[] queue = new int[components];
+            int[] mark = new int[components];
+            for (int rank = 0; rank < components; rank++) {
+                int landmark = order[rank];
+                prunedSearch(dag, landmark, rank, true, queue, mark, sizesIn, sizesOut);
+                prunedSearch(reverse, landmark, rank, false, queue, mark, sizesIn, sizesOut);
+            }
+
+            for (int c = 0; c < components; c++) {
+                labelsIn[c] = Arrays.copyOf(labelsIn[c], sizesIn[c]);
+                labelsOut[c] = Arrays.copyOf(labelsOut[c], sizesOut[c]);
+            }
+        }
+
+        private void prunedSearch(CompactGraph<Integer> dag, int landmark, int rank, boolean forward,
+                                  int[] queue, int[] mark, int[] sizesIn, int[] sizesOut) {
+            int stamp = 2 * rank + (forward ? 1 : 2);
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = landmark;
+            mark[landmark] = stamp;
+            while (head < tail) {
+                int c = queue[head++];
+                if (forward) {
+                    if (c != landmark && covers(landmark, c, sizesOut[landmark], sizesIn[c])) {
+                        continue;
+                    }
+                    labelsIn[c] = append(labelsIn[c], sizesIn[c]++, rank);
+                } else {
+                    if (c != landmark && covers(c, landmark, sizesOut[c], sizesIn[landmark])) {
+                        continue;
+                    }
+                    labelsOut[c] = append(labelsOut[c], sizesOut[c]++, rank);
+                }
+                for (int e = dag.offsets[c]; e < dag.offsets[c + 1]; e++) {
+                    int d = dag.targets[e];
+                    if (mark[d] != stamp) {
+                        mark[d] = stamp;
+                        queue[tail++] = d;
+                    }
+                }
+            }
+        }
+
+        private boolean covers(int from, int to, int sizeOut, int sizeIn) {
+            int[] a = labelsOut[from];
+            int[] b = labelsIn[to];
+            int i = 0;
+            int j = 0;
+            while (i < sizeOut && j < sizeIn) {
+                if (a[i] == b[j]) {
+                    return true;
+                }
+                if (a[i] < b[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return false;
+        }
+
+        private static int[] append(int[] label, int size, int value) {
+            if (size == label.length) {
+                label = Arrays.copyOf(label, size * 2);
+            }
+            label[size] = value;
+            return label;
+        }
+    }
+}
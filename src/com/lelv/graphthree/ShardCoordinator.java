@@ -0,0 +1,209 @@
+package com.lelv.graphthree;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.*;
+
+/**
+ * Drives the algorithms of a graph whose shards are served by {@link ShardWorker}s in other processes, without
+ * holding any part of the graph itself.
+ * <p>
+ * The coordinator assigns the shards to the workers, shard i to the i-th worker given, and tells every worker
+ * where to reach the others. Every algorithm is then a command sent to all the workers at once: the workers run
+ * its supersteps among themselves, exchanging messages directly, and only send their results back. Nodes travel
+ * between the coordinator and the workers through the codec given, which must match the one of the workers.
+ * <p>
+ * Queries run one at a time. If a worker fails, the query throws an IllegalStateException and the coordinator can
+ * no longer be used.
+ *
+ * @param <V> type of the nodes
+ */
+public class ShardCoordinator<V> implements AutoCloseable {
+
+    private final Codec<V> nodeCodec;
+    private final Socket[] sockets;
+    private final DataInputStream[] inputs;
+    private final DataOutputStream[] outputs;
+    private final long nodes;
+    private boolean failed;
+
+    private ShardCoordinator(Codec<V> nodeCodec, Socket[] sockets, DataInputStream[] inputs,
+                             DataOutputStream[] outputs, long nodes) {
+        this.nodeCodec = nodeCodec;
+        this.sockets = sockets;
+        this.inputs = inputs;
+        this.outputs = outputs;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Connects to the workers, assigns them their shards, and waits until they have loaded their parts and are
+     * connected to each other
+     *
+     * @param workers   control address of every worker, indexed by the shard it is assigned
+     * @param nodeCodec writes and reads the nodes, like the one of the workers
+     * @return the coordinator of the workers
+     * @throws IOException              if a worker can not be reached, or fails to load its part
+     * @throws IllegalArgumentException if there are no workers
+     */
+    public static <V> ShardCoordinator<V> connect(List<InetSocketAddress> workers, Codec<V> nodeCodec)
+            throws IOException {
+        int shards = workers.size();
+        if (shards < 1) {
+            throw new IllegalArgumentException("The number of shards must be at least one");
+        }
+        Socket[] sockets = new Socket[shards];
+        DataInputStream[] inputs = new DataInputStream[shards];
+        DataOutputStream[] outputs = new DataOutputStream[shards];
+        try {
+            for (int s = 0; s < shards; s++) {
+                sockets[s] = SocketShardTransport.connect(workers.get(s));
+                inputs[s] = new DataInputStream(new BufferedInputStream(sockets[s].getInputStream()));
+                outputs[s] = new DataOutputStream(new BufferedOutputStream(sockets[s].getOutputStream()));
+                outputs[s].writeInt(s);
+                outputs[s].writeInt(shards);
+                outputs[s].flush();
+            }
+            // Every worker listens for the others on a port of its own choice
+            int[] ports = new int[shards];
+            for (int s = 0; s < shards; s++) {
+                ports[s] = inputs[s].readInt();
+            }
+            for (int s = 0; s < shards; s++) {
+                for (int j = 0; j < shards; j++) {
+                    outputs[s].writeUTF(sockets[j].getInetAddress().getHostAddress());
+                    outputs[s].writeInt(ports[j]);
+                }
+                outputs[s].flush();
+            }
+            long nodes = 0;
+            for (int s = 0; s < shards; s++) {
+                nodes += inputs[s].readInt();
+            }
+            return new ShardCoordinator<>(nodeCodec, sockets, inputs, outputs, nodes);
+        } catch (IOException e) {
+            for (Socket socket : sockets) {
+                if (socket != null) {
+                    socket.close();
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of shards
+     */
+    public int getNumberOfShards() {
+        return sockets.length;
+    }
+
+    /**
+     * @return the number of nodes of all the shards together
+     */
+    public long getNumberOfNodes() {
+        return nodes;
+    }
+
+    /**
+     * Applies a breadth-first search from the origin node, one superstep per level
+     *
+     * @param originNode the node to take as root of the search
+     * @return a map whose keys are the nodes reached, and whose values are their distance in connections from the
+     * origin, or null if the origin node is not in the graph
+     * @see ShardedGraph#bfs(Object)
+     */
+    public synchronized Map<V, Integer> bfs(V originNode) {
+        Map<V, Integer> result = new HashMap<>();
+        boolean found = false;
+        try {
+            for (DataOutputStream out : command(ShardWorker.BFS)) {
+                nodeCodec.write(originNode, out);
+                out.flush();
+            }
+            for (DataInputStream in : inputs) {
+                found |= in.readBoolean();
+                readValues(in, result);
+            }
+        } catch (IOException e) {
+            throw fail(e);
+        }
+        return found ? result : null;
+    }
+
+    /**
+     * Finds the connected components of the graph by propagating the smallest id of every component. The graph
+     * must store its connections in both directions
+     *
+     * @return a map whose keys are the nodes, and whose values are their components, numbered from 0 in the
+     * order of the first node of every component in the original graph
+     * @see ShardedGraph#connectedComponents()
+     */
+    public synchronized Map<V, Integer> connectedComponents() {
+        Map<V, Integer> labels = new HashMap<>();
+        try {
+            for (DataOutputStream out : command(ShardWorker.COMPONENTS)) {
+                out.flush();
+            }
+            for (DataInputStream in : inputs) {
+                readValues(in, labels);
+            }
+        } catch (IOException e) {
+            throw fail(e);
+        }
+        // Every label is the smallest id of its component, so their order is the order of the components
+        int[] sorted = labels.values().stream().mapToInt(Integer::intValue).distinct().sorted().toArray();
+        labels.replaceAll((node, label) -> Arrays.binarySearch(sorted, label));
+        return labels;
+    }
+
+    /**
+     * Lets the workers go and closes the connections to them
+     */
+    @Override
+    public synchronized void close() {
+        for (int s = 0; s < sockets.length; s++) {
+            try {
+                if (!failed) {
+                    outputs[s].write(ShardWorker.CLOSE);
+                    outputs[s].flush();
+                }
+            } catch (IOException ignored) {
+                // The worker is gone either way
+            }
+            try {
+                sockets[s].close();
+            } catch (IOException ignored) {
+                // Nothing left to do with it
+            }
+        }
+        failed = true;
+    }
+
+    /*
+     * Starts a command on every worker, and returns their outputs to write its arguments
+     */
+    private DataOutputStream[] command(int command) throws IOException {
+        if (failed) {
+            throw new IllegalStateException("The coordinator is closed or a shard failed");
+        }
+        for (DataOutputStream out : outputs) {
+            out.write(command);
+        }
+        return outputs;
+    }
+
+    private void readValues(DataInputStream in, Map<V, Integer> values) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            V node = nodeCodec.read(in);
+            values.put(node, in.readInt());
+        }
+    }
+
+    private IllegalStateException fail(IOException e) {
+        close();
+        return new IllegalStateException("A shard failed", e);
+    }
+}
@@ -0,0 +1,34 @@
+package com.lelv.graphthree;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Endpoint through which the shards of a {@link ShardedGraph} exchange messages. Messages are batches of ints,
+ * and they are exchanged in bulk-synchronous steps: on every step each shard hands one batch for every shard,
+ * itself included, and gets back the batches every shard addressed to it on the same step.
+ *
+ * @see SocketShardTransport
+ * @see LocalShardTransport
+ */
+public interface ShardTransport extends Closeable {
+
+    /**
+     * @return the shard this endpoint belongs to
+     */
+    int getShard();
+
+    /**
+     * @return the number of shards connected by the transport
+     */
+    int getNumberOfShards();
+
+    /**
+     * Sends one batch to every shard and waits for the batches of every shard for this step
+     *
+     * @param outgoing batch for every shard, indexed by shard
+     * @return batch from every shard, indexed by shard
+     * @throws IOException if a shard can no longer be reached
+     */
+    int[][] exchange(int[][] outgoing) throws IOException;
+}
@@ -0,0 +1,313 @@
+package com.lelv.graphthree;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the algorithms of a sharded graph on one shard. It only knows its part as arrays of ids, and reaches the
+ * other shards through its transport: every superstep, the messages for each shard are gathered in one batch that
+ * starts with the amount of work the shard still has, so every shard learns at the same time when all are done.
+ * <p>
+ * Workers run as threads of a {@link ShardedGraph}, or each in its own process with {@link #serve}, driven by a
+ * {@link ShardCoordinator}: the worker waits for the coordinator to assign it a shard, loads the part of that shard
+ * and connects to the other workers, and then runs every algorithm the coordinator asks for until it is closed.
+ */
+public final class ShardWorker {
+
+    /*
+     * Commands of the coordinator, one byte each followed by their arguments
+     */
+    static final int BFS = 1;
+    static final int COMPONENTS = 2;
+    static final int CLOSE = 3;
+
+    private final int shard;
+    private final int localNodes;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] globalIds;
+    private final int[] ghostOwners;
+    private final int[] ghostRemoteIds;
+    private final ShardTransport transport;
+
+    ShardWorker(GraphPart<?> part, ShardTransport transport) {
+        this.shard = part.getPart();
+        this.localNodes = part.getNumberOfLocalNodes();
+        this.offsets = part.getGraph().offsets;
+        this.targets = part.getGraph().targets;
+        this.transport = transport;
+
+        int ghosts = part.getNumberOfGhosts();
+        globalIds = new int[localNodes + ghosts];
+        ghostOwners = new int[ghosts];
+        ghostRemoteIds = new int[ghosts];
+        for (int id = 0; id < globalIds.length; id++) {
+            globalIds[id] = part.globalIdOf(id);
+        }
+        for (int g = 0; g < ghosts; g++) {
+            ghostOwners[g] = part.ownerOf(localNodes + g);
+            ghostRemoteIds[g] = part.remoteIdOf(localNodes + g);
+        }
+    }
+
+    /**
+     * Serves one shard for a {@link ShardCoordinator}. Accepts the coordinator on the control socket, loads the
+     * part of the shard it assigns, connects to the workers of the other shards and runs the algorithms the
+     * coordinator asks for, until the coordinator closes the connection
+     *
+     * @param control   socket the coordinator connects to. The workers of the other shards connect to this worker
+     *                  on another port of the same address
+     * @param loader    builds or reads the part of a shard, given its number
+     * @param nodeCodec writes the nodes of the results, and reads the nodes of the queries
+     * @throws IOException if the coordinator or another worker can not be reached, or the part can not be loaded
+     */
+    public static <V> void serve(ServerSocket control, PartLoader<V> loader, Codec<V> nodeCodec) throws IOException {
+        try (Socket socket = control.accept();
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            socket.setTcpNoDelay(true);
+            int shard = in.readInt();
+            int shards = in.readInt();
+            GraphPart<V> part = loader.load(shard);
+            if (part.getPart() != shard) {
+                throw new IOException("Loaded part " + part.getPart() + " for shard " + shard);
+            }
+
+            ShardTransport transport;
+            try (ServerSocket server = new ServerSocket(0, shards, control.getInetAddress())) {
+                out.writeInt(server.getLocalPort());
+                out.flush();
+                List<InetSocketAddress> addresses = new ArrayList<>(shards);
+                for (int j = 0; j < shards; j++) {
+                    addresses.add(new InetSocketAddress(in.readUTF(), in.readInt()));
+                }
+                transport = SocketShardTransport.connect(shard, server, addresses);
+            }
+            try (transport) {
+                out.writeInt(part.getNumberOfLocalNodes());
+                out.flush();
+                new ShardWorker(part, transport).answer(part.getGraph(), nodeCodec, in, out);
+            }
+        }
+    }
+
+    private <V> void answer(CompactGraph<V> graph, Codec<V> nodeCodec, DataInputStream in, DataOutputStream out)
+            throws IOException {
+        while (true) {
+            int command = in.read();
+            if (command == BFS) {
+                int origin = graph.idOf(nodeCodec.read(in));
+                boolean local = origin != CompactGraph.NON_EXISTENT_ID && origin < localNodes;
+                int[] level = bfs(local ? origin : -1);
+                out.writeBoolean(local);
+                writeValues(graph, nodeCodec, level, out);
+            } else if (command == COMPONENTS) {
+                writeValues(graph, nodeCodec, components(), out);
+            } else {
+                // Closed, or the coordinator is gone
+                return;
+            }
+            out.flush();
+        }
+    }
+
+    /*
+     * The local nodes whose value is not -1, each followed by its value
+     */
+    private static <V> void writeValues(CompactGraph<V> graph, Codec<V> nodeCodec, int[] values, DataOutput out)
+            throws IOException {
+        int count = 0;
+        for (int value : values) {
+            if (value != -1) {
+                count++;
+            }
+        }
+        out.writeInt(count);
+        for (int v = 0; v < values.length; v++) {
+            if (values[v] != -1) {
+                nodeCodec.write(graph.nodeOf(v), out);
+                out.writeInt(values[v]);
+            }
+        }
+    }
+
+    int getShard() {
+        return shard;
+    }
+
+    int getNumberOfLocalNodes() {
+        return localNodes;
+    }
+
+    int globalIdOf(int id) {
+        return globalIds[id];
+    }
+
+    /*
+     * Level of every local node in a breadth-first search, or -1 if it is not reached. One superstep per level:
+     * the frontier is expanded locally and every ghost reached for the first time is sent to its shard. The origin
+     * is -1 in every shard but its own
+     */
+    int[] bfs(int origin) throws IOException {
+        int[] level = new int[localNodes];
+        Arrays.fill(level, -1);
+        boolean[] sent = new boolean[ghostOwners.length];
+        IntList frontier = new IntList();
+        IntList next = new IntList();
+        if (origin != -1) {
+            level[origin] = 0;
+            frontier.add(origin);
+        }
+
+        for (int depth = 0; ; depth++) {
+            IntList[] batches = newBatches();
+            int messages = 0;
+            for (int i = 0; i < frontier.size(); i++) {
+                int v = frontier.get(i);
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    int w = targets[e];
+                    if (w < localNodes) {
+                        if (level[w] == -1) {
+                            level[w] = depth + 1;
+                            next.add(w);
+                        }
+                    } else if (!sent[w - localNodes]) {
+                        sent[w - localNodes] = true;
+                        batches[ghostOwners[w - localNodes]].add(ghostRemoteIds[w - localNodes]);
+                        messages++;
+                    }
+                }
+            }
+
+            int[][] incoming = transport.exchange(toArrays(batches, next.size() + messages));
+            long work = 0;
+            for (int[] batch : incoming) {
+                work += batch[0];
+                for (int k = 1; k < batch.length; k++) {
+                    if (level[batch[k]] == -1) {
+                        level[batch[k]] = depth + 1;
+                        next.add(batch[k]);
+                    }
+                }
+            }
+            if (work == 0) {
+                return level;
+            }
+            IntList swap = frontier;
+            frontier = next;
+            next = swap;
+            next.clear();
+        }
+    }
+
+    /*
+     * Smallest global id of the component of every local node. Labels are propagated to a fixed point inside the
+     * shard on every superstep, and only the best label for each ghost is sent, as (id, label) pairs
+     */
+    int[] components() throws IOException {
+        int[] label = Arrays.copyOf(globalIds, localNodes);
+        int[] sentLabel = new int[ghostOwners.length];
+        Arrays.fill(sentLabel, Integer.MAX_VALUE);
+        boolean[] pending = new boolean[ghostOwners.length];
+        boolean[] queued = new boolean[localNodes];
+        IntList queue = new IntList(localNodes);
+        for (int v = 0; v < localNodes; v++) {
+            queue.add(v);
+            queued[v] = true;
+        }
+
+        while (true) {
+            IntList changedGhosts = new IntList();
+            for (int i = 0; i < queue.size(); i++) {
+                int v = queue.get(i);
+                queued[v] = false;
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    int w = targets[e];
+                    if (w < localNodes) {
+                        if (label[v] < label[w]) {
+                            label[w] = label[v];
+                            if (!queued[w]) {
+                                queued[w] = true;
+                                queue.add(w);
+                            }
+                        }
+                    } else if (label[v] < sentLabel[w - localNodes]) {
+                        sentLabel[w - localNodes] = label[v];
+                        if (!pending[w - localNodes]) {
+                            pending[w - localNodes] = true;
+                            changedGhosts.add(w - localNodes);
+                        }
+                    }
+                }
+            }
+            queue.clear();
+
+            IntList[] batches = newBatches();
+            for (int i = 0; i < changedGhosts.size(); i++) {
+                int g = changedGhosts.get(i);
+                pending[g] = false;
+                batches[ghostOwners[g]].add(ghostRemoteIds[g]);
+                batches[ghostOwners[g]].add(sentLabel[g]);
+            }
+
+            int[][] incoming = transport.exchange(toArrays(batches, changedGhosts.size()));
+            long work = 0;
+            for (int[] batch : incoming) {
+                work += batch[0];
+                for (int k = 1; k < batch.length; k += 2) {
+                    int v = batch[k];
+                    if (batch[k + 1] < label[v]) {
+                        label[v] = batch[k + 1];
+                        if (!queued[v]) {
+                            queued[v] = true;
+                            queue.add(v);
+                        }
+                    }
+                }
+            }
+            if (work == 0) {
+                return label;
+            }
+        }
+    }
+
+    private IntList[] newBatches() {
+        IntList[] batches = new IntList[transport.getNumberOfShards()];
+        for (int j = 0; j < batches.length; j++) {
+            batches[j] = new IntList();
+            batches[j].add(0);
+        }
+        return batches;
+    }
+
+    private static int[][] toArrays(IntList[] batches, int work) {
+        int[][] result = new int[batches.length][];
+        for (int j = 0; j < batches.length; j++) {
+            batches[j].set(0, work);
+            result[j] = batches[j].toArray();
+        }
+        return result;
+    }
+
+    /**
+     * Builds or reads the part of a shard for {@link #serve}, such as with
+     * {@link GraphPart#read(java.nio.file.Path, Codec)} or {@link Partitioning#subgraph(int)}
+     *
+     * @param <V> type of the nodes
+     */
+    @FunctionalInterface
+    public interface PartLoader<V> {
+
+        /**
+         * @param shard the shard assigned to the worker
+         * @return the part of the shard
+         * @throws IOException if the part can not be loaded
+         */
+        GraphPart<V> load(int shard) throws IOException;
+    }
+}
@@ -0,0 +1,237 @@
+package com.lelv.graphthree;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+/**
+ * A compact graph split into shards, each one processed by its own worker. Workers only share messages, which go
+ * through a {@link ShardTransport}: loopback sockets by default, or any other transport given at creation. The
+ * sharded graph keeps the whole graph and runs its workers as threads; to run every worker in its own process, with
+ * only its own part, see {@link ShardWorker#serve} and {@link ShardCoordinator}.
+ * <p>
+ * Nodes are assigned to shards by the hash of the node, or by a {@link Partitioning}, which keeps more connections
+ * inside the shards and so sends fewer messages. Algorithms run as bulk-synchronous supersteps: every worker
+ * processes its shard, sends one batch of messages to every other shard, and waits for theirs before the next
+ * superstep.
+ * <p>
+ * The sharded graph keeps its transports and workers open until it is closed. If a shard fails, the algorithm
+ * throws an IllegalStateException and the sharded graph can no longer be used.
+ *
+ * @param <V> type of the nodes
+ */
+public class ShardedGraph<V> implements AutoCloseable {
+
+    private final CompactGraph<V> graph;
+    private final int[] shardOf;
+    private final int[] localIds;
+    private final List<GraphPart<V>> parts;
+    private final List<ShardTransport> transports;
+    private final List<ShardWorker> workers;
+    private final ExecutorService executor;
+
+    private ShardedGraph(CompactGraph<V> graph, int[] shardOf, int shards,
+                         IntFunction<List<ShardTransport>> transport) {
+        this.graph = graph;
+        this.shardOf = shardOf;
+        this.localIds = GraphPart.localIds(shardOf, shards);
+
+        int[] sizes = new int[shards];
+        for (int s : shardOf) {
+            sizes[s]++;
+        }
+        List<GraphPart<V>> parts = new ArrayList<>(shards);
+        for (int s = 0; s < shards; s++) {
+            parts.add(new GraphPart<>(graph, s, shardOf, sizes[s], localIds));
+        }
+        this.parts = Collections.unmodifiableList(parts);
+
+        this.transports = transport.apply(shards);
+        List<ShardWorker> workers = new ArrayList<>(shards);
+        for (int s = 0; s < shards; s++) {
+            workers.add(new ShardWorker(parts.get(s), transports.get(s)));
+        }
+        this.workers = workers;
+        this.executor = Executors.newFixedThreadPool(shards, runnable -> {
+            Thread thread = new Thread(runnable, "shard-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Shards a graph by the hash of its nodes, with loopback sockets between the shards
+     *
+     * @param graph  the graph to shard
+     * @param shards number of shards
+     * @return the sharded graph
+     */
+    public static <V> ShardedGraph<V> hashed(CompactGraph<V> graph, int shards) {
+        return hashed(graph, shards, SocketShardTransport::loopback);
+    }
+
+    /**
+     * Shards a graph by the hash of its nodes
+     *
+     * @param graph     the graph to shard
+     * @param shards    number of shards
+     * @param transport creates the endpoints of every shard, given the number of shards
+     * @return the sharded graph
+     * @throws IllegalArgumentException if the number of shards is less than one
+     */
+    public static <V> ShardedGraph<V> hashed(CompactGraph<V> graph, int shards,
+                                             IntFunction<List<ShardTransport>> transport) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("The number of shards must be at least one");
+        }
+        int[] shardOf = new int[graph.getNumberOfNodes()];
+        for (int v = 0; v < shardOf.length; v++) {
+            int hash = graph.nodeOf(v).hashCode() * 0x9E3779B9;
+            shardOf[v] = Math.floorMod(hash ^ (hash >>> 16), shards);
+        }
+        return new ShardedGraph<>(graph, shardOf, shards, transport);
+    }
+
+    /**
+     * Shards a graph with one shard per part of a partition, with loopback sockets between the shards
+     *
+     * @param partitioning the partition of the graph to shard
+     * @return the sharded graph
+     */
+    public static <V> ShardedGraph<V> partitioned(Partitioning<V> partitioning) {
+        return partitioned(partitioning, SocketShardTransport::loopback);
+    }
+
+    /**
+     * Shards a graph with one shard per part of a partition
+     *
+     * @param partitioning the partition of the graph to shard
+     * @param transport    creates the endpoints of every shard, given the number of shards
+     * @return the sharded graph
+     */
+    public static <V> ShardedGraph<V> partitioned(Partitioning<V> partitioning,
+                                                  IntFunction<List<ShardTransport>> transport) {
+        return new ShardedGraph<>(partitioning.graph, partitioning.part, partitioning.parts, transport);
+    }
+
+    /**
+     * @return the number of shards
+     */
+    public int getNumberOfShards() {
+        return parts.size();
+    }
+
+    /**
+     * @param node the node to query
+     * @return the shard of the node, or {@link CompactGraph#NON_EXISTENT_ID} if the node is not in the graph
+     */
+    public int shardOf(V node) {
+        int id = graph.idOf(node);
+        return id == CompactGraph.NON_EXISTENT_ID ? CompactGraph.NON_EXISTENT_ID : shardOf[id];
+    }
+
+    /**
+     * @param shard the shard to query
+     * @return the nodes and connections of the shard, with the nodes of other shards it reaches as ghosts
+     */
+    public GraphPart<V> getShard(int shard) {
+        return parts.get(shard);
+    }
+
+    /**
+     * Applies a breadth-first search from the origin node, one superstep per level
+     *
+     * @param originNode the node to take as root of the search
+     * @return a map whose keys are the nodes reached, and whose values are their distance in connections from the
+     * origin, or null if the origin node is not in the graph
+     */
+    public Map<V, Integer> bfs(V originNode) {
+        int origin = graph.idOf(originNode);
+        if (origin == CompactGraph.NON_EXISTENT_ID) {
+            return null;
+        }
+        List<int[]> levels = run(worker -> worker.bfs(worker.getShard() == shardOf[origin] ? localIds[origin] : -1));
+
+        HashMap<V, Integer> result = new HashMap<>();
+        for (int s = 0; s < levels.size(); s++) {
+            int[] level = levels.get(s);
+            for (int v = 0; v < level.length; v++) {
+                if (level[v] != -1) {
+                    result.put(graph.nodeOf(workers.get(s).globalIdOf(v)), level[v]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the connected components of the graph by propagating the smallest id of every component. The graph
+     * must store its connections in both directions, like the snapshots of {@link com.lelv.graphthree.impl.Graph}
+     *
+     * @return a map whose keys are the nodes, and whose values are their components, numbered from 0 in the
+     * order of the nodes of the graph
+     */
+    public Map<V, Integer> connectedComponents() {
+        List<int[]> labels = run(ShardWorker::components);
+
+        int[] label = new int[graph.getNumberOfNodes()];
+        for (int s = 0; s < labels.size(); s++) {
+            for (int v = 0; v < labels.get(s).length; v++) {
+                label[workers.get(s).globalIdOf(v)] = labels.get(s)[v];
+            }
+        }
+        // Every label is the smallest id of its component, so components are numbered in order of appearance
+        int[] number = new int[label.length];
+        int components = 0;
+        HashMap<V, Integer> result = new HashMap<>();
+        for (int v = 0; v < label.length; v++) {
+            number[v] = label[v] == v ? components++ : number[label[v]];
+            result.put(graph.nodeOf(v), number[v]);
+        }
+        return result;
+    }
+
+    /**
+     * Closes the transports and stops the workers
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        for (ShardTransport transport : transports) {
+            try {
+                transport.close();
+            } catch (IOException ignored) {
+                // The shard is gone either way
+            }
+        }
+    }
+
+    /*
+     * Runs a task on every worker at once and waits for all of them
+     */
+    private <T> List<T> run(ShardTask<T> task) {
+        List<Future<T>> futures = new ArrayList<>(workers.size());
+        for (ShardWorker worker : workers) {
+            futures.add(executor.submit(() -> task.run(worker)));
+        }
+        List<T> results = new ArrayList<>(workers.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("A shard failed", e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the shards", e);
+        }
+        return results;
+    }
+
+    private interface ShardTask<T> {
+        T run(ShardWorker worker) throws IOException;
+    }
+}
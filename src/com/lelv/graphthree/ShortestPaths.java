@@ -0,0 +1,287 @@
+package com.lelv.graphthree;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Single source shortest paths over weighted compact graphs. Distances are returned in a double array indexed by
+ * the ids of the nodes, where unreachable nodes have a distance of Double.POSITIVE_INFINITY.
+ * <p>
+ * Delta-stepping groups the nodes in buckets of width delta by their tentative distance, and settles a whole bucket
+ * at a time relaxing its connections in parallel. Connections lighter than delta can put nodes back in the
+ * current bucket, so they are relaxed until the bucket is empty, while heavier connections are relaxed once per
+ * bucket. A small delta behaves like Dijkstra's algorithm, and a large one like Bellman-Ford.
+ *
+ * @see GraphFunctions#deltaStepping(AbstractGraph, Object)
+ * @see GraphFunctions#bellmanFord(AbstractGraph, Object)
+ */
+public class ShortestPaths {
+
+    private ShortestPaths() {
+    }
+
+    /**
+     * Calculates the shortest distance from the origin to every node with delta-stepping, choosing delta from the
+     * weights and the average degree of the graph. Falls back to Bellman-Ford if any weight is negative.
+     *
+     * @param graph  the weighted graph on which to apply the algorithm
+     * @param origin id of the node to take as root of the search
+     * @return the distance to every node from the root, or null if a negative cycle can be reached from the root
+     */
+    public static double[] deltaStepping(CompactGraph<?> graph, int origin) {
+        return deltaStepping(graph, origin, suggestDelta(graph));
+    }
+
+    /**
+     * Calculates the shortest distance from the origin to every node with delta-stepping. Falls back to
+     * Bellman-Ford if any weight is negative.
+     *
+     * @param graph  the weighted graph on which to apply the algorithm
+     * @param origin id of the node to take as root of the search
+     * @param delta  width of the distance buckets, must be positive
+     * @return the distance to every node from the root, or null if a negative cycle can be reached from the root
+     */
+    public static double[] deltaStepping(CompactGraph<?> graph, int origin, double delta) {
+        checkWeighted(graph);
+        if (!(delta > 0)) {
+            throw new IllegalArgumentException("delta must be positive");
+        }
+        double maxWeight = 0;
+        for (double weight : graph.weights) {
+            if (weight < 0) {
+                return bellmanFord(graph, origin);
+            }
+            maxWeight = Math.max(maxWeight, weight);
+        }
+        return new DeltaStepping(graph, delta, maxWeight).run(origin);
+    }
+
+    /**
+     * Calculates the shortest distance from the origin to every node with the Bellman-Ford algorithm. Unlike
+     * Dijkstra's algorithm and delta-stepping it accepts negative weights. Runs in O(V * E) in the worst case,
+     * stopping early once a round does not improve any distance.
+     *
+     * @param graph  the weighted graph on which to apply the algorithm
+     * @param origin id of the node to take as root of the search
+     * @return the distance to every node from the root, or null if a negative cycle can be reached from the root
+     */
+    public static double[] bellmanFord(CompactGraph<?> graph, int origin) {
+        checkWeighted(graph);
+        int n = graph.getNumberOfNodes();
+        double[] distance = new double[n];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        distance[origin] = 0.0;
+
+        for (int round = 0; round < n; round++) {
+            boolean changed = false;
+            for (int v = 0; v < n; v++) {
+                if (distance[v] == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                    double candidate = distance[v] + graph.weights[e];
+                    if (candidate < distance[graph.targets[e]]) {
+                        distance[graph.targets[e]] = candidate;
+                        changed = true;
+                    }
+                }
+            }
+            if (!changed) {
+                return distance;
+            }
+        }
+        // Still improving after n rounds
+        return null;
+    }
+
+    /**
+     * Suggests a bucket width for delta-stepping: the largest weight divided by the average degree, so that on
+     * average a node has about one light connection per bucket.
+     *
+     * @param graph the weighted graph
+     * @return a positive delta
+     */
+    public static double suggestDelta(CompactGraph<?> graph) {
+        checkWeighted(graph);
+        double maxWeight = 0;
+        for (double weight : graph.weights) {
+            maxWeight = Math.max(maxWeight, Math.abs(weight));
+        }
+        if (maxWeight == 0) {
+            return 1.0;
+        }
+        double averageDegree = (double) graph.getNumberOfConnections() / Math.max(1, graph.getNumberOfNodes());
+        return maxWeight / Math.max(1.0, averageDegree);
+    }
+
+    private static void checkWeighted(CompactGraph<?> graph) {
+        if (!graph.isWeighted()) {
+            throw new IllegalArgumentException("the graph has no weights, build it with CompactGraph.weighted");
+        }
+    }
+
+    private static class DeltaStepping {
+        private static final int MAX_BUCKETS = 1 << 20;
+        // Number of frontier nodes relaxed by each parallel task
+        private static final int CHUNK = 1 << 10;
+
+        private final int n;
+        private final double delta;
+        private final int[] offsets;
+        private final int[] lightEnd;
+        private final int[] targets;
+        private final double[] weights;
+
+        private final AtomicLongArray distance;
+        private final IntList[] buckets;
+        private final int[] inBucket;
+        private int pending;
+
+        DeltaStepping(CompactGraph<?> graph, double delta, double maxWeight) {
+            this.n = graph.getNumberOfNodes();
+            // Bounds the number of buckets that can hold nodes at the same time
+            this.delta = Math.max(delta, maxWeight / MAX_BUCKETS);
+            this.offsets = graph.offsets;
+            this.lightEnd = new int[n];
+            this.targets = new int[graph.targets.length];
+            this.weights = new double[graph.weights.length];
+
+            // Light connections first, so each kind is a contiguous range of the node
+            IntStream.range(0, n).parallel().forEach(v -> {
+                int light = offsets[v];
+                int heavy = offsets[v + 1];
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    int slot = graph.weights[e] <= this.delta ? light++ : --heavy;
+                    targets[slot] = graph.targets[e];
+                    weights[slot] = graph.weights[e];
+                }
+                lightEnd[v] = light;
+            });
+
+            this.distance = new AtomicLongArray(n);
+            // A relaxation from bucket k lands at most maxWeight / delta + 1 buckets ahead
+            this.buckets = new IntList[(int) Math.ceil(maxWeight / this.delta) + 2];
+            this.inBucket = new int[n];
+        }
+
+        double[] run(int origin) {
+            long infinity = Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+            for (int v = 0; v < n; v++) {
+                distance.set(v, infinity);
+            }
+            Arrays.fill(inBucket, -1);
+            distance.set(origin, Double.doubleToLongBits(0.0));
+            insert(origin);
+
+            long current = 0;
+            IntList settled = new IntList();
+            int[] settledMark = new int[n];
+            int phase = 0;
+            while (pending > 0) {
+                while (bucket(current).isEmpty()) {
+                    current++;
+                }
+                phase++;
+                settled.clear();
+                while (!bucket(current).isEmpty()) {
+                    IntList entries = bucket(current);
+                    IntList frontier = new IntList(entries.size());
+                    int slot = (int) (current % buckets.length);
+                    for (int i = 0; i < entries.size(); i++) {
+                        int v = entries.get(i);
+                        if (inBucket[v] == slot) {
+                            inBucket[v] = -1;
+                        }
+                        if (bucketOf(v) == current) {
+                            frontier.add(v);
+                            if (settledMark[v] != phase) {
+                                settledMark[v] = phase;
+                                settled.add(v);
+                            }
+                        }
+                    }
+                    pending -= entries.size();
+                    entries.clear();
+                    relax(frontier.toArray(), true);
+                }
+                relax(settled.toArray(), false);
+                current++;
+            }
+
+            double[] result = new double[n];
+            for (int v = 0; v < n; v++) {
+                result[v] = Double.longBitsToDouble(distance.get(v));
+            }
+            return result;
+        }
+
+        private void relax(int[] frontier, boolean light) {
+            int chunks = (frontier.length + CHUNK - 1) / CHUNK;
+            IntStream stream = IntStream.range(0, chunks);
+            if (chunks > 1) {
+                stream = stream.parallel();
+            }
+            List<IntList> improved = stream.mapToObj(chunk -> {
+                                               IntList local = new IntList();
+                                               int end = Math.min(frontier.length, (chunk + 1) * CHUNK);
+                                               for (int i = chunk * CHUNK; i < end; i++) {
+                                                   int v = frontier[i];
+                                                   double base = Double.longBitsToDouble(distance.get(v));
+                                                   int from = light ? offsets[v] : lightEnd[v];
+                                                   int to = light ? lightEnd[v] : offsets[v + 1];
+                                                   for (int e = from; e < to; e++) {
+                                                       if (decrease(targets[e], base + weights[e])) {
+                                                           local.add(targets[e]);
+                                                       }
+                                                   }
+                                               }
+                                               return local;
+                                           })
+                                           .collect(Collectors.toList());
+            for (IntList list : improved) {
+                for (int i = 0; i < list.size(); i++) {
+                    insert(list.get(i));
+                }
+            }
+        }
+
+        private boolean decrease(int w, double candidate) {
+            long bits = Double.doubleToLongBits(candidate);
+            while (true) {
+                long current = distance.get(w);
+                if (Double.longBitsToDouble(current) <= candidate) {
+                    return false;
+                }
+                if (distance.compareAndSet(w, current, bits)) {
+                    return true;
+                }
+            }
+        }
+
+        private void insert(int v) {
+            long index = bucketOf(v);
+            int slot = (int) (index % buckets.length);
+            if (inBucket[v] == slot) {
+                return;
+            }
+            inBucket[v] = slot;
+            bucket(index).add(v);
+            pending++;
+        }
+
+        private long bucketOf(int v) {
+            return (long) (Double.longBitsToDouble(distance.get(v)) / delta);
+        }
+
+        private IntList bucket(long index) {
+            int slot = (int) (index % buckets.length);
+            if (buckets[slot] == null) {
+                buckets[slot] = new IntList();
+            }
+            return buckets[slot];
+        }
+    }
+}
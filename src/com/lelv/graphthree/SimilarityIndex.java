@@ -0,0 +1,407 @@
+package com.lelv.graphthree;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Index that scores how similar two nodes are by the neighbors they share, as used for link prediction.
+ * <p>
+ * The neighbors of every node are kept as a sorted int array, so the common neighbors of two nodes are found by
+ * merging their arrays, or by galloping through the longer one when one node has many more neighbors than the
+ * other. Neighbors are the nodes a node is connected to, so in directed graphs two nodes share a neighbor when both
+ * are connected to it, and degrees are numbers of outgoing connections.
+ * <p>
+ * The most similar nodes to a node are searched among the nodes that share at least a neighbor with it. Each
+ * candidate gets an upper bound of its score from the degrees alone, candidates are scored from the highest bound
+ * down, and the search stops as soon as no bound left can beat the k-th best score found.
+ * <p>
+ * Every build is an immutable snapshot published at once, so any number of threads can query the index while it
+ * is rebuilt: they get the scores of the last snapshot published, never a mix of two. Only one thread rebuilds at
+ * a time. By default a query rebuilds the index first if the graph has changed since the last build, unless
+ * another thread is already rebuilding it, in which case it answers from the last snapshot. The graph is not
+ * thread-safe, so if it is modified while other threads query the index, create the index without rebuilds on
+ * query and call {@link #rebuild()} from the thread that modifies the graph, or while holding its write lock.
+ *
+ * @param <V> type of the nodes
+ */
+public class SimilarityIndex<V> {
+
+    /*
+     * Ratio of sizes from which intersections gallop through the longer array instead of merging
+     */
+    private static final int GALLOP_RATIO = 16;
+
+    public enum Measure {
+        /**
+         * Number of common neighbors
+         */
+        COMMON_NEIGHBORS,
+        /**
+         * Common neighbors over the neighbors of either node
+         */
+        JACCARD,
+        /**
+         * Common neighbors over the geometric mean of the degrees
+         */
+        COSINE,
+        /**
+         * Sum over the common neighbors of the inverse of the logarithm of their degrees. Neighbors with fewer than
+         * two connections are left out
+         */
+        ADAMIC_ADAR
+    }
+
+    private final AbstractGraph<V, ?> graph;
+    private final boolean rebuildOnQuery;
+    private final ReentrantLock rebuilding = new ReentrantLock();
+
+    private volatile Snapshot<V> snapshot;
+
+    /**
+     * Creates the index and builds it for the current state of the graph. Queries rebuild it when the graph changes
+     *
+     * @param graph the graph to index
+     */
+    public SimilarityIndex(AbstractGraph<V, ?> graph) {
+        this(graph, true);
+    }
+
+    /**
+     * Creates the index and builds it for the current state of the graph
+     *
+     * @param graph          the graph to index
+     * @param rebuildOnQuery true to let queries rebuild the index when the graph changes, false to only rebuild it
+     *                       through {@link #rebuild()}
+     */
+    public SimilarityIndex(AbstractGraph<V, ?> graph, boolean rebuildOnQuery) {
+        this.graph = graph;
+        this.rebuildOnQuery = rebuildOnQuery;
+        rebuild();
+    }
+
+    /**
+     * @return true if the graph has been modified since the index was last built
+     */
+    public boolean isStale() {
+        return snapshot.builtAt != graph.getModificationCount();
+    }
+
+    /**
+     * Builds the index again from the current state of the graph, waiting for any other rebuild to finish first
+     */
+    public void rebuild() {
+        rebuilding.lock();
+        try {
+            snapshot = new Snapshot<>(graph);
+        } finally {
+            rebuilding.unlock();
+        }
+    }
+
+    /**
+     * @param nodeA one of the nodes
+     * @param nodeB the other node
+     * @return the number of neighbors both nodes have, or 0 if either of them is not in the graph
+     */
+    public int commonNeighbors(V nodeA, V nodeB) {
+        return (int) score(nodeA, nodeB, Measure.COMMON_NEIGHBORS);
+    }
+
+    /**
+     * @param nodeA one of the nodes
+     * @param nodeB the other node
+     * @return the Jaccard similarity of the neighbors of both nodes, or 0 if either of them is not in the graph
+     * or neither has neighbors
+     */
+    public double jaccard(V nodeA, V nodeB) {
+        return score(nodeA, nodeB, Measure.JACCARD);
+    }
+
+    /**
+     * @param nodeA one of the nodes
+     * @param nodeB the other node
+     * @return the cosine similarity of the neighbors of both nodes, or 0 if either of them is not in the graph
+     * or has no neighbors
+     */
+    public double cosine(V nodeA, V nodeB) {
+        return score(nodeA, nodeB, Measure.COSINE);
+    }
+
+    /**
+     * @param nodeA one of the nodes
+     * @param nodeB the other node
+     * @return the Adamic-Adar index of both nodes, or 0 if either of them is not in the graph
+     */
+    public double adamicAdar(V nodeA, V nodeB) {
+        return score(nodeA, nodeB, Measure.ADAMIC_ADAR);
+    }
+
+    /**
+     * @param nodeA   one of the nodes
+     * @param nodeB   the other node
+     * @param measure the measure of similarity
+     * @return the similarity of both nodes, or 0 if either of them is not in the graph
+     */
+    public double score(V nodeA, V nodeB, Measure measure) {
+        Snapshot<V> current = current();
+        int a = current.compact.idOf(nodeA);
+        int b = current.compact.idOf(nodeB);
+        if (a == CompactGraph.NON_EXISTENT_ID || b == CompactGraph.NON_EXISTENT_ID) {
+            return 0;
+        }
+        return current.score(a, b, measure);
+    }
+
+    /**
+     * Finds the nodes most similar to a node, among those that share at least a neighbor with it
+     *
+     * @param node    the node to compare the rest to
+     * @param k       maximum number of nodes to find
+     * @param measure the measure of similarity
+     * @return a map whose keys are the most similar nodes, iterated from the most to the least similar, and whose
+     * values are their scores, or null if the node is not in the graph
+     * @throws IllegalArgumentException if k is negative
+     */
+    public Map<V, Double> mostSimilar(V node, int k, Measure measure) {
+        return mostSimilar(Collections.singletonList(node), k, measure).get(0);
+    }
+
+    /**
+     * Finds, for many nodes in parallel, the nodes most similar to them
+     *
+     * @param nodes   the nodes to compare the rest to
+     * @param k       maximum number of nodes to find for every node
+     * @param measure the measure of similarity
+     * @return for every node, in the same order, the result of {@link #mostSimilar(Object, int, Measure)}
+     * @throws IllegalArgumentException if k is negative
+     */
+    public List<Map<V, Double>> mostSimilar(List<V> nodes, int k, Measure measure) {
+        if (k < 0) {
+            throw new IllegalArgumentException("The number of nodes can not be negative");
+        }
+        Snapshot<V> current = current();
+        return IntStream.range(0, nodes.size()).parallel().mapToObj(i -> {
+            int u = current.compact.idOf(nodes.get(i));
+            return u == CompactGraph.NON_EXISTENT_ID ? null : current.mostSimilar(u, k, measure);
+        }).collect(Collectors.toList());
+    }
+
+    /*
+     * The last snapshot, rebuilt first if the graph has changed and no other thread is rebuilding it
+     */
+    private Snapshot<V> current() {
+        if (rebuildOnQuery && isStale() && rebuilding.tryLock()) {
+            try {
+                if (isStale()) {
+                    snapshot = new Snapshot<>(graph);
+                }
+            } finally {
+                rebuilding.unlock();
+            }
+        }
+        return snapshot;
+    }
+
+    /*
+     * The index for a state of the graph. Never modified once built
+     */
+    private static final class Snapshot<V> {
+
+        final int builtAt;
+        final CompactGraph<V> compact;
+        final CompactGraph<V> reverse;
+        // Neighbors of every node, sorted, over the offsets of the compact graph
+        final int[] adjacency;
+        // Contribution of every node to the Adamic-Adar score of the pairs it is a common neighbor of
+        final double[] inverseLogDegree;
+        final ThreadLocal<boolean[]> marks;
+
+        Snapshot(AbstractGraph<V, ?> graph) {
+            builtAt = graph.getModificationCount();
+            compact = CompactGraph.of(graph);
+            reverse = compact.transpose();
+            int n = compact.getNumberOfNodes();
+            adjacency = compact.targets.clone();
+            inverseLogDegree = new double[n];
+            for (int v = 0; v < n; v++) {
+                Arrays.sort(adjacency, compact.offsets[v], compact.offsets[v + 1]);
+                int degree = compact.outDegree(v);
+                inverseLogDegree[v] = degree < 2 ? 0 : 1 / Math.log(degree);
+            }
+            marks = ThreadLocal.withInitial(() -> new boolean[n]);
+        }
+
+        Map<V, Double> mostSimilar(int u, int k, Measure measure) {
+            // Candidates share a neighbor with u, so they are connected to one of the neighbors of u
+            boolean[] marked = marks.get();
+            IntList candidates = new IntList();
+            marked[u] = true;
+            for (int e = compact.offsets[u]; e < compact.offsets[u + 1]; e++) {
+                int z = compact.targets[e];
+                for (int f = reverse.offsets[z]; f < reverse.offsets[z + 1]; f++) {
+                    int w = reverse.targets[f];
+                    if (!marked[w]) {
+                        marked[w] = true;
+                        candidates.add(w);
+                    }
+                }
+            }
+            // Marks are kept by the thread for its next query
+            for (int i = 0; i < candidates.size(); i++) {
+                marked[candidates.get(i)] = false;
+            }
+            marked[u] = false;
+
+            double[] sums = adamicAdarBounds(u, measure);
+            double[] bound = new double[candidates.size()];
+            Integer[] order = new Integer[candidates.size()];
+            for (int i = 0; i < order.length; i++) {
+                bound[i] = upperBound(u, candidates.get(i), measure, sums);
+                order[i] = i;
+            }
+            Arrays.sort(order, (x, y) -> Double.compare(bound[y], bound[x]));
+
+            // Worst of the best k found at the head
+            PriorityQueue<double[]> top = new PriorityQueue<>(Math.max(1, Math.min(k, order.length)),
+                    (x, y) -> x[0] != y[0] ? Double.compare(x[0], y[0]) : Double.compare(y[1], x[1]));
+            for (int i : order) {
+                if (top.size() == k && (k == 0 || bound[i] < top.peek()[0])) {
+                    break;
+                }
+                int w = candidates.get(i);
+                double score = score(u, w, measure);
+                if (top.size() < k) {
+                    top.add(new double[]{score, w});
+                } else if (score > top.peek()[0] || (score == top.peek()[0] && w < top.peek()[1])) {
+                    top.poll();
+                    top.add(new double[]{score, w});
+                }
+            }
+
+            List<double[]> ranked = new ArrayList<>(top);
+            ranked.sort((x, y) -> x[0] != y[0] ? Double.compare(y[0], x[0]) : Double.compare(x[1], y[1]));
+            LinkedHashMap<V, Double> result = new LinkedHashMap<>();
+            for (double[] entry : ranked) {
+                result.put(compact.nodeOf((int) entry[1]), entry[0]);
+            }
+            return result;
+        }
+
+        /*
+         * For Adamic-Adar, the sums of the c largest contributions of the neighbors of u, for every c. A candidate
+         * shares at most min(degrees) neighbors with u, so it can not score more than the sum for that many
+         */
+        private double[] adamicAdarBounds(int u, Measure measure) {
+            if (measure != Measure.ADAMIC_ADAR) {
+                return null;
+            }
+            int from = compact.offsets[u];
+            int degree = compact.outDegree(u);
+            double[] contributions = new double[degree];
+            for (int i = 0; i < degree; i++) {
+                contributions[i] = inverseLogDegree[adjacency[from + i]];
+            }
+            Arrays.sort(contributions);
+            double[] sums = new double[degree + 1];
+            for (int i = 0; i < degree; i++) {
+                sums[i + 1] = sums[i] + contributions[degree - 1 - i];
+            }
+            return sums;
+        }
+
+        private double upperBound(int u, int w, Measure measure, double[] adamicAdar) {
+            int du = compact.outDegree(u);
+            int dw = compact.outDegree(w);
+            int shared = Math.min(du, dw);
+            switch (measure) {
+                case COMMON_NEIGHBORS:
+                    return shared;
+                case JACCARD:
+                    return shared / (double) Math.max(du, dw);
+                case COSINE:
+                    return shared / Math.sqrt((double) du * dw);
+                default:
+                    return adamicAdar[shared];
+            }
+        }
+
+        double score(int a, int b, Measure measure) {
+            int da = compact.outDegree(a);
+            int db = compact.outDegree(b);
+            if (measure == Measure.ADAMIC_ADAR) {
+                return intersect(a, b, inverseLogDegree);
+            }
+            double common = intersect(a, b, null);
+            switch (measure) {
+                case JACCARD:
+                    return da + db == 0 ? 0 : common / (da + db - common);
+                case COSINE:
+                    return da == 0 || db == 0 ? 0 : common / Math.sqrt((double) da * db);
+                default:
+                    return common;
+            }
+        }
+
+        /*
+         * Sum of the values of the common neighbors of both nodes, or their number if there are no values
+         */
+        private double intersect(int a, int b, double[] values) {
+            int aFrom = compact.offsets[a];
+            int aTo = compact.offsets[a + 1];
+            int bFrom = compact.offsets[b];
+            int bTo = compact.offsets[b + 1];
+            if (aTo - aFrom > bTo - bFrom) {
+                int swap = aFrom;
+                aFrom = bFrom;
+                bFrom = swap;
+                swap = aTo;
+                aTo = bTo;
+                bTo = swap;
+            }
+            double result = 0;
+            if ((long) (aTo - aFrom) * GALLOP_RATIO < bTo - bFrom) {
+                int position = bFrom;
+                for (int i = aFrom; i < aTo && position < bTo; i++) {
+                    position = gallop(adjacency[i], position, bTo);
+                    if (position < bTo && adjacency[position] == adjacency[i]) {
+                        result += values == null ? 1 : values[adjacency[i]];
+                        position++;
+                    }
+                }
+                return result;
+            }
+            int i = aFrom;
+            int j = bFrom;
+            while (i < aTo && j < bTo) {
+                if (adjacency[i] == adjacency[j]) {
+                    result += values == null ? 1 : values[adjacency[i]];
+                    i++;
+                    j++;
+                } else if (adjacency[i] < adjacency[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return result;
+        }
+
+        /*
+         * First position from low, up to high, whose value is not smaller than the one given, found by doubling the
+         * distance from low and then searching the last step
+         */
+        private int gallop(int value, int low, int high) {
+            if (low >= high || adjacency[low] >= value) {
+                return low;
+            }
+            int step = 1;
+            while (low + step < high && adjacency[low + step] < value) {
+                step <<= 1;
+            }
+            int index = Arrays.binarySearch(adjacency, low + (step >> 1) + 1, Math.min(low + step + 1, high), value);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
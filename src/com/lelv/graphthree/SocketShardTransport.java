@@ -0,0 +1,257 @@
+package com.lelv.graphthree;
+
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Transport between shards over TCP sockets, one connection for every pair of shards. Shards can run in different
+ * processes or machines with {@link #connect(int, List)}, or in the same process over the loopback interface with
+ * {@link #loopback(int)}.
+ * <p>
+ * Every batch is sent as its length followed by its ints. A thread per connection reads the incoming batches, so
+ * shards never block each other while sending.
+ */
+public class SocketShardTransport implements ShardTransport {
+
+    private static final int CONNECT_ATTEMPTS = 50;
+    private static final long CONNECT_RETRY_MILLIS = 100;
+
+    /*
+     * Put in an inbox when its connection fails
+     */
+    private static final int[] BROKEN = new int[0];
+
+    private final int shard;
+    private final Socket[] sockets;
+    private final DataOutputStream[] outputs;
+    private final List<BlockingQueue<int[]>> inboxes;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    private SocketShardTransport(int shard, Socket[] sockets, DataInputStream[] inputs) throws IOException {
+        this.shard = shard;
+        this.sockets = sockets;
+        this.outputs = new DataOutputStream[sockets.length];
+        this.inboxes = new ArrayList<>(sockets.length);
+        for (int j = 0; j < sockets.length; j++) {
+            inboxes.add(new LinkedBlockingQueue<>());
+            if (j == shard) {
+                continue;
+            }
+            outputs[j] = new DataOutputStream(new BufferedOutputStream(sockets[j].getOutputStream()));
+            Thread reader = new Thread(read(inputs[j], inboxes.get(j)), "shard-" + shard + "-reader-" + j);
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    /**
+     * Creates the endpoints of every shard, connected to each other over the loopback interface
+     *
+     * @param shards number of shards
+     * @return the endpoint of every shard, indexed by shard
+     * @throws UncheckedIOException if the sockets cannot be opened
+     */
+    public static List<ShardTransport> loopback(int shards) {
+        ServerSocket[] servers = new ServerSocket[shards];
+        try {
+            List<InetSocketAddress> addresses = new ArrayList<>(shards);
+            for (int i = 0; i < shards; i++) {
+                servers[i] = new ServerSocket(0, shards, InetAddress.getLoopbackAddress());
+                addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), servers[i].getLocalPort()));
+            }
+            // Every shard connects to the lower ones and accepts the higher ones. Bound sockets queue the
+            // connections until they are accepted, so opening from the highest shard down never blocks
+            SocketShardTransport[] transports = new SocketShardTransport[shards];
+            for (int i = shards - 1; i >= 0; i--) {
+                transports[i] = open(i, servers[i], addresses);
+            }
+            return List.<ShardTransport>of(transports);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            for (ServerSocket server : servers) {
+                closeQuietly(server);
+            }
+        }
+    }
+
+    /**
+     * Creates the endpoint of one shard, listening on its own address and connecting to every other shard. Every
+     * shard must call this method with the same list of addresses
+     *
+     * @param shard     the shard of the endpoint
+     * @param addresses address of every shard, indexed by shard
+     * @return the endpoint of the shard
+     * @throws IOException if the shard cannot listen on its address or cannot reach another shard
+     */
+    public static SocketShardTransport connect(int shard, List<InetSocketAddress> addresses) throws IOException {
+        try (ServerSocket server = new ServerSocket()) {
+            server.setReuseAddress(true);
+            server.bind(addresses.get(shard), addresses.size());
+            return open(shard, server, addresses);
+        }
+    }
+
+    /**
+     * Creates the endpoint of one shard that already listens on a socket, such as one bound to any free port whose
+     * port was then told to the other shards. The socket is left open
+     *
+     * @param shard     the shard of the endpoint
+     * @param server    socket the shard listens on, at the address of the shard in the list
+     * @param addresses address of every shard, indexed by shard
+     * @return the endpoint of the shard
+     * @throws IOException if another shard cannot be reached
+     */
+    public static SocketShardTransport connect(int shard, ServerSocket server, List<InetSocketAddress> addresses)
+            throws IOException {
+        return open(shard, server, addresses);
+    }
+
+    private static SocketShardTransport open(int shard, ServerSocket server, List<InetSocketAddress> addresses)
+            throws IOException {
+        int shards = addresses.size();
+        Socket[] sockets = new Socket[shards];
+        DataInputStream[] inputs = new DataInputStream[shards];
+        try {
+            for (int j = 0; j < shard; j++) {
+                sockets[j] = connect(addresses.get(j));
+                DataOutputStream output = new DataOutputStream(sockets[j].getOutputStream());
+                output.writeInt(shard);
+                output.flush();
+                inputs[j] = new DataInputStream(new BufferedInputStream(sockets[j].getInputStream()));
+            }
+            for (int accepted = shard + 1; accepted < shards; accepted++) {
+                Socket socket = server.accept();
+                DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                int peer = input.readInt();
+                if (peer <= shard || peer >= shards || sockets[peer] != null) {
+                    socket.close();
+                    throw new IOException("Unexpected connection from shard " + peer);
+                }
+                socket.setTcpNoDelay(true);
+                sockets[peer] = socket;
+                inputs[peer] = input;
+            }
+            return new SocketShardTransport(shard, sockets, inputs);
+        } catch (IOException e) {
+            for (Socket socket : sockets) {
+                closeQuietly(socket);
+            }
+            throw e;
+        }
+    }
+
+    /*
+     * Connects to an address, retrying for a while if nothing listens on it yet
+     */
+    static Socket connect(InetSocketAddress address) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            Socket socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.connect(address);
+                return socket;
+            } catch (ConnectException e) {
+                socket.close();
+                if (attempt == CONNECT_ATTEMPTS) {
+                    throw e;
+                }
+            }
+            try {
+                Thread.sleep(CONNECT_RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while connecting to " + address);
+            }
+        }
+    }
+
+    private Runnable read(DataInputStream input, BlockingQueue<int[]> inbox) {
+        return () -> {
+            try {
+                while (true) {
+                    int length = input.readInt();
+                    byte[] bytes = new byte[length * Integer.BYTES];
+                    input.readFully(bytes);
+                    int[] batch = new int[length];
+                    ByteBuffer.wrap(bytes).asIntBuffer().get(batch);
+                    inbox.add(batch);
+                }
+            } catch (IOException e) {
+                if (!closed) {
+                    failure = e;
+                }
+                inbox.add(BROKEN);
+            }
+        };
+    }
+
+    @Override
+    public int getShard() {
+        return shard;
+    }
+
+    @Override
+    public int getNumberOfShards() {
+        return sockets.length;
+    }
+
+    @Override
+    public int[][] exchange(int[][] outgoing) throws IOException {
+        int shards = sockets.length;
+        for (int j = 0; j < shards; j++) {
+            if (j == shard) {
+                continue;
+            }
+            byte[] bytes = new byte[outgoing[j].length * Integer.BYTES];
+            ByteBuffer.wrap(bytes).asIntBuffer().put(outgoing[j]);
+            outputs[j].writeInt(outgoing[j].length);
+            outputs[j].write(bytes);
+            outputs[j].flush();
+        }
+
+        int[][] incoming = new int[shards][];
+        incoming[shard] = outgoing[shard];
+        try {
+            for (int j = 0; j < shards; j++) {
+                if (j == shard) {
+                    continue;
+                }
+                incoming[j] = inboxes.get(j).take();
+                if (incoming[j] == BROKEN) {
+                    inboxes.get(j).add(BROKEN);
+                    throw failure != null ? failure : new IOException("The transport is closed");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while exchanging messages");
+        }
+        return incoming;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Socket socket : sockets) {
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Nothing left to do with it
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.Graph;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Minimum spanning forest of an undirected weighted graph: the set of connections with the smallest total weight
+ * that keeps every pair of connected nodes connected. On a connected graph it is a single minimum spanning tree,
+ * and on a disconnected graph it has one tree per component.
+ * <p>
+ * Ties between connections of the same weight are broken by the order in which the connections were found in the
+ * graph, so every algorithm returns a forest with the same total weight.
+ *
+ * @param <V> type of the nodes
+ * @param <E> type of the connections
+ */
+public class SpanningForest<V, E extends WeightedEdge> {
+
+    private final List<V> nodes;
+    private final List<Connection<V, E>> connections;
+    private final double totalWeight;
+
+    private SpanningForest(List<V> nodes, List<Connection<V, E>> connections, double totalWeight) {
+        this.nodes = nodes;
+        this.connections = Collections.unmodifiableList(connections);
+        this.totalWeight = totalWeight;
+    }
+
+    /**
+     * Finds the minimum spanning forest with Kruskal's algorithm: connections are sorted by weight in parallel and
+     * taken in order whenever they join two different trees, which a union-find structure keeps track of.
+     * Runs in O(E log E)
+     *
+     * @param graph the graph on which to apply the algorithm
+     * @return the minimum spanning forest of the graph
+     */
+    public static <V, E extends WeightedEdge> SpanningForest<V, E> kruskal(Graph<V, E> graph) {
+        EdgeList<V, E> edges = new EdgeList<>(graph);
+        Integer[] order = new Integer[edges.size()];
+        for (int e = 0; e < order.length; e++) {
+            order[e] = e;
+        }
+        Arrays.parallelSort(order, edges::compare);
+
+        UnionFind trees = new UnionFind(edges.nodes.size());
+        IntList chosen = new IntList();
+        for (int e : order) {
+            if (trees.union(edges.origin[e], edges.destination[e])) {
+                chosen.add(e);
+            }
+        }
+        return edges.forest(chosen);
+    }
+
+    /**
+     * Finds the minimum spanning forest with Prim's algorithm: each tree grows from a root by adding the lightest
+     * connection that leaves it, kept in an indexed binary heap. Runs in O(E log V), and is the better choice for
+     * dense graphs
+     *
+     * @param graph the graph on which to apply the algorithm
+     * @return the minimum spanning forest of the graph
+     */
+    public static <V, E extends WeightedEdge> SpanningForest<V, E> prim(Graph<V, E> graph) {
+        EdgeList<V, E> edges = new EdgeList<>(graph);
+        int n = edges.nodes.size();
+
+        // Adjacency of every node as (neighbor, connection) pairs
+        int[] offsets = new int[n + 1];
+        for (int e = 0; e < edges.size(); e++) {
+            offsets[edges.origin[e] + 1]++;
+            offsets[edges.destination[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] position = Arrays.copyOf(offsets, n);
+        int[] neighbors = new int[2 * edges.size()];
+        int[] connections = new int[2 * edges.size()];
+        for (int e = 0; e < edges.size(); e++) {
+            neighbors[position[edges.origin[e]]] = edges.destination[e];
+            connections[position[edges.origin[e]]++] = e;
+            neighbors[position[edges.destination[e]]] = edges.origin[e];
+            connections[position[edges.destination[e]]++] = e;
+        }
+
+        boolean[] inTree = new boolean[n];
+        int[] best = new int[n];
+        Arrays.fill(best, -1);
+        IndexedHeap heap = new IndexedHeap(n);
+        IntList chosen = new IntList();
+        for (int root = 0; root < n; root++) {
+            if (inTree[root]) {
+                continue;
+            }
+            heap.push(root, Double.NEGATIVE_INFINITY);
+            while (!heap.isEmpty()) {
+                int v = heap.poll();
+                inTree[v] = true;
+                if (best[v] != -1) {
+                    chosen.add(best[v]);
+                }
+                for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                    int w = neighbors[slot];
+                    int e = connections[slot];
+                    if (!inTree[w] && (best[w] == -1 || edges.compare(e, best[w]) < 0)) {
+                        best[w] = e;
+                        heap.push(w, edges.weight[e]);
+                    }
+                }
+            }
+        }
+        return edges.forest(chosen);
+    }
+
+    /**
+     * Finds the minimum spanning forest with Borůvka's algorithm: on every round each tree picks the lightest
+     * connection that leaves it, all trees in parallel, and the picked connections merge them. The number of trees
+     * at least halves on every round, so there are at most log V rounds of O(E) parallel work, which suits very
+     * large graphs
+     *
+     * @param graph the graph on which to apply the algorithm
+     * @return the minimum spanning forest of the graph
+     */
+    public static <V, E extends WeightedEdge> SpanningForest<V, E> boruvka(Graph<V, E> graph) {
+        EdgeList<V, E> edges = new EdgeList<>(graph);
+        int n = edges.nodes.size();
+        UnionFind trees = new UnionFind(n);
+        IntList chosen = new IntList();
+
+        int[] alive = IntStream.range(0, edges.size()).toArray();
+        int[] tree = new int[n];
+        while (alive.length > 0) {
+            for (int v = 0; v < n; v++) {
+                tree[v] = trees.find(v);
+            }
+            AtomicIntegerArray lightest = new AtomicIntegerArray(n);
+            for (int v = 0; v < n; v++) {
+                lightest.set(v, -1);
+            }
+            IntStream.of(alive).parallel().forEach(e -> {
+                offer(lightest, tree[edges.origin[e]], e, edges);
+                offer(lightest, tree[edges.destination[e]], e, edges);
+            });
+            for (int t = 0; t < n; t++) {
+                int e = lightest.get(t);
+                if (e != -1 && trees.union(edges.origin[e], edges.destination[e])) {
+                    chosen.add(e);
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                tree[v] = trees.find(v);
+            }
+            alive = IntStream.of(alive)
+                             .parallel()
+                             .filter(e -> tree[edges.origin[e]] != tree[edges.destination[e]])
+                             .toArray();
+        }
+        return edges.forest(chosen);
+    }
+
+    private static void offer(AtomicIntegerArray lightest, int tree, int e, EdgeList<?, ?> edges) {
+        while (true) {
+            int current = lightest.get(tree);
+            if (current != -1 && edges.compare(current, e) <= 0) {
+                return;
+            }
+            if (lightest.compareAndSet(tree, current, e)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the connections of the forest
+     */
+    public List<Connection<V, E>> getConnections() {
+        return connections;
+    }
+
+    /**
+     * @return the sum of the weights of the connections of the forest
+     */
+    public double getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * @return the number of trees in the forest, which equals the number of components of the graph
+     */
+    public int getNumberOfTrees() {
+        return nodes.size() - connections.size();
+    }
+
+    /**
+     * @return a new graph with every node of the original graph and only the connections of the forest
+     */
+    public Graph<V, E> toGraph() {
+        Graph<V, E> result = new Graph<>();
+        nodes.forEach(result::addNode);
+        connections.forEach(c -> result.connectNodes(c.originNode, c.destinationNode, c.connection));
+        return result;
+    }
+
+    /*
+     * Every undirected connection of the graph once, numbered in the order they are found
+     */
+    private static class EdgeList<V, E extends WeightedEdge> {
+        final List<V> nodes;
+        final int[] origin;
+        final int[] destination;
+        final double[] weight;
+        final List<E> payload;
+
+        EdgeList(Graph<V, E> graph) {
+            List<AbstractGraph<V, E>.Vertex> vertices = graph.getVertices();
+            Map<V, Integer> ids = new HashMap<>(vertices.size() * 2);
+            nodes = new ArrayList<>(vertices.size());
+            for (AbstractGraph<V, E>.Vertex vertex : vertices) {
+                ids.put(vertex.node, nodes.size());
+                nodes.add(vertex.node);
+            }
+
+            IntList origins = new IntList();
+            IntList destinations = new IntList();
+            payload = new ArrayList<>();
+            for (int v = 0; v < vertices.size(); v++) {
+                for (AbstractGraph<V, E>.Edge edge : vertices.get(v).edges) {
+                    int w = ids.get(edge.destination.node);
+                    if (v < w) {
+                        origins.add(v);
+                        destinations.add(w);
+                        payload.add(edge.connection);
+                    }
+                }
+            }
+            origin = origins.toArray();
+            destination = destinations.toArray();
+            weight = new double[origin.length];
+            for (int e = 0; e < origin.length; e++) {
+                weight[e] = payload.get(e).getWeight().doubleValue();
+            }
+        }
+
+        int size() {
+            return origin.length;
+        }
+
+        int compare(int a, int b) {
+            int byWeight = Double.compare(weight[a], weight[b]);
+            return byWeight != 0 ? byWeight : Integer.compare(a, b);
+        }
+
+        SpanningForest<V, E> forest(IntList chosen) {
+            List<Connection<V, E>> connections = new ArrayList<>(chosen.size());
+            double total = 0;
+            for (int i = 0; i < chosen.size(); i++) {
+                int e = chosen.get(i);
+                connections.add(new Connection<>(nodes.get(origin[e]), nodes.get(destination[e]), payload.get(e)));
+                total += weight[e];
+            }
+            return new SpanningForest<>(nodes, connections, total);
+        }
+    }
+
+    private static class UnionFind {
+        private final int[] parent;
+        private final int[] size;
+
+        UnionFind(int n) {
+            parent = new int[n];
+            size = new int[n];
+            for (int v = 0; v < n; v++) {
+                parent[v] = v;
+                size[v] = 1;
+            }
+        }
+
+        int find(int v) {
+            while (parent[v] != v) {
+                parent[v] = parent[parent[v]];
+                v = parent[v];
+            }
+            return v;
+        }
+
+        boolean union(int a, int b) {
+            a = find(a);
+            b = find(b);
+            if (a == b) {
+                return false;
+            }
+            if (size[a] < size[b]) {
+                int swap = a;
+                a = b;
+                b = swap;
+            }
+            parent[b] = a;
+            size[a] += size[b];
+            return true;
+        }
+    }
+
+    /*
+     * Binary min-heap of node ids with decrease-key
+     */
+    private static class IndexedHeap {
+        private final int[] heap;
+        private final int[] position;
+        private final double[] key;
+        private int size;
+
+        IndexedHeap(int n) {
+            heap = new int[n];
+            position = new int[n];
+            key = new double[n];
+            Arrays.fill(position, -1);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(int v, double value) {
+            if (position[v] == -1) {
+                heap[size] = v;
+                position[v] = size++;
+            }
+            key[v] = value;
+            up(position[v]);
+        }
+
+        int poll() {
+            int top = heap[0];
+            position[top] = -1;
+            if (--size > 0) {
+                heap[0] = heap[size];
+                position[heap[0]] = 0;
+                down(0);
+            }
+            return top;
+        }
+
+        private void up(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (key[heap[parent]] <= key[heap[i]]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void down(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && key[heap[left]] < key[heap[smallest]]) {
+                    smallest = left;
+                }
+                if (right < size && key[heap[right]] < key[heap[smallest]]) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int a = heap[i];
+            heap[i] = heap[j];
+            heap[j] = a;
+            position[heap[i]] = i;
+            position[heap[j]] = j;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.lelv.graphthree;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Dictionary that interns strings into dense int ids, from 0 to size() - 1, in the order they are first added,
+ * and turns the ids back into strings. It is meant for graphs with many string keyed nodes, where a map from keys
+ * to objects costs far more than the keys themselves.
+ * <p>
+ * Nothing is stored per key but primitives: every key is written once as UTF-8, preceded by its length, into a
+ * shared arena of byte pages, and the id of a key only remembers where its bytes start. Lookups go through an
+ * open addressing hash table of ids with linear probing, which compares the bytes in the arena directly. Every
+ * key takes its UTF-8 bytes plus 14 to 20 bytes of bookkeeping, instead of the String, the map entry and the
+ * Vertex that a graph keeps otherwise.
+ * <p>
+ * Keys can not be removed, and null is never a key. The dictionary is not thread safe.
+ *
+ * @see CompactGraph#fromEdges(StringDictionary, int[], int[])
+ */
+public class StringDictionary {
+
+    public static final int NON_EXISTENT_ID = -1;
+
+    /*
+     * Pages of the arena grow by doubling up to this size, and every following page is allocated at this size
+     */
+    private static final int PAGE_SIZE = 1 << 24;
+    private static final int FIRST_PAGE_SIZE = 1 << 10;
+    private static final int ADDRESS_PAGE_BITS = 16;
+    private static final int ADDRESS_PAGE_SIZE = 1 << ADDRESS_PAGE_BITS;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private byte[][] pages = new byte[1][FIRST_PAGE_SIZE];
+    private int page;
+    private int position;
+
+    // Address of the bytes of every id, as the page in the high half and the position in the low half
+    private long[][] addresses = new long[1][];
+
+    // Id + 1 of the key in every slot, 0 for empty slots
+    private int[] table = new int[16];
+    private int size;
+
+    /**
+     * @return the number of keys in the dictionary
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the id of a key, adding the key to the dictionary if it is not in it yet
+     *
+     * @param key the key to intern
+     * @return the id of the key
+     * @throws NullPointerException if the key is null
+     */
+    public int intern(String key) {
+        Objects.requireNonNull(key, "The key can not be null");
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int mask = table.length - 1;
+        int slot = hash(bytes, 0, bytes.length) & mask;
+        while (table[slot] != 0) {
+            if (matches(table[slot] - 1, bytes)) {
+                return table[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = size++;
+        setAddress(id, write(bytes));
+        table[slot] = id + 1;
+        if ((long) size * 4 > (long) table.length * 3) {
+            grow();
+        }
+        return id;
+    }
+
+    /**
+     * @param key the key to look for
+     * @return the id of the key, or {@link #NON_EXISTENT_ID} if the key is not in the dictionary
+     * @throws NullPointerException if the key is null
+     */
+    public int idOf(String key) {
+        Objects.requireNonNull(key, "The key can not be null");
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int mask = table.length - 1;
+        int slot = hash(bytes, 0, bytes.length) & mask;
+        while (table[slot] != 0) {
+            if (matches(table[slot] - 1, bytes)) {
+                return table[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NON_EXISTENT_ID;
+    }
+
+    /**
+     * @param key the key to look for
+     * @return true if the key is in the dictionary, false otherwise
+     * @throws NullPointerException if the key is null
+     */
+    public boolean contains(String key) {
+        return idOf(key) != NON_EXISTENT_ID;
+    }
+
+    /**
+     * @param id the id of a key
+     * @return the key with the given id
+     * @throws IndexOutOfBoundsException if no key has the id
+     */
+    public String keyOf(int id) {
+        Objects.checkIndex(id, size);
+        long address = getAddress(id);
+        byte[] bytes = pages[(int) (address >>> 32)];
+        int start = skipLength(bytes, (int) address);
+        return new String(bytes, start, lengthAt(bytes, (int) address), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the number of bytes taken by the arrays of the dictionary, allocated or not yet used
+     */
+    public long getMemoryUsage() {
+        long bytes = (long) table.length * Integer.BYTES;
+        for (byte[] p : pages) {
+            bytes += p == null ? 0 : p.length;
+        }
+        for (long[] p : addresses) {
+            bytes += p == null ? 0 : (long) p.length * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    /*
+     * Writes the length and the bytes of a key at the end of the arena and returns where they start
+     */
+    private long write(byte[] key) {
+        int needed = key.length + 5;
+        byte[] current = pages[page];
+        if (position + needed > current.length) {
+            if (current.length < PAGE_SIZE && position + needed <= PAGE_SIZE) {
+                int length = current.length;
+                while (length < position + needed) {
+                    length *= 2;
+                }
+                current = Arrays.copyOf(current, Math.min(length, PAGE_SIZE));
+            } else {
+                current = new byte[Math.max(PAGE_SIZE, needed)];
+                page++;
+                position = 0;
+                if (page == pages.length) {
+                    pages = Arrays.copyOf(pages, pages.length * 2);
+                }
+            }
+            pages[page] = current;
+        }
+
+        long address = ((long) page << 32) | position;
+        int length = key.length;
+        while ((length & ~0x7F) != 0) {
+            current[position++] = (byte) ((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        current[position++] = (byte) length;
+        System.arraycopy(key, 0, current, position, key.length);
+        position += key.length;
+        return address;
+    }
+
+    private boolean matches(int id, byte[] key) {
+        long address = getAddress(id);
+        byte[] bytes = pages[(int) (address >>> 32)];
+        int start = skipLength(bytes, (int) address);
+        int length = lengthAt(bytes, (int) address);
+        return length == key.length && Arrays.equals(bytes, start, start + length, key, 0, length);
+    }
+
+    private void grow() {
+        if (table.length == MAX_CAPACITY) {
+            throw new IllegalStateException("The dictionary is full");
+        }
+        int[] grown = new int[table.length * 2];
+        int mask = grown.length - 1;
+        for (int id = 0; id < size; id++) {
+            long address = getAddress(id);
+            byte[] bytes = pages[(int) (address >>> 32)];
+            int start = skipLength(bytes, (int) address);
+            int slot = hash(bytes, start, start + lengthAt(bytes, (int) address)) & mask;
+            while (grown[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            grown[slot] = id + 1;
+        }
+        table = grown;
+    }
+
+    /*
+     * Lengths are written 7 bits per byte, lowest bits first, with the high bit set on all bytes but the last
+     */
+    private static int lengthAt(byte[] bytes, int position) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return length;
+    }
+
+    private static int skipLength(byte[] bytes, int position) {
+        while (bytes[position] < 0) {
+            position++;
+        }
+        return position + 1;
+    }
+
+    private long getAddress(int id) {
+        return addresses[id >>> ADDRESS_PAGE_BITS][id & (ADDRESS_PAGE_SIZE - 1)];
+    }
+
+    private void setAddress(int id, long address) {
+        int outer = id >>> ADDRESS_PAGE_BITS;
+        if (outer == addresses.length) {
+            addresses = Arrays.copyOf(addresses, addresses.length * 2);
+        }
+        long[] inner = addresses[outer];
+        int index = id & (ADDRESS_PAGE_SIZE - 1);
+        if (inner == null) {
+            // Only the first page grows gradually, so that small dictionaries stay small
+            inner = new long[outer == 0 ? 16 : ADDRESS_PAGE_SIZE];
+            addresses[outer] = inner;
+        } else if (index == inner.length) {
+            inner = Arrays.copyOf(inner, inner.length * 2);
+            addresses[outer] = inner;
+        }
+        inner[index] = address;
+    }
+
+    /*
+     * FNV-1a over the bytes, with a final mix so that the low bits used as slot depend on every byte
+     */
+    private static int hash(byte[] bytes, int from, int to) {
+        int hash = 0x811C9DC5;
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ (bytes[i] & 0xFF)) * 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,423 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.DirectedGraph;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Decomposition of a directed graph into its strongly connected components. A strongly connected component is a
+ * maximal set of nodes in which every node can be reached from every other node.
+ * <p>
+ * Components are identified by dense ids from 0 to getNumberOfComponents() - 1. The sequential decomposition
+ * ({@link #of(CompactGraph)}) numbers them in reverse topological order: a connection between two different
+ * components always goes from the higher id to the lower one. The parallel decomposition
+ * ({@link #parallel(CompactGraph)}) finds the same components, but gives no guarantee about their numbering.
+ *
+ * @param <V> type of the nodes
+ */
+public class StronglyConnectedComponents<V> {
+
+    public static final int NON_EXISTENT_COMPONENT = -1;
+
+    /*
+     * Below this number of nodes the parallel decomposition hands the remaining nodes to Tarjan's algorithm
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+
+    /*
+     * Trimming removes a layer of sources and sinks per round. Long chains are left to the coloring step
+     */
+    private static final int TRIM_ROUNDS = 4;
+
+    private final CompactGraph<V> graph;
+    final int[] component;
+    private final int count;
+
+    private StronglyConnectedComponents(CompactGraph<V> graph, int[] component, int count) {
+        this.graph = graph;
+        this.component = component;
+        this.count = count;
+    }
+
+    /**
+     * Calculates the strongly connected components of a graph with an iterative version of Tarjan's algorithm.
+     * Runs in O(V + E)
+     *
+     * @param graph the graph on which to apply the algorithm
+     * @return the components of the graph
+     */
+    public static <V, E> StronglyConnectedComponents<V> of(DirectedGraph<V, E> graph) {
+        return of(CompactGraph.of(graph));
+    }
+
+    /**
+     * Calculates the strongly connected components of a graph with an iterative version of Tarjan's algorithm.
+     * Runs in O(V + E)
+     *
+     * @param graph the graph on which to apply the algorithm
+     * @return the components of the graph
+     */
+    public static <V> StronglyConnectedComponents<V> of(CompactGraph<V> graph) {
+        int[] component = new int[graph.getNumberOfNodes()];
+        int count = tarjan(graph, null, component, 0);
+        return new StronglyConnectedComponents<>(graph, component, count);
+    }
+
+    /**
+     * Calculates the strongly connected components of a graph using every available core. Sources and sinks are
+     * trimmed first, then the component of a high degree pivot is found with a forward-backward search, and the
+     * rest of the nodes are split by propagating colors along the connections. Once few nodes remain, they are
+     * handed to Tarjan's algorithm.
+     *
+     * @param graph the graph on which to apply the algorithm
+     * @return the components of the graph
+     */
+    public static <V, E> StronglyConnectedComponents<V> parallel(DirectedGraph<V, E> graph) {
+        return parallel(CompactGraph.of(graph));
+    }
+
+    /**
+     * Calculates the strongly connected components of a graph using every available core. Sources and sinks are
+     * trimmed first, then the component of a high degree pivot is found with a forward-backward search, and the
+     * rest of the nodes are split by propagating colors along the connections. Once few nodes remain, they are
+     * handed to Tarjan's algorithm.
+     *
+     * @param graph the graph on which to apply the algorithm
+     * @return the components of the graph
+     */
+    public static <V> StronglyConnectedComponents<V> parallel(CompactGraph<V> graph) {
+        return parallel(graph, SEQUENTIAL_THRESHOLD);
+    }
+
+    static <V> StronglyConnectedComponents<V> parallel(CompactGraph<V> graph, int sequentialThreshold) {
+        int n = graph.getNumberOfNodes();
+        int[] component = new int[n];
+        Arrays.fill(component, NON_EXISTENT_COMPONENT);
+        AtomicInteger count = new AtomicInteger();
+        CompactGraph<V> reverse = graph.transpose();
+
+        int[] active = IntStream.range(0, n).toArray();
+        active = trim(graph, reverse, active, component, count);
+        if (active.length > sequentialThreshold) {
+            forwardBackward(graph, reverse, active, component, count);
+            active = remaining(active, component);
+        }
+        while (active.length > sequentialThreshold) {
+            coloring(graph, reverse, active, component, count);
+            active = trim(graph, reverse, remaining(active, component), component, count);
+        }
+        if (active.length > 0) {
+            boolean[] mask = new boolean[n];
+            for (int v : active) {
+                mask[v] = true;
+            }
+            count.set(tarjan(graph, mask, component, count.get()));
+        }
+        return new StronglyConnectedComponents<>(graph, component, count.get());
+    }
+
+    /**
+     * @return the number of strongly connected components
+     */
+    public int getNumberOfComponents() {
+        return count;
+    }
+
+    /**
+     * @param node the node to look for
+     * @return the id of the component the node belongs to, or NON_EXISTENT_COMPONENT if the node is not in the graph
+     */
+    public int componentOf(V node) {
+        int id = graph.idOf(node);
+        return id == CompactGraph.NON_EXISTENT_ID ? NON_EXISTENT_COMPONENT : component[id];
+    }
+
+    /**
+     * @param id id of the node in the compact graph
+     * @return the id of the component the node belongs to
+     */
+    public int componentOfId(int id) {
+        return component[id];
+    }
+
+    /**
+     * @return a map whose keys are the nodes, and whose values are the ids of their components
+     */
+    public Map<V, Integer> getComponentMap() {
+        Map<V, Integer> result = new LinkedHashMap<>(graph.getNumberOfNodes() * 2);
+        for (int v = 0; v < component.length; v++) {
+            result.put(graph.nodeOf(v), component[v]);
+        }
+        return result;
+    }
+
+    /**
+     * @return a list with the nodes of every component, indexed by the id of the component
+     */
+    public List<List<V>> getComponents() {
+        List<List<V>> result = new ArrayList<>(count);
+        for (int c = 0; c < count; c++) {
+            result.add(new ArrayList<>());
+        }
+        for (int v = 0; v < component.length; v++) {
+            result.get(component[v]).add(graph.nodeOf(v));
+        }
+        return result;
+    }
+
+    /**
+     * Builds the condensation of the graph: a directed acyclic graph with one node per component, whose node ids
+     * are the component ids, and a connection between two components whenever a node of the first one is
+     * connected to a node of the second one. Parallel connections are merged and no component is connected to itself.
+     *
+     * @return the condensation of the graph
+     */
+    public CompactGraph<Integer> condensation() {
+        int n = component.length;
+        int[] sizes = new int[count + 1];
+        for (int v = 0; v < n; v++) {
+            sizes[component[v] + 1]++;
+        }
+        for (int c = 0; c < count; c++) {
+            sizes[c + 1] += sizes[c];
+        }
+        int[] members = new int[n];
+        int[] position = Arrays.copyOf(sizes, count);
+        for (int v = 0; v < n; v++) {
+            members[position[component[v]]++] = v;
+        }
+
+        int[] offsets = new int[count + 1];
+        int[] targets = new int[graph.getNumberOfConnections()];
+        int[] seen = new int[count];
+        Arrays.fill(seen, -1);
+        int size = 0;
+        for (int c = 0; c < count; c++) {
+            seen[c] = c;
+            for (int m = sizes[c]; m < sizes[c + 1]; m++) {
+                int v = members[m];
+                for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                    int d = component[graph.targets[e]];
+                    if (seen[d] != c) {
+                        seen[d] = c;
+                        targets[size++] = d;
+                    }
+                }
+            }
+            offsets[c + 1] = size;
+        }
+        return CompactGraph.ofIds(offsets, Arrays.copyOf(targets, size));
+    }
+
+    /*
+     * Iterative Tarjan over the nodes allowed by the mask (every node if the mask is null). Components are numbered
+     * starting from first, and the number after the last assigned component is returned.
+     */
+    private static int tarjan(CompactGraph<?> graph, boolean[] mask, int[] component, int first) {
+        int n = graph.getNumberOfNodes();
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] next = new int[n];
+        int[] callStack = new int[n];
+        int[] sccStack = new int[n];
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(index, -1);
+
+        int counter = 0;
+        int count = first;
+        for (int root = 0; root < n; root++) {
+            if (index[root] != -1 || (mask != null && !mask[root])) {
+                continue;
+            }
+            int callTop = 0;
+            int sccTop = 0;
+            callStack[callTop++] = root;
+            index[root] = low[root] = counter++;
+            next[root] = offsets[root];
+            sccStack[sccTop++] = root;
+            onStack[root] = true;
+
+            while (callTop > 0) {
+                int v = callStack[callTop - 1];
+                if (next[v] < offsets[v + 1]) {
+                    int w = targets[next[v]++];
+                    if (mask != null && !mask[w]) {
+                        continue;
+                    }
+                    if (index[w] == -1) {
+                        index[w] = low[w] = counter++;
+                        next[w] = offsets[w];
+                        sccStack[sccTop++] = w;
+                        onStack[w] = true;
+                        callStack[callTop++] = w;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                } else {
+                    callTop--;
+                    if (low[v] == index[v]) {
+                        int w;
+                        do {
+                            w = sccStack[--sccTop];
+                            onStack[w] = false;
+                            component[w] = count;
+                        } while (w != v);
+                        count++;
+                    }
+                    if (callTop > 0) {
+                        int parent = callStack[callTop - 1];
+                        low[parent] = Math.min(low[parent], low[v]);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /*
+     * A node without incoming or outgoing connections from unassigned nodes is a component by itself
+     */
+    private static int[] trim(CompactGraph<?> graph, CompactGraph<?> reverse, int[] active,
+                              int[] component, AtomicInteger count) {
+        for (int round = 0; round < TRIM_ROUNDS && active.length > 0; round++) {
+            int[] trimmed = IntStream.of(active)
+                                     .parallel()
+                                     .filter(v -> !hasActiveNeighbor(graph, v, component)
+                                             || !hasActiveNeighbor(reverse, v, component))
+                                     .toArray();
+            if (trimmed.length == 0) {
+                break;
+            }
+            int first = count.getAndAdd(trimmed.length);
+            IntStream.range(0, trimmed.length)
+                     .parallel()
+                     .forEach(i -> component[trimmed[i]] = first + i);
+            active = remaining(active, component);
+        }
+        return active;
+    }
+
+    private static boolean hasActiveNeighbor(CompactGraph<?> graph, int v, int[] component) {
+        for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+            int w = graph.targets[e];
+            if (w != v && component[w] == NON_EXISTENT_COMPONENT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * The component of the pivot is the intersection of the nodes it reaches and the nodes that reach it
+     */
+    private static void forwardBackward(CompactGraph<?> graph, CompactGraph<?> reverse, int[] active,
+                                        int[] component, AtomicInteger count) {
+        int pivot = active[0];
+        long best = -1;
+        for (int v : active) {
+            long degree = (long) graph.outDegree(v) * reverse.outDegree(v);
+            if (degree > best) {
+                best = degree;
+                pivot = v;
+            }
+        }
+
+        AtomicIntegerArray forward = new AtomicIntegerArray(graph.getNumberOfNodes());
+        AtomicIntegerArray backward = new AtomicIntegerArray(graph.getNumberOfNodes());
+        parallelSearch(graph, pivot, forward, component);
+        parallelSearch(reverse, pivot, backward, component);
+
+        int id = count.getAndIncrement();
+        IntStream.of(active)
+                 .parallel()
+                 .filter(v -> forward.get(v) == 1 && backward.get(v) == 1)
+                 .forEach(v -> component[v] = id);
+    }
+
+    private static void parallelSearch(CompactGraph<?> graph, int origin, AtomicIntegerArray visited,
+                                       int[] component) {
+        visited.set(origin, 1);
+        int[] frontier = {origin};
+        while (frontier.length > 0) {
+            frontier = IntStream.of(frontier)
+                                .parallel()
+                                .flatMap(v -> IntStream.range(graph.offsets[v], graph.offsets[v + 1])
+                                                       .map(e -> graph.targets[e])
+                                                       .filter(w -> component[w] == NON_EXISTENT_COMPONENT
+                                                               && visited.compareAndSet(w, 0, 1)))
+                                .toArray();
+        }
+    }
+
+    /*
+     * Every node takes the highest id that reaches it. Nodes that keep their own id are roots, and the component
+     * of a root is made of the nodes of its color that can reach it.
+     */
+    private static void coloring(CompactGraph<?> graph, CompactGraph<?> reverse, int[] active,
+                                 int[] component, AtomicInteger count) {
+        int n = graph.getNumberOfNodes();
+        int[] color = new int[n];
+        int[] next = new int[n];
+        for (int v : active) {
+            color[v] = next[v] = v;
+        }
+
+        boolean changed = true;
+        while (changed) {
+            int[] current = color;
+            int[] updated = next;
+            changed = IntStream.of(active)
+                               .parallel()
+                               .map(v -> {
+                                   int c = current[v];
+                                   for (int e = reverse.offsets[v]; e < reverse.offsets[v + 1]; e++) {
+                                       int u = reverse.targets[e];
+                                       if (component[u] == NON_EXISTENT_COMPONENT && current[u] > c) {
+                                           c = current[u];
+                                       }
+                                   }
+                                   updated[v] = c;
+                                   return c != current[v] ? 1 : 0;
+                               })
+                               .sum() > 0;
+            color = updated;
+            next = current;
+        }
+
+        int[] colors = color;
+        int[] roots = IntStream.of(active).filter(v -> colors[v] == v).toArray();
+        int first = count.getAndAdd(roots.length);
+        IntStream.range(0, roots.length)
+                 .parallel()
+                 .forEach(i -> {
+                     int root = roots[i];
+                     int id = first + i;
+                     Deque<Integer> stack = new ArrayDeque<>();
+                     stack.push(root);
+                     component[root] = id;
+                     while (!stack.isEmpty()) {
+                         int v = stack.pop();
+                         for (int e = reverse.offsets[v]; e < reverse.offsets[v + 1]; e++) {
+                             int u = reverse.targets[e];
+                             if (colors[u] == root && component[u] == NON_EXISTENT_COMPONENT) {
+                                 component[u] = id;
+                                 stack.push(u);
+                             }
+                         }
+                     }
+                 });
+    }
+
+    private static int[] remaining(int[] active, int[] component) {
+        return IntStream.of(active)
+                        .parallel()
+                        .filter(v -> component[v] == NON_EXISTENT_COMPONENT)
+                        .toArray();
+    }
+}
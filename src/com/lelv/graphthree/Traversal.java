@@ -0,0 +1,192 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.TraversalVisitor.Decision;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Depth-first or breadth-first traversal of a graph that reports what it does to a {@link TraversalVisitor}, which
+ * can prune it or stop it at any point. Connections can be filtered by the information they store, and the
+ * traversal can be limited to a maximum depth, so queries only walk the part of the graph they need.
+ * <p>
+ * The traversal is iterative, so deep graphs do not overflow the stack, and keeps its state to itself instead of
+ * using the visited flags of the graph, so several traversals can run over a graph that does not change.
+ * A traversal can be run any number of times.
+ *
+ * @param <V> type of the nodes
+ * @param <E> type of the connections
+ */
+public class Traversal<V, E> {
+
+    public static final int UNLIMITED_DEPTH = Integer.MAX_VALUE;
+
+    private final AbstractGraph<V, E> graph;
+    private final boolean depthFirst;
+    private int maxDepth = UNLIMITED_DEPTH;
+    private Predicate<? super E> filter = connection -> true;
+
+    private Traversal(AbstractGraph<V, E> graph, boolean depthFirst) {
+        this.graph = Objects.requireNonNull(graph);
+        this.depthFirst = depthFirst;
+    }
+
+    /**
+     * @param graph the graph to traverse
+     * @return a depth-first traversal of the graph
+     */
+    public static <V, E> Traversal<V, E> depthFirst(AbstractGraph<V, E> graph) {
+        return new Traversal<>(graph, true);
+    }
+
+    /**
+     * @param graph the graph to traverse
+     * @return a breadth-first traversal of the graph
+     */
+    public static <V, E> Traversal<V, E> breadthFirst(AbstractGraph<V, E> graph) {
+        return new Traversal<>(graph, false);
+    }
+
+    /**
+     * Limits the depth of the traversal. Nodes at the maximum depth are discovered and finished, but their
+     * connections are not examined
+     *
+     * @param maxDepth maximum number of connections from the origin to a node discovered
+     * @return this traversal
+     * @throws IllegalArgumentException if the depth is negative
+     */
+    public Traversal<V, E> withMaxDepth(int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("The maximum depth can not be negative");
+        }
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Only lets the traversal examine and follow the connections whose information passes the filter
+     *
+     * @param filter test on the information of every connection
+     * @return this traversal
+     */
+    public Traversal<V, E> withConnectionFilter(Predicate<? super E> filter) {
+        this.filter = Objects.requireNonNull(filter);
+        return this;
+    }
+
+    /**
+     * Traverses the graph from a node
+     *
+     * @param originNode the node to start from, discovered at depth 0
+     * @param visitor    the visitor to report to
+     * @return true if the visitor terminated the traversal, false if the traversal reached every node it could
+     * or the origin node does not exist
+     */
+    public boolean run(V originNode, TraversalVisitor<V, E> visitor) {
+        Optional<AbstractGraph<V, E>.Vertex> origin = graph.getVertex(originNode);
+        if (origin.isEmpty()) {
+            return false;
+        }
+        Set<AbstractGraph<V, E>.Vertex> discovered = Collections.newSetFromMap(new IdentityHashMap<>());
+        discovered.add(origin.get());
+        Decision decision = visitor.discoverNode(originNode, 0);
+        if (decision == Decision.TERMINATE) {
+            return true;
+        }
+        Frame<V, E> root = new Frame<>(origin.get(), 0, decision == Decision.SKIP_SUBTREE);
+        return depthFirst ? depthFirst(root, discovered, visitor) : breadthFirst(root, discovered, visitor);
+    }
+
+    private boolean depthFirst(Frame<V, E> root, Set<AbstractGraph<V, E>.Vertex> discovered,
+                               TraversalVisitor<V, E> visitor) {
+        ArrayDeque<Frame<V, E>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Frame<V, E> frame = stack.peek();
+            AbstractGraph<V, E>.Edge edge = nextEdge(frame);
+            if (edge == null) {
+                stack.pop();
+                if (visitor.finishNode(frame.vertex.node, frame.depth) == Decision.TERMINATE) {
+                    return true;
+                }
+                continue;
+            }
+
+            Decision decision = visitor.examineConnection(frame.vertex.node, edge.destination.node,
+                                                          edge.connection, frame.depth);
+            if (decision == Decision.TERMINATE) {
+                return true;
+            }
+            if (decision == Decision.CONTINUE && discovered.add(edge.destination)) {
+                decision = visitor.discoverNode(edge.destination.node, frame.depth + 1);
+                if (decision == Decision.TERMINATE) {
+                    return true;
+                }
+                stack.push(new Frame<>(edge.destination, frame.depth + 1, decision == Decision.SKIP_SUBTREE));
+            }
+        }
+        return false;
+    }
+
+    private boolean breadthFirst(Frame<V, E> root, Set<AbstractGraph<V, E>.Vertex> discovered,
+                                 TraversalVisitor<V, E> visitor) {
+        ArrayDeque<Frame<V, E>> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            Frame<V, E> frame = queue.poll();
+            AbstractGraph<V, E>.Edge edge;
+            while ((edge = nextEdge(frame)) != null) {
+                Decision decision = visitor.examineConnection(frame.vertex.node, edge.destination.node,
+                                                              edge.connection, frame.depth);
+                if (decision == Decision.TERMINATE) {
+                    return true;
+                }
+                if (decision == Decision.CONTINUE && discovered.add(edge.destination)) {
+                    decision = visitor.discoverNode(edge.destination.node, frame.depth + 1);
+                    if (decision == Decision.TERMINATE) {
+                        return true;
+                    }
+                    queue.add(new Frame<>(edge.destination, frame.depth + 1, decision == Decision.SKIP_SUBTREE));
+                }
+            }
+            if (visitor.finishNode(frame.vertex.node, frame.depth) == Decision.TERMINATE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * The next connection of the node that passes the filter, or null if there are no more, the node was skipped
+     * or it is at the maximum depth
+     */
+    private AbstractGraph<V, E>.Edge nextEdge(Frame<V, E> frame) {
+        if (frame.skipped || frame.depth >= maxDepth) {
+            return null;
+        }
+        List<AbstractGraph<V, E>.Edge> edges = frame.vertex.edges;
+        while (frame.next < edges.size()) {
+            AbstractGraph<V, E>.Edge edge = edges.get(frame.next++);
+            if (filter.test(edge.connection)) {
+                return edge;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * A node being traversed, and how many of its connections have been looked at
+     */
+    private static final class Frame<V, E> {
+        final AbstractGraph<V, E>.Vertex vertex;
+        final int depth;
+        final boolean skipped;
+        int next;
+
+        Frame(AbstractGraph<V, E>.Vertex vertex, int depth, boolean skipped) {
+            this.vertex = vertex;
+            this.depth = depth;
+            this.skipped = skipped;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.lelv.graphthree;
+
+/**
+ * Receives the events of a {@link Traversal}, and decides how it goes on after each of them. Every method
+ * continues the traversal by default.
+ * <p>
+ * Every node reached is discovered once and finished once, after all the nodes reached through it are finished
+ * in a depth-first traversal, or after its connections have been examined in a breadth-first traversal. Every
+ * connection that passes the filter of the traversal is examined once, from the node it goes from, whether its
+ * destination has been discovered already or not.
+ *
+ * @param <V> type of the nodes
+ * @param <E> type of the connections
+ */
+public interface TraversalVisitor<V, E> {
+
+    enum Decision {
+        /**
+         * Goes on with the traversal
+         */
+        CONTINUE,
+        /**
+         * Does not follow the connections of the node discovered, or does not follow the connection examined
+         */
+        SKIP_SUBTREE,
+        /**
+         * Stops the traversal at once, without finishing the nodes left
+         */
+        TERMINATE
+    }
+
+    /**
+     * @param node  the node reached for the first time
+     * @param depth number of connections from the origin to the node
+     * @return what to do next. Skipping does not follow any connection from the node
+     */
+    default Decision discoverNode(V node, int depth) {
+        return Decision.CONTINUE;
+    }
+
+    /**
+     * @param originNode      the node the connection goes from
+     * @param destinationNode the node the connection goes to
+     * @param connection      information stored in the connection
+     * @param depth           depth of the origin node
+     * @return what to do next. Skipping does not follow the connection to its destination
+     */
+    default Decision examineConnection(V originNode, V destinationNode, E connection, int depth) {
+        return Decision.CONTINUE;
+    }
+
+    /**
+     * @param node  the node whose traversal is complete
+     * @param depth number of connections from the origin to the node
+     * @return what to do next. Skipping has the same effect as continuing
+     */
+    default Decision finishNode(V node, int depth) {
+        return Decision.CONTINUE;
+    }
+}
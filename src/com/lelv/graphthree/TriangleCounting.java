@@ -0,0 +1,205 @@
+package com.lelv.graphthree;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Triangle counting over undirected compact graphs, this is, graphs where every connection is stored in both
+ * directions, like the snapshots of {@link com.lelv.graphthree.impl.Graph}. Connections of a node to itself are
+ * ignored.
+ * <p>
+ * Nodes are ranked by degree, and every connection is kept only from the lower ranked node to the higher ranked
+ * one. Each triangle is then found exactly once, from its lowest ranked node, by intersecting two oriented
+ * neighbor lists, and no list is longer than the square root of twice the number of connections. Lists are
+ * sorted, so the intersections are merges, or galloping searches when one list is much longer than the other.
+ * Nodes are processed in parallel.
+ *
+ * @see GraphFunctions#numberOfTriangles(com.lelv.graphthree.impl.Graph)
+ */
+public class TriangleCounting {
+
+    /*
+     * Above this ratio between the lengths of two lists, the short one is searched in the long one
+     */
+    private static final int GALLOP_RATIO = 32;
+
+    private final int[] rank;
+    private final int[] offsets;
+    private final int[] targets;
+
+    private TriangleCounting(CompactGraph<?> graph) {
+        int n = graph.getNumberOfNodes();
+        Integer[] order = new Integer[n];
+        for (int v = 0; v < n; v++) {
+            order[v] = v;
+        }
+        Arrays.sort(order, (a, b) -> graph.outDegree(a) != graph.outDegree(b)
+                ? Integer.compare(graph.outDegree(a), graph.outDegree(b))
+                : Integer.compare(a, b));
+        rank = new int[n];
+        for (int r = 0; r < n; r++) {
+            rank[order[r]] = r;
+        }
+
+        // Oriented lists are indexed by rank and hold ranks
+        offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            int higher = 0;
+            for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                if (rank[graph.targets[e]] > rank[v]) {
+                    higher++;
+                }
+            }
+            offsets[rank[v] + 1] = higher;
+        }
+        for (int r = 0; r < n; r++) {
+            offsets[r + 1] += offsets[r];
+        }
+        targets = new int[offsets[n]];
+        IntStream.range(0, n).parallel().forEach(v -> {
+            int position = offsets[rank[v]];
+            for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                if (rank[graph.targets[e]] > rank[v]) {
+                    targets[position++] = rank[graph.targets[e]];
+                }
+            }
+            Arrays.sort(targets, offsets[rank[v]], position);
+        });
+    }
+
+    /**
+     * Counts the triangles of an undirected graph
+     *
+     * @param graph the undirected graph on which to apply the algorithm
+     * @return the number of triangles in the graph
+     */
+    public static long count(CompactGraph<?> graph) {
+        TriangleCounting counting = new TriangleCounting(graph);
+        return IntStream.range(0, graph.getNumberOfNodes())
+                        .parallel()
+                        .mapToLong(r -> counting.countFrom(r, null))
+                        .sum();
+    }
+
+    /**
+     * Counts the triangles every node of an undirected graph belongs to
+     *
+     * @param graph the undirected graph on which to apply the algorithm
+     * @return the number of triangles of every node, indexed by id
+     */
+    public static long[] perNode(CompactGraph<?> graph) {
+        TriangleCounting counting = new TriangleCounting(graph);
+        int n = graph.getNumberOfNodes();
+        AtomicLongArray byRank = new AtomicLongArray(n);
+        IntStream.range(0, n).parallel().forEach(r -> counting.countFrom(r, byRank));
+
+        long[] result = new long[n];
+        for (int v = 0; v < n; v++) {
+            result[v] = byRank.get(counting.rank[v]);
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the local clustering coefficient of every node of an undirected graph: the number of connections
+     * between the neighbors of the node divided by the number of connections that could exist between them. Nodes
+     * with less than two neighbors have a coefficient of 0
+     *
+     * @param graph the undirected graph on which to apply the algorithm
+     * @return the clustering coefficient of every node, indexed by id
+     */
+    public static double[] clusteringCoefficients(CompactGraph<?> graph) {
+        long[] triangles = perNode(graph);
+        double[] result = new double[triangles.length];
+        for (int v = 0; v < triangles.length; v++) {
+            long degree = 0;
+            for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                if (graph.targets[e] != v) {
+                    degree++;
+                }
+            }
+            result[v] = degree < 2 ? 0.0 : 2.0 * triangles[v] / (degree * (degree - 1));
+        }
+        return result;
+    }
+
+    /*
+     * Finds the triangles whose lowest ranked node is r. When counts is not null, adds one to each of their nodes
+     */
+    private long countFrom(int r, AtomicLongArray counts) {
+        long total = 0;
+        for (int e = offsets[r]; e < offsets[r + 1]; e++) {
+            int s = targets[e];
+            long found = intersect(offsets[r], offsets[r + 1], offsets[s], offsets[s + 1], counts);
+            if (counts != null && found > 0) {
+                counts.addAndGet(r, found);
+                counts.addAndGet(s, found);
+            }
+            total += found;
+        }
+        return total;
+    }
+
+    private long intersect(int aFrom, int aTo, int bFrom, int bTo, AtomicLongArray counts) {
+        int aLength = aTo - aFrom;
+        int bLength = bTo - bFrom;
+        if (aLength == 0 || bLength == 0) {
+            return 0;
+        }
+        if (aLength > GALLOP_RATIO * bLength) {
+            return gallop(bFrom, bTo, aFrom, aTo, counts);
+        }
+        if (bLength > GALLOP_RATIO * aLength) {
+            return gallop(aFrom, aTo, bFrom, bTo, counts);
+        }
+
+        long found = 0;
+        int i = aFrom;
+        int j = bFrom;
+        while (i < aTo && j < bTo) {
+            if (targets[i] == targets[j]) {
+                if (counts != null) {
+                    counts.incrementAndGet(targets[i]);
+                }
+                found++;
+                i++;
+                j++;
+            } else if (targets[i] < targets[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return found;
+    }
+
+    /*
+     * Looks for every element of the short list in the long one, doubling the step from the last position found
+     */
+    private long gallop(int shortFrom, int shortTo, int longFrom, int longTo, AtomicLongArray counts) {
+        long found = 0;
+        int low = longFrom;
+        for (int i = shortFrom; i < shortTo && low < longTo; i++) {
+            int value = targets[i];
+            int step = 1;
+            int high = low;
+            while (high < longTo && targets[high] < value) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int position = Arrays.binarySearch(targets, low, Math.min(high + 1, longTo), value);
+            if (position >= 0) {
+                if (counts != null) {
+                    counts.incrementAndGet(value);
+                }
+                found++;
+                low = position + 1;
+            } else {
+                low = -position - 1;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,365 @@
+package com.lelv.graphthree;
+
+import java.util.*;
+
+/**
+ * Renumbering of the nodes of a compact graph that places nodes connected to each other close together, so scans
+ * over the connections of consecutive nodes, as in breadth-first searches or PageRank, touch fewer distinct parts of
+ * memory. The direction of the connections is ignored to compute the order.
+ * <p>
+ * Locality is measured as the average, over all the connections, of the base 2 logarithm of one plus the
+ * difference between the ids of the nodes they join: roughly the number of bits needed to go from a node to its
+ * neighbor. Lower is better.
+ *
+ * @param <V> type of the nodes
+ * @see CompactGraph#reorder(int[])
+ */
+public class VertexOrdering<V> {
+
+    public static final int DEFAULT_WINDOW = 5;
+
+    public enum Strategy {
+        /**
+         * Reverse Cuthill-McKee: breadth-first searches from nodes of low degree, visiting neighbors from the lowest
+         * to the highest degree, in reverse order. Gives every node ids close to its neighbors, which suits meshes
+         * and road networks
+         */
+        REVERSE_CUTHILL_MCKEE,
+        /**
+         * Nodes from the highest to the lowest degree, so the hubs that most connections go to are kept together
+         */
+        DEGREE,
+        /**
+         * Greedy ordering in the manner of Gorder: the next node is the one that shares the most neighbors with, or
+         * is connected to, the last few nodes placed, so nodes used together are placed together
+         */
+        GORDER
+    }
+
+    private final CompactGraph<V> original;
+    private final int[] newIds;
+    private final CompactGraph<V> graph;
+
+    private VertexOrdering(CompactGraph<V> original, int[] newIds) {
+        this.original = original;
+        this.newIds = newIds;
+        this.graph = original.reorder(newIds);
+    }
+
+    /**
+     * Orders the nodes of a graph
+     *
+     * @param graph    the graph to order
+     * @param strategy how to compute the order
+     * @return the order of the nodes, with the graph renumbered
+     */
+    public static <V> VertexOrdering<V> of(CompactGraph<V> graph, Strategy strategy) {
+        switch (strategy) {
+            case REVERSE_CUTHILL_MCKEE:
+                return new VertexOrdering<>(graph, reverseCuthillMcKee(graph));
+            case DEGREE:
+                return new VertexOrdering<>(graph, degree(graph));
+            default:
+                return gorder(graph, DEFAULT_WINDOW);
+        }
+    }
+
+    /**
+     * Orders the nodes of a graph with Gorder
+     *
+     * @param graph  the graph to order
+     * @param window number of nodes placed last that the next node is compared to
+     * @return the order of the nodes, with the graph renumbered
+     * @throws IllegalArgumentException if the window is smaller than one
+     */
+    public static <V> VertexOrdering<V> gorder(CompactGraph<V> graph, int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("The window must have at least one node");
+        }
+        return new VertexOrdering<>(graph, gorderIds(graph, window));
+    }
+
+    /**
+     * Orders the nodes of a graph and builds its compact representation with the new ids. The ids still map to
+     * the same nodes through {@link CompactGraph#idOf} and {@link CompactGraph#nodeOf}
+     *
+     * @param graph    the graph to take the snapshot from
+     * @param strategy how to compute the order
+     * @return a compact graph with the same nodes and connections as the graph, numbered in the new order
+     */
+    public static <V, E> CompactGraph<V> compact(AbstractGraph<V, E> graph, Strategy strategy) {
+        return of(CompactGraph.of(graph), strategy).getGraph();
+    }
+
+    /**
+     * @param graph the graph to measure
+     * @return the average number of bits between the ids of the nodes joined by every connection
+     */
+    public static double averageLogGap(CompactGraph<?> graph) {
+        if (graph.targets.length == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int v = 0; v < graph.getNumberOfNodes(); v++) {
+            for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                sum += Math.log(Math.abs(v - graph.targets[e]) + 1);
+            }
+        }
+        return sum / graph.targets.length / Math.log(2);
+    }
+
+    /**
+     * @return the new id of every node, indexed by its id in the original graph
+     */
+    public int[] getNewIds() {
+        return newIds.clone();
+    }
+
+    /**
+     * @return the graph with the nodes renumbered
+     */
+    public CompactGraph<V> getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the locality of the original graph
+     */
+    public double getLocalityBefore() {
+        return averageLogGap(original);
+    }
+
+    /**
+     * @return the locality of the renumbered graph
+     */
+    public double getLocalityAfter() {
+        return averageLogGap(graph);
+    }
+
+    /*
+     * Both directions of every connection, without repetitions or loops
+     */
+    private static CompactGraph<Integer> undirected(CompactGraph<?> graph) {
+        int n = graph.getNumberOfNodes();
+        CompactGraph<?> reverse = graph.transpose();
+        int[] offsets = new int[n + 1];
+        IntList targets = new IntList(graph.targets.length * 2);
+        int[] mark = new int[n];
+        for (int v = 0; v < n; v++) {
+            mark[v] = v + 1;
+            for (CompactGraph<?> g : Arrays.asList(graph, reverse)) {
+                for (int e = g.offsets[v]; e < g.offsets[v + 1]; e++) {
+                    int w = g.targets[e];
+                    if (mark[w] != v + 1) {
+                        mark[w] = v + 1;
+                        targets.add(w);
+                    }
+                }
+            }
+            offsets[v + 1] = targets.size();
+        }
+        return CompactGraph.ofIds(offsets, targets.toArray());
+    }
+
+    private static int[] reverseCuthillMcKee(CompactGraph<?> directed) {
+        CompactGraph<Integer> graph = undirected(directed);
+        int n = graph.getNumberOfNodes();
+        Integer[] byDegree = new Integer[n];
+        for (int v = 0; v < n; v++) {
+            byDegree[v] = v;
+        }
+        Arrays.sort(byDegree, Comparator.comparingInt(graph::outDegree));
+
+        int[] order = new int[n];
+        boolean[] placed = new boolean[n];
+        int[] level = new int[n];
+        int[] queue = new int[n];
+        Arrays.fill(level, -1);
+        int size = 0;
+        for (int start : byDegree) {
+            if (placed[start]) {
+                continue;
+            }
+            int root = peripheral(graph, start, level, queue);
+            int head = size;
+            order[size++] = root;
+            placed[root] = true;
+            while (head < size) {
+                int v = order[head++];
+                int first = size;
+                for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                    int w = graph.targets[e];
+                    if (!placed[w]) {
+                        placed[w] = true;
+                        order[size++] = w;
+                    }
+                }
+                sortByDegree(graph, order, first, size);
+            }
+        }
+
+        int[] newIds = new int[n];
+        for (int i = 0; i < n; i++) {
+            newIds[order[i]] = n - 1 - i;
+        }
+        return newIds;
+    }
+
+    /*
+     * A node far from the rest of its component: the last node, of lowest degree, of a breadth-first search from
+     * the start, repeated while the searches get deeper. Levels are -1 for the nodes not reached, and are left so
+     */
+    private static int peripheral(CompactGraph<Integer> graph, int start, int[] level, int[] queue) {
+        int root = start;
+        int depth = -1;
+        while (true) {
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = root;
+            level[root] = 0;
+            int candidate = root;
+            while (head < tail) {
+                int v = queue[head++];
+                if (level[v] > level[candidate]
+                        || (level[v] == level[candidate] && graph.outDegree(v) < graph.outDegree(candidate))) {
+                    candidate = v;
+                }
+                for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                    int w = graph.targets[e];
+                    if (level[w] == -1) {
+                        level[w] = level[v] + 1;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+            int deepest = level[candidate];
+            for (int i = 0; i < tail; i++) {
+                level[queue[i]] = -1;
+            }
+            if (deepest <= depth) {
+                return root;
+            }
+            depth = deepest;
+            root = candidate;
+        }
+    }
+
+    private static void sortByDegree(CompactGraph<Integer> graph, int[] order, int from, int to) {
+        // Insertion sort, as most nodes only add a few others
+        for (int i = from + 1; i < to; i++) {
+            int v = order[i];
+            int j = i - 1;
+            while (j >= from && graph.outDegree(order[j]) > graph.outDegree(v)) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = v;
+        }
+    }
+
+    private static int[] degree(CompactGraph<?> graph) {
+        int n = graph.getNumberOfNodes();
+        CompactGraph<?> reverse = graph.transpose();
+        Integer[] order = new Integer[n];
+        for (int v = 0; v < n; v++) {
+            order[v] = v;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(graph.outDegree(b) + reverse.outDegree(b),
+                                                     graph.outDegree(a) + reverse.outDegree(a)));
+        int[] newIds = new int[n];
+        for (int i = 0; i < n; i++) {
+            newIds[order[i]] = i;
+        }
+        return newIds;
+    }
+
+    /*
+     * The score of a node is the number of neighbors it shares with the nodes in the window plus the number of
+     * them it is connected to. Adding a node to the window raises by one the score of its neighbors and of the
+     * neighbors of its neighbors, once per path, and taking it out lowers them back. Paths through hubs are left
+     * out, as they would raise the score of most of the graph at a great cost. The node of highest score is found
+     * with a heap where every change of score pushes a new entry, and entries that no longer match the score of
+     * their node are dropped
+     */
+    private static int[] gorderIds(CompactGraph<?> directed, int window) {
+        CompactGraph<Integer> graph = undirected(directed);
+        int n = graph.getNumberOfNodes();
+        int hub = Math.max(16, (int) Math.sqrt(n));
+        int[] score = new int[n];
+        boolean[] placed = new boolean[n];
+        int[] order = new int[n];
+        // Highest score first, then lowest id
+        PriorityQueue<Long> heap = new PriorityQueue<>(n);
+        for (int v = 0; v < n; v++) {
+            heap.add(key(0, v));
+        }
+
+        int start = 0;
+        for (int v = 1; v < n; v++) {
+            if (graph.outDegree(v) > graph.outDegree(start)) {
+                start = v;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            int next;
+            if (i == 0) {
+                next = start;
+            } else {
+                long top;
+                do {
+                    top = heap.poll();
+                } while (placed[nodeOf(top)] || score[nodeOf(top)] != scoreOf(top));
+                next = nodeOf(top);
+            }
+            placed[next] = true;
+            order[i] = next;
+            update(graph, next, 1, hub, score, placed, heap);
+            if (i >= window) {
+                update(graph, order[i - window], -1, hub, score, placed, heap);
+            }
+        }
+
+        int[] newIds = new int[n];
+        for (int i = 0; i < n; i++) {
+            newIds[order[i]] = i;
+        }
+        return newIds;
+    }
+
+    private static void update(CompactGraph<Integer> graph, int v, int change, int hub, int[] score,
+                               boolean[] placed, PriorityQueue<Long> heap) {
+        for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+            int w = graph.targets[e];
+            change(w, change, score, placed, heap);
+            if (graph.outDegree(w) <= hub) {
+                for (int f = graph.offsets[w]; f < graph.offsets[w + 1]; f++) {
+                    if (graph.targets[f] != v) {
+                        change(graph.targets[f], change, score, placed, heap);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void change(int v, int change, int[] score, boolean[] placed, PriorityQueue<Long> heap) {
+        if (!placed[v]) {
+            score[v] += change;
+            heap.add(key(score[v], v));
+        }
+    }
+
+    /*
+     * Heap keys, ordered by decreasing score and then increasing id
+     */
+    private static long key(int score, int v) {
+        return -((long) score << 32) + v;
+    }
+
+    private static int scoreOf(long key) {
+        return (int) -((key - nodeOf(key)) >> 32);
+    }
+
+    private static int nodeOf(long key) {
+        return (int) (key & 0xFFFFFFFFL);
+    }
+}
@@ -2,6 +2,7 @@ package com.lelv.graphthree.impl;
 
 import com.lelv.graphthree.AbstractGraph;
 
+import java.util.List;
 import java.util.Optional;
 
 public class DirectedGraph<V, E> extends AbstractGraph<V, E> {
@@ -18,11 +19,20 @@ public class DirectedGraph<V, E> extends AbstractGraph<V, E> {
             return NON_EXISTENT_DEGREE;
         }
         Vertex originVertex = optional.get();
-        return (int) getVertices().stream()
-                                  .filter(vertex -> !vertex.equals(originVertex))
-                                  .flatMap(vertex -> vertex.getNeighbors().stream())
-                                  .filter(neighbor -> neighbor.equals(originVertex))
-                                  .count();
+        int degree = 0;
+        List<Vertex> vertices = getVertices();
+        for (int v = 0; v < vertices.size(); v++) {
+            Vertex vertex = vertices.get(v);
+            if (vertex == originVertex) {
+                continue;
+            }
+            for (int e = 0; e < vertex.edges.size(); e++) {
+                if (vertex.edges.get(e).destination == originVertex) {
+                    degree++;
+                }
+            }
+        }
+        return degree;
     }
 
     /**
@@ -32,7 +42,7 @@ public class DirectedGraph<V, E> extends AbstractGraph<V, E> {
      * @return the out degree of the node
      */
     public int outDegree(V node) {
-        return getVertex(node).map(vertex -> vertex.getNeighbors().size())
+        return getVertex(node).map(vertex -> vertex.edges.size())
                               .orElse(NON_EXISTENT_DEGREE);
     }
 }
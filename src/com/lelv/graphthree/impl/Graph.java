@@ -33,6 +33,20 @@ public class Graph<V, E> extends AbstractGraph<V, E> {
         return result && super.disconnectNodes(nodeB, nodeA);
     }
 
+    /**
+     * Replaces the information stored in the connection between two nodes, in both directions.
+     *
+     * @param nodeA      one of the nodes of the connection
+     * @param nodeB      the other node of the connection
+     * @param connection new information to store in the connection
+     * @return true if the connection is replaced successfully, false if the connection does not exist
+     */
+    @Override
+    public boolean setConnection(V nodeA, V nodeB, E connection) {
+        boolean result = super.setConnection(nodeA, nodeB, connection);
+        return result && super.setConnection(nodeB, nodeA, connection);
+    }
+
     /**
      * Calculates the amount of connections the node has
      *
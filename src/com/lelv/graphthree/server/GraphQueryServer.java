@@ -0,0 +1,585 @@
+package com.lelv.graphthree.server;
+
+import com.lelv.graphthree.AbstractGraph;
+import com.lelv.graphthree.CompactGraph;
+import com.lelv.graphthree.GraphListener;
+import com.lelv.graphthree.ShortestPaths;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * HTTP server on the loopback interface that answers read queries about a graph with JSON:
+ * <ul>
+ * <li>{@code GET /neighbors?node=a}: the neighbors of a node</li>
+ * <li>{@code GET /path?from=a&to=b}: a path with the fewest connections between two nodes, or null</li>
+ * <li>{@code GET /distances?from=a}: the distance to every node reached, in connections, or in weight if the
+ * server was given a weight for the connections</li>
+ * <li>{@code GET /components}: the weakly connected component of every node</li>
+ * </ul>
+ * Nodes are written with their {@code toString()}, and read from the query with the parser given. Unknown nodes
+ * answer 404, and malformed queries 400.
+ * <p>
+ * Every request is served on its own virtual thread when the runtime has them. Otherwise requests are served by a
+ * bounded pool of platform threads that queues a bounded number of requests, and the requests that arrive while the
+ * queue is full answer 503 at once instead of piling up. Neighbors are read while holding the read lock of the
+ * graph. The other queries run without any lock on a {@link CompactGraph} snapshot, which is built once under the
+ * read lock and reused until the graph changes. Identical queries that arrive while one is being answered wait for
+ * its answer instead of computing it again.
+ * <p>
+ * Writers of the graph must hold the write lock given to the server, such as the one of a
+ * {@link com.lelv.graphthree.GraphIngestor}.
+ *
+ * @param <V> type of the nodes
+ * @param <E> type of the connections
+ */
+public class GraphQueryServer<V, E> implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_THREADS = 128;
+    public static final int DEFAULT_MAX_QUEUED = 1024;
+
+    private final AbstractGraph<V, E> graph;
+    private final ReadWriteLock lock;
+    private final Function<String, V> nodeParser;
+    private final ToDoubleFunction<? super E> weight;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final GraphListener<V, E> invalidator = new GraphListener<>() {
+        @Override
+        public void nodeAdded(V node) {
+            version++;
+        }
+
+        @Override
+        public void nodeRemoved(V node) {
+            version++;
+        }
+
+        @Override
+        public void nodesConnected(V originNode, V destinationNode, E connection) {
+            version++;
+        }
+
+        @Override
+        public void nodesDisconnected(V originNode, V destinationNode, E connection) {
+            version++;
+        }
+
+        @Override
+        public void connectionChanged(V originNode, V destinationNode, E oldConnection, E newConnection) {
+            version++;
+        }
+    };
+
+    private final ConcurrentHashMap<String, CompletableFuture<Response>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder overloaded = new LongAdder();
+    // Set on the thread of the HTTP server while it runs a request the pool rejected
+    private final ThreadLocal<Boolean> rejected = new ThreadLocal<>();
+
+    // Only changed while the write lock is held
+    private volatile long version;
+    private volatile Snapshot<V> snapshot;
+
+    private GraphQueryServer(AbstractGraph<V, E> graph, ReadWriteLock lock, Function<String, V> nodeParser,
+                             ToDoubleFunction<? super E> weight, int port, int maxThreads, int maxQueued)
+            throws IOException {
+        if (maxThreads < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("The pool needs a thread, and the queue can not be negative");
+        }
+        this.graph = graph;
+        this.lock = lock;
+        this.nodeParser = nodeParser;
+        this.weight = weight;
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : newBoundedExecutor(maxThreads, maxQueued);
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Starts a server on a free port that measures distances in connections
+     *
+     * @see #start(AbstractGraph, ReadWriteLock, Function, ToDoubleFunction, int)
+     */
+    public static <V, E> GraphQueryServer<V, E> start(AbstractGraph<V, E> graph, ReadWriteLock lock,
+                                                      Function<String, V> nodeParser) throws IOException {
+        return start(graph, lock, nodeParser, null, 0);
+    }
+
+    /**
+     * Starts a server with the default limits of threads and queued requests
+     *
+     * @see #start(AbstractGraph, ReadWriteLock, Function, ToDoubleFunction, int, int, int)
+     */
+    public static <V, E> GraphQueryServer<V, E> start(AbstractGraph<V, E> graph, ReadWriteLock lock,
+                                                      Function<String, V> nodeParser,
+                                                      ToDoubleFunction<? super E> weight, int port)
+            throws IOException {
+        return start(graph, lock, nodeParser, weight, port, DEFAULT_MAX_THREADS, DEFAULT_MAX_QUEUED);
+    }
+
+    /**
+     * Starts a server for a graph
+     *
+     * @param graph      the graph to query
+     * @param lock       lock whose write lock is held by every writer of the graph
+     * @param nodeParser turns the nodes written in queries into nodes of the graph
+     * @param weight     weight of every connection for the distances, or null to count connections
+     * @param port       port to listen to on the loopback interface, or 0 for any free port
+     * @param maxThreads maximum number of platform threads serving requests, when there are no virtual threads
+     * @param maxQueued  maximum number of requests waiting for a platform thread before the rest answer 503
+     * @return the running server
+     * @throws IOException              if the port can not be bound
+     * @throws IllegalArgumentException if there are no threads or the queue is negative
+     */
+    public static <V, E> GraphQueryServer<V, E> start(AbstractGraph<V, E> graph, ReadWriteLock lock,
+                                                      Function<String, V> nodeParser,
+                                                      ToDoubleFunction<? super E> weight, int port,
+                                                      int maxThreads, int maxQueued) throws IOException {
+        GraphQueryServer<V, E> server = new GraphQueryServer<>(Objects.requireNonNull(graph),
+                                                               Objects.requireNonNull(lock),
+                                                               Objects.requireNonNull(nodeParser), weight, port,
+                                                               maxThreads, maxQueued);
+        lock.writeLock().lock();
+        try {
+            graph.addListener(server.invalidator);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        server.server.start();
+        return server;
+    }
+
+    /**
+     * @return the port the server listens to
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return true if requests are served on virtual threads, false if on platform threads
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return the number of requests received
+     */
+    public long getNumberOfQueries() {
+        return received.sum();
+    }
+
+    /**
+     * @return the number of requests answered with the answer of an identical request in progress
+     */
+    public long getNumberOfCoalescedQueries() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return the number of requests answered 503 because every thread was busy and the queue was full
+     */
+    public long getNumberOfRejectedQueries() {
+        return overloaded.sum();
+    }
+
+    /**
+     * Stops the server, waiting for the requests in progress, and stops following the changes of the graph
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.writeLock().lock();
+        try {
+            graph.removeListener(invalidator);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        received.increment();
+        Response response;
+        try {
+            if (rejected.get() != null) {
+                overloaded.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                response = Response.error(503, "Too many queries");
+            } else if (!"GET".equals(exchange.getRequestMethod())) {
+                response = Response.error(405, "Only GET is supported");
+            } else {
+                String path = exchange.getRequestURI().getRawPath();
+                String query = exchange.getRequestURI().getRawQuery();
+                response = coalesce(path + '?' + query, () -> answer(path, parameters(query)));
+            }
+        } catch (RuntimeException e) {
+            response = Response.error(500, String.valueOf(e));
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, response.body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response.body);
+        }
+    }
+
+    /*
+     * The first request of a kind computes the answer and the identical requests that arrive meanwhile share it
+     */
+    private Response coalesce(String key, Supplier<Response> query) {
+        CompletableFuture<Response> mine = new CompletableFuture<>();
+        CompletableFuture<Response> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        try {
+            Response response = query.get();
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private Response answer(String path, Map<String, String> parameters) {
+        try {
+            switch (path) {
+                case "/neighbors":
+                    return neighbors(nodeParser.apply(required(parameters, "node")));
+                case "/path":
+                    return path(nodeParser.apply(required(parameters, "from")),
+                                nodeParser.apply(required(parameters, "to")));
+                case "/distances":
+                    return distances(nodeParser.apply(required(parameters, "from")));
+                case "/components":
+                    return components();
+                default:
+                    return Response.error(404, "Unknown query " + path);
+            }
+        } catch (IllegalArgumentException e) {
+            return Response.error(400, e.getMessage());
+        }
+    }
+
+    private Response neighbors(V node) {
+        List<V> neighbors;
+        lock.readLock().lock();
+        try {
+            neighbors = graph.getNeighbors(node);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (neighbors == null) {
+            return Response.error(404, "Unknown node " + node);
+        }
+        StringBuilder json = new StringBuilder("[");
+        for (V neighbor : neighbors) {
+            appendNode(json.length() > 1 ? json.append(',') : json, neighbor);
+        }
+        return Response.ok(json.append(']'));
+    }
+
+    private Response path(V originNode, V destinationNode) {
+        CompactGraph<V> compact = snapshot();
+        int origin = compact.idOf(originNode);
+        int destination = compact.idOf(destinationNode);
+        if (origin == CompactGraph.NON_EXISTENT_ID || destination == CompactGraph.NON_EXISTENT_ID) {
+            return Response.error(404, "Unknown node");
+        }
+
+        int[] parent = new int[compact.getNumberOfNodes()];
+        Arrays.fill(parent, -1);
+        parent[origin] = origin;
+        int[] queue = new int[compact.getNumberOfNodes()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = origin;
+        while (head < tail && parent[destination] == -1) {
+            int v = queue[head++];
+            for (int k = 0; k < compact.outDegree(v); k++) {
+                int w = compact.neighbor(v, k);
+                if (parent[w] == -1) {
+                    parent[w] = v;
+                    queue[tail++] = w;
+                }
+            }
+        }
+        if (parent[destination] == -1) {
+            return Response.ok(new StringBuilder("null"));
+        }
+
+        ArrayDeque<V> path = new ArrayDeque<>();
+        for (int v = destination; v != origin; v = parent[v]) {
+            path.push(compact.nodeOf(v));
+        }
+        path.push(originNode);
+        StringBuilder json = new StringBuilder("[");
+        for (V node : path) {
+            appendNode(json.length() > 1 ? json.append(',') : json, node);
+        }
+        return Response.ok(json.append(']'));
+    }
+
+    private Response distances(V originNode) {
+        CompactGraph<V> compact = snapshot();
+        int origin = compact.idOf(originNode);
+        if (origin == CompactGraph.NON_EXISTENT_ID) {
+            return Response.error(404, "Unknown node " + originNode);
+        }
+
+        double[] distance;
+        if (compact.isWeighted()) {
+            distance = ShortestPaths.deltaStepping(compact, origin);
+            if (distance == null) {
+                return Response.error(409, "A negative cycle can be reached from " + originNode);
+            }
+        } else {
+            distance = new double[compact.getNumberOfNodes()];
+            Arrays.fill(distance, Double.POSITIVE_INFINITY);
+            distance[origin] = 0;
+            int[] queue = new int[compact.getNumberOfNodes()];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = origin;
+            while (head < tail) {
+                int v = queue[head++];
+                for (int k = 0; k < compact.outDegree(v); k++) {
+                    int w = compact.neighbor(v, k);
+                    if (distance[w] == Double.POSITIVE_INFINITY) {
+                        distance[w] = distance[v] + 1;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+        }
+
+        StringBuilder json = new StringBuilder("{");
+        for (int v = 0; v < distance.length; v++) {
+            if (distance[v] != Double.POSITIVE_INFINITY) {
+                appendNode(json.length() > 1 ? json.append(',') : json, compact.nodeOf(v)).append(':');
+                appendNumber(json, distance[v]);
+            }
+        }
+        return Response.ok(json.append('}'));
+    }
+
+    /*
+     * Components ignoring the direction of the connections, found with union-find and numbered in order of their
+     * first node
+     */
+    private Response components() {
+        CompactGraph<V> compact = snapshot();
+        int n = compact.getNumberOfNodes();
+        int[] parent = new int[n];
+        for (int v = 0; v < n; v++) {
+            parent[v] = v;
+        }
+        for (int v = 0; v < n; v++) {
+            for (int k = 0; k < compact.outDegree(v); k++) {
+                int a = find(parent, v);
+                int b = find(parent, compact.neighbor(v, k));
+                if (a != b) {
+                    parent[Math.max(a, b)] = Math.min(a, b);
+                }
+            }
+        }
+
+        int[] number = new int[n];
+        int components = 0;
+        StringBuilder json = new StringBuilder("{");
+        for (int v = 0; v < n; v++) {
+            int root = find(parent, v);
+            number[v] = root == v ? components++ : number[root];
+            appendNode(json.length() > 1 ? json.append(',') : json, compact.nodeOf(v)).append(':').append(number[v]);
+        }
+        return Response.ok(json.append('}'));
+    }
+
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    /*
+     * Snapshot of the current version of the graph, built by one thread at a time so that concurrent queries on
+     * a changed graph do not all build it
+     */
+    private CompactGraph<V> snapshot() {
+        Snapshot<V> current = snapshot;
+        if (current != null && current.version == version) {
+            return current.graph;
+        }
+        synchronized (this) {
+            lock.readLock().lock();
+            try {
+                current = snapshot;
+                if (current == null || current.version != version) {
+                    CompactGraph<V> compact = weight == null ? CompactGraph.of(graph)
+                                                             : CompactGraph.weighted(graph, weight);
+                    current = new Snapshot<>(version, compact);
+                    snapshot = current;
+                }
+                return current.graph;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    private static String required(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing parameter " + name);
+        }
+        return value;
+    }
+
+    private static Map<String, String> parameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                           URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static StringBuilder appendNode(StringBuilder json, Object node) {
+        String text = String.valueOf(node);
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+
+    private static void appendNumber(StringBuilder json, double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            json.append((long) value);
+        } else {
+            json.append(value);
+        }
+    }
+
+    /*
+     * Executors.newVirtualThreadPerTaskExecutor() on runtimes that have it, found by reflection so that the
+     * server also runs on runtimes that do not
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /*
+     * Pool of platform threads that go away when idle. The HTTP server hands the requests the pool rejects back on
+     * its own thread, which only reads them and answers 503
+     */
+    private ExecutorService newBoundedExecutor(int maxThreads, int maxQueued) {
+        BlockingQueue<Runnable> queue = maxQueued == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(maxQueued);
+        ThreadFactory threads = runnable -> {
+            Thread thread = new Thread(runnable, "graph-query");
+            thread.setDaemon(true);
+            return thread;
+        };
+        RejectedExecutionHandler answerOverloaded = (task, pool) -> {
+            if (!pool.isShutdown()) {
+                rejected.set(Boolean.TRUE);
+                try {
+                    task.run();
+                } finally {
+                    rejected.remove();
+                }
+            }
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS, queue, threads,
+                                                         answerOverloaded);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static final class Snapshot<V> {
+        final long version;
+        final CompactGraph<V> graph;
+
+        Snapshot(long version, CompactGraph<V> graph) {
+            this.version = version;
+            this.graph = graph;
+        }
+    }
+
+    private static final class Response {
+        final int status;
+        final byte[] body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body.getBytes(StandardCharsets.UTF_8);
+        }
+
+        static Response ok(StringBuilder json) {
+            return new Response(200, json.toString());
+        }
+
+        static Response error(int status, String message) {
+            StringBuilder json = new StringBuilder("{\"error\":");
+            appendNode(json, message);
+            return new Response(status, json.append('}').toString());
+        }
+    }
+}
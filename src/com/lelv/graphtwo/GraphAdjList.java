@@ -1,5 +1,9 @@
 package com.lelv.graphtwo;
 
+import com.lelv.memory.CapacityTrackingList;
+import com.lelv.memory.MemoryFootprint;
+import com.lelv.memory.MemoryLayout;
+
 import java.util.*;
 
 /**
@@ -23,7 +27,7 @@ public abstract class GraphAdjList<V, E extends ArcGraph> {
 		public Node(V info) {
 			this.info = info;
 			this.visited = false;
-			this.adj = new ArrayList<Arc>();
+			this.adj = new CapacityTrackingList<Arc>();
 		}
 
 		@Override
@@ -69,7 +73,7 @@ public abstract class GraphAdjList<V, E extends ArcGraph> {
 
 	public GraphAdjList() {
 		this.nodes = new HashMap<V, Node>();
-		this.nodeList = new ArrayList<Node>();
+		this.nodeList = new CapacityTrackingList<Node>();
 	}
 
 	public boolean isEmpty() {
@@ -169,6 +173,48 @@ public abstract class GraphAdjList<V, E extends ArcGraph> {
 		return nodeList;
 	}
 
+	/**
+	 * Estima la memoria que ocupa la estructura del grafo, sin contar los
+	 * vertices ni la informacion de los ejes, solo las referencias a ellos
+	 */
+	public MemoryFootprint memoryFootprint() {
+		int n = nodeList.size();
+		// Cada nodo tiene info, adj, tag, visited y la referencia al grafo
+		long vertexIndex = MemoryLayout.hashMap(nodes.size())
+				+ MemoryLayout.list(nodeList) + n
+				* MemoryLayout.object(3, 5);
+		long slack = MemoryLayout.listSlack(nodeList);
+		long adjacency = 0;
+		long arcs = 0;
+		for (Node node : nodeList) {
+			adjacency += MemoryLayout.list(node.adj);
+			slack += MemoryLayout.listSlack(node.adj);
+			arcs += node.adj.size();
+		}
+		adjacency += arcs * (MemoryLayout.object(3, 0) - MemoryLayout.REFERENCE);
+		return new MemoryFootprint(vertexIndex, adjacency, arcs
+				* MemoryLayout.REFERENCE, slack);
+	}
+
+	/**
+	 * Libera la capacidad reservada y no usada de las listas y de la tabla de
+	 * nodos (por ejemplo despues de una carga masiva o de borrar muchos nodos)
+	 */
+	public void trimToSize() {
+		trim(nodeList);
+		HashMap<V, Node> trimmed = new HashMap<V, Node>();
+		for (Node node : nodeList) {
+			trim(node.adj);
+			trimmed.put(node.info, node);
+		}
+		nodes = trimmed;
+	}
+
+	private static void trim(List<?> list) {
+		if (list instanceof ArrayList)
+			((ArrayList<?>) list).trimToSize();
+	}
+
 	protected void clearMarks() {
 		for (Node n : getNodes()) {
 			n.visited = false;
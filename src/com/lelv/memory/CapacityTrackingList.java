@@ -0,0 +1,116 @@
+package com.lelv.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * ArrayList that knows the length of its backing array, which ArrayList does not expose. The capacity follows the
+ * growth policy of ArrayList: the first element of a list created without capacity allocates 10 slots, and every
+ * time the array is full it grows by half its length, or more if more elements are added at once.
+ *
+ * @param <E> type of the elements
+ */
+public class CapacityTrackingList<E> extends ArrayList<E> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int DEFAULT_CAPACITY = 10;
+
+    /**
+     * Bytes of the fields added to those of ArrayList
+     */
+    static final int FIELD_BYTES = Integer.BYTES + 1;
+
+    private int capacity;
+    // Created without capacity and not allocated yet
+    private boolean deferred;
+
+    public CapacityTrackingList() {
+        deferred = true;
+    }
+
+    public CapacityTrackingList(int initialCapacity) {
+        super(initialCapacity);
+        capacity = initialCapacity;
+    }
+
+    /**
+     * @return the length of the backing array
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public boolean add(E e) {
+        grow(size() + 1);
+        return super.add(e);
+    }
+
+    @Override
+    public void add(int index, E element) {
+        rangeCheckForAdd(index);
+        grow(size() + 1);
+        super.add(index, element);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        if (!c.isEmpty()) {
+            grow(size() + c.size());
+        }
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends E> c) {
+        rangeCheckForAdd(index);
+        if (!c.isEmpty()) {
+            grow(size() + c.size());
+        }
+        return super.addAll(index, c);
+    }
+
+    @Override
+    public void ensureCapacity(int minCapacity) {
+        if (!(deferred && minCapacity <= DEFAULT_CAPACITY)) {
+            grow(minCapacity);
+        }
+        super.ensureCapacity(minCapacity);
+    }
+
+    @Override
+    public void trimToSize() {
+        if (size() < capacity) {
+            capacity = size();
+            deferred = false;
+        }
+        super.trimToSize();
+    }
+
+    @Override
+    public Object clone() {
+        CapacityTrackingList<?> clone = (CapacityTrackingList<?>) super.clone();
+        clone.capacity = size();
+        clone.deferred = false;
+        return clone;
+    }
+
+    private void grow(int minCapacity) {
+        if (minCapacity <= capacity) {
+            return;
+        }
+        if (deferred) {
+            capacity = Math.max(DEFAULT_CAPACITY, minCapacity);
+        } else {
+            capacity += Math.max(minCapacity - capacity, capacity >> 1);
+        }
+        deferred = false;
+    }
+
+    private void rangeCheckForAdd(int index) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+    }
+}
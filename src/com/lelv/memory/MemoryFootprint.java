@@ -0,0 +1,89 @@
+package com.lelv.memory;
+
+/**
+ * Estimate of the bytes a graph takes, broken down by what they are used for. The nodes and the connections stored
+ * in the graph are objects of the user and are not counted, only the references to them.
+ *
+ * @see MemoryLayout
+ */
+public final class MemoryFootprint {
+
+    private final long vertexIndex;
+    private final long adjacency;
+    private final long payloadReferences;
+    private final long slack;
+
+    /**
+     * @param vertexIndex       bytes used to store the nodes and find them
+     * @param adjacency         bytes used to store which nodes are connected
+     * @param payloadReferences bytes used by the references to the information of the connections
+     * @param slack             bytes allocated but not used, such as the free capacity of growable arrays
+     */
+    public MemoryFootprint(long vertexIndex, long adjacency, long payloadReferences, long slack) {
+        this.vertexIndex = vertexIndex;
+        this.adjacency = adjacency;
+        this.payloadReferences = payloadReferences;
+        this.slack = slack;
+    }
+
+    /**
+     * @return the bytes used to store the nodes and find them
+     */
+    public long getVertexIndex() {
+        return vertexIndex;
+    }
+
+    /**
+     * @return the bytes used to store which nodes are connected
+     */
+    public long getAdjacency() {
+        return adjacency;
+    }
+
+    /**
+     * @return the bytes used by the references to the information of the connections
+     */
+    public long getPayloadReferences() {
+        return payloadReferences;
+    }
+
+    /**
+     * @return the bytes allocated but not used, which trimming the graph gives back
+     */
+    public long getSlack() {
+        return slack;
+    }
+
+    /**
+     * @return the sum of every part of the footprint
+     */
+    public long getTotal() {
+        return vertexIndex + adjacency + payloadReferences + slack;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        MemoryFootprint that = (MemoryFootprint) o;
+
+        return vertexIndex == that.vertexIndex && adjacency == that.adjacency
+                && payloadReferences == that.payloadReferences && slack == that.slack;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(vertexIndex);
+        result = 31 * result + Long.hashCode(adjacency);
+        result = 31 * result + Long.hashCode(payloadReferences);
+        result = 31 * result + Long.hashCode(slack);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "vertex index: " + vertexIndex + " B, adjacency: " + adjacency + " B, payload references: "
+                + payloadReferences + " B, slack: " + slack + " B, total: " + getTotal() + " B";
+    }
+}
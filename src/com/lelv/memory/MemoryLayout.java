@@ -0,0 +1,116 @@
+package com.lelv.memory;
+
+import java.util.List;
+
+/**
+ * Sizes of objects and arrays in a 64-bit HotSpot JVM, used to estimate memory footprints without instrumentation.
+ * References are assumed to be compressed, as they are by default, when the maximum heap is under 32 GB.
+ * Objects are aligned to 8 bytes.
+ */
+public final class MemoryLayout {
+
+    public static final int REFERENCE;
+    public static final int OBJECT_HEADER;
+    public static final int ARRAY_HEADER;
+
+    static {
+        boolean compressed = Runtime.getRuntime().maxMemory() < 32L * 1024 * 1024 * 1024;
+        REFERENCE = compressed ? 4 : 8;
+        OBJECT_HEADER = compressed ? 12 : 16;
+        ARRAY_HEADER = (int) align(OBJECT_HEADER + Integer.BYTES);
+    }
+
+    /*
+     * HashMap grows its table when it is fuller than this
+     */
+    private static final double HASH_MAP_LOAD_FACTOR = 0.75;
+    private static final int HASH_MAP_DEFAULT_CAPACITY = 16;
+
+    private MemoryLayout() {
+    }
+
+    /**
+     * @param bytes size of an object before alignment
+     * @return the size rounded up to the next multiple of 8
+     */
+    public static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * @param references     number of reference fields, including the one to the enclosing instance of inner
+     *                       classes
+     * @param primitiveBytes bytes taken by the primitive fields
+     * @return the size of an object with those fields
+     */
+    public static long object(int references, int primitiveBytes) {
+        return align(OBJECT_HEADER + (long) references * REFERENCE + primitiveBytes);
+    }
+
+    /**
+     * @param length length of the array
+     * @return the size of an array of references
+     */
+    public static long referenceArray(long length) {
+        return align(ARRAY_HEADER + length * REFERENCE);
+    }
+
+    /**
+     * @param length       length of the array
+     * @param elementBytes bytes of every element
+     * @return the size of an array of primitives
+     */
+    public static long primitiveArray(long length, int elementBytes) {
+        return align(ARRAY_HEADER + length * elementBytes);
+    }
+
+    /**
+     * @param size     number of elements
+     * @param capacity length of the backing array
+     * @return the bytes of the free capacity of an ArrayList, which trimming it gives back. Empty lists share an
+     * empty array once trimmed
+     */
+    public static long arrayListSlack(int size, int capacity) {
+        if (capacity == 0) {
+            return 0;
+        }
+        return referenceArray(capacity) - (size == 0 ? 0 : referenceArray(size));
+    }
+
+    /**
+     * @param list an ArrayList or a {@link CapacityTrackingList}
+     * @return the size of the list and its backing array, not counting the free capacity, including the fields a
+     * CapacityTrackingList adds to ArrayList
+     */
+    public static long list(List<?> list) {
+        int extra = list instanceof CapacityTrackingList ? CapacityTrackingList.FIELD_BYTES : 0;
+        return object(1, 2 * Integer.BYTES + extra) + (list.isEmpty() ? 0 : referenceArray(list.size()));
+    }
+
+    /**
+     * @param list an ArrayList or a {@link CapacityTrackingList}
+     * @return the bytes of the free capacity of the list. The capacity of lists other than CapacityTrackingList is
+     * not known, so they have none
+     */
+    public static long listSlack(List<?> list) {
+        return list instanceof CapacityTrackingList
+                ? arrayListSlack(list.size(), ((CapacityTrackingList<?>) list).capacity()) : 0;
+    }
+
+    /**
+     * Estimates the size of a HashMap filled one entry at a time, without its keys and values. The table of a
+     * HashMap never shrinks, so maps that had more entries in the past take more than this
+     *
+     * @param size number of entries
+     * @return the size of the map, its table and its entries
+     */
+    public static long hashMap(int size) {
+        long capacity = HASH_MAP_DEFAULT_CAPACITY;
+        while (size > capacity * HASH_MAP_LOAD_FACTOR) {
+            capacity *= 2;
+        }
+        long map = object(4, 3 * Integer.BYTES + Float.BYTES);
+        long entry = object(3, Integer.BYTES);
+        return map + (size == 0 ? 0 : referenceArray(capacity)) + size * entry;
+    }
+}
@@ -0,0 +1,69 @@
+package com.lelv.graphone;
+
+import com.lelv.memory.MemoryFootprint;
+import com.lelv.memory.MemoryLayout;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class GraphAdjListTest {
+
+    // ArrayList fields plus the capacity and the flag of CapacityTrackingList
+    private static final long LIST = MemoryLayout.object(1, 2 * Integer.BYTES + Integer.BYTES + 1);
+    private static final long ARC = MemoryLayout.object(3, 0) - MemoryLayout.REFERENCE;
+
+    @Test
+    public void memoryFootprint() {
+        DiGraph<Integer, String> graph = new DiGraph<>();
+        for (int v = 0; v < 3; v++) {
+            graph.addVertex(v);
+        }
+        graph.addArc(0, 1, "a");
+        graph.addArc(0, 2, "b");
+        graph.addArc(1, 2, "c");
+
+        MemoryFootprint footprint = graph.memoryFootprint();
+        assertEquals(MemoryLayout.hashMap(3) + 3 * MemoryLayout.object(3, 1), footprint.getVertexIndex());
+        assertEquals(3 * LIST + MemoryLayout.referenceArray(2) + MemoryLayout.referenceArray(1) + 3 * ARC,
+                     footprint.getAdjacency());
+        assertEquals(3 * MemoryLayout.REFERENCE, footprint.getPayloadReferences());
+        // Both lists allocated ten slots, the empty one none
+        assertEquals(MemoryLayout.arrayListSlack(2, 10) + MemoryLayout.arrayListSlack(1, 10), footprint.getSlack());
+    }
+
+    @Test
+    public void trimToSize() {
+        DiGraph<Integer, String> graph = new DiGraph<>();
+        for (int v = 0; v < 100; v++) {
+            graph.addVertex(v);
+        }
+        for (int v = 1; v < 100; v++) {
+            graph.addArc(0, v, "arc");
+        }
+        for (int v = 50; v < 100; v++) {
+            graph.removeVertex(v);
+        }
+        MemoryFootprint before = graph.memoryFootprint();
+        assertEquals(MemoryLayout.arrayListSlack(49, 109), before.getSlack());
+
+        HashMap<Integer, GraphAdjList<Integer, String>.Node> nodes = graph.nodes;
+        graph.trimToSize();
+        MemoryFootprint after = graph.memoryFootprint();
+        assertEquals(0, after.getSlack());
+        assertEquals(before.getVertexIndex(), after.getVertexIndex());
+        assertEquals(before.getAdjacency(), after.getAdjacency());
+        assertEquals(before.getTotal() - before.getSlack(), after.getTotal());
+
+        // The table left by the removed nodes is replaced by one for the nodes left
+        assertNotSame(nodes, graph.nodes);
+        assertEquals(nodes, graph.nodes);
+        assertEquals(50, graph.vertexCount());
+        assertEquals(new HashSet<>(Arrays.asList(1, 2, 3)), new HashSet<>(graph.neighbors(0).subList(0, 3)));
+        assertEquals(49, graph.neighbors(0).size());
+        assertEquals("arc", graph.isArc(0, 49));
+    }
+}
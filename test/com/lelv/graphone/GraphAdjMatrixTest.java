@@ -0,0 +1,51 @@
+package com.lelv.graphone;
+
+import com.lelv.memory.MemoryFootprint;
+import com.lelv.memory.MemoryLayout;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GraphAdjMatrixTest {
+
+    @Test
+    public void memoryFootprint() {
+        assertEquals(new MemoryFootprint(0, 0, 0, 0), new GraphAdjMatrix().memoryFootprint());
+
+        GraphAdjMatrix graph = new GraphAdjMatrix(true);
+        graph.AddVertices(4);
+        graph.AddArc(0, 1);
+        assertEquals(new MemoryFootprint(0, matrix(4), 0, 0), graph.memoryFootprint());
+    }
+
+    @Test
+    public void trimToSize() {
+        GraphAdjMatrix graph = new GraphAdjMatrix(true);
+        graph.AddVertices(10);
+        graph.AddArc(0, 9);
+        graph.AddArc(9, 1);
+        graph.AddArc(2, 3);
+        for (int v = 3; v < 9; v++) {
+            graph.removeVertex(3);
+        }
+        // The removed rows and columns are still allocated
+        assertEquals(new MemoryFootprint(0, matrix(4), 0, matrix(10) - matrix(4)), graph.memoryFootprint());
+
+        graph.trimToSize();
+        assertEquals(new MemoryFootprint(0, matrix(4), 0, 0), graph.memoryFootprint());
+        assertEquals(4, graph.vertexCount());
+        assertEquals(2, graph.arcCount());
+        assertTrue(graph.isArc(0, 3));
+        assertTrue(graph.isArc(3, 1));
+
+        // The shrunk matrix grows again for new nodes
+        graph.AddVertices(1);
+        graph.AddArc(4, 0);
+        assertEquals(new MemoryFootprint(0, matrix(5), 0, 0), graph.memoryFootprint());
+        assertTrue(graph.isArc(4, 0));
+    }
+
+    private static long matrix(int n) {
+        return MemoryLayout.referenceArray(n) + n * MemoryLayout.primitiveArray(n, 1);
+    }
+}
@@ -1,9 +1,13 @@
 package com.lelv.graphthree;
 
 import com.lelv.graphthree.impl.DirectedGraph;
+import com.lelv.memory.MemoryFootprint;
+import com.lelv.memory.MemoryLayout;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -108,4 +112,148 @@ public class AbstractGraphTest {
         assertEquals(Collections.EMPTY_LIST, graph.getNeighbors("c"));
     }
 
+    @Test
+    public void views() {
+        DirectedGraph<String, Integer> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c");
+        graph.connectNodes("a", "b", 1);
+
+        List<String> nodes = graph.getNodesView();
+        List<String> neighbors = graph.getNeighborsView("a");
+        assertEquals("[a, b, c]", nodes.toString());
+        assertEquals("[b]", neighbors.toString());
+        assertNull(graph.getNeighborsView("d"));
+
+        graph.connectNodes("a", "c", 2);
+        graph.removeNode("b");
+        assertEquals("[a, c]", nodes.toString());
+        assertEquals("[c]", neighbors.toString());
+
+        try {
+            neighbors.add("a");
+            fail();
+        } catch (UnsupportedOperationException expected) {
+            assertEquals(1, graph.getNumberOfConnections());
+        }
+    }
+
+    @Test
+    public void forEachNeighbor() {
+        DirectedGraph<String, Integer> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c");
+        graph.connectNodes("a", "b", 1);
+        graph.connectNodes("a", "c", 2);
+
+        List<String> visited = new ArrayList<>();
+        assertTrue(graph.forEachNeighbor("a", visited::add));
+        assertFalse(graph.forEachNeighbor("d", visited::add));
+        assertEquals("[b, c]", visited.toString());
+
+        visited.clear();
+        assertTrue(graph.forEachEdge("a", (destination, connection) -> visited.add(destination + connection)));
+        assertTrue(graph.forEachEdge("b", (destination, connection) -> visited.add(destination)));
+        assertEquals("[b1, c2]", visited.toString());
+    }
+
+    @Test
+    public void setConnection() {
+        DirectedGraph<String, Integer> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c");
+        graph.connectNodes("a", "b", 1);
+        graph.connectNodes("a", "c", 2);
+
+        assertTrue(graph.setConnection("a", "b", 5));
+        assertFalse(graph.setConnection("b", "a", 5));
+        assertFalse(graph.setConnection("d", "a", 5));
+
+        assertEquals(5, (int) graph.getConnection("a", "b").orElse(-1));
+        assertEquals("[b, c]", graph.getNeighbors("a").toString());
+        assertEquals(2, graph.getNumberOfConnections());
+    }
+
+    @Test
+    public void listeners() {
+        DirectedGraph<String, Integer> graph = new DirectedGraph<>();
+        List<String> events = new ArrayList<>();
+        GraphListener<String, Integer> listener = new GraphListener<String, Integer>() {
+            @Override
+            public void nodeAdded(String node) {
+                events.add("+" + node);
+            }
+
+            @Override
+            public void nodeRemoved(String node) {
+                events.add("-" + node);
+            }
+
+            @Override
+            public void nodesConnected(String originNode, String destinationNode, Integer connection) {
+                events.add("+" + originNode + destinationNode + connection);
+            }
+
+            @Override
+            public void nodesDisconnected(String originNode, String destinationNode, Integer connection) {
+                events.add("-" + originNode + destinationNode + connection);
+            }
+
+            @Override
+            public void connectionChanged(String originNode, String destinationNode, Integer oldConnection,
+                                          Integer newConnection) {
+                events.add(originNode + destinationNode + oldConnection + ">" + newConnection);
+            }
+        };
+        graph.addListener(listener);
+
+        graph.addNodes("a", "b", "c");
+        graph.addNode("a");
+        graph.connectNodes("a", "b", 1);
+        graph.connectNodes("b", "c", 2);
+        graph.connectNodes("c", "a", 3);
+        graph.setConnection("a", "b", 4);
+        graph.disconnectNodes("b", "c");
+        graph.removeNode("a");
+
+        assertEquals("[+a, +b, +c, +ab1, +bc2, +ca3, ab1>4, -bc2, -ca3, -ab4, -a]", events.toString());
+        assertEquals(0, graph.getNumberOfConnections());
+
+        assertTrue(graph.removeListener(listener));
+        assertFalse(graph.removeListener(listener));
+        graph.addNode("d");
+        assertEquals(11, events.size());
+    }
+
+    @Test
+    public void memoryFootprint() {
+        DirectedGraph<Integer, Integer> graph = new DirectedGraph<>();
+        for (int v = 0; v < 100; v++) {
+            graph.addNode(v);
+        }
+        for (int v = 0; v < 99; v++) {
+            graph.connectNodes(v, v + 1, v);
+        }
+        MemoryFootprint footprint = graph.memoryFootprint();
+        assertEquals(99 * MemoryLayout.REFERENCE, footprint.getPayloadReferences());
+        assertTrue(footprint.getVertexIndex() > 100 * MemoryLayout.REFERENCE);
+        assertTrue(footprint.getAdjacency() > 0);
+        // Lists of one edge have room for ten, and the list of 100 vertices for 109
+        assertEquals(99 * MemoryLayout.arrayListSlack(1, 10) + MemoryLayout.arrayListSlack(100, 109),
+                     footprint.getSlack());
+
+        for (int v = 50; v < 100; v++) {
+            graph.removeNode(v);
+        }
+        graph.trimToSize();
+        MemoryFootprint trimmed = graph.memoryFootprint();
+        assertEquals(0, trimmed.getSlack());
+        assertEquals(49 * MemoryLayout.REFERENCE, trimmed.getPayloadReferences());
+        assertTrue(trimmed.getTotal() < footprint.getTotal() - footprint.getSlack());
+        assertEquals(trimmed.getTotal(), trimmed.getVertexIndex() + trimmed.getAdjacency()
+                + trimmed.getPayloadReferences());
+
+        assertTrue(graph.connectNodes(0, 2, 0));
+        assertTrue(graph.addNode(100));
+        assertEquals(50 * MemoryLayout.REFERENCE, graph.memoryFootprint().getPayloadReferences());
+        assertEquals(MemoryLayout.arrayListSlack(51, 75), graph.memoryFootprint().getSlack());
+    }
+
 }
@@ -0,0 +1,154 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.DirectedGraph;
+import com.lelv.graphthree.impl.Graph;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import static com.lelv.graphthree.GraphAssertions.assertSameGraph;
+import static org.junit.Assert.*;
+
+public class CheckpointerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void restoresDirectedGraphs() throws IOException {
+        restoresTheLastCheckpoint(DirectedGraph::new);
+    }
+
+    @Test
+    public void restoresUndirectedGraphs() throws IOException {
+        restoresTheLastCheckpoint(Graph::new);
+    }
+
+    @Test
+    public void writesOnlyDirtyNodes() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        DirectedGraph<Integer, Integer> graph = new DirectedGraph<>();
+        try (Checkpointer<Integer, Integer> checkpointer = Checkpointer.open(directory, graph, Codec.INTEGER,
+                                                                             Codec.INTEGER)) {
+            for (int i = 0; i < 1000; i++) {
+                graph.addNode(i);
+                graph.connectNodes(i, i / 2, i);
+            }
+            assertEquals(1000, checkpointer.getNumberOfDirtyNodes());
+            assertEquals(1, (long) checkpointer.checkpoint().join());
+            long full = Files.size(directory.resolve(String.format("delta-%020d.bin", 1)));
+
+            graph.setConnection(10, 5, -10);
+            graph.removeNode(999);
+            assertEquals(2, checkpointer.getNumberOfDirtyNodes());
+            assertEquals(2, (long) checkpointer.checkpoint().join());
+            assertEquals(0, checkpointer.getNumberOfDirtyNodes());
+            assertTrue(Files.size(directory.resolve(String.format("delta-%020d.bin", 2))) * 100 < full);
+
+            // Nothing changed, so nothing is written
+            assertEquals(2, (long) checkpointer.checkpoint().join());
+        }
+
+        DirectedGraph<Integer, Integer> restored = new DirectedGraph<>();
+        Checkpointer.open(directory, restored, Codec.INTEGER, Codec.INTEGER).close();
+        assertSameGraph(graph, restored);
+        assertEquals(-10, (int) restored.getConnection(10, 5).get());
+    }
+
+    @Test
+    public void checkpointsOnSchedule() throws Exception {
+        DirectedGraph<String, String> graph = new DirectedGraph<>();
+        ReentrantLock lock = new ReentrantLock();
+        try (Checkpointer<String, String> checkpointer = Checkpointer.open(folder.getRoot().toPath(), graph,
+                                                                           Codec.STRING, Codec.STRING)) {
+            checkpointer.schedule(5, TimeUnit.MILLISECONDS, lock);
+            lock.lock();
+            try {
+                graph.addNodes("a", "b");
+                graph.connectNodes("a", "b", "ab");
+            } finally {
+                lock.unlock();
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (checkpointer.getLastCheckpoint() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, checkpointer.getLastCheckpoint());
+        }
+
+        DirectedGraph<String, String> restored = new DirectedGraph<>();
+        Checkpointer.open(folder.getRoot().toPath(), restored, Codec.STRING, Codec.STRING).close();
+        assertSameGraph(graph, restored);
+    }
+
+    private void restoresTheLastCheckpoint(Supplier<AbstractGraph<Integer, Integer>> factory) throws IOException {
+        Path directory = folder.getRoot().toPath();
+        AbstractGraph<Integer, Integer> graph = factory.get();
+        Random random = new Random(7);
+        try (Checkpointer<Integer, Integer> checkpointer = Checkpointer.open(directory, graph, Codec.INTEGER,
+                                                                             Codec.INTEGER, 3)) {
+            for (int round = 1; round <= 10; round++) {
+                mutate(graph, random, 300);
+                assertEquals(round, (long) checkpointer.checkpoint().join());
+            }
+            // Three folds so far, leaving one base and the deltas after it
+            assertEquals(1, countFiles(directory, "base-"));
+            assertEquals(1, countFiles(directory, "delta-"));
+        }
+
+        AbstractGraph<Integer, Integer> restored = factory.get();
+        try (Checkpointer<Integer, Integer> checkpointer = Checkpointer.open(directory, restored, Codec.INTEGER,
+                                                                             Codec.INTEGER, 3)) {
+            assertSameGraph(graph, restored);
+            assertEquals(graph.getNumberOfConnections(), restored.getNumberOfConnections());
+            mutate(restored, random, 300);
+            assertEquals(11, (long) checkpointer.checkpoint().join());
+            // Changes after the last checkpoint are lost
+            restored.addNode(-1);
+        }
+
+        AbstractGraph<Integer, Integer> again = factory.get();
+        Checkpointer.open(directory, again, Codec.INTEGER, Codec.INTEGER, 3).close();
+        restored.removeNode(-1);
+        assertSameGraph(restored, again);
+    }
+
+    private static void mutate(AbstractGraph<Integer, Integer> graph, Random random, int changes) {
+        for (int i = 0; i < changes; i++) {
+            int a = random.nextInt(100);
+            int b = random.nextInt(100);
+            switch (random.nextInt(6)) {
+                case 0:
+                    graph.addNode(a);
+                    break;
+                case 1:
+                    if (random.nextInt(4) == 0) {
+                        graph.removeNode(a);
+                    }
+                    break;
+                case 2:
+                    graph.disconnectNodes(a, b);
+                    break;
+                case 3:
+                    graph.setConnection(a, b, random.nextInt());
+                    break;
+                default:
+                    graph.connectNodes(a, b, random.nextInt());
+            }
+        }
+    }
+
+    private static long countFiles(Path directory, String prefix) throws IOException {
+        try (var stream = Files.list(directory)) {
+            return stream.filter(path -> path.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+}
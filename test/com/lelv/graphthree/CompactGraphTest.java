@@ -0,0 +1,159 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.DirectedGraph;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompactGraphTest {
+
+    @Test
+    public void snapshot() {
+        CompactGraph<String> compact = CompactGraph.of(testGraph());
+
+        assertEquals(4, compact.getNumberOfNodes());
+        assertEquals(4, compact.getNumberOfConnections());
+        assertEquals("[a, b, c, d]", compact.getNodes().toString());
+
+        assertEquals(0, compact.idOf("a"));
+        assertEquals(3, compact.idOf("d"));
+        assertEquals(CompactGraph.NON_EXISTENT_ID, compact.idOf("e"));
+        assertEquals("c", compact.nodeOf(2));
+
+        assertEquals(2, compact.outDegree(0));
+        assertArrayEquals(new int[]{1, 2}, compact.neighbors(0));
+        assertArrayEquals(new int[]{}, compact.neighbors(3));
+    }
+
+    @Test
+    public void transpose() {
+        CompactGraph<String> transpose = CompactGraph.of(testGraph()).transpose();
+
+        assertEquals(4, transpose.getNumberOfConnections());
+        assertArrayEquals(new int[]{}, transpose.neighbors(0));
+        assertArrayEquals(new int[]{0, 1}, transpose.neighbors(2));
+        assertArrayEquals(new int[]{2}, transpose.neighbors(3));
+    }
+
+    @Test
+    public void weighted() {
+        DirectedGraph<String, MyWeightedEdge> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c");
+        graph.connectNodes("a", "b", new MyWeightedEdge(3));
+        graph.connectNodes("a", "c", new MyWeightedEdge(5));
+
+        CompactGraph<String> compact = CompactGraph.weighted(graph);
+        assertTrue(compact.isWeighted());
+        assertFalse(CompactGraph.of(graph).isWeighted());
+        assertArrayEquals(new double[]{3, 5}, compact.weights(0), 0.0);
+        assertArrayEquals(new double[]{5}, compact.transpose().weights(2), 0.0);
+    }
+
+    @Test
+    public void neighborsWithoutCopies() {
+        DirectedGraph<String, MyWeightedEdge> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c");
+        graph.connectNodes("a", "b", new MyWeightedEdge(3));
+        graph.connectNodes("a", "c", new MyWeightedEdge(5));
+        CompactGraph<String> compact = CompactGraph.weighted(graph);
+
+        assertEquals(1, compact.neighbor(0, 0));
+        assertEquals(2, compact.neighbor(0, 1));
+        assertEquals(5, compact.weight(0, 1), 0.0);
+
+        StringBuilder visited = new StringBuilder();
+        compact.forEachNeighbor(0, neighbor -> visited.append(neighbor));
+        compact.forEachEdge(0, (neighbor, weight) -> visited.append(' ').append(neighbor).append('=').append(weight));
+        compact.forEachNeighbor(1, neighbor -> visited.append(neighbor));
+        assertEquals("12 1=3.0 2=5.0", visited.toString());
+    }
+
+    @Test
+    public void idsOfIdGraphsAreAWholeMap() {
+        CompactGraph<Integer> graph = CompactGraph.ofIds(new int[]{0, 1, 1, 2}, new int[]{1, 0});
+        assertEquals(Map.of(0, 0, 1, 1, 2, 2), graph.ids);
+        assertEquals(graph.ids, Map.of(0, 0, 1, 1, 2, 2));
+        assertEquals(3, graph.ids.size());
+        assertTrue(graph.ids.containsKey(2));
+        assertFalse(graph.ids.containsKey(3));
+        assertFalse(graph.ids.containsKey("1"));
+        assertEquals(2, graph.idOf(2));
+        assertEquals(CompactGraph.NON_EXISTENT_ID, graph.idOf(-1));
+    }
+
+    @Test
+    public void edgeListOfStringKeys() {
+        String edges = "madrid paris 1.5\nparis berlin 2.0\nmadrid lisboa 0.5\nberlin madrid 3.0\nlisboa lisboa 1.0";
+        StringDictionary dictionary = new StringDictionary();
+        IntList sources = new IntList(8);
+        IntList destinations = new IntList(8);
+        List<Double> weights = new ArrayList<>();
+        for (String line : edges.split("\n")) {
+            String[] fields = line.split(" ");
+            sources.add(dictionary.intern(fields[0]));
+            destinations.add(dictionary.intern(fields[1]));
+            weights.add(Double.parseDouble(fields[2]));
+        }
+        CompactGraph<String> graph = CompactGraph.fromEdges(dictionary, sources.toArray(), destinations.toArray(),
+                                                            weights.stream().mapToDouble(w -> w).toArray());
+
+        assertEquals(4, graph.getNumberOfNodes());
+        assertEquals(5, graph.getNumberOfConnections());
+        assertEquals(List.of("madrid", "paris", "berlin", "lisboa"), graph.getNodes());
+        assertEquals(Map.of("madrid", 0, "paris", 1, "berlin", 2, "lisboa", 3), graph.ids);
+        assertEquals(3, graph.idOf("lisboa"));
+        assertEquals("berlin", graph.nodeOf(2));
+        assertArrayEquals(new int[]{1, 3}, graph.neighbors(graph.idOf("madrid")));
+        assertArrayEquals(new double[]{1.5, 0.5}, graph.weights(graph.idOf("madrid")), 0.0);
+        assertArrayEquals(new int[]{3}, graph.neighbors(graph.idOf("lisboa")));
+        assertArrayEquals(new int[]{1}, graph.transpose().neighbors(graph.idOf("berlin")));
+
+        // Keys interned after the graph was built are not nodes of it
+        dictionary.intern("roma");
+        assertEquals(CompactGraph.NON_EXISTENT_ID, graph.idOf("roma"));
+        assertEquals(CompactGraph.NON_EXISTENT_ID, graph.idOf(null));
+        assertEquals(4, graph.getNodes().size());
+        assertFalse(CompactGraph.fromEdges(dictionary, new int[]{0}, new int[]{4}).isWeighted());
+
+        try {
+            CompactGraph.fromEdges(dictionary, new int[]{0}, new int[]{5});
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            CompactGraph.fromEdges(dictionary, new int[]{0, 1}, new int[]{1});
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void neighborOutOfRange() {
+        CompactGraph.of(testGraph()).neighbor(0, 2);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void weightOfUnweightedGraph() {
+        CompactGraph.of(testGraph()).weight(0, 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void weightsOfUnweightedGraph() {
+        CompactGraph.of(testGraph()).weights(0);
+    }
+
+    private DirectedGraph<String, Integer> testGraph() {
+        DirectedGraph<String, Integer> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c", "d");
+
+        graph.connectNodes("a", "b", 1);
+        graph.connectNodes("a", "c", 1);
+        graph.connectNodes("b", "c", 1);
+        graph.connectNodes("c", "d", 1);
+        return graph;
+    }
+}
@@ -0,0 +1,110 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.DirectedGraph;
+import com.lelv.graphthree.impl.Graph;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DynamicShortestPathsTest {
+
+    @Test
+    public void followsChanges() {
+        DirectedGraph<String, MyWeightedEdge> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c", "d");
+        graph.connectNodes("a", "b", new MyWeightedEdge(1));
+        graph.connectNodes("b", "c", new MyWeightedEdge(1));
+        graph.connectNodes("a", "c", new MyWeightedEdge(5));
+
+        DynamicShortestPaths<String, MyWeightedEdge> paths = new DynamicShortestPaths<>(graph, "a");
+        assertEquals(2.0, paths.getDistance("c"), 0.0);
+        assertEquals(Arrays.asList("a", "b", "c"), paths.getPath("c"));
+        assertEquals(Double.POSITIVE_INFINITY, paths.getDistance("d"), 0.0);
+        assertNull(paths.getPath("d"));
+
+        graph.connectNodes("c", "d", new MyWeightedEdge(1));
+        assertEquals(3.0, paths.getDistance("d"), 0.0);
+
+        graph.setConnection("b", "c", new MyWeightedEdge(10));
+        assertEquals(5.0, paths.getDistance("c"), 0.0);
+        assertEquals(6.0, paths.getDistance("d"), 0.0);
+        assertEquals(Arrays.asList("a", "c", "d"), paths.getPath("d"));
+
+        graph.disconnectNodes("a", "c");
+        assertEquals(11.0, paths.getDistance("c"), 0.0);
+
+        graph.removeNode("b");
+        assertNull(paths.getPath("c"));
+        assertEquals(GraphFunctions.dijkstra(graph, "a"), paths.getDistances());
+
+        paths.unsubscribe();
+        graph.connectNodes("a", "d", new MyWeightedEdge(1));
+        assertEquals(Double.POSITIVE_INFINITY, paths.getDistance("d"), 0.0);
+    }
+
+    @Test
+    public void matchesDijkstraOnDirectedGraph() {
+        Random random = new Random(11);
+        DirectedGraph<Integer, MyWeightedEdge> graph = new DirectedGraph<>();
+        checkRandomChanges(graph, random);
+    }
+
+    @Test
+    public void matchesDijkstraOnGraph() {
+        Random random = new Random(13);
+        Graph<Integer, MyWeightedEdge> graph = new Graph<>();
+        checkRandomChanges(graph, random);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requiresOrigin() {
+        new DynamicShortestPaths<>(new DirectedGraph<String, MyWeightedEdge>(), "a");
+    }
+
+    private static void checkRandomChanges(AbstractGraph<Integer, MyWeightedEdge> graph, Random random) {
+        int n = 60;
+        for (int v = 0; v < n; v++) {
+            graph.addNode(v);
+        }
+        for (int i = 0; i < 150; i++) {
+            graph.connectNodes(random.nextInt(n), random.nextInt(n), new MyWeightedEdge(random.nextInt(10)));
+        }
+
+        DynamicShortestPaths<Integer, MyWeightedEdge> paths = new DynamicShortestPaths<>(graph, 0);
+        assertEquals(GraphFunctions.dijkstra(graph, 0), paths.getDistances());
+
+        for (int step = 0; step < 1000; step++) {
+            int u = random.nextInt(n);
+            int v = random.nextInt(n);
+            switch (random.nextInt(5)) {
+                case 0:
+                case 1:
+                    graph.connectNodes(u, v, new MyWeightedEdge(random.nextInt(10)));
+                    break;
+                case 2:
+                    List<Integer> neighbors = graph.getNeighbors(u);
+                    if (neighbors != null && !neighbors.isEmpty()) {
+                        graph.disconnectNodes(u, neighbors.get(random.nextInt(neighbors.size())));
+                    }
+                    break;
+                case 3:
+                    neighbors = graph.getNeighbors(u);
+                    if (neighbors != null && !neighbors.isEmpty()) {
+                        v = neighbors.get(random.nextInt(neighbors.size()));
+                        graph.setConnection(u, v, new MyWeightedEdge(random.nextInt(10)));
+                    }
+                    break;
+                default:
+                    if (u != 0 && random.nextInt(10) == 0) {
+                        graph.removeNode(u);
+                        graph.addNode(u);
+                    }
+            }
+            assertEquals(GraphFunctions.dijkstra(graph, 0), paths.getDistances());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.lelv.graphthree;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Assertions that compare whole graphs, shared by the tests of the classes that copy, restore or renumber them
+ */
+public final class GraphAssertions {
+
+    private GraphAssertions() {
+    }
+
+    /**
+     * Asserts that both graphs have the same nodes, and the same connections between them
+     */
+    public static <V, E> void assertSameGraph(AbstractGraph<V, E> expected, AbstractGraph<V, E> actual) {
+        assertEquals(new HashSet<>(expected.getNodes()), new HashSet<>(actual.getNodes()));
+        for (V origin : expected.getNodes()) {
+            assertEquals(new HashSet<>(expected.getNeighbors(origin)), new HashSet<>(actual.getNeighbors(origin)));
+            for (V destination : expected.getNeighbors(origin)) {
+                assertEquals(expected.getConnection(origin, destination), actual.getConnection(origin, destination));
+            }
+        }
+    }
+
+    /**
+     * Asserts that a compact graph has the nodes and connections of a graph, that its ids and nodes map to each
+     * other, that the neighbors of every node are sorted by id and, if it is weighted, that it keeps the weight of
+     * every connection
+     */
+    public static <V, E> void assertSameGraph(AbstractGraph<V, E> expected, CompactGraph<V> actual) {
+        assertEquals(expected.getNumberOfNodes(), actual.getNumberOfNodes());
+        assertEquals(expected.getNumberOfConnections(), actual.getNumberOfConnections());
+        for (int id = 0; id < actual.getNumberOfNodes(); id++) {
+            V node = actual.nodeOf(id);
+            assertEquals(id, actual.idOf(node));
+            Set<V> neighbors = new HashSet<>();
+            int[] targets = actual.neighbors(id);
+            for (int k = 0; k < targets.length; k++) {
+                V neighbor = actual.nodeOf(targets[k]);
+                neighbors.add(neighbor);
+                assertTrue(k == 0 || targets[k - 1] < targets[k]);
+                E connection = expected.getConnection(node, neighbor).get();
+                if (actual.isWeighted()) {
+                    assertEquals(((WeightedEdge) connection).getWeight().doubleValue(), actual.weight(id, k), 0.0);
+                }
+            }
+            assertEquals(new HashSet<>(expected.getNeighbors(node)), neighbors);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.lelv.graphthree;
 
+import com.lelv.graphthree.impl.DirectedGraph;
 import com.lelv.graphthree.impl.Graph;
 import org.junit.Test;
 
@@ -52,6 +53,38 @@ public class GraphFunctionsTest {
         assertEquals("{a=0.0, b=1.0, c=2.0, d=2.0, e=3.0, f=3.0, g=1.0, h=9.0}", result.toString());
     }
 
+    @Test
+    public void deltaStepping() {
+        Graph<String, MyWeightedEdge> graph = testGraph();
+
+        graph.connectNodes("a", "g", new MyWeightedEdge(1));
+        graph.connectNodes("g", "d", new MyWeightedEdge(1));
+        graph.connectNodes("c", "f", new MyWeightedEdge(1));
+        graph.connectNodes("e", "d", new MyWeightedEdge(1));
+
+        assertEquals(GraphFunctions.dijkstra(graph, "a"), GraphFunctions.deltaStepping(graph, "a"));
+        assertEquals(GraphFunctions.dijkstra(graph, "a"), GraphFunctions.deltaStepping(graph, "a", 2));
+        assertNull(GraphFunctions.deltaStepping(graph, "z"));
+    }
+
+    @Test
+    public void bellmanFord() {
+        DirectedGraph<String, MyWeightedEdge> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c", "d");
+        graph.connectNodes("a", "b", new MyWeightedEdge(4));
+        graph.connectNodes("a", "c", new MyWeightedEdge(2));
+        graph.connectNodes("b", "c", new MyWeightedEdge(-3));
+        graph.connectNodes("c", "d", new MyWeightedEdge(2));
+
+        Map<String, Double> result = GraphFunctions.bellmanFord(graph, "a");
+        assert result != null;
+        assertEquals("{a=0.0, b=4.0, c=1.0, d=3.0}", result.toString());
+        assertEquals(result, GraphFunctions.deltaStepping(graph, "a"));
+
+        graph.connectNodes("c", "b", new MyWeightedEdge(1));
+        assertNull(GraphFunctions.bellmanFord(graph, "a"));
+    }
+
     @Test
     public void hasPath() {
         Graph<String, MyWeightedEdge> graph = testGraph();
@@ -120,4 +153,50 @@ public class GraphFunctionsTest {
         assertFalse(GraphFunctions.isBridge(graph, "b", "d"));
         assertFalse(GraphFunctions.isBridge(graph, "d", "a"));
     }
+
+    @Test
+    public void topologicalSort() {
+        DirectedGraph<String, MyWeightedEdge> graph = dagTestGraph();
+        assertEquals("[a, f, b, c, d, e]", GraphFunctions.topologicalSort(graph).toString());
+
+        graph.connectNodes("e", "a", new MyWeightedEdge(1));
+        assertNull(GraphFunctions.topologicalSort(graph));
+    }
+
+    @Test
+    public void dagShortestPaths() {
+        Map<String, Double> result = GraphFunctions.dagShortestPaths(dagTestGraph(), "a");
+        assert result != null;
+        assertEquals("{a=0.0, b=2.0, c=1.0, d=3.0, e=4.0}", result.toString());
+        assertNull(GraphFunctions.dagShortestPaths(dagTestGraph(), "z"));
+    }
+
+    @Test
+    public void dagLongestPaths() {
+        Map<String, Double> result = GraphFunctions.dagLongestPaths(dagTestGraph(), "a");
+        assert result != null;
+        assertEquals("{a=0.0, b=2.0, c=3.0, d=9.0, e=10.0}", result.toString());
+    }
+
+    @Test
+    public void criticalPath() {
+        DirectedGraph<String, MyWeightedEdge> graph = dagTestGraph();
+        assertEquals("[a, b, c, d, e]", GraphFunctions.criticalPath(graph).toString());
+
+        graph.connectNodes("f", "e", new MyWeightedEdge(20));
+        assertEquals("[f, e]", GraphFunctions.criticalPath(graph).toString());
+    }
+
+    private DirectedGraph<String, MyWeightedEdge> dagTestGraph() {
+        DirectedGraph<String, MyWeightedEdge> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c", "d", "e", "f");
+
+        graph.connectNodes("a", "b", new MyWeightedEdge(2));
+        graph.connectNodes("a", "c", new MyWeightedEdge(1));
+        graph.connectNodes("b", "c", new MyWeightedEdge(1));
+        graph.connectNodes("b", "d", new MyWeightedEdge(1));
+        graph.connectNodes("c", "d", new MyWeightedEdge(6));
+        graph.connectNodes("d", "e", new MyWeightedEdge(1));
+        return graph;
+    }
 }
@@ -0,0 +1,122 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.DirectedGraph;
+import com.lelv.graphthree.impl.Graph;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GraphGeneratorTest {
+
+    @Test
+    public void erdosRenyiIsReproducible() {
+        long connections = GraphGenerator.CHUNK_SIZE * 3L + 5;
+        CompactGraph<Integer> first = GraphGenerator.erdosRenyi(100_000, connections).withSeed(3)
+                                                    .toCompactGraph(false);
+        CompactGraph<Integer> second = GraphGenerator.erdosRenyi(100_000, connections).withSeed(3)
+                                                     .toCompactGraph(false);
+        CompactGraph<Integer> other = GraphGenerator.erdosRenyi(100_000, connections).withSeed(4)
+                                                    .toCompactGraph(false);
+
+        assertEquals(100_000, first.getNumberOfNodes());
+        // Few repeated connections at this density
+        assertTrue(first.getNumberOfConnections() > connections * 0.99);
+        assertArrayEquals(first.offsets, second.offsets);
+        assertArrayEquals(first.targets, second.targets);
+        assertFalse(java.util.Arrays.equals(first.targets, other.targets));
+        assertNoLoopsOrRepeats(first);
+    }
+
+    @Test
+    public void rmatIsSkewed() {
+        CompactGraph<Integer> graph = GraphGenerator.rmat(14, 16 << 14, 0.57, 0.19, 0.19).withSeed(1)
+                                                    .toCompactGraph(true);
+        assertEquals(1 << 14, graph.getNumberOfNodes());
+        assertNoLoopsOrRepeats(graph);
+        int max = 0;
+        for (int v = 0; v < graph.getNumberOfNodes(); v++) {
+            max = Math.max(max, graph.outDegree(v));
+        }
+        double average = graph.getNumberOfConnections() / (double) graph.getNumberOfNodes();
+        assertTrue(max > 20 * average);
+    }
+
+    @Test
+    public void randomDagsHaveATopologicalOrder() {
+        DirectedGraph<Integer, Integer> graph = GraphGenerator.randomDag(500, 3000).withSeed(9)
+                                                              .into(new DirectedGraph<>(), weight -> 0);
+        assertEquals(500, graph.getNumberOfNodes());
+        for (Integer node : graph.getNodes()) {
+            for (Integer neighbor : graph.getNeighbors(node)) {
+                assertTrue(node < neighbor);
+            }
+        }
+        assertEquals(500, GraphFunctions.topologicalSort(graph).size());
+    }
+
+    @Test
+    public void barabasiAlbertGrowsByPreferentialAttachment() {
+        Graph<Integer, Integer> graph = GraphGenerator.barabasiAlbert(2000, 3).withSeed(5)
+                                                      .into(new Graph<>(), weight -> 0);
+        assertEquals(2000, graph.getNumberOfNodes());
+        assertTrue(GraphFunctions.isConnected(graph));
+        int max = 0;
+        for (Integer node : graph.getNodes()) {
+            max = Math.max(max, graph.degree(node));
+        }
+        assertTrue(max > 50);
+    }
+
+    @Test
+    public void gridsConnectNeighborsWithWeights() {
+        DirectedGraph<Integer, MyWeightedEdge> graph = GraphGenerator.grid(30, 40).withWeights(1, 10).withSeed(2)
+                                                                     .into(new DirectedGraph<>(),
+                                                                           weight -> new MyWeightedEdge(
+                                                                                   (int) weight));
+        assertEquals(1200, graph.getNumberOfNodes());
+        assertEquals(2 * (30 * 39 + 29 * 40), graph.getNumberOfConnections());
+        assertEquals(List.of(1, 40), graph.getNeighbors(0));
+        for (Integer node : graph.getNodes()) {
+            for (Integer neighbor : graph.getNeighbors(node)) {
+                int weight = graph.getConnection(node, neighbor).get().getWeight();
+                assertTrue(weight >= 1 && weight < 10);
+                assertEquals(weight, (int) graph.getConnection(neighbor, node).get().getWeight());
+            }
+        }
+
+        CompactGraph<Integer> roads = GraphGenerator.grid(100, 100, 0.7).withWeights(1, 2).toCompactGraph(false);
+        assertTrue(roads.isWeighted());
+        int streets = 2 * 2 * 100 * 99;
+        assertEquals(0.7, roads.getNumberOfConnections() / (double) streets, 0.03);
+    }
+
+    @Test
+    public void connectionsAreHandedInOrder() {
+        GraphGenerator generator = GraphGenerator.erdosRenyi(50, GraphGenerator.CHUNK_SIZE + 10).withSeed(8)
+                                                 .withWeights(0, 1);
+        List<Double> first = new ArrayList<>();
+        List<Double> second = new ArrayList<>();
+        generator.forEachConnection((origin, destination, weight) -> first.add(origin * 100 + destination + weight));
+        generator.forEachConnection((origin, destination, weight) -> second.add(origin * 100 + destination + weight));
+        assertEquals(GraphGenerator.CHUNK_SIZE + 10, first.size());
+        assertEquals(first, second);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidProbabilities() {
+        GraphGenerator.rmat(10, 100, 0.6, 0.3, 0.3);
+    }
+
+    private static void assertNoLoopsOrRepeats(CompactGraph<Integer> graph) {
+        for (int v = 0; v < graph.getNumberOfNodes(); v++) {
+            int[] neighbors = graph.neighbors(v);
+            for (int i = 0; i < neighbors.length; i++) {
+                assertNotEquals(v, neighbors[i]);
+                assertTrue(i == 0 || neighbors[i - 1] < neighbors[i]);
+            }
+        }
+    }
+}
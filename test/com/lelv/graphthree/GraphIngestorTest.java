@@ -0,0 +1,137 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.DirectedGraph;
+import org.junit.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.junit.Assert.*;
+
+public class GraphIngestorTest {
+
+    @Test
+    public void ingestsEveryMutation() throws Exception {
+        DirectedGraph<Integer, Integer> graph = new DirectedGraph<>();
+        GraphIngestor<Integer, Integer> ingestor =
+                new GraphIngestor<>(graph, new ReentrantReadWriteLock(), 100, 1, TimeUnit.SECONDS);
+        try (SubmissionPublisher<GraphMutation<Integer, Integer>> publisher =
+                     new SubmissionPublisher<>(ForkJoinPool.commonPool(), 16)) {
+            publisher.subscribe(ingestor);
+            for (int i = 0; i < 1000; i++) {
+                publisher.submit(GraphMutation.addNode(i));
+            }
+            for (int i = 0; i < 999; i++) {
+                publisher.submit(GraphMutation.connect(i, i + 1, i));
+            }
+            publisher.submit(GraphMutation.connect(0, 1, 0));
+            publisher.submit(GraphMutation.disconnect(1, 2));
+            publisher.submit(GraphMutation.removeNode(999));
+        }
+        ingestor.getCompletion().get(10, TimeUnit.SECONDS);
+
+        assertEquals(999, graph.getNumberOfNodes());
+        assertEquals(997, graph.getNumberOfConnections());
+        assertTrue(graph.connectionExists(0, 1));
+        assertFalse(graph.connectionExists(1, 2));
+
+        GraphIngestor.Metrics metrics = ingestor.getMetrics();
+        assertEquals(2002, metrics.getReceived());
+        assertEquals(2002, metrics.getApplied());
+        assertEquals(1, metrics.getRejected());
+        assertEquals(0, metrics.getPending());
+        assertTrue(metrics.getBatches() >= 21);
+        assertTrue(metrics.getMaxLagNanos() >= metrics.getAverageLagNanos());
+    }
+
+    @Test
+    public void flushesLateBatches() throws Exception {
+        DirectedGraph<Integer, Integer> graph = new DirectedGraph<>();
+        GraphIngestor<Integer, Integer> ingestor =
+                new GraphIngestor<>(graph, new ReentrantReadWriteLock(), 1000, 20, TimeUnit.MILLISECONDS);
+        SubmissionPublisher<GraphMutation<Integer, Integer>> publisher = new SubmissionPublisher<>();
+        publisher.subscribe(ingestor);
+        publisher.submit(GraphMutation.addNode(1));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (ingestor.getMetrics().getApplied() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, ingestor.getMetrics().getBatches());
+        assertTrue(graph.nodeExists(1));
+        publisher.close();
+        ingestor.getCompletion().get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void boundsDemand() throws Exception {
+        DirectedGraph<Integer, Integer> graph = new DirectedGraph<>();
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        GraphIngestor<Integer, Integer> ingestor = new GraphIngestor<>(graph, lock, 10, 1, TimeUnit.MILLISECONDS);
+        SubmissionPublisher<GraphMutation<Integer, Integer>> publisher = new SubmissionPublisher<>();
+        publisher.subscribe(ingestor);
+
+        // While a reader holds the lock no batch can be applied, so the publisher must stop offering
+        lock.readLock().lock();
+        int accepted = 0;
+        try {
+            Thread.sleep(50);
+            for (int i = 0; i < 10_000; i++) {
+                if (publisher.offer(GraphMutation.addNode(i), null) >= 0) {
+                    accepted++;
+                }
+            }
+            assertTrue(accepted < 10_000);
+            assertEquals(0, graph.getNumberOfNodes());
+        } finally {
+            lock.readLock().unlock();
+        }
+        publisher.close();
+        ingestor.getCompletion().get(10, TimeUnit.SECONDS);
+        assertEquals(accepted, graph.getNumberOfNodes());
+    }
+
+    @Test(timeout = 10_000)
+    public void readersHoldingTheLockCanReadMetrics() throws Exception {
+        DirectedGraph<Integer, Integer> graph = new DirectedGraph<>();
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        GraphIngestor<Integer, Integer> ingestor = new GraphIngestor<>(graph, lock, 2, 1, TimeUnit.MILLISECONDS);
+        SubmissionPublisher<GraphMutation<Integer, Integer>> publisher = new SubmissionPublisher<>();
+        publisher.subscribe(ingestor);
+
+        lock.readLock().lock();
+        try {
+            // The full batch waits for the write lock, while the reader still gets the counters
+            publisher.submit(GraphMutation.addNode(1));
+            publisher.submit(GraphMutation.addNode(2));
+            while (ingestor.getMetrics().getReceived() < 2 || lock.getQueueLength() == 0) {
+                Thread.sleep(5);
+            }
+            GraphIngestor.Metrics metrics = ingestor.getMetrics();
+            assertEquals(0, metrics.getApplied());
+            assertEquals(0, metrics.getPending());
+        } finally {
+            lock.readLock().unlock();
+        }
+        publisher.close();
+        ingestor.getCompletion().get(10, TimeUnit.SECONDS);
+        assertEquals(2, ingestor.getMetrics().getApplied());
+        assertEquals(2, graph.getNumberOfNodes());
+    }
+
+    @Test
+    public void failsWithThePublisher() {
+        GraphIngestor<Integer, Integer> ingestor = new GraphIngestor<>(new DirectedGraph<>());
+        SubmissionPublisher<GraphMutation<Integer, Integer>> publisher = new SubmissionPublisher<>();
+        publisher.subscribe(ingestor);
+        publisher.closeExceptionally(new IllegalStateException());
+        try {
+            ingestor.getCompletion().get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        } catch (InterruptedException | TimeoutException e) {
+            fail();
+        }
+    }
+}
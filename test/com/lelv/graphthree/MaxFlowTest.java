@@ -0,0 +1,90 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.DirectedGraph;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MaxFlowTest {
+
+    @Test
+    public void dinic() {
+        MaxFlow<String> flow = GraphFunctions.maxFlow(testGraph(), "s", "t");
+        assert flow != null;
+
+        assertEquals(23.0, flow.getValue(), 1e-9);
+        assertEquals("[s, a, b, d]", flow.getSourceSide().toString());
+        assertTrue(flow.isOnSourceSide("d"));
+        assertFalse(flow.isOnSourceSide("c"));
+        assertEquals(12.0, flow.getFlow("a", "c"), 1e-9);
+        assertEquals(0.0, flow.getFlow("a", "t"), 1e-9);
+        assertNull(GraphFunctions.maxFlow(testGraph(), "s", "z"));
+    }
+
+    @Test
+    public void pushRelabel() {
+        MaxFlow<String> flow = MaxFlow.pushRelabel(testGraph(), "s", "t");
+        assert flow != null;
+
+        assertEquals(23.0, flow.getValue(), 1e-9);
+        assertEquals("[s, a, b, d]", flow.getSourceSide().toString());
+    }
+
+    @Test
+    public void algorithmsAgree() {
+        Random random = new Random(17);
+        for (int round = 0; round < 20; round++) {
+            DirectedGraph<Integer, MyWeightedEdge> graph = new DirectedGraph<>();
+            for (int i = 0; i < 40; i++) {
+                graph.addNode(i);
+            }
+            for (int i = 0; i < 160; i++) {
+                graph.connectNodes(random.nextInt(40), random.nextInt(40), new MyWeightedEdge(random.nextInt(30)));
+            }
+
+            MaxFlow<Integer> dinic = MaxFlow.dinic(graph, 0, 39);
+            MaxFlow<Integer> pushRelabel = MaxFlow.pushRelabel(graph, 0, 39);
+            assertEquals(dinic.getValue(), pushRelabel.getValue(), 1e-9);
+            assertFlow(graph, pushRelabel, 0, 39);
+            assertFlow(graph, dinic, 0, 39);
+        }
+    }
+
+    private void assertFlow(DirectedGraph<Integer, MyWeightedEdge> graph, MaxFlow<Integer> flow, int source,
+                            int sink) {
+        double cut = 0;
+        for (int u = 0; u < 40; u++) {
+            double balance = 0;
+            for (int v = 0; v < 40; v++) {
+                balance += flow.getFlow(u, v) - flow.getFlow(v, u);
+                double capacity = graph.getConnection(u, v).map(e -> (double) e.getWeight()).orElse(0.0);
+                assertTrue(flow.getFlow(u, v) <= capacity + 1e-9);
+                if (flow.isOnSourceSide(u) && !flow.isOnSourceSide(v)) {
+                    cut += capacity;
+                }
+            }
+            if (u != source && u != sink) {
+                assertEquals(0.0, balance, 1e-9);
+            }
+        }
+        assertEquals(flow.getValue(), cut, 1e-9);
+    }
+
+    private DirectedGraph<String, MyWeightedEdge> testGraph() {
+        DirectedGraph<String, MyWeightedEdge> graph = new DirectedGraph<>();
+        graph.addNodes("s", "a", "b", "c", "d", "t");
+        graph.connectNodes("s", "a", new MyWeightedEdge(16));
+        graph.connectNodes("s", "b", new MyWeightedEdge(13));
+        graph.connectNodes("a", "c", new MyWeightedEdge(12));
+        graph.connectNodes("b", "a", new MyWeightedEdge(4));
+        graph.connectNodes("c", "b", new MyWeightedEdge(9));
+        graph.connectNodes("b", "d", new MyWeightedEdge(14));
+        graph.connectNodes("d", "c", new MyWeightedEdge(7));
+        graph.connectNodes("c", "t", new MyWeightedEdge(20));
+        graph.connectNodes("d", "t", new MyWeightedEdge(4));
+        graph.connectNodes("a", "t", new MyWeightedEdge(0));
+        return graph;
+    }
+}
@@ -0,0 +1,91 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.DirectedGraph;
+import com.lelv.graphthree.impl.Graph;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class MultiSourceBfsTest {
+
+    @Test
+    public void distancesMatchSingleSearches() {
+        DirectedGraph<Integer, Integer> graph = GraphGenerator.erdosRenyi(400, 900).withSeed(11)
+                                                              .into(new DirectedGraph<>(), weight -> 0);
+        CompactGraph<Integer> compact = CompactGraph.of(graph);
+        // More than one batch, with a partial last one and repeated origins
+        int[] origins = new int[MultiSourceBfs.BATCH_SIZE + 70];
+        for (int i = 0; i < origins.length; i++) {
+            origins[i] = (i * 7) % 400;
+        }
+
+        int[][] distances = MultiSourceBfs.distances(compact, origins);
+        for (int i = 0; i < origins.length; i++) {
+            assertArrayEquals(singleSearch(compact, origins[i]), distances[i]);
+        }
+    }
+
+    @Test
+    public void pairsMatchSingleSearches() {
+        DirectedGraph<Integer, Integer> graph = GraphGenerator.erdosRenyi(300, 500).withSeed(13)
+                                                              .into(new DirectedGraph<>(), weight -> 0);
+        CompactGraph<Integer> compact = CompactGraph.of(graph);
+        Random random = new Random(17);
+        int[] origins = new int[600];
+        int[] destinations = new int[600];
+        for (int i = 0; i < origins.length; i++) {
+            origins[i] = random.nextInt(300);
+            destinations[i] = random.nextInt(300);
+        }
+
+        int[] distances = MultiSourceBfs.distances(compact, origins, destinations);
+        boolean[] paths = MultiSourceBfs.hasPaths(compact, origins, destinations);
+        for (int i = 0; i < origins.length; i++) {
+            assertEquals(singleSearch(compact, origins[i])[destinations[i]], distances[i]);
+            assertEquals(GraphFunctions.hasPath(graph, origins[i], destinations[i]), paths[i]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requiresADestinationPerOrigin() {
+        MultiSourceBfs.distances(GraphGenerator.erdosRenyi(10, 10).toCompactGraph(false), new int[2], new int[1]);
+    }
+
+    @Test
+    public void graphFunctionsWrappers() {
+        Graph<String, Integer> graph = new Graph<>();
+        graph.addNodes("a", "b", "c", "d", "e");
+        graph.connectNodes("a", "b", 1);
+        graph.connectNodes("b", "c", 1);
+        graph.connectNodes("d", "e", 1);
+
+        assertArrayEquals(new boolean[]{true, false, true, false, true},
+                          GraphFunctions.hasPaths(graph, List.of("a", "a", "e", "x", "c"),
+                                                  List.of("c", "d", "d", "a", "c")));
+
+        List<Map<String, Integer>> distances = GraphFunctions.hopDistances(graph, List.of("a", "x", "e"));
+        assertEquals(Map.of("a", 0, "b", 1, "c", 2), distances.get(0));
+        assertNull(distances.get(1));
+        assertEquals(Map.of("e", 0, "d", 1), distances.get(2));
+    }
+
+    private static int[] singleSearch(CompactGraph<?> graph, int origin) {
+        int[] distance = new int[graph.getNumberOfNodes()];
+        Arrays.fill(distance, -1);
+        distance[origin] = 0;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(origin);
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            for (int w : graph.neighbors(v)) {
+                if (distance[w] == -1) {
+                    distance[w] = distance[v] + 1;
+                    queue.add(w);
+                }
+            }
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,164 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.DirectedGraph;
+import com.lelv.graphthree.impl.Graph;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.lelv.graphthree.GraphAssertions.assertSameGraph;
+import static org.junit.Assert.*;
+
+public class MutationLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void restoresTheGraph() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        DirectedGraph<String, Integer> graph = new DirectedGraph<>();
+        try (MutationLog<String, Integer> log = MutationLog.open(directory, graph, Codec.STRING, Codec.INTEGER)) {
+            graph.addNodes("a", "b", "c", "d");
+            graph.connectNodes("a", "b", 1);
+            graph.connectNodes("b", "c", 2);
+            graph.connectNodes("c", "a", null);
+            graph.connectNodes("d", "a", 4);
+            graph.setConnection("a", "b", 5);
+            graph.disconnectNodes("b", "c");
+            graph.removeNode("d");
+            assertEquals(12, log.getLastSequence());
+        }
+
+        DirectedGraph<String, Integer> restored = new DirectedGraph<>();
+        try (MutationLog<String, Integer> log = MutationLog.open(directory, restored, Codec.STRING, Codec.INTEGER)) {
+            assertSameGraph(graph, restored);
+            assertEquals(12, log.getLastSequence());
+            restored.addNode("e");
+        }
+
+        DirectedGraph<String, Integer> again = new DirectedGraph<>();
+        MutationLog.open(directory, again, Codec.STRING, Codec.INTEGER).close();
+        assertTrue(again.nodeExists("e"));
+    }
+
+    @Test
+    public void checkpointCompactsTheLog() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        Graph<Integer, Integer> graph = new Graph<>();
+        Random random = new Random(3);
+        try (MutationLog<Integer, Integer> log = MutationLog.open(directory, graph, Codec.INTEGER, Codec.INTEGER,
+                                                                  256, 0, TimeUnit.MILLISECONDS)) {
+            for (int i = 0; i < 200; i++) {
+                graph.addNode(i);
+            }
+            for (int i = 0; i < 2000; i++) {
+                graph.connectNodes(random.nextInt(200), random.nextInt(200), i);
+                log.sync();
+            }
+            assertTrue(files(directory, "wal-").size() > 10);
+
+            long sequence = log.checkpoint();
+            assertEquals(log.getLastSequence(), sequence);
+            assertEquals(1, files(directory, "snapshot-").size());
+            assertEquals(1, files(directory, "wal-").size());
+
+            for (int i = 0; i < 100; i++) {
+                graph.disconnectNodes(random.nextInt(200), random.nextInt(200));
+                graph.removeNode(random.nextInt(200));
+            }
+            log.checkpoint();
+            assertEquals(1, files(directory, "snapshot-").size());
+            for (int i = 0; i < 100; i++) {
+                graph.connectNodes(random.nextInt(200), random.nextInt(200), -i);
+            }
+        }
+
+        Graph<Integer, Integer> restored = new Graph<>();
+        MutationLog.open(directory, restored, Codec.INTEGER, Codec.INTEGER).close();
+        assertSameGraph(graph, restored);
+        assertEquals(graph.getNumberOfConnections(), restored.getNumberOfConnections());
+    }
+
+    @Test
+    public void discardsTornRecords() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        DirectedGraph<Integer, Double> graph = new DirectedGraph<>();
+        MutationLog<Integer, Double> log = MutationLog.open(directory, graph, Codec.INTEGER, Codec.DOUBLE);
+        graph.addNodes(1, 2, 3);
+        graph.connectNodes(1, 2, 0.5);
+        graph.connectNodes(2, 3, 1.5);
+        log.close();
+
+        // A crash in the middle of the last record leaves only part of it
+        Path segment = files(directory, "wal-").get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        DirectedGraph<Integer, Double> restored = new DirectedGraph<>();
+        log = MutationLog.open(directory, restored, Codec.INTEGER, Codec.DOUBLE);
+        assertEquals(4, log.getLastSequence());
+        assertTrue(restored.connectionExists(1, 2));
+        assertFalse(restored.connectionExists(2, 3));
+        restored.connectNodes(3, 1, 2.5);
+        log.close();
+
+        DirectedGraph<Integer, Double> again = new DirectedGraph<>();
+        MutationLog.open(directory, again, Codec.INTEGER, Codec.DOUBLE).close();
+        assertSameGraph(restored, again);
+    }
+
+    @Test
+    public void syncsInGroups() throws Exception {
+        DirectedGraph<Integer, Integer> graph = new DirectedGraph<>();
+        try (MutationLog<Integer, Integer> log = MutationLog.open(folder.getRoot().toPath(), graph, Codec.INTEGER,
+                                                                  Codec.INTEGER, 1 << 20, 0,
+                                                                  TimeUnit.MILLISECONDS)) {
+            for (int i = 0; i < 1000; i++) {
+                graph.addNode(i);
+            }
+            List<Thread> threads = new ArrayList<>();
+            List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+            for (int t = 0; t < 8; t++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        log.sync();
+                    } catch (IOException e) {
+                        errors.add(e);
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertTrue(errors.isEmpty());
+            assertEquals(1000, log.getDurableSequence());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requiresAnEmptyGraph() throws IOException {
+        DirectedGraph<Integer, Integer> graph = new DirectedGraph<>();
+        graph.addNode(1);
+        MutationLog.open(folder.getRoot().toPath(), graph, Codec.INTEGER, Codec.INTEGER);
+    }
+
+    private static List<Path> files(Path directory, String prefix) throws IOException {
+        try (var stream = Files.list(directory)) {
+            return stream.filter(path -> path.getFileName().toString().startsWith(prefix))
+                         .sorted()
+                         .collect(Collectors.toList());
+        }
+    }
+}
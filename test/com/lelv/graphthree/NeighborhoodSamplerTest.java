@@ -0,0 +1,163 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.NeighborhoodSampler.Neighborhood;
+import com.lelv.graphthree.impl.DirectedGraph;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class NeighborhoodSamplerTest {
+
+    @Test
+    public void boundsFanOutOnHubs() {
+        // Node 0 is a hub connected to every other node, each of them connected to ten more
+        DirectedGraph<Integer, Integer> graph = new DirectedGraph<>();
+        for (int i = 0; i <= 1000; i++) {
+            graph.addNode(i);
+        }
+        for (int i = 1; i <= 1000; i++) {
+            graph.connectNodes(0, i, 1);
+            for (int j = 1; j <= 10; j++) {
+                graph.connectNodes(i, (i + j * 37) % 1000 + 1, 1);
+            }
+        }
+
+        NeighborhoodSampler<Integer> sampler = NeighborhoodSampler.uniform(graph, 5, 3);
+        Neighborhood<Integer> sample = sampler.sample(0, 42);
+        assertEquals(0, (int) sample.node(0));
+        assertEquals(5 + 5 * 3, sample.getNumberOfConnections());
+        assertTrue(sample.getNumberOfNodes() <= 1 + 5 + 5 * 3);
+
+        Set<Integer> nodes = new HashSet<>();
+        for (int i = 0; i < sample.getNumberOfNodes(); i++) {
+            assertTrue("Nodes are not repeated", nodes.add(sample.id(i)));
+            assertTrue(sample.hop(i) <= 2);
+        }
+        Set<Long> connections = new HashSet<>();
+        for (int k = 0; k < sample.getNumberOfConnections(); k++) {
+            Integer origin = sample.node(sample.source(k));
+            Integer destination = sample.node(sample.target(k));
+            assertTrue(graph.connectionExists(origin, destination));
+            assertTrue(sample.hop(sample.target(k)) <= sample.hop(sample.source(k)) + 1);
+            assertTrue("Connections are not repeated",
+                       connections.add((long) sample.source(k) << 32 | sample.target(k)));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void largeFanOutsPickDistinctConnections() {
+        // A hub with 200000 connections, half of them kept, which is too slow with quadratic checks for repeats
+        int n = 200_001;
+        int[] offsets = new int[n + 1];
+        Arrays.fill(offsets, 1, n + 1, n - 1);
+        int[] targets = new int[n - 1];
+        double[] weights = new double[n - 1];
+        for (int i = 0; i < n - 1; i++) {
+            targets[i] = i + 1;
+            weights[i] = 1 + i % 3;
+        }
+        CompactGraph<Integer> hub = CompactGraph.ofIds(offsets, targets, weights);
+
+        Neighborhood<Integer> uniform = NeighborhoodSampler.uniform(hub, 100_000).sample(0, 3);
+        assertEquals(100_000, uniform.getNumberOfConnections());
+        assertEquals(100_001, uniform.getNumberOfNodes());
+        assertEquals(100_000, Arrays.stream(uniform.getTargets()).distinct().count());
+
+        Neighborhood<Integer> weighted = NeighborhoodSampler.weighted(hub, 100_000).sample(0, 3);
+        assertTrue(weighted.getNumberOfConnections() > 50_000);
+        assertEquals(weighted.getNumberOfConnections(), weighted.getNumberOfNodes() - 1);
+        assertEquals(weighted.getNumberOfConnections(), Arrays.stream(weighted.getTargets()).distinct().count());
+    }
+
+    @Test
+    public void keepsEveryConnectionWithinTheFanOut() {
+        DirectedGraph<String, Integer> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c", "d");
+        graph.connectNodes("a", "b", 1);
+        graph.connectNodes("a", "c", 1);
+        graph.connectNodes("b", "c", 1);
+        graph.connectNodes("c", "d", 1);
+
+        Neighborhood<String> sample = NeighborhoodSampler.uniform(graph, NeighborhoodSampler.ALL, 10).sample("a", 1);
+        assertEquals(4, sample.getNumberOfNodes());
+        assertEquals(4, sample.getNumberOfConnections());
+        assertEquals(Set.of("b", "c"), Set.of(sample.node(1), sample.node(2)));
+        assertEquals("d", sample.node(3));
+        assertEquals(2, sample.hop(3));
+
+        // Only the first hop
+        assertEquals(2, NeighborhoodSampler.uniform(graph, 5).sample("a", 1).getNumberOfConnections());
+        assertNull(NeighborhoodSampler.uniform(graph, 1).sample("x", 1));
+    }
+
+    @Test
+    public void weightedSamplingFollowsWeights() {
+        DirectedGraph<Integer, MyWeightedEdge> graph = new DirectedGraph<>();
+        for (int i = 0; i <= 10; i++) {
+            graph.addNode(i);
+        }
+        for (int i = 1; i <= 10; i++) {
+            graph.connectNodes(0, i, new MyWeightedEdge(i == 10 ? 1000 : i == 9 ? 0 : 1));
+        }
+
+        NeighborhoodSampler<Integer> sampler = NeighborhoodSampler.weighted(graph, 1);
+        int heavy = 0;
+        for (long seed = 0; seed < 200; seed++) {
+            Neighborhood<Integer> sample = sampler.sample(0, seed);
+            assertEquals(1, sample.getNumberOfConnections());
+            assertNotEquals(9, (int) sample.node(1));
+            if (sample.node(1) == 10) {
+                heavy++;
+            }
+        }
+        assertTrue(heavy > 180);
+    }
+
+    @Test
+    public void lightNodesAfterHeavyOnesKeepTheirConnections() {
+        // The weights of node 1 would be lost against the weight of node 0 in sums over the whole graph
+        CompactGraph<Integer> graph = CompactGraph.ofIds(new int[]{0, 1, 4, 4, 4}, new int[]{1, 0, 2, 3},
+                                                         new double[]{1e20, 1, 1, 1});
+        NeighborhoodSampler<Integer> sampler = NeighborhoodSampler.weighted(graph, 2);
+        for (long seed = 0; seed < 20; seed++) {
+            Neighborhood<Integer> sample = sampler.sample(1, seed);
+            assertTrue(sample.getNumberOfConnections() >= 1);
+            assertTrue(sample.getNumberOfConnections() <= 2);
+        }
+        assertEquals(1, sampler.sample(0, 0).getNumberOfConnections());
+    }
+
+    @Test
+    public void batchesAreReproducible() {
+        DirectedGraph<Integer, Integer> graph = new DirectedGraph<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 300; i++) {
+            graph.addNode(i);
+        }
+        for (int i = 0; i < 3000; i++) {
+            graph.connectNodes(random.nextInt(300), random.nextInt(300), i);
+        }
+        List<Integer> seeds = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            seeds.add(i);
+        }
+        seeds.add(-1);
+
+        NeighborhoodSampler<Integer> sampler = NeighborhoodSampler.uniform(graph, 4, 4, 4);
+        List<Neighborhood<Integer>> first = sampler.sample(seeds, 99);
+        List<Neighborhood<Integer>> second = sampler.sample(seeds, 99);
+        assertNull(first.get(300));
+        for (int i = 0; i < 300; i++) {
+            assertArrayEquals(first.get(i).getIds(), second.get(i).getIds());
+            assertArrayEquals(first.get(i).getSources(), second.get(i).getSources());
+            assertArrayEquals(first.get(i).getTargets(), second.get(i).getTargets());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeFanOuts() {
+        NeighborhoodSampler.uniform(new DirectedGraph<Integer, Integer>(), 2, -1);
+    }
+}
@@ -0,0 +1,122 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.DirectedGraph;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PageRankTest {
+
+    @Test
+    public void cycleIsUniform() {
+        double[] scores = PageRank.of(CompactGraph.of(cycle()));
+
+        assertEquals(1.0 / 3, scores[0], 1e-9);
+        assertEquals(1.0 / 3, scores[1], 1e-9);
+        assertEquals(1.0 / 3, scores[2], 1e-9);
+    }
+
+    @Test
+    public void scoresAddUpToOne() {
+        DirectedGraph<String, Integer> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c", "d", "e");
+        graph.connectNodes("a", "e", 1);
+        graph.connectNodes("b", "e", 1);
+        graph.connectNodes("c", "e", 1);
+        graph.connectNodes("d", "e", 1);
+        graph.connectNodes("e", "a", 1);
+
+        CompactGraph<String> compact = CompactGraph.of(graph);
+        double[] scores = new double[5];
+        int iterations = PageRank.compute(compact, 0.85, 1e-12, 1000, scores);
+
+        assertTrue(iterations > 1);
+        assertEquals(1.0, Arrays.stream(scores).sum(), 1e-9);
+        assertTrue(scores[4] > scores[0]);
+        assertTrue(scores[0] > scores[1]);
+        assertEquals(scores[1], scores[3], 1e-12);
+    }
+
+    @Test
+    public void danglingNodes() {
+        DirectedGraph<String, Integer> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b");
+        graph.connectNodes("a", "b", 1);
+
+        Map<String, Double> scores = GraphFunctions.pageRank(graph);
+        assertEquals(1.0, scores.get("a") + scores.get("b"), 1e-9);
+        assertTrue(scores.get("b") > scores.get("a"));
+    }
+
+    @Test
+    public void personalized() {
+        double alpha = 1 - PageRank.DEFAULT_DAMPING;
+        double source = alpha / (1 - Math.pow(1 - alpha, 3));
+
+        double[] scores = PageRank.personalized(CompactGraph.of(cycle()), 0, 1e-12);
+        assertEquals(source, scores[0], 1e-9);
+        assertEquals(source * (1 - alpha), scores[1], 1e-9);
+        assertEquals(source * (1 - alpha) * (1 - alpha), scores[2], 1e-9);
+    }
+
+    @Test
+    public void personalizedPageRank() {
+        DirectedGraph<String, Integer> graph = cycle();
+        graph.addNode("z");
+
+        Map<String, Double> scores = GraphFunctions.personalizedPageRank(graph, "a", 1e-6);
+        assert scores != null;
+        assertEquals(3, scores.size());
+        assertFalse(scores.containsKey("z"));
+        assertNull(GraphFunctions.personalizedPageRank(graph, "y", 1e-6));
+    }
+
+    @Test
+    public void personalizedOnlyReachesNodesNearTheSource() {
+        // A long path, where the scores fall below the tolerance long before its end
+        int n = 1_000_000;
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[n - 1];
+        for (int v = 0; v < n - 1; v++) {
+            offsets[v + 1] = v + 1;
+            targets[v] = v + 1;
+        }
+        offsets[n] = n - 1;
+        CompactGraph<Integer> path = CompactGraph.ofIds(offsets, targets);
+
+        Map<Integer, Double> sparse = new HashMap<>();
+        int reached = PageRank.personalized(path, 500, PageRank.DEFAULT_DAMPING, 1e-6,
+                                            (id, score) -> assertNull(sparse.put(id, score)));
+        assertEquals(sparse.size(), reached);
+        assertTrue(reached > 10 && reached < 200);
+        assertTrue(sparse.keySet().stream().allMatch(id -> id >= 500 && id < 700));
+
+        double[] dense = PageRank.personalized(path, 500, 1e-6);
+        for (int v = 0; v < n; v++) {
+            assertEquals(sparse.getOrDefault(v, 0.0), dense[v], 0.0);
+        }
+        assertEquals(sparse, GraphFunctions.personalizedPageRank(path, 500, 1e-6));
+        assertNull(GraphFunctions.personalizedPageRank(path, n, 1e-6));
+    }
+
+    @Test
+    public void personalizedWithManyNodesReached() {
+        CompactGraph<Integer> graph = GraphGenerator.erdosRenyi(2000, 20000).withSeed(4).toCompactGraph(true);
+        double[] scores = PageRank.personalized(graph, 0, 1e-10);
+        assertEquals(1.0, Arrays.stream(scores).sum(), 1e-3);
+        assertTrue(Arrays.stream(scores).filter(score -> score > 0).count() > 1900);
+    }
+
+    private DirectedGraph<String, Integer> cycle() {
+        DirectedGraph<String, Integer> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c");
+        graph.connectNodes("a", "b", 1);
+        graph.connectNodes("b", "c", 1);
+        graph.connectNodes("c", "a", 1);
+        return graph;
+    }
+}
@@ -0,0 +1,169 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.DirectedGraph;
+import com.lelv.graphthree.impl.Graph;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PartitioningTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void separatesClusters() {
+        Graph<Integer, Integer> graph = new Graph<>();
+        for (int v = 0; v < 40; v++) {
+            graph.addNode(v);
+        }
+        for (int a = 0; a < 20; a++) {
+            for (int b = a + 1; b < 20; b++) {
+                graph.connectNodes(a, b, 1);
+                graph.connectNodes(20 + a, 20 + b, 1);
+            }
+        }
+        graph.connectNodes(0, 20, 1);
+
+        Partitioning<Integer> partitioning = Partitioning.of(CompactGraph.of(graph), 2);
+        assertEquals(2, partitioning.getEdgeCut());
+        assertArrayEquals(new int[]{20, 20}, partitioning.getPartSizes());
+        assertEquals(1.0, partitioning.getBalance(), 0.0);
+        for (int v = 1; v < 20; v++) {
+            assertEquals(partitioning.partOf(0), partitioning.partOf(v));
+            assertEquals(partitioning.partOf(20), partitioning.partOf(20 + v));
+        }
+    }
+
+    @Test
+    public void grid() {
+        Graph<Integer, Integer> graph = new Graph<>();
+        int side = 60;
+        for (int v = 0; v < side * side; v++) {
+            graph.addNode(v);
+        }
+        for (int row = 0; row < side; row++) {
+            for (int column = 0; column < side; column++) {
+                int v = row * side + column;
+                if (column + 1 < side) {
+                    graph.connectNodes(v, v + 1, 1);
+                }
+                if (row + 1 < side) {
+                    graph.connectNodes(v, v + side, 1);
+                }
+            }
+        }
+
+        Partitioning<Integer> partitioning = Partitioning.of(CompactGraph.of(graph), 4);
+        assertTrue(partitioning.getBalance() <= 1 + Partitioning.DEFAULT_IMBALANCE);
+        assertEquals(side * side, Arrays.stream(partitioning.getPartSizes()).sum());
+        // Two straight cuts cost 2 * side connections in each direction, a random split about 14000
+        assertTrue(partitioning.getEdgeCut() < 12 * side);
+    }
+
+    @Test
+    public void subgraphs() {
+        DirectedGraph<String, MyWeightedEdge> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c", "d");
+        graph.connectNodes("a", "b", new MyWeightedEdge(1));
+        graph.connectNodes("b", "c", new MyWeightedEdge(2));
+        graph.connectNodes("c", "d", new MyWeightedEdge(3));
+        graph.connectNodes("d", "a", new MyWeightedEdge(4));
+
+        CompactGraph<String> compact = CompactGraph.weighted(graph);
+        Partitioning<String> partitioning = Partitioning.of(compact, 2);
+        assertEquals(2, partitioning.getEdgeCut());
+
+        int total = 0;
+        for (GraphPart<String> part : partitioning.subgraphs()) {
+            CompactGraph<String> local = part.getGraph();
+            assertEquals(2, part.getNumberOfLocalNodes());
+            assertEquals(1, part.getNumberOfGhosts());
+            assertEquals(1, part.getBoundary().length);
+            assertTrue(local.isWeighted());
+
+            int ghost = part.getNumberOfLocalNodes();
+            assertTrue(part.isGhost(ghost));
+            assertEquals(0, local.outDegree(ghost));
+            assertNotEquals(part.getPart(), part.ownerOf(ghost));
+            assertEquals(partitioning.partOfId(part.globalIdOf(ghost)), part.ownerOf(ghost));
+            assertEquals(partitioning.subgraph(part.ownerOf(ghost)).getGraph().idOf(local.nodeOf(ghost)),
+                         part.remoteIdOf(ghost));
+
+            for (int v = 0; v < part.getNumberOfLocalNodes(); v++) {
+                String node = local.nodeOf(v);
+                assertEquals(compact.idOf(node), part.globalIdOf(v));
+                assertEquals(part.getPart(), partitioning.partOf(node));
+                assertArrayEquals(compact.weights(compact.idOf(node)), local.weights(v), 0.0);
+                total += local.outDegree(v);
+            }
+        }
+        assertEquals(4, total);
+    }
+
+    @Test
+    public void partsReadBack() throws IOException {
+        DirectedGraph<String, MyWeightedEdge> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c", "d", "e");
+        graph.connectNodes("a", "b", new MyWeightedEdge(1));
+        graph.connectNodes("b", "c", new MyWeightedEdge(2));
+        graph.connectNodes("c", "d", new MyWeightedEdge(3));
+        graph.connectNodes("d", "a", new MyWeightedEdge(4));
+        graph.connectNodes("e", "a", new MyWeightedEdge(5));
+        Partitioning<String> partitioning = Partitioning.of(CompactGraph.weighted(graph), 2);
+
+        for (GraphPart<String> part : partitioning.subgraphs()) {
+            Path file = folder.getRoot().toPath().resolve("part-" + part.getPart());
+            part.write(file, Codec.STRING);
+            GraphPart<String> read = GraphPart.read(file, Codec.STRING);
+            assertEquals(part.getPart(), read.getPart());
+            assertEquals(part.getNumberOfLocalNodes(), read.getNumberOfLocalNodes());
+            assertEquals(part.getNumberOfGhosts(), read.getNumberOfGhosts());
+            assertArrayEquals(part.getBoundary(), read.getBoundary());
+            for (int id = 0; id < part.getGraph().getNumberOfNodes(); id++) {
+                assertEquals(part.getGraph().nodeOf(id), read.getGraph().nodeOf(id));
+                assertEquals(id, read.getGraph().idOf(part.getGraph().nodeOf(id)));
+                assertEquals(part.globalIdOf(id), read.globalIdOf(id));
+                assertEquals(part.ownerOf(id), read.ownerOf(id));
+                assertEquals(part.remoteIdOf(id), read.remoteIdOf(id));
+                assertArrayEquals(part.getGraph().neighbors(id), read.getGraph().neighbors(id));
+                assertArrayEquals(part.getGraph().weights(id), read.getGraph().weights(id), 0.0);
+            }
+
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[bytes.length / 2] ^= 1;
+            Files.write(file, bytes);
+            try {
+                GraphPart.read(file, Codec.STRING);
+                fail();
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void moreParts() {
+        Map<String, Integer> parts = GraphFunctions.partition(new DirectedGraph<String, Integer>(), 3);
+        assertTrue(parts.isEmpty());
+
+        DirectedGraph<String, Integer> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b");
+        Partitioning<String> partitioning = Partitioning.of(CompactGraph.of(graph), 3);
+        assertEquals(2, partitioning.getPartMap().size());
+        assertNotEquals(partitioning.partOf("a"), partitioning.partOf("b"));
+        assertEquals(CompactGraph.NON_EXISTENT_ID, partitioning.partOf("z"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requiresParts() {
+        Partitioning.of(CompactGraph.of(new DirectedGraph<String, Integer>()), 0);
+    }
+}
@@ -0,0 +1,136 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.DirectedGraph;
+import com.lelv.graphthree.impl.Graph;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RandomWalksTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void walksFollowConnections() {
+        DirectedGraph<Integer, Integer> graph = new DirectedGraph<>();
+        graph.addNodes(0, 1, 2, 3);
+        graph.connectNodes(0, 1, 1);
+        graph.connectNodes(1, 2, 1);
+        graph.connectNodes(2, 0, 1);
+        graph.connectNodes(2, 3, 1);
+
+        RandomWalks<Integer> walks = RandomWalks.uniform(graph);
+        for (long seed = 0; seed < 50; seed++) {
+            List<Integer> walk = walks.walk(0, 20, seed);
+            assertEquals(0, (int) walk.get(0));
+            assertTrue(walk.size() <= 20);
+            for (int i = 1; i < walk.size(); i++) {
+                assertTrue(graph.connectionExists(walk.get(i - 1), walk.get(i)));
+            }
+            // Walks only end early at node 3, which has no connections
+            if (walk.size() < 20) {
+                assertEquals(3, (int) walk.get(walk.size() - 1));
+            }
+        }
+        assertEquals(List.of(3), walks.walk(3, 5, 1));
+        assertNull(walks.walk(7, 5, 1));
+    }
+
+    @Test
+    public void weightedStepsFollowWeights() {
+        DirectedGraph<Integer, MyWeightedEdge> graph = new DirectedGraph<>();
+        graph.addNodes(0, 1, 2, 3);
+        graph.connectNodes(0, 1, new MyWeightedEdge(1));
+        graph.connectNodes(0, 2, new MyWeightedEdge(9));
+        graph.connectNodes(0, 3, new MyWeightedEdge(0));
+
+        RandomWalks<Integer> walks = RandomWalks.weighted(graph);
+        int[] visits = new int[4];
+        for (long seed = 0; seed < 10000; seed++) {
+            visits[walks.walk(0, 2, seed).get(1)]++;
+        }
+        assertEquals(0, visits[3]);
+        assertEquals(0.9, visits[2] / 10000.0, 0.02);
+    }
+
+    @Test
+    public void node2VecBiasesSteps() {
+        // After going from a to b, d is a neighbor of a and c is not
+        Graph<String, Integer> graph = new Graph<>();
+        graph.addNodes("a", "b", "c", "d");
+        graph.connectNodes("a", "b", 1);
+        graph.connectNodes("b", "c", 1);
+        graph.connectNodes("b", "d", 1);
+        graph.connectNodes("a", "d", 1);
+
+        assertEquals(100 / 102.0, thirdNodeFrequency(graph, 0.01, 1, "a"), 0.02);
+        assertEquals(100 / 101.01, thirdNodeFrequency(graph, 100, 0.01, "c"), 0.02);
+        assertEquals(1 / 1.02, thirdNodeFrequency(graph, 100, 100, "d"), 0.02);
+        assertEquals(1 / 3.0, thirdNodeFrequency(graph, 1, 1, "c"), 0.05);
+    }
+
+    @Test
+    public void writesReproducibleWalks() throws IOException {
+        DirectedGraph<Integer, Integer> graph = new DirectedGraph<>();
+        Random random = new Random(5);
+        int n = RandomWalks.CHUNK_SIZE * 2 + 100;
+        for (int i = 0; i < n; i++) {
+            graph.addNode(i);
+        }
+        for (int i = 0; i < n * 4; i++) {
+            graph.connectNodes(random.nextInt(n), random.nextInt(n), i);
+        }
+
+        RandomWalks<Integer> walks = RandomWalks.uniform(graph).withNode2Vec(0.5, 2);
+        Path first = folder.getRoot().toPath().resolve("first.bin");
+        Path second = folder.getRoot().toPath().resolve("second.bin");
+        assertEquals(n * 3L, walks.writeWalks(first, 3, 10, 17));
+        assertEquals(n * 3L, walks.writeWalks(second, 3, 10, 17));
+        assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+
+        CompactGraph<Integer> compact = walks.getGraph();
+        List<int[]> read = new ArrayList<>();
+        RandomWalks.readWalks(first, read::add);
+        assertEquals(n * 3, read.size());
+        for (int i = 0; i < read.size(); i++) {
+            int[] walk = read.get(i);
+            // Every round starts a walk from every node in order
+            assertEquals(i % n, walk[0]);
+            assertTrue(walk.length >= 1 && walk.length <= 10);
+            for (int j = 1; j < walk.length; j++) {
+                assertTrue(graph.connectionExists(compact.nodeOf(walk[j - 1]), compact.nodeOf(walk[j])));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveParameters() {
+        RandomWalks.uniform(new Graph<Integer, Integer>()).withNode2Vec(1, 0);
+    }
+
+    private static double thirdNodeFrequency(Graph<String, Integer> graph, double p, double q, String node) {
+        RandomWalks<String> walks = RandomWalks.uniform(graph).withNode2Vec(p, q);
+        int walked = 0;
+        int found = 0;
+        for (long seed = 0; walked < 3000; seed++) {
+            List<String> walk = walks.walk("a", 3, seed);
+            if (walk.get(1).equals("b")) {
+                walked++;
+                if (walk.get(2).equals(node)) {
+                    found++;
+                }
+            }
+        }
+        return found / (double) walked;
+    }
+}
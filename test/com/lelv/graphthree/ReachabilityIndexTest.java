@@ -0,0 +1,119 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.DirectedGraph;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ReachabilityIndexTest {
+
+    @Test
+    public void reachable() {
+        DirectedGraph<String, Integer> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c", "d", "e", "f");
+
+        graph.connectNodes("a", "b", 1);
+        graph.connectNodes("b", "c", 1);
+        graph.connectNodes("c", "a", 1);
+        graph.connectNodes("c", "d", 1);
+        graph.connectNodes("e", "d", 1);
+
+        ReachabilityIndex<String> index = new ReachabilityIndex<>(graph);
+
+        assertTrue(index.reachable("a", "a"));
+        assertTrue(index.reachable("c", "b"));
+        assertTrue(index.reachable("a", "d"));
+        assertTrue(index.reachable("e", "d"));
+        assertFalse(index.reachable("d", "a"));
+        assertFalse(index.reachable("a", "e"));
+        assertFalse(index.reachable("a", "f"));
+        assertFalse(index.reachable("a", "z"));
+    }
+
+    @Test
+    public void rebuildsAfterModification() {
+        DirectedGraph<String, Integer> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c");
+        graph.connectNodes("a", "b", 1);
+
+        ReachabilityIndex<String> index = new ReachabilityIndex<>(graph);
+        assertFalse(index.reachable("a", "c"));
+        assertFalse(index.isStale());
+
+        graph.connectNodes("b", "c", 1);
+        assertTrue(index.isStale());
+        assertTrue(index.reachable("a", "c"));
+
+        graph.disconnectNodes("a", "b");
+        assertFalse(index.reachable("a", "c"));
+    }
+
+    @Test
+    public void concurrentQueriesSeeWholeSnapshots() throws Exception {
+        DirectedGraph<Integer, Integer> graph = new DirectedGraph<>();
+        graph.addNodes(0, 1);
+        graph.connectNodes(0, 1, 0);
+        ReachabilityIndex<Integer> index = new ReachabilityIndex<>(graph, false);
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                try {
+                    int reached = 1;
+                    while (!done.get()) {
+                        // The chain only grows, so a later snapshot never reaches less
+                        while (index.reachable(0, reached + 1)) {
+                            reached++;
+                        }
+                        assertTrue(index.reachable(0, reached));
+                        assertFalse(index.reachable(reached, 0));
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            readers[t].start();
+        }
+        for (int i = 2; i < 300; i++) {
+            graph.addNode(i);
+            graph.connectNodes(i - 1, i, i);
+            if (i % 10 == 0) {
+                index.rebuild();
+            }
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+        assertTrue(index.isStale());
+        assertFalse("Queries do not rebuild the index", index.reachable(0, 299));
+        index.rebuild();
+        assertTrue(index.reachable(0, 299));
+    }
+
+    @Test
+    public void matchesHasPath() {
+        Random random = new Random(42);
+        DirectedGraph<Integer, Integer> graph = new DirectedGraph<>();
+        for (int i = 0; i < 60; i++) {
+            graph.addNode(i);
+        }
+        for (int i = 0; i < 90; i++) {
+            graph.connectNodes(random.nextInt(60), random.nextInt(60), i);
+        }
+
+        ReachabilityIndex<Integer> index = new ReachabilityIndex<>(graph);
+        for (int u = 0; u < 60; u++) {
+            for (int v = 0; v < 60; v++) {
+                assertEquals(GraphFunctions.hasPath(graph, u, v), index.reachable(u, v));
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.DirectedGraph;
+import com.lelv.graphthree.impl.Graph;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ShardedGraphTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void bfsOverSockets() {
+        DirectedGraph<Integer, Integer> graph = GraphGenerator.erdosRenyi(300, 600).withSeed(7)
+                                                              .into(new DirectedGraph<>(), weight -> 1);
+        CompactGraph<Integer> compact = CompactGraph.of(graph);
+
+        try (ShardedGraph<Integer> sharded = ShardedGraph.hashed(compact, 4)) {
+            assertEquals(4, sharded.getNumberOfShards());
+            for (int origin : new int[]{0, 17, 299}) {
+                assertEquals(levels(graph, origin), sharded.bfs(origin));
+            }
+            assertNull(sharded.bfs(1000));
+        }
+    }
+
+    @Test
+    public void componentsOverSockets() {
+        Graph<Integer, Integer> graph = GraphGenerator.erdosRenyi(300, 200).withSeed(3)
+                                                      .into(new Graph<>(), weight -> 1);
+        CompactGraph<Integer> compact = CompactGraph.of(graph);
+
+        try (ShardedGraph<Integer> sharded = ShardedGraph.partitioned(Partitioning.of(compact, 3))) {
+            checkComponents(graph, sharded.connectedComponents());
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void workersUnderCoordinator() throws Exception {
+        Graph<Integer, Integer> graph = GraphGenerator.erdosRenyi(300, 250).withSeed(11)
+                                                      .into(new Graph<>(), weight -> 1);
+        Partitioning<Integer> partitioning = Partitioning.of(CompactGraph.of(graph), 3);
+        Path dir = folder.getRoot().toPath();
+        for (int p = 0; p < 3; p++) {
+            partitioning.subgraph(p).write(dir.resolve("part-" + p), Codec.INTEGER);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        List<Future<?>> workers = new ArrayList<>();
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        try {
+            for (int w = 0; w < 3; w++) {
+                ServerSocket control = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+                addresses.add((InetSocketAddress) control.getLocalSocketAddress());
+                // The first worker builds its part, the others load theirs from the files
+                ShardWorker.PartLoader<Integer> loader = w == 0
+                        ? partitioning::subgraph
+                        : shard -> GraphPart.read(dir.resolve("part-" + shard), Codec.INTEGER);
+                workers.add(executor.submit(() -> {
+                    try (ServerSocket socket = control) {
+                        ShardWorker.serve(socket, loader, Codec.INTEGER);
+                    }
+                    return null;
+                }));
+            }
+
+            try (ShardCoordinator<Integer> coordinator = ShardCoordinator.connect(addresses, Codec.INTEGER)) {
+                assertEquals(3, coordinator.getNumberOfShards());
+                assertEquals(300, coordinator.getNumberOfNodes());
+                Map<Integer, Integer> components = coordinator.connectedComponents();
+                checkComponents(graph, components);
+                try (ShardedGraph<Integer> sharded = ShardedGraph.partitioned(partitioning)) {
+                    assertEquals(sharded.connectedComponents(), components);
+                }
+                for (int origin : new int[]{0, 42, 299}) {
+                    assertEquals(levels(graph, origin), coordinator.bfs(origin));
+                }
+                assertNull(coordinator.bfs(1000));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void coordinatorFailsWhenAWorkerCannotLoadItsPart() throws IOException {
+        try (ServerSocket control = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Thread worker = new Thread(() -> {
+                try {
+                    ShardWorker.serve(control, shard -> GraphPart.read(folder.getRoot().toPath().resolve("none"),
+                                                                       Codec.INTEGER), Codec.INTEGER);
+                } catch (IOException expected) {
+                }
+            });
+            worker.start();
+            try {
+                ShardCoordinator.connect(List.of((InetSocketAddress) control.getLocalSocketAddress()),
+                                         Codec.INTEGER);
+                fail();
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void localTransport() {
+        Graph<Integer, Integer> graph = GraphGenerator.erdosRenyi(200, 150).withSeed(5)
+                                                      .into(new Graph<>(), weight -> 1);
+        CompactGraph<Integer> compact = CompactGraph.of(graph);
+
+        try (ShardedGraph<Integer> sharded = ShardedGraph.hashed(compact, 5, LocalShardTransport::create)) {
+            checkComponents(graph, sharded.connectedComponents());
+            assertEquals(levels(graph, 10), sharded.bfs(10));
+        }
+    }
+
+    @Test
+    public void shards() {
+        Graph<String, Integer> graph = new Graph<>();
+        graph.addNodes("a", "b", "c");
+        graph.connectNodes("a", "b", 1);
+        graph.connectNodes("b", "c", 1);
+
+        try (ShardedGraph<String> sharded = ShardedGraph.hashed(CompactGraph.of(graph), 2,
+                                                                LocalShardTransport::create)) {
+            int total = 0;
+            for (int s = 0; s < 2; s++) {
+                GraphPart<String> shard = sharded.getShard(s);
+                total += shard.getNumberOfLocalNodes();
+                for (int v = 0; v < shard.getNumberOfLocalNodes(); v++) {
+                    assertEquals(s, sharded.shardOf(shard.getGraph().nodeOf(v)));
+                }
+            }
+            assertEquals(3, total);
+            assertEquals(CompactGraph.NON_EXISTENT_ID, sharded.shardOf("z"));
+            assertEquals(new HashSet<>(Arrays.asList(0)), new HashSet<>(sharded.connectedComponents().values()));
+        }
+    }
+
+    private static Map<Integer, Integer> levels(AbstractGraph<Integer, Integer> graph, int origin) {
+        Map<Integer, Integer> levels = new HashMap<>();
+        Deque<Integer> queue = new ArrayDeque<>();
+        levels.put(origin, 0);
+        queue.add(origin);
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            for (int w : graph.getNeighbors(v)) {
+                if (!levels.containsKey(w)) {
+                    levels.put(w, levels.get(v) + 1);
+                    queue.add(w);
+                }
+            }
+        }
+        return levels;
+    }
+
+    private static void checkComponents(Graph<Integer, Integer> graph, Map<Integer, Integer> components) {
+        assertEquals(graph.getNumberOfNodes(), components.size());
+        assertEquals(GraphFunctions.numberOfComponents(graph), new HashSet<>(components.values()).size());
+        for (int v : graph.getNodes()) {
+            for (int w : graph.getNeighbors(v)) {
+                assertEquals(components.get(v), components.get(w));
+            }
+        }
+    }
+}
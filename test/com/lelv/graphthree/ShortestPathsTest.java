@@ -0,0 +1,47 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.DirectedGraph;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ShortestPathsTest {
+
+    @Test
+    public void deltaSteppingMatchesDijkstra() {
+        DirectedGraph<Integer, MyWeightedEdge> graph = randomGraph(3, 200, 1000);
+        Map<Integer, Double> expected = GraphFunctions.dijkstra(graph, 0);
+
+        CompactGraph<Integer> compact = CompactGraph.weighted(graph);
+        for (double delta : new double[]{0.5, 3, ShortestPaths.suggestDelta(compact), 1000}) {
+            double[] distance = ShortestPaths.deltaStepping(compact, 0, delta);
+            for (int v = 0; v < 200; v++) {
+                assertEquals(expected.getOrDefault(v, Double.POSITIVE_INFINITY), distance[v], 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void bellmanFordMatchesDijkstra() {
+        DirectedGraph<Integer, MyWeightedEdge> graph = randomGraph(5, 100, 400);
+        Map<Integer, Double> expected = GraphFunctions.dijkstra(graph, 0);
+
+        double[] distance = ShortestPaths.bellmanFord(CompactGraph.weighted(graph), 0);
+        for (int v = 0; v < 100; v++) {
+            assertEquals(expected.getOrDefault(v, Double.POSITIVE_INFINITY), distance[v], 0.0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requiresWeights() {
+        ShortestPaths.deltaStepping(GraphGenerator.erdosRenyi(10, 10).toCompactGraph(false), 0);
+    }
+
+    private static DirectedGraph<Integer, MyWeightedEdge> randomGraph(long seed, int nodes, int connections) {
+        // Whole weights from 0 to 19, so many paths tie
+        return GraphGenerator.erdosRenyi(nodes, connections).withWeights(0, 20).withSeed(seed)
+                             .into(new DirectedGraph<>(), weight -> new MyWeightedEdge((int) weight));
+    }
+}
@@ -0,0 +1,138 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.SimilarityIndex.Measure;
+import com.lelv.graphthree.impl.DirectedGraph;
+import com.lelv.graphthree.impl.Graph;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class SimilarityIndexTest {
+
+    @Test
+    public void scoresMatchSetIntersections() {
+        Graph<Integer, Integer> graph = GraphGenerator.erdosRenyi(300, 3000).withSeed(3)
+                                                      .into(new Graph<>(), weight -> 0);
+        // A hub, so some intersections gallop
+        for (int i = 1; i < 300; i += 2) {
+            graph.connectNodes(0, i, 0);
+        }
+        SimilarityIndex<Integer> index = new SimilarityIndex<>(graph);
+        Random random = new Random(4);
+        for (int i = 0; i < 2000; i++) {
+            int a = random.nextInt(10) == 0 ? 0 : random.nextInt(300);
+            int b = random.nextInt(300);
+            Set<Integer> common = new HashSet<>(graph.getNeighbors(a));
+            common.retainAll(graph.getNeighbors(b));
+            int da = graph.getNeighbors(a).size();
+            int db = graph.getNeighbors(b).size();
+            double adamicAdar = 0;
+            for (Integer z : common) {
+                int degree = graph.getNeighbors(z).size();
+                adamicAdar += degree < 2 ? 0 : 1 / Math.log(degree);
+            }
+
+            assertEquals(common.size(), index.commonNeighbors(a, b));
+            assertEquals(common.size() / (double) (da + db - common.size()), index.jaccard(a, b), 1e-12);
+            assertEquals(common.size() / Math.sqrt(da * db), index.cosine(a, b), 1e-12);
+            assertEquals(adamicAdar, index.adamicAdar(a, b), 1e-9);
+        }
+        assertEquals(0, index.commonNeighbors(1, 1000));
+    }
+
+    @Test
+    public void mostSimilarMatchesExhaustiveSearch() {
+        DirectedGraph<Integer, Integer> graph = GraphGenerator.erdosRenyi(200, 2000).withSeed(5)
+                                                              .into(new DirectedGraph<>(), weight -> 0);
+        SimilarityIndex<Integer> index = new SimilarityIndex<>(graph);
+        List<Integer> nodes = new ArrayList<>(graph.getNodes());
+        nodes.add(-1);
+
+        for (Measure measure : Measure.values()) {
+            List<Map<Integer, Double>> results = index.mostSimilar(nodes, 5, measure);
+            assertNull(results.get(200));
+            for (int u = 0; u < 200; u++) {
+                List<Map.Entry<Integer, Double>> expected = new ArrayList<>();
+                for (int w = 0; w < 200; w++) {
+                    if (w != u && index.commonNeighbors(u, w) > 0) {
+                        expected.add(Map.entry(w, index.score(u, w, measure)));
+                    }
+                }
+                expected.sort((x, y) -> !x.getValue().equals(y.getValue())
+                        ? Double.compare(y.getValue(), x.getValue()) : Integer.compare(x.getKey(), y.getKey()));
+                List<Map.Entry<Integer, Double>> actual = new ArrayList<>(results.get(u).entrySet());
+                assertEquals(expected.subList(0, Math.min(5, expected.size())), actual);
+            }
+        }
+    }
+
+    @Test
+    public void rebuildsAfterModifications() {
+        Graph<String, Integer> graph = new Graph<>();
+        graph.addNodes("a", "b", "c", "d");
+        graph.connectNodes("a", "c", 1);
+        graph.connectNodes("b", "c", 1);
+        SimilarityIndex<String> index = new SimilarityIndex<>(graph);
+        assertEquals(1, index.commonNeighbors("a", "b"));
+        assertEquals(Map.of("b", 1.0), index.mostSimilar("a", 3, Measure.JACCARD));
+
+        graph.connectNodes("a", "d", 1);
+        graph.connectNodes("b", "d", 1);
+        assertTrue(index.isStale());
+        assertEquals(2, index.commonNeighbors("a", "b"));
+        assertEquals(List.of("b"), new ArrayList<>(index.mostSimilar("a", 3, Measure.COMMON_NEIGHBORS).keySet()));
+        assertEquals(List.of("d"), new ArrayList<>(index.mostSimilar("c", 1, Measure.COSINE).keySet()));
+        assertTrue(index.mostSimilar("a", 0, Measure.COSINE).isEmpty());
+    }
+
+    @Test
+    public void concurrentQueriesSeeWholeSnapshots() throws Exception {
+        DirectedGraph<Integer, Integer> graph = new DirectedGraph<>();
+        graph.addNodes(0, 1, 2);
+        graph.connectNodes(1, 0, 0);
+        graph.connectNodes(2, 0, 0);
+        SimilarityIndex<Integer> index = new SimilarityIndex<>(graph, false);
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                try {
+                    int seen = 1;
+                    while (!done.get()) {
+                        // Every node connected to the hub shares it with node 1, and they are only ever added
+                        Map<Integer, Double> similar = index.mostSimilar(1, 1000, Measure.JACCARD);
+                        assertTrue(similar.size() >= seen);
+                        assertTrue(similar.values().stream().allMatch(score -> score == 1.0));
+                        seen = similar.size();
+                        assertEquals(1, index.commonNeighbors(1, 2));
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            readers[t].start();
+        }
+        for (int i = 3; i < 300; i++) {
+            graph.addNode(i);
+            graph.connectNodes(i, 0, i);
+            if (i % 10 == 0) {
+                index.rebuild();
+            }
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+        assertTrue(index.isStale());
+        assertEquals("Queries do not rebuild the index", 0, index.commonNeighbors(1, 299));
+        index.rebuild();
+        assertEquals(298, index.mostSimilar(1, 1000, Measure.JACCARD).size());
+    }
+}
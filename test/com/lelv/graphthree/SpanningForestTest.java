@@ -0,0 +1,87 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.Graph;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SpanningForestTest {
+
+    @Test
+    public void kruskal() {
+        SpanningForest<String, MyWeightedEdge> forest = GraphFunctions.kruskal(testGraph());
+
+        assertEquals(7.0, forest.getTotalWeight(), 0.0);
+        assertEquals("[a-b, c-d, b-c, d-e]", forest.getConnections().toString());
+        assertEquals(1, forest.getNumberOfTrees());
+    }
+
+    @Test
+    public void prim() {
+        SpanningForest<String, MyWeightedEdge> forest = GraphFunctions.prim(testGraph());
+
+        assertEquals(7.0, forest.getTotalWeight(), 0.0);
+        assertEquals(4, forest.getConnections().size());
+    }
+
+    @Test
+    public void boruvka() {
+        SpanningForest<String, MyWeightedEdge> forest = GraphFunctions.boruvka(testGraph());
+
+        assertEquals(7.0, forest.getTotalWeight(), 0.0);
+        assertEquals(4, forest.getConnections().size());
+    }
+
+    @Test
+    public void forest() {
+        Graph<String, MyWeightedEdge> graph = testGraph();
+        graph.addNodes("x", "y", "z");
+        graph.connectNodes("x", "y", new MyWeightedEdge(10));
+
+        SpanningForest<String, MyWeightedEdge> forest = GraphFunctions.kruskal(graph);
+        assertEquals(17.0, forest.getTotalWeight(), 0.0);
+        assertEquals(3, forest.getNumberOfTrees());
+
+        Graph<String, MyWeightedEdge> trees = forest.toGraph();
+        assertEquals(8, trees.getNumberOfNodes());
+        assertEquals(3, GraphFunctions.numberOfComponents(trees));
+        assertTrue(trees.connectionExists("y", "x"));
+        assertFalse(trees.connectionExists("a", "c"));
+    }
+
+    @Test
+    public void algorithmsAgree() {
+        Random random = new Random(13);
+        Graph<Integer, MyWeightedEdge> graph = new Graph<>();
+        for (int i = 0; i < 150; i++) {
+            graph.addNode(i);
+        }
+        for (int i = 0; i < 400; i++) {
+            graph.connectNodes(random.nextInt(150), random.nextInt(150), new MyWeightedEdge(random.nextInt(10)));
+        }
+
+        SpanningForest<Integer, MyWeightedEdge> kruskal = SpanningForest.kruskal(graph);
+        SpanningForest<Integer, MyWeightedEdge> prim = SpanningForest.prim(graph);
+        SpanningForest<Integer, MyWeightedEdge> boruvka = SpanningForest.boruvka(graph);
+
+        assertEquals(GraphFunctions.numberOfComponents(graph), kruskal.getNumberOfTrees());
+        assertEquals(kruskal.getTotalWeight(), prim.getTotalWeight(), 0.0);
+        assertEquals(kruskal.getTotalWeight(), boruvka.getTotalWeight(), 0.0);
+        assertEquals(kruskal.getNumberOfTrees(), prim.getNumberOfTrees());
+        assertEquals(kruskal.getNumberOfTrees(), boruvka.getNumberOfTrees());
+    }
+
+    private Graph<String, MyWeightedEdge> testGraph() {
+        Graph<String, MyWeightedEdge> graph = new Graph<>();
+        graph.addNodes("a", "b", "c", "d", "e");
+        graph.connectNodes("a", "b", new MyWeightedEdge(1));
+        graph.connectNodes("a", "c", new MyWeightedEdge(4));
+        graph.connectNodes("b", "c", new MyWeightedEdge(2));
+        graph.connectNodes("c", "d", new MyWeightedEdge(1));
+        graph.connectNodes("b", "d", new MyWeightedEdge(5));
+        graph.connectNodes("d", "e", new MyWeightedEdge(3));
+        return graph;
+    }
+}
@@ -0,0 +1,74 @@
+package com.lelv.graphthree;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StringDictionaryTest {
+
+    @Test
+    public void intern() {
+        StringDictionary dictionary = new StringDictionary();
+        assertEquals(0, dictionary.intern("a"));
+        assertEquals(1, dictionary.intern("b"));
+        assertEquals(0, dictionary.intern("a"));
+        assertEquals(2, dictionary.intern(""));
+        assertEquals(3, dictionary.intern("ñandú 🦤"));
+        assertEquals(4, dictionary.size());
+
+        assertEquals("a", dictionary.keyOf(0));
+        assertEquals("", dictionary.keyOf(2));
+        assertEquals("ñandú 🦤", dictionary.keyOf(3));
+        assertEquals(3, dictionary.idOf("ñandú 🦤"));
+        assertTrue(dictionary.contains("b"));
+        assertFalse(dictionary.contains("c"));
+        assertEquals(StringDictionary.NON_EXISTENT_ID, dictionary.idOf("c"));
+    }
+
+    @Test
+    public void nullIsNeverAKey() {
+        StringDictionary dictionary = new StringDictionary();
+        dictionary.intern("a");
+        for (Runnable call : new Runnable[]{() -> dictionary.intern(null), () -> dictionary.idOf(null),
+                                            () -> dictionary.contains(null)}) {
+            try {
+                call.run();
+                fail();
+            } catch (NullPointerException expected) {
+            }
+        }
+        assertEquals(1, dictionary.size());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void keyOfMissingId() {
+        StringDictionary dictionary = new StringDictionary();
+        dictionary.intern("a");
+        dictionary.keyOf(1);
+    }
+
+    @Test
+    public void manyKeys() {
+        StringDictionary dictionary = new StringDictionary();
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(9);
+        for (int i = 0; i < 200_000; i++) {
+            String key = "node-" + random.nextInt(150_000);
+            int id = dictionary.intern(key);
+            assertEquals(expected.computeIfAbsent(key, k -> expected.size()).intValue(), id);
+        }
+        String longKey = new String(new char[100_000]).replace('\0', 'x');
+        expected.put(longKey, dictionary.intern(longKey));
+
+        assertEquals(expected.size(), dictionary.size());
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().intValue(), dictionary.idOf(entry.getKey()));
+            assertEquals(entry.getKey(), dictionary.keyOf(entry.getValue()));
+        }
+        assertTrue(dictionary.getMemoryUsage() > 100_000);
+    }
+}
@@ -0,0 +1,89 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.DirectedGraph;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StronglyConnectedComponentsTest {
+
+    @Test
+    public void components() {
+        StronglyConnectedComponents<String> components = StronglyConnectedComponents.of(testGraph());
+
+        assertEquals(4, components.getNumberOfComponents());
+        assertEquals(components.componentOf("a"), components.componentOf("b"));
+        assertEquals(components.componentOf("a"), components.componentOf("c"));
+        assertEquals(components.componentOf("d"), components.componentOf("e"));
+        assertNotEquals(components.componentOf("a"), components.componentOf("d"));
+        assertNotEquals(components.componentOf("f"), components.componentOf("g"));
+        assertEquals(StronglyConnectedComponents.NON_EXISTENT_COMPONENT, components.componentOf("z"));
+
+        // reverse topological order
+        assertTrue(components.componentOf("a") > components.componentOf("d"));
+        assertTrue(components.componentOf("d") > components.componentOf("f"));
+    }
+
+    @Test
+    public void condensation() {
+        StronglyConnectedComponents<String> components = StronglyConnectedComponents.of(testGraph());
+        CompactGraph<Integer> dag = components.condensation();
+
+        int abc = components.componentOf("a");
+        int de = components.componentOf("d");
+        int f = components.componentOf("f");
+
+        assertEquals(4, dag.getNumberOfNodes());
+        assertEquals(2, dag.getNumberOfConnections());
+        assertArrayEquals(new int[]{de}, dag.neighbors(abc));
+        assertArrayEquals(new int[]{f}, dag.neighbors(de));
+        assertEquals(abc, dag.idOf(abc));
+    }
+
+    @Test
+    public void stronglyConnectedComponents() {
+        assertEquals("{a=2, b=2, c=2, d=1, e=1, f=0, g=3}",
+                     GraphFunctions.stronglyConnectedComponents(testGraph()).toString());
+    }
+
+    @Test
+    public void parallelMatchesSequential() {
+        Random random = new Random(7);
+        DirectedGraph<Integer, Integer> graph = new DirectedGraph<>();
+        for (int i = 0; i < 300; i++) {
+            graph.addNode(i);
+        }
+        for (int i = 0; i < 450; i++) {
+            graph.connectNodes(random.nextInt(300), random.nextInt(300), i);
+        }
+
+        CompactGraph<Integer> compact = CompactGraph.of(graph);
+        StronglyConnectedComponents<Integer> sequential = StronglyConnectedComponents.of(compact);
+        StronglyConnectedComponents<Integer> parallel = StronglyConnectedComponents.parallel(compact, 0);
+
+        assertEquals(sequential.getNumberOfComponents(), parallel.getNumberOfComponents());
+        for (int u = 0; u < 300; u++) {
+            for (int v = 0; v < 300; v++) {
+                assertEquals(sequential.componentOfId(u) == sequential.componentOfId(v),
+                             parallel.componentOfId(u) == parallel.componentOfId(v));
+            }
+        }
+    }
+
+    private DirectedGraph<String, Integer> testGraph() {
+        DirectedGraph<String, Integer> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c", "d", "e", "f", "g");
+
+        graph.connectNodes("a", "b", 1);
+        graph.connectNodes("b", "c", 1);
+        graph.connectNodes("c", "a", 1);
+        graph.connectNodes("c", "d", 1);
+        graph.connectNodes("b", "e", 1);
+        graph.connectNodes("d", "e", 1);
+        graph.connectNodes("e", "d", 1);
+        graph.connectNodes("e", "f", 1);
+        return graph;
+    }
+}
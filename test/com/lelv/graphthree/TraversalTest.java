@@ -0,0 +1,173 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.TraversalVisitor.Decision;
+import com.lelv.graphthree.impl.DirectedGraph;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TraversalTest {
+
+    @Test
+    public void depthFirst() {
+        DirectedGraph<String, Integer> graph = testGraph();
+        Recorder recorder = new Recorder();
+        assertFalse(Traversal.depthFirst(graph).run("a", recorder));
+
+        assertEquals(GraphFunctions.dfs(graph, "a"), recorder.discovered);
+        assertEquals("[a0, b1, d2, e3, c1]", recorder.events("+"));
+        assertEquals("[e3, d2, b1, c1, a0]", recorder.events("-"));
+        // Every connection reachable is examined, also the ones to nodes already discovered
+        assertEquals(6, recorder.examined);
+    }
+
+    @Test
+    public void breadthFirst() {
+        Recorder recorder = new Recorder();
+        assertFalse(Traversal.breadthFirst(testGraph()).run("a", recorder));
+
+        assertEquals("[a0, b1, c1, d2, e3]", recorder.events("+"));
+        assertEquals("[a0, b1, c1, d2, e3]", recorder.events("-"));
+        assertEquals(6, recorder.examined);
+    }
+
+    @Test
+    public void maxDepth() {
+        Recorder recorder = new Recorder();
+        Traversal.breadthFirst(testGraph()).withMaxDepth(1).run("a", recorder);
+        assertEquals("[a, b, c]", recorder.discovered.toString());
+        assertEquals(2, recorder.examined);
+
+        recorder = new Recorder();
+        Traversal.depthFirst(testGraph()).withMaxDepth(0).run("a", recorder);
+        assertEquals("[a]", recorder.discovered.toString());
+    }
+
+    @Test
+    public void connectionFilter() {
+        Recorder recorder = new Recorder();
+        Traversal.depthFirst(testGraph()).withConnectionFilter(connection -> connection < 3).run("a", recorder);
+        assertEquals("[a, b, c]", recorder.discovered.toString());
+        assertEquals(3, recorder.examined);
+    }
+
+    @Test
+    public void terminate() {
+        List<String> discovered = new ArrayList<>();
+        boolean terminated = Traversal.breadthFirst(testGraph()).run("a", new TraversalVisitor<>() {
+            @Override
+            public Decision discoverNode(String node, int depth) {
+                discovered.add(node);
+                return node.equals("c") ? Decision.TERMINATE : Decision.CONTINUE;
+            }
+        });
+        assertTrue(terminated);
+        assertEquals("[a, b, c]", discovered.toString());
+    }
+
+    @Test
+    public void skipSubtree() {
+        Recorder recorder = new Recorder() {
+            @Override
+            public Decision discoverNode(String node, int depth) {
+                super.discoverNode(node, depth);
+                return node.equals("b") ? Decision.SKIP_SUBTREE : Decision.CONTINUE;
+            }
+
+            @Override
+            public Decision examineConnection(String originNode, String destinationNode, Integer connection,
+                                              int depth) {
+                super.examineConnection(originNode, destinationNode, connection, depth);
+                return destinationNode.equals("e") ? Decision.SKIP_SUBTREE : Decision.CONTINUE;
+            }
+        };
+        Traversal.depthFirst(testGraph()).run("a", recorder);
+        assertEquals("[a, b, c, d]", recorder.discovered.toString());
+        assertEquals("[b1, d2, c1, a0]", recorder.events("-"));
+    }
+
+    @Test
+    public void deepGraphs() {
+        DirectedGraph<Integer, Integer> graph = new DirectedGraph<>();
+        graph.addNode(0);
+        for (int i = 1; i < 100_000; i++) {
+            graph.addNode(i);
+            graph.connectNodes(i - 1, i, i);
+        }
+        int[] deepest = {0};
+        Traversal.depthFirst(graph).run(0, new TraversalVisitor<>() {
+            @Override
+            public Decision discoverNode(Integer node, int depth) {
+                deepest[0] = depth;
+                return Decision.CONTINUE;
+            }
+        });
+        assertEquals(99_999, deepest[0]);
+    }
+
+    @Test
+    public void missingOrigin() {
+        Recorder recorder = new Recorder();
+        assertFalse(Traversal.depthFirst(testGraph()).run("z", recorder));
+        assertTrue(recorder.discovered.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeDepth() {
+        Traversal.depthFirst(testGraph()).withMaxDepth(-1);
+    }
+
+    /*
+     * a -> b -> d -> e, a -> c -> d, c -> a
+     */
+    private DirectedGraph<String, Integer> testGraph() {
+        DirectedGraph<String, Integer> graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c", "d", "e");
+        graph.connectNodes("a", "b", 1);
+        graph.connectNodes("a", "c", 2);
+        graph.connectNodes("b", "d", 3);
+        graph.connectNodes("c", "d", 4);
+        graph.connectNodes("c", "a", 1);
+        graph.connectNodes("d", "e", 5);
+        return graph;
+    }
+
+    private static class Recorder implements TraversalVisitor<String, Integer> {
+        final List<String> discovered = new ArrayList<>();
+        final List<String> log = new ArrayList<>();
+        int examined;
+
+        @Override
+        public Decision discoverNode(String node, int depth) {
+            discovered.add(node);
+            log.add("+" + node + depth);
+            return Decision.CONTINUE;
+        }
+
+        @Override
+        public Decision examineConnection(String originNode, String destinationNode, Integer connection,
+                                          int depth) {
+            examined++;
+            return Decision.CONTINUE;
+        }
+
+        @Override
+        public Decision finishNode(String node, int depth) {
+            log.add("-" + node + depth);
+            return Decision.CONTINUE;
+        }
+
+        String events(String kind) {
+            List<String> events = new ArrayList<>();
+            for (String event : log) {
+                if (event.startsWith(kind)) {
+                    events.add(event.substring(1));
+                }
+            }
+            return events.toString();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.impl.Graph;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TriangleCountingTest {
+
+    @Test
+    public void count() {
+        Graph<String, Integer> graph = testGraph();
+        assertEquals(2, GraphFunctions.numberOfTriangles(graph));
+
+        graph.connectNodes("a", "d", 1);
+        assertEquals(4, GraphFunctions.numberOfTriangles(graph));
+    }
+
+    @Test
+    public void perNode() {
+        CompactGraph<String> compact = CompactGraph.of(testGraph());
+        long[] triangles = TriangleCounting.perNode(compact);
+
+        assertEquals(1, triangles[compact.idOf("a")]);
+        assertEquals(2, triangles[compact.idOf("b")]);
+        assertEquals(2, triangles[compact.idOf("c")]);
+        assertEquals(1, triangles[compact.idOf("d")]);
+        assertEquals(0, triangles[compact.idOf("e")]);
+    }
+
+    @Test
+    public void clusteringCoefficients() {
+        Map<String, Double> coefficients = GraphFunctions.clusteringCoefficients(testGraph());
+
+        assertEquals(1.0, coefficients.get("a"), 1e-12);
+        assertEquals(2.0 / 3, coefficients.get("b"), 1e-12);
+        assertEquals(1.0 / 3, coefficients.get("c"), 1e-12);
+        assertEquals(0.0, coefficients.get("e"), 1e-12);
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        Random random = new Random(11);
+        Graph<Integer, Integer> graph = new Graph<>();
+        for (int i = 0; i < 80; i++) {
+            graph.addNode(i);
+        }
+        // A hub connected to everything forces galloping intersections
+        for (int i = 1; i < 80; i++) {
+            graph.connectNodes(0, i, 1);
+        }
+        for (int i = 0; i < 200; i++) {
+            graph.connectNodes(random.nextInt(80), random.nextInt(80), 1);
+        }
+
+        long expected = 0;
+        for (int a = 0; a < 80; a++) {
+            for (int b = a + 1; b < 80; b++) {
+                for (int c = b + 1; c < 80; c++) {
+                    if (graph.connectionExists(a, b) && graph.connectionExists(b, c) && graph.connectionExists(a, c)) {
+                        expected++;
+                    }
+                }
+            }
+        }
+        assertEquals(expected, GraphFunctions.numberOfTriangles(graph));
+
+        long sum = 0;
+        for (long triangles : TriangleCounting.perNode(CompactGraph.of(graph))) {
+            sum += triangles;
+        }
+        assertEquals(3 * expected, sum);
+    }
+
+    private Graph<String, Integer> testGraph() {
+        Graph<String, Integer> graph = new Graph<>();
+        graph.addNodes("a", "b", "c", "d", "e");
+        graph.connectNodes("a", "b", 1);
+        graph.connectNodes("a", "c", 1);
+        graph.connectNodes("b", "c", 1);
+        graph.connectNodes("b", "d", 1);
+        graph.connectNodes("c", "d", 1);
+        graph.connectNodes("c", "e", 1);
+        return graph;
+    }
+}
@@ -0,0 +1,86 @@
+package com.lelv.graphthree;
+
+import com.lelv.graphthree.VertexOrdering.Strategy;
+import com.lelv.graphthree.impl.DirectedGraph;
+import com.lelv.graphthree.impl.Graph;
+import org.junit.Test;
+
+import java.util.*;
+
+import static com.lelv.graphthree.GraphAssertions.assertSameGraph;
+import static org.junit.Assert.*;
+
+public class VertexOrderingTest {
+
+    @Test
+    public void improvesLocalityOfShuffledGrids() {
+        Graph<String, MyWeightedEdge> graph = shuffledGrid(40, 40, new Random(3));
+        CompactGraph<String> compact = CompactGraph.weighted(graph);
+
+        for (Strategy strategy : new Strategy[]{Strategy.REVERSE_CUTHILL_MCKEE, Strategy.GORDER}) {
+            VertexOrdering<String> ordering = VertexOrdering.of(compact, strategy);
+            assertEquals(VertexOrdering.averageLogGap(compact), ordering.getLocalityBefore(), 0.0);
+            assertTrue(strategy.toString(), ordering.getLocalityAfter() < ordering.getLocalityBefore() * 0.7);
+            assertSameGraph(graph, ordering.getGraph());
+        }
+    }
+
+    @Test
+    public void degreeOrderPutsHubsFirst() {
+        DirectedGraph<Integer, Integer> graph = new DirectedGraph<>();
+        for (int i = 0; i < 100; i++) {
+            graph.addNode(i);
+        }
+        for (int i = 0; i < 100; i++) {
+            graph.connectNodes(i, 77, i);
+            graph.connectNodes(i, 13, i);
+            graph.connectNodes(13, i, i);
+        }
+
+        VertexOrdering<Integer> ordering = VertexOrdering.of(CompactGraph.of(graph), Strategy.DEGREE);
+        CompactGraph<Integer> reordered = ordering.getGraph();
+        assertEquals(13, (int) reordered.nodeOf(0));
+        assertEquals(77, (int) reordered.nodeOf(1));
+        assertEquals(0, ordering.getNewIds()[13]);
+        assertSameGraph(graph, reordered);
+        assertSameGraph(graph, VertexOrdering.compact(graph, Strategy.GORDER));
+    }
+
+    @Test
+    public void reorderRejectsInvalidPermutations() {
+        CompactGraph<Integer> graph = GraphGenerator.erdosRenyi(10, 30).toCompactGraph(false);
+        try {
+            graph.reorder(new int[]{0, 1, 2});
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            graph.reorder(new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 8});
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static Graph<String, MyWeightedEdge> shuffledGrid(int rows, int columns, Random random) {
+        List<Integer> cells = new ArrayList<>();
+        for (int i = 0; i < rows * columns; i++) {
+            cells.add(i);
+        }
+        Collections.shuffle(cells, random);
+        Graph<String, MyWeightedEdge> graph = new Graph<>();
+        for (int cell : cells) {
+            graph.addNode(cell / columns + "," + cell % columns);
+        }
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (c + 1 < columns) {
+                    graph.connectNodes(r + "," + c, r + "," + (c + 1), new MyWeightedEdge(r * c));
+                }
+                if (r + 1 < rows) {
+                    graph.connectNodes(r + "," + c, (r + 1) + "," + c, new MyWeightedEdge(r + c));
+                }
+            }
+        }
+        return graph;
+    }
+}
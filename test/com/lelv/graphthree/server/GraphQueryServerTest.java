@@ -0,0 +1,187 @@
+package com.lelv.graphthree.server;
+
+import com.lelv.graphthree.impl.DirectedGraph;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class GraphQueryServerTest {
+
+    private DirectedGraph<String, Integer> graph;
+    private ReentrantReadWriteLock lock;
+    private GraphQueryServer<String, Integer> server;
+
+    @Before
+    public void setUp() throws IOException {
+        graph = new DirectedGraph<>();
+        graph.addNodes("a", "b", "c", "d", "e");
+        graph.connectNodes("a", "b", 1);
+        graph.connectNodes("b", "c", 1);
+        graph.connectNodes("a", "c", 5);
+        graph.connectNodes("d", "e", 1);
+        lock = new ReentrantReadWriteLock();
+        server = GraphQueryServer.start(graph, lock, Function.identity());
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void queries() throws IOException {
+        assertEquals("[\"b\",\"c\"]", get("/neighbors?node=a"));
+        assertEquals("[\"a\",\"c\"]", get("/path?from=a&to=c"));
+        assertEquals("null", get("/path?from=c&to=a"));
+        assertEquals("{\"a\":0,\"b\":1,\"c\":1}", get("/distances?from=a"));
+        assertEquals("{\"a\":0,\"b\":0,\"c\":0,\"d\":1,\"e\":1}", get("/components"));
+        assertEquals(5, server.getNumberOfQueries());
+    }
+
+    @Test
+    public void errors() throws IOException {
+        assertEquals(404, status("/neighbors?node=z"));
+        assertEquals(404, status("/path?from=a&to=z"));
+        assertEquals(400, status("/distances"));
+        assertEquals(404, status("/unknown"));
+    }
+
+    @Test
+    public void followsChanges() throws IOException {
+        assertEquals("null", get("/path?from=c&to=e"));
+        lock.writeLock().lock();
+        try {
+            graph.connectNodes("c", "d", 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        assertEquals("[\"c\",\"d\",\"e\"]", get("/path?from=c&to=e"));
+        assertEquals("[\"d\"]", get("/neighbors?node=c"));
+    }
+
+    @Test
+    public void weightedDistances() throws IOException {
+        try (GraphQueryServer<String, Integer> weighted = GraphQueryServer.start(graph, lock, Function.identity(),
+                                                                                 Integer::doubleValue, 0)) {
+            assertEquals("{\"a\":0,\"b\":1,\"c\":2}", get(weighted, "/distances?from=a"));
+        }
+    }
+
+    @Test
+    public void coalescesIdenticalQueries() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        GraphQueryServer<String, Integer> slow = GraphQueryServer.start(graph, lock, Function.identity(),
+                                                                        connection -> {
+                                                                            try {
+                                                                                release.await();
+                                                                            } catch (InterruptedException e) {
+                                                                                Thread.currentThread().interrupt();
+                                                                            }
+                                                                            return connection;
+                                                                        }, 0);
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> answers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                answers.add(clients.submit(() -> get(slow, "/distances?from=a")));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (slow.getNumberOfQueries() < 8 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<String> answer : answers) {
+                assertEquals("{\"a\":0,\"b\":1,\"c\":2}", answer.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(7, slow.getNumberOfCoalescedQueries());
+        } finally {
+            clients.shutdownNow();
+            slow.close();
+        }
+    }
+
+    @Test
+    public void answersOverloadWithServiceUnavailable() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        GraphQueryServer<String, Integer> slow = GraphQueryServer.start(graph, lock, Function.identity(),
+                                                                        connection -> {
+                                                                            try {
+                                                                                release.await();
+                                                                            } catch (InterruptedException e) {
+                                                                                Thread.currentThread().interrupt();
+                                                                            }
+                                                                            return connection;
+                                                                        }, 0, 1, 1);
+        Assume.assumeFalse("Virtual threads are not bounded", slow.usesVirtualThreads());
+        ExecutorService clients = Executors.newFixedThreadPool(3);
+        try {
+            // The only thread waits for the weights, so of the next two queries one is queued and one rejected
+            Future<Integer> first = clients.submit(() -> status(slow, "/distances?from=a"));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (slow.getNumberOfQueries() < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            List<Future<Integer>> next = new ArrayList<>();
+            next.add(clients.submit(() -> status(slow, "/distances?from=b")));
+            next.add(clients.submit(() -> status(slow, "/distances?from=d")));
+            while (slow.getNumberOfRejectedQueries() < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertEquals(200, (int) first.get(10, TimeUnit.SECONDS));
+            List<Integer> statuses = new ArrayList<>();
+            for (Future<Integer> status : next) {
+                statuses.add(status.get(10, TimeUnit.SECONDS));
+            }
+            Collections.sort(statuses);
+            assertEquals(List.of(200, 503), statuses);
+            assertEquals(1, slow.getNumberOfRejectedQueries());
+        } finally {
+            clients.shutdownNow();
+            slow.close();
+        }
+    }
+
+    private String get(String path) throws IOException {
+        return get(server, path);
+    }
+
+    private static String get(GraphQueryServer<?, ?> server, String path) throws IOException {
+        HttpURLConnection connection = open(server, path);
+        assertEquals(200, connection.getResponseCode());
+        try (InputStream in = connection.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private int status(String path) throws IOException {
+        return status(server, path);
+    }
+
+    private static int status(GraphQueryServer<?, ?> server, String path) throws IOException {
+        HttpURLConnection connection = open(server, path);
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+
+    private static HttpURLConnection open(GraphQueryServer<?, ?> server, String path) throws IOException {
+        return (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+    }
+}
@@ -0,0 +1,66 @@
+package com.lelv.graphtwo;
+
+import com.lelv.memory.MemoryFootprint;
+import com.lelv.memory.MemoryLayout;
+import org.junit.Test;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+public class GraphAdjListTest {
+
+    // ArrayList fields plus the capacity and the flag of CapacityTrackingList
+    private static final long LIST = MemoryLayout.object(1, 2 * Integer.BYTES + Integer.BYTES + 1);
+    private static final long ARC = MemoryLayout.object(3, 0) - MemoryLayout.REFERENCE;
+
+    @Test
+    public void memoryFootprint() {
+        DiGraph<String, MyArc> graph = new DiGraph<>();
+        graph.addVertex("a");
+        graph.addVertex("b");
+        graph.addVertex("c");
+        graph.addArc("a", "b", new MyArc(1));
+        graph.addArc("a", "c", new MyArc(2));
+
+        MemoryFootprint footprint = graph.memoryFootprint();
+        assertEquals(MemoryLayout.hashMap(3) + LIST + MemoryLayout.referenceArray(3) + 3 * MemoryLayout.object(3, 5),
+                     footprint.getVertexIndex());
+        assertEquals(3 * LIST + MemoryLayout.referenceArray(2) + 2 * ARC, footprint.getAdjacency());
+        assertEquals(2 * MemoryLayout.REFERENCE, footprint.getPayloadReferences());
+        // The list of nodes and the list of a allocated ten slots
+        assertEquals(MemoryLayout.arrayListSlack(3, 10) + MemoryLayout.arrayListSlack(2, 10), footprint.getSlack());
+    }
+
+    @Test
+    public void trimToSize() {
+        DiGraph<Integer, MyArc> graph = new DiGraph<>();
+        for (int v = 0; v < 100; v++) {
+            graph.addVertex(v);
+        }
+        for (int v = 1; v <= 40; v++) {
+            graph.addArc(0, v, new MyArc(v));
+        }
+        for (int v = 50; v < 100; v++) {
+            graph.removeVertex(v);
+        }
+        MemoryFootprint before = graph.memoryFootprint();
+        assertEquals(MemoryLayout.arrayListSlack(50, 109) + MemoryLayout.arrayListSlack(40, 49), before.getSlack());
+
+        HashMap<Integer, GraphAdjList<Integer, MyArc>.Node> nodes = graph.nodes;
+        graph.trimToSize();
+        MemoryFootprint after = graph.memoryFootprint();
+        assertEquals(0, after.getSlack());
+        assertEquals(before.getVertexIndex(), after.getVertexIndex());
+        assertEquals(before.getAdjacency(), after.getAdjacency());
+        assertEquals(before.getTotal() - before.getSlack(), after.getTotal());
+
+        // The table left by the removed nodes is replaced by one for the nodes left
+        assertNotSame(nodes, graph.nodes);
+        assertEquals(nodes, graph.nodes);
+        assertEquals(50, graph.vertexCount());
+        assertEquals(40, graph.outDegree(0));
+        assertEquals(40.0, graph.isArc(0, 40).getValue(), 0.0);
+        assertTrue(graph.isPath(0, 10));
+    }
+}
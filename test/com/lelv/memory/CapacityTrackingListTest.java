@@ -0,0 +1,67 @@
+package com.lelv.memory;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class CapacityTrackingListTest {
+
+    @Test
+    public void growsLikeArrayList() {
+        CapacityTrackingList<Integer> list = new CapacityTrackingList<>();
+        assertEquals(0, list.capacity());
+
+        list.add(0);
+        assertEquals(10, list.capacity());
+        for (int i = 1; i <= 10; i++) {
+            list.add(i);
+        }
+        assertEquals(15, list.capacity());
+        list.addAll(Collections.nCopies(5, 0));
+        assertEquals(22, list.capacity());
+        list.addAll(0, Collections.nCopies(20, 0));
+        assertEquals(36, list.capacity());
+
+        list.remove(0);
+        list.clear();
+        assertEquals(36, list.capacity());
+        list.trimToSize();
+        assertEquals(0, list.capacity());
+        list.add(0);
+        assertEquals(1, list.capacity());
+        list.add(0, 1);
+        list.add(2);
+        assertEquals(3, list.capacity());
+        list.add(3);
+        assertEquals(4, list.capacity());
+        list.add(4);
+        assertEquals(6, list.capacity());
+        assertEquals(Arrays.asList(1, 0, 2, 3, 4), list);
+    }
+
+    @Test
+    public void ensureCapacity() {
+        CapacityTrackingList<Integer> list = new CapacityTrackingList<>();
+        list.ensureCapacity(5);
+        assertEquals(0, list.capacity());
+        list.ensureCapacity(30);
+        assertEquals(30, list.capacity());
+
+        CapacityTrackingList<Integer> sized = new CapacityTrackingList<>(4);
+        assertEquals(4, sized.capacity());
+        sized.ensureCapacity(5);
+        assertEquals(6, sized.capacity());
+        sized.addAll(Collections.nCopies(20, 0));
+        assertEquals(20, sized.capacity());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void addOutOfRange() {
+        CapacityTrackingList<Integer> list = new CapacityTrackingList<>();
+        list.add(1, 0);
+        assertEquals(0, list.capacity());
+    }
+}